@@ -31,7 +31,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -66,10 +65,9 @@ public class DelegatingCompactionStrategy implements CompactionStrategy {
 
     @Override
     public List<CompactionJob> createCompactionJobs(List<FileReference> activeFilesWithJobId, List<FileReference> activeFilesWithNoJobId, List<Partition> allPartitions) {
-        // Get list of partition ids from the above files
-        Set<String> partitionIds = activeFilesWithNoJobId.stream()
-                .map(FileReference::getPartitionId)
-                .collect(Collectors.toSet());
+        // Group the files by partition once, so that each partition only needs to consider its own files
+        Map<String, List<FileReference>> filesWithNoJobIdByPartitionId = groupByPartitionId(activeFilesWithNoJobId);
+        Map<String, List<FileReference>> filesWithJobIdByPartitionId = groupByPartitionId(activeFilesWithJobId);
 
         // Get map from partition id to partition
         Map<String, Partition> partitionIdToPartition = new HashMap<>();
@@ -79,7 +77,8 @@ public class DelegatingCompactionStrategy implements CompactionStrategy {
 
         // Loop through partitions for the active files with no job id
         List<CompactionJob> compactionJobs = new ArrayList<>();
-        for (String partitionId : partitionIds) {
+        for (Map.Entry<String, List<FileReference>> entry : filesWithNoJobIdByPartitionId.entrySet()) {
+            String partitionId = entry.getKey();
             Partition partition = partitionIdToPartition.get(partitionId);
             if (null == partition) {
                 throw new RuntimeException("Cannot find partition for partition id "
@@ -87,13 +86,19 @@ public class DelegatingCompactionStrategy implements CompactionStrategy {
             }
 
             if (partition.isLeafPartition()) {
-                compactionJobs.addAll(createJobsForLeafPartition(partition, activeFilesWithJobId, activeFilesWithNoJobId));
+                compactionJobs.addAll(createJobsForLeafPartition(partition,
+                        filesWithJobIdByPartitionId.getOrDefault(partitionId, Collections.emptyList()),
+                        entry.getValue()));
             }
         }
 
         return compactionJobs;
     }
 
+    private static Map<String, List<FileReference>> groupByPartitionId(List<FileReference> files) {
+        return files.stream().collect(Collectors.groupingBy(FileReference::getPartitionId));
+    }
+
     private List<CompactionJob> createJobsForLeafPartition(
             Partition partition, List<FileReference> activeFilesWithJobId, List<FileReference> activeFilesWithNoJobId) {
 
@@ -22,10 +22,8 @@ import sleeper.core.partition.Partition;
 import sleeper.core.statestore.FileReference;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 public class CompactionUtils {
@@ -42,20 +40,10 @@ public class CompactionUtils {
                 .collect(Collectors.toList());
         LOGGER.info("Creating jobs for leaf partition {} in table {} (there are {} files for this partition)", partition.getId(), tableName, files.size());
 
-        // Create map of number of records in file to files, sorted by number of records in file
-        SortedMap<Long, List<FileReference>> recordsToFiles = new TreeMap<>();
-        for (FileReference fileReference : files) {
-            if (!recordsToFiles.containsKey(fileReference.getNumberOfRecords())) {
-                recordsToFiles.put(fileReference.getNumberOfRecords(), new ArrayList<>());
-            }
-            recordsToFiles.get(fileReference.getNumberOfRecords()).add(fileReference);
-        }
-
-        // Convert to list of FileReferences in ascending order of number of records
-        List<FileReference> fileReferenceList = new ArrayList<>();
-        for (Map.Entry<Long, List<FileReference>> entry : recordsToFiles.entrySet()) {
-            fileReferenceList.addAll(entry.getValue());
-        }
+        // Sort by number of records in file. The sort is stable, so files with the same number of records stay in the
+        // order they were given.
+        List<FileReference> fileReferenceList = new ArrayList<>(files);
+        fileReferenceList.sort(Comparator.comparingLong(FileReference::getNumberOfRecords));
 
         return fileReferenceList;
     }
@@ -29,7 +29,6 @@ import sleeper.core.statestore.FileReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static sleeper.compaction.strategy.impl.CompactionUtils.getFilesInAscendingOrder;
 import static sleeper.configuration.properties.table.TableProperty.COMPACTION_FILES_BATCH_SIZE;
@@ -54,37 +53,35 @@ public class SizeRatioLeafStrategy implements LeafPartitionCompactionStrategy {
 
     @Override
     public List<CompactionJob> createJobsForLeafPartition(Partition partition, List<FileReference> fileReferences) {
+        List<FileReference> filesInAscendingOrder = getFilesInAscendingOrder(tableName, partition, fileReferences);
+        long[] cumulativeSizes = cumulativeFileSizes(filesInAscendingOrder);
+
         // Find files that meet criteria, i.e. sum of file sizes excluding largest
         // is >= ratio * largest file size.
-        List<FileReference> filesThatMeetCriteria = getListOfFilesThatMeetsCriteria(partition, fileReferences);
-        if (null == filesThatMeetCriteria || filesThatMeetCriteria.isEmpty()) {
+        int numFilesThatMeetCriteria = getNumberOfFilesThatMeetCriteria(filesInAscendingOrder, cumulativeSizes);
+        if (numFilesThatMeetCriteria < 2) {
             LOGGER.info("For partition {} there is no list of files that meet the criteria", partition.getId());
-            return Collections.EMPTY_LIST;
+            return Collections.emptyList();
         }
-        LOGGER.info("For partition {} there is a list of {} files that meet the criteria", partition.getId(), filesThatMeetCriteria.size());
+        LOGGER.info("For partition {} there is a list of {} files that meet the criteria", partition.getId(), numFilesThatMeetCriteria);
+        List<FileReference> filesThatMeetCriteria = filesInAscendingOrder.subList(0, numFilesThatMeetCriteria);
 
         // Iterate through these files, batching into groups of compactionFilesBatchSize
         // and creating a job for each group as long as it meets the criteria.
         List<CompactionJob> compactionJobs = new ArrayList<>();
         if (filesThatMeetCriteria.size() <= compactionFilesBatchSize) {
-            compactionJobs.add(factory.createCompactionJob(filesThatMeetCriteria, partition.getId()));
+            compactionJobs.add(factory.createCompactionJob(new ArrayList<>(filesThatMeetCriteria), partition.getId()));
         } else {
             int position = 0;
-            List<FileReference> files = new ArrayList<>(filesThatMeetCriteria);
-            while (position < files.size()) {
-                List<FileReference> filesForJob = new ArrayList<>();
-                int j;
-                for (j = 0; j < compactionFilesBatchSize && position + j < files.size(); j++) {
-                    filesForJob.add(files.get(position + j));
-                }
+            while (position < filesThatMeetCriteria.size()) {
+                int end = Math.min(position + compactionFilesBatchSize, filesThatMeetCriteria.size());
                 // Create job for these files if they meet criteria
-                List<Long> fileSizes = filesForJob.stream().map(FileReference::getNumberOfRecords).collect(Collectors.toList());
-                if (meetsCriteria(fileSizes)) {
+                if (meetsCriteria(filesInAscendingOrder, cumulativeSizes, position, end)) {
                     LOGGER.info("Creating a job to compact {} files in partition {}",
-                            filesForJob.size(), partition.getId());
-                    compactionJobs.add(factory.createCompactionJob(filesForJob, partition.getId()));
-                    filesForJob.clear();
-                    position += j;
+                            end - position, partition.getId());
+                    compactionJobs.add(factory.createCompactionJob(
+                            new ArrayList<>(filesThatMeetCriteria.subList(position, end)), partition.getId()));
+                    position = end;
                 } else {
                     position++;
                 }
@@ -94,32 +91,38 @@ public class SizeRatioLeafStrategy implements LeafPartitionCompactionStrategy {
         return compactionJobs;
     }
 
-    private List<FileReference> getListOfFilesThatMeetsCriteria(Partition partition, List<FileReference> fileReferences) {
-        List<FileReference> filesInAscendingOrder = getFilesInAscendingOrder(tableName, partition, fileReferences);
-
-        while (filesInAscendingOrder.size() > 1) {
-            List<Long> fileSizes = filesInAscendingOrder.stream().map(FileReference::getNumberOfRecords).collect(Collectors.toList());
-            if (meetsCriteria(fileSizes)) {
-                return filesInAscendingOrder;
-            } else {
-                filesInAscendingOrder.remove(filesInAscendingOrder.size() - 1);
+    private int getNumberOfFilesThatMeetCriteria(List<FileReference> filesInAscendingOrder, long[] cumulativeSizes) {
+        // Drop the largest file until the rest meet the criteria. With the cumulative sizes each check is constant time.
+        for (int end = filesInAscendingOrder.size(); end > 1; end--) {
+            if (meetsCriteria(filesInAscendingOrder, cumulativeSizes, 0, end)) {
+                return end;
             }
         }
-        return null;
+        return 0;
     }
 
-    private boolean meetsCriteria(List<Long> fileSizesInAscendingOrder) {
-        if (fileSizesInAscendingOrder.isEmpty() || 1 == fileSizesInAscendingOrder.size()) {
+    private boolean meetsCriteria(List<FileReference> filesInAscendingOrder, long[] cumulativeSizes, int start, int end) {
+        if (end - start < 2) {
             return false;
         }
-        long largestFileSize = fileSizesInAscendingOrder.get(fileSizesInAscendingOrder.size() - 1);
-        LOGGER.info("Largest file size is {}", largestFileSize);
-        long sumOfOtherFileSizes = 0L;
-        for (int i = 0; i < fileSizesInAscendingOrder.size() - 1; i++) {
-            sumOfOtherFileSizes += fileSizesInAscendingOrder.get(i);
-        }
-        LOGGER.info("Sum of other file sizes is {}", sumOfOtherFileSizes);
-        LOGGER.info("Ratio * largestFileSize <= sumOfOtherFileSizes {}", (ratio * largestFileSize <= sumOfOtherFileSizes));
+        long largestFileSize = filesInAscendingOrder.get(end - 1).getNumberOfRecords();
+        long sumOfOtherFileSizes = cumulativeSizes[end - 1] - cumulativeSizes[start];
+        LOGGER.debug("Largest file size is {}, sum of other file sizes is {}", largestFileSize, sumOfOtherFileSizes);
         return ratio * largestFileSize <= sumOfOtherFileSizes;
     }
+
+    /**
+     * Computes the cumulative number of records in the given files. The element at index i is the total number of
+     * records in the first i files, so the total for any range of files can be found by subtracting two elements.
+     *
+     * @param  files the files
+     * @return       the cumulative number of records, with one more element than there are files
+     */
+    private static long[] cumulativeFileSizes(List<FileReference> files) {
+        long[] cumulativeSizes = new long[files.size() + 1];
+        for (int i = 0; i < files.size(); i++) {
+            cumulativeSizes[i + 1] = cumulativeSizes[i] + files.get(i).getNumberOfRecords();
+        }
+        return cumulativeSizes;
+    }
 }
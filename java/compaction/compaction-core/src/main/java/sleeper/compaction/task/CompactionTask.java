@@ -31,10 +31,16 @@ import sleeper.core.record.process.RecordsProcessedSummary;
 import sleeper.core.util.LoggedDuration;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -42,6 +48,7 @@ import static sleeper.compaction.job.status.CompactionJobFailedEvent.compactionJ
 import static sleeper.compaction.job.status.CompactionJobFinishedEvent.compactionJobFinished;
 import static sleeper.compaction.job.status.CompactionJobStartedEvent.compactionJobStarted;
 import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_DELAY_BEFORE_RETRY_IN_SECONDS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONCURRENT_JOBS;
 import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONSECUTIVE_FAILURES;
 import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_IDLE_TIME_IN_SECONDS;
 import static sleeper.core.metrics.MetricsLogger.METRICS_LOGGER;
@@ -53,17 +60,14 @@ public class CompactionTask {
     private static final Logger LOGGER = LoggerFactory.getLogger(CompactionTask.class);
 
     private final InstanceProperties instanceProperties;
-    private final PropertiesReloader propertiesReloader;
     private final Consumer<Duration> sleepForTime;
     private final MessageReceiver messageReceiver;
-    private final CompactionAlgorithmSelector selector;
+    private final JobSlotFactory jobSlotFactory;
     private final CompactionJobStatusStore jobStatusStore;
     private final CompactionTaskStatusStore taskStatusStore;
-    private final CompactionJobCommitterOrSendToLambda jobCommitter;
     private final String taskId;
     private final Supplier<String> jobRunIdSupplier;
     private final Supplier<Instant> timeSupplier;
-    private final WaitForFileAssignment waitForFiles;
 
     public CompactionTask(InstanceProperties instanceProperties, PropertiesReloader propertiesReloader,
             MessageReceiver messageReceiver, WaitForFileAssignment waitForFiles,
@@ -80,18 +84,49 @@ public class CompactionTask {
             CompactionJobCommitterOrSendToLambda jobCommitter,
             CompactionJobStatusStore jobStore, CompactionTaskStatusStore taskStore, CompactionAlgorithmSelector selector,
             String taskId, Supplier<String> jobRunIdSupplier, Supplier<Instant> timeSupplier, Consumer<Duration> sleepForTime) {
+        // Every job slot shares these components, which are not thread safe, so only one job should run at a time
+        this(instanceProperties, messageReceiver, jobStore, taskStore,
+                () -> new JobSlot(propertiesReloader, waitForFiles, jobCommitter, selector),
+                taskId, jobRunIdSupplier, timeSupplier, sleepForTime);
+    }
+
+    public CompactionTask(
+            InstanceProperties instanceProperties, MessageReceiver messageReceiver,
+            CompactionJobStatusStore jobStore, CompactionTaskStatusStore taskStore, JobSlotFactory jobSlotFactory,
+            String taskId) {
+        this(instanceProperties, messageReceiver, jobStore, taskStore, jobSlotFactory,
+                taskId, () -> UUID.randomUUID().toString(), Instant::now, threadSleep());
+    }
+
+    /**
+     * Creates a compaction task which may run multiple jobs at once. The number of jobs that can run at once is set in
+     * the instance property sleeper.compaction.task.max.concurrent.jobs. Each job slot is created separately, so that
+     * the components it uses do not need to be thread safe. The other components passed in here will be shared
+     * between job slots, and must be thread safe.
+     *
+     * @param instanceProperties the instance properties
+     * @param messageReceiver    the receiver of messages from the job queue
+     * @param jobStore           the job status store
+     * @param taskStore          the task status store
+     * @param jobSlotFactory     the factory to create each job slot
+     * @param taskId             the task ID
+     * @param jobRunIdSupplier   the generator for job run IDs
+     * @param timeSupplier       the supplier for the current time
+     * @param sleepForTime       the method to wait when no jobs are found on the queue
+     */
+    public CompactionTask(
+            InstanceProperties instanceProperties, MessageReceiver messageReceiver,
+            CompactionJobStatusStore jobStore, CompactionTaskStatusStore taskStore, JobSlotFactory jobSlotFactory,
+            String taskId, Supplier<String> jobRunIdSupplier, Supplier<Instant> timeSupplier, Consumer<Duration> sleepForTime) {
         this.instanceProperties = instanceProperties;
-        this.propertiesReloader = propertiesReloader;
         this.timeSupplier = timeSupplier;
         this.sleepForTime = sleepForTime;
         this.messageReceiver = messageReceiver;
-        this.selector = selector;
+        this.jobSlotFactory = jobSlotFactory;
         this.jobStatusStore = jobStore;
         this.taskStatusStore = taskStore;
         this.taskId = taskId;
         this.jobRunIdSupplier = jobRunIdSupplier;
-        this.jobCommitter = jobCommitter;
-        this.waitForFiles = waitForFiles;
     }
 
     public void run() throws IOException {
@@ -109,6 +144,52 @@ public class CompactionTask {
     }
 
     public Instant handleMessages(Instant startTime, CompactionTaskFinishedStatus.Builder taskFinishedBuilder) throws IOException {
+        int maxConcurrentJobs = instanceProperties.getInt(COMPACTION_TASK_MAX_CONCURRENT_JOBS);
+        if (maxConcurrentJobs <= 1) {
+            return handleMessages(jobSlotFactory.createSlot(), startTime, taskFinishedBuilder);
+        }
+        LOGGER.info("Running up to {} compaction jobs at once", maxConcurrentJobs);
+        ExecutorService executor = Executors.newFixedThreadPool(maxConcurrentJobs);
+        try {
+            // Slots are waited on in the order they finish, so that a failure in any slot stops the task straight away
+            CompletionService<Instant> slots = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < maxConcurrentJobs; i++) {
+                JobSlot slot = jobSlotFactory.createSlot();
+                slots.submit(() -> handleMessages(slot, startTime, taskFinishedBuilder));
+            }
+            Instant finishTime = startTime;
+            for (int i = 0; i < maxConcurrentJobs; i++) {
+                Instant slotFinishTime = waitForNextSlot(slots);
+                if (slotFinishTime.isAfter(finishTime)) {
+                    finishTime = slotFinishTime;
+                }
+            }
+            return finishTime;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Instant waitForNextSlot(CompletionService<Instant> slots) throws IOException {
+        try {
+            return slots.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for compaction job slot to finish");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IllegalStateException("Failed running compaction job slot", cause);
+            }
+        }
+    }
+
+    private Instant handleMessages(
+            JobSlot slot, Instant startTime, CompactionTaskFinishedStatus.Builder taskFinishedBuilder) throws IOException {
         Instant lastActiveTime = startTime;
         Duration maxIdleTime = Duration.ofSeconds(instanceProperties.getInt(COMPACTION_TASK_MAX_IDLE_TIME_IN_SECONDS));
         int maxConsecutiveFailures = instanceProperties.getInt(COMPACTION_TASK_MAX_CONSECUTIVE_FAILURES);
@@ -138,9 +219,11 @@ public class CompactionTask {
                 String jobRunId = jobRunIdSupplier.get();
                 Instant jobStartTime = timeSupplier.get();
                 try {
-                    waitForFiles.wait(job);
-                    RecordsProcessedSummary summary = compact(job, jobRunId, jobStartTime);
-                    taskFinishedBuilder.addJobSummary(summary);
+                    slot.waitForFiles.wait(job);
+                    RecordsProcessedSummary summary = compact(slot, job, jobRunId, jobStartTime);
+                    synchronized (taskFinishedBuilder) {
+                        taskFinishedBuilder.addJobSummary(summary);
+                    }
                     message.completed();
                     numConsecutiveFailures = 0;
                     lastActiveTime = summary.getFinishTime();
@@ -160,15 +243,15 @@ public class CompactionTask {
         return timeSupplier.get();
     }
 
-    private RecordsProcessedSummary compact(CompactionJob job, String jobRunId, Instant jobStartTime) throws Exception {
+    private RecordsProcessedSummary compact(JobSlot slot, CompactionJob job, String jobRunId, Instant jobStartTime) throws Exception {
         LOGGER.info("Compaction job {}: compaction called at {}", job.getId(), jobStartTime);
         jobStatusStore.jobStarted(compactionJobStarted(job, jobStartTime).taskId(taskId).jobRunId(jobRunId).build());
-        propertiesReloader.reloadIfNeeded();
-        CompactionRunner compactor = this.selector.chooseCompactor(job);
+        slot.propertiesReloader.reloadIfNeeded();
+        CompactionRunner compactor = slot.selector.chooseCompactor(job);
         RecordsProcessed recordsProcessed = compactor.compact(job);
         Instant jobFinishTime = timeSupplier.get();
         RecordsProcessedSummary summary = new RecordsProcessedSummary(recordsProcessed, jobStartTime, jobFinishTime);
-        jobCommitter.commit(job, compactionJobFinished(job, summary).taskId(taskId).jobRunId(jobRunId));
+        slot.jobCommitter.commit(job, compactionJobFinished(job, summary).taskId(taskId).jobRunId(jobRunId));
         logMetrics(job, summary);
         return summary;
     }
@@ -192,6 +275,39 @@ public class CompactionTask {
         void wait(CompactionJob job) throws InterruptedException;
     }
 
+    /**
+     * Creates the components to run compaction jobs in a job slot.
+     */
+    @FunctionalInterface
+    public interface JobSlotFactory {
+
+        /**
+         * Creates a job slot. This is called once for each job that can run at once in the task.
+         *
+         * @return the job slot
+         */
+        JobSlot createSlot();
+    }
+
+    /**
+     * The components used to run compaction jobs one at a time in a compaction task. When a task runs multiple jobs
+     * at once, each job slot has its own instance of these, so they do not need to be thread safe.
+     */
+    public static class JobSlot {
+        private final PropertiesReloader propertiesReloader;
+        private final WaitForFileAssignment waitForFiles;
+        private final CompactionJobCommitterOrSendToLambda jobCommitter;
+        private final CompactionAlgorithmSelector selector;
+
+        public JobSlot(PropertiesReloader propertiesReloader, WaitForFileAssignment waitForFiles,
+                CompactionJobCommitterOrSendToLambda jobCommitter, CompactionAlgorithmSelector selector) {
+            this.propertiesReloader = propertiesReloader;
+            this.waitForFiles = waitForFiles;
+            this.jobCommitter = jobCommitter;
+            this.selector = selector;
+        }
+    }
+
     public interface MessageHandle extends AutoCloseable {
         CompactionJob getJob();
 
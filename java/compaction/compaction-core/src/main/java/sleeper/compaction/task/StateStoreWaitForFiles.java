@@ -29,6 +29,7 @@ import sleeper.core.util.ExponentialBackoffWithJitter.WaitRange;
 import sleeper.core.util.LoggedDuration;
 
 import java.time.Instant;
+import java.util.List;
 
 public class StateStoreWaitForFiles implements WaitForFileAssignment {
     public static final Logger LOGGER = LoggerFactory.getLogger(StateStoreWaitForFiles.class);
@@ -74,14 +75,13 @@ public class StateStoreWaitForFiles implements WaitForFileAssignment {
     }
 
     private boolean allFilesAssignedToJob(StateStore stateStore, CompactionJob job) throws StateStoreException {
-        return stateStore.getFileReferences().stream()
+        return stateStore.getFileReferencesInPartitions(List.of(job.getPartitionId())).stream()
                 .filter(file -> isInputFileForJob(file, job))
                 .allMatch(file -> job.getId().equals(file.getJobId()));
     }
 
     private static boolean isInputFileForJob(FileReference file, CompactionJob job) {
-        return job.getInputFiles().contains(file.getFilename()) &&
-                job.getPartitionId().equals(file.getPartitionId());
+        return job.getInputFiles().contains(file.getFilename());
     }
 
 }
@@ -170,6 +170,33 @@ public class SizeRatioCompactionStrategyTest {
         assertThat(jobs.get(2)).isEqualTo(jobWithFiles(jobs.get(2), List.of("C1", "C2", "C3")));
     }
 
+    @Test
+    public void shouldLeaveOutLargestFileWhenManySmallerFilesMeetCriteria() {
+        // Given
+        tableProperties.set(COMPACTION_FILES_BATCH_SIZE, "1000");
+        tableProperties.set(SIZE_RATIO_COMPACTION_STRATEGY_RATIO, "3");
+        SizeRatioCompactionStrategy strategy = new SizeRatioCompactionStrategy();
+        strategy.init(instanceProperties, tableProperties);
+        //  - 1000 files of 10 records meet the criteria together
+        //  - 1 larger file of 100000 records is too big to be included
+        List<FileReference> fileReferences = new ArrayList<>();
+        List<String> smallFiles = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            boolean small = i != 500;
+            String filename = "file-" + i;
+            fileReferences.add(fileReferenceFactory.rootFile(filename, small ? 10L : 100000L));
+            if (small) {
+                smallFiles.add(filename);
+            }
+        }
+
+        // When
+        List<CompactionJob> jobs = strategy.createCompactionJobs(List.of(), fileReferences, partitionTree.getAllPartitions());
+
+        // Then
+        assertThat(jobs).containsExactly(jobWithFiles(jobs.get(0), smallFiles));
+    }
+
     private CompactionJob jobWithFiles(CompactionJob job, List<String> files) {
         return CompactionJob.builder()
                 .tableId("table-id")
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.task;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import sleeper.compaction.job.CompactionJob;
+import sleeper.core.record.process.RecordsProcessed;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONCURRENT_JOBS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONSECUTIVE_FAILURES;
+
+public class CompactionTaskConcurrentJobsTest extends CompactionTaskTestBase {
+
+    @BeforeEach
+    void setUpConcurrentJobs() {
+        instanceProperties.setNumber(COMPACTION_TASK_MAX_CONCURRENT_JOBS, 2);
+    }
+
+    @Test
+    void shouldRunTwoJobsAtOnce() throws Exception {
+        // Given
+        CompactionJob job1 = createJobOnQueue("job1");
+        CompactionJob job2 = createJobOnQueue("job2");
+        CyclicBarrier bothJobsRunning = new CyclicBarrier(2);
+
+        // When
+        runTaskWithJobSlots(() -> job -> {
+            awaitBarrier(bothJobsRunning);
+            successfulJobs.add(job);
+            return new RecordsProcessed(10L, 10L);
+        });
+
+        // Then
+        assertThat(successfulJobs).containsExactlyInAnyOrder(job1, job2);
+        assertThat(jobsOnQueue).isEmpty();
+        assertThat(taskStore.getAllTasks()).singleElement()
+                .satisfies(task -> assertThat(task.getJobRuns()).isEqualTo(2));
+    }
+
+    @Test
+    void shouldCreateComponentsForEachJobSlot() throws Exception {
+        // Given
+        AtomicInteger slotsCreated = new AtomicInteger();
+
+        // When
+        runTaskWithJobSlots(() -> {
+            slotsCreated.incrementAndGet();
+            return processNoJobs();
+        });
+
+        // Then
+        assertThat(slotsCreated).hasValue(2);
+        assertThat(taskStore.getAllTasks()).singleElement()
+                .satisfies(task -> assertThat(task.isFinished()).isTrue());
+    }
+
+    @Test
+    void shouldCountConsecutiveFailuresSeparatelyInEachJobSlot() throws Exception {
+        // Given
+        instanceProperties.setNumber(COMPACTION_TASK_MAX_CONSECUTIVE_FAILURES, 1);
+        CompactionJob job1 = createJobOnQueue("job1");
+        CompactionJob job2 = createJobOnQueue("job2");
+        CyclicBarrier bothJobsRunning = new CyclicBarrier(2);
+
+        // When
+        runTaskWithJobSlots(() -> job -> {
+            awaitBarrier(bothJobsRunning);
+            throw new RuntimeException("Something failed");
+        });
+
+        // Then
+        assertThat(failedJobs).containsExactlyInAnyOrder(job1, job2);
+        assertThat(jobsOnQueue).isEmpty();
+    }
+
+    @Test
+    void shouldFailTaskWithoutWaitingForOtherJobSlotsWhenOneSlotFails() throws Exception {
+        // Given
+        createJobOnQueue("job1");
+        createJobOnQueue("job2");
+        AtomicInteger slotsCreated = new AtomicInteger();
+        CountDownLatch neverReleased = new CountDownLatch(1);
+        CountDownLatch blockedJobInterrupted = new CountDownLatch(1);
+
+        // When / Then
+        assertThatThrownBy(() -> runTaskWithJobSlots(() -> {
+            if (slotsCreated.incrementAndGet() == 1) {
+                return job -> {
+                    try {
+                        neverReleased.await(10, SECONDS);
+                    } catch (InterruptedException e) {
+                        blockedJobInterrupted.countDown();
+                        Thread.currentThread().interrupt();
+                    }
+                    return new RecordsProcessed(10L, 10L);
+                };
+            } else {
+                return job -> {
+                    throw new AssertionError("Slot failed");
+                };
+            }
+        })).isInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("Slot failed");
+        assertThat(blockedJobInterrupted.await(5, SECONDS)).isTrue();
+    }
+
+    private static void awaitBarrier(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (BrokenBarrierException | TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
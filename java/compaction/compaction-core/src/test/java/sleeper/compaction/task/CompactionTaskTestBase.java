@@ -21,6 +21,7 @@ import sleeper.compaction.job.CompactionJob;
 import sleeper.compaction.job.CompactionRunner;
 import sleeper.compaction.job.commit.CompactionJobCommitRequest;
 import sleeper.compaction.job.commit.CompactionJobCommitterOrSendToLambda;
+import sleeper.compaction.task.CompactionTask.JobSlot;
 import sleeper.compaction.task.CompactionTask.MessageHandle;
 import sleeper.compaction.task.CompactionTask.MessageReceiver;
 import sleeper.compaction.task.CompactionTask.WaitForFileAssignment;
@@ -38,14 +39,15 @@ import sleeper.core.statestore.StateStore;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -73,13 +75,13 @@ public class CompactionTaskTestBase {
     protected final TableProperties tableProperties = createTable(DEFAULT_TABLE_ID, DEFAULT_TABLE_NAME);
     protected final StateStore stateStore = stateStore(tableProperties);
     protected final FileReferenceFactory factory = FileReferenceFactory.from(stateStore);
-    protected final Queue<CompactionJob> jobsOnQueue = new LinkedList<>();
-    protected final List<CompactionJob> successfulJobs = new ArrayList<>();
-    protected final List<CompactionJob> failedJobs = new ArrayList<>();
+    protected final Queue<CompactionJob> jobsOnQueue = new ConcurrentLinkedQueue<>();
+    protected final List<CompactionJob> successfulJobs = Collections.synchronizedList(new ArrayList<>());
+    protected final List<CompactionJob> failedJobs = Collections.synchronizedList(new ArrayList<>());
     protected final InMemoryCompactionJobStatusStore jobStore = new InMemoryCompactionJobStatusStore();
     protected final CompactionTaskStatusStore taskStore = new InMemoryCompactionTaskStatusStore();
     protected final List<Duration> sleeps = new ArrayList<>();
-    protected final List<CompactionJobCommitRequest> commitRequestsOnQueue = new ArrayList<>();
+    protected final List<CompactionJobCommitRequest> commitRequestsOnQueue = Collections.synchronizedList(new ArrayList<>());
 
     @BeforeEach
     void setUp() {
@@ -133,16 +135,30 @@ public class CompactionTaskTestBase {
             CompactionRunner compactor,
             Supplier<Instant> timeSupplier,
             String taskId, Supplier<String> jobRunIdSupplier) throws Exception {
-        CompactionJobCommitterOrSendToLambda committer = new CompactionJobCommitterOrSendToLambda(
-                new FixedTablePropertiesProvider(tables), stateStoreByTableId::get, jobStore, commitRequestsOnQueue::add,
-                timeSupplier);
         CompactionAlgorithmSelector selector = job -> compactor;
         new CompactionTask(instanceProperties,
                 PropertiesReloader.neverReload(), messageReceiver, fileAssignmentCheck,
-                committer, jobStore, taskStore, selector, taskId, jobRunIdSupplier, timeSupplier, sleeps::add)
+                committer(timeSupplier), jobStore, taskStore, selector, taskId, jobRunIdSupplier, timeSupplier, sleeps::add)
+                .run();
+    }
+
+    protected void runTaskWithJobSlots(Supplier<CompactionRunner> createCompactorForSlot) throws Exception {
+        new CompactionTask(instanceProperties, pollQueue(), jobStore, taskStore,
+                () -> {
+                    CompactionRunner compactor = createCompactorForSlot.get();
+                    return new JobSlot(PropertiesReloader.neverReload(), filesImmediatelyAssigned(),
+                            committer(Instant::now), job -> compactor);
+                },
+                DEFAULT_TASK_ID, jobRunIdsInSequence(), Instant::now, sleeps::add)
                 .run();
     }
 
+    private CompactionJobCommitterOrSendToLambda committer(Supplier<Instant> timeSupplier) {
+        return new CompactionJobCommitterOrSendToLambda(
+                new FixedTablePropertiesProvider(tables), stateStoreByTableId::get, jobStore, commitRequestsOnQueue::add,
+                timeSupplier);
+    }
+
     private WaitForFileAssignment filesImmediatelyAssigned() {
         return job -> {
         };
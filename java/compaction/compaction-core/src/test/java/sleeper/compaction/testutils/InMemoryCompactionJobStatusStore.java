@@ -47,7 +47,7 @@ public class InMemoryCompactionJobStatusStore implements CompactionJobStatusStor
     private final Map<String, TableJobs> tableIdToJobs = new HashMap<>();
     private Instant fixedUpdateTime;
 
-    public void fixUpdateTime(Instant now) {
+    public synchronized void fixUpdateTime(Instant now) {
         fixedUpdateTime = now;
     }
 
@@ -60,11 +60,11 @@ public class InMemoryCompactionJobStatusStore implements CompactionJobStatusStor
     }
 
     @Override
-    public void jobCreated(CompactionJob job) {
+    public synchronized void jobCreated(CompactionJob job) {
         jobCreated(job, getUpdateTimeOrDefault(Instant::now));
     }
 
-    public void jobCreated(CompactionJob job, Instant createdTime) {
+    public synchronized void jobCreated(CompactionJob job, Instant createdTime) {
         add(job, ProcessStatusUpdateRecord.builder()
                 .jobId(job.getId())
                 .statusUpdate(CompactionJobCreatedStatus.from(job, createdTime))
@@ -72,7 +72,7 @@ public class InMemoryCompactionJobStatusStore implements CompactionJobStatusStor
     }
 
     @Override
-    public void jobStarted(CompactionJobStartedEvent event) {
+    public synchronized void jobStarted(CompactionJobStartedEvent event) {
         add(event.getTableId(), ProcessStatusUpdateRecord.builder()
                 .jobId(event.getJobId()).taskId(event.getTaskId()).jobRunId(event.getJobRunId())
                 .statusUpdate(CompactionJobStartedStatus.startAndUpdateTime(
@@ -81,7 +81,7 @@ public class InMemoryCompactionJobStatusStore implements CompactionJobStatusStor
     }
 
     @Override
-    public void jobFinished(CompactionJobFinishedEvent event) {
+    public synchronized void jobFinished(CompactionJobFinishedEvent event) {
         RecordsProcessedSummary summary = event.getSummary();
         Instant eventTime = summary.getFinishTime();
         add(event.getTableId(), ProcessStatusUpdateRecord.builder()
@@ -93,7 +93,7 @@ public class InMemoryCompactionJobStatusStore implements CompactionJobStatusStor
     }
 
     @Override
-    public void jobCommitted(CompactionJobCommittedEvent event) {
+    public synchronized void jobCommitted(CompactionJobCommittedEvent event) {
         add(event.getTableId(), ProcessStatusUpdateRecord.builder()
                 .jobId(event.getJobId()).taskId(event.getTaskId()).jobRunId(event.getJobRunId())
                 .statusUpdate(CompactionJobCommittedStatus.commitAndUpdateTime(event.getCommitTime(),
@@ -102,7 +102,7 @@ public class InMemoryCompactionJobStatusStore implements CompactionJobStatusStor
     }
 
     @Override
-    public void jobFailed(CompactionJobFailedEvent event) {
+    public synchronized void jobFailed(CompactionJobFailedEvent event) {
         ProcessRunTime runTime = event.getRunTime();
         Instant eventTime = runTime.getFinishTime();
         add(event.getTableId(), ProcessStatusUpdateRecord.builder()
@@ -113,7 +113,7 @@ public class InMemoryCompactionJobStatusStore implements CompactionJobStatusStor
     }
 
     @Override
-    public Optional<CompactionJobStatus> getJob(String jobId) {
+    public synchronized Optional<CompactionJobStatus> getJob(String jobId) {
         return CompactionJobStatus.streamFrom(
                 tableIdToJobs.values().stream()
                         .flatMap(TableJobs::streamAllRecords)
@@ -122,7 +122,7 @@ public class InMemoryCompactionJobStatusStore implements CompactionJobStatusStor
     }
 
     @Override
-    public Stream<CompactionJobStatus> streamAllJobs(String tableId) {
+    public synchronized Stream<CompactionJobStatus> streamAllJobs(String tableId) {
         return CompactionJobStatus.streamFrom(streamRecordsByTableId(tableId));
     }
 
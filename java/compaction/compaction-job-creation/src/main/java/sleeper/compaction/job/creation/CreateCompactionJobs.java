@@ -101,8 +101,10 @@ public class CreateCompactionJobs {
         // NB We retrieve the information about all the active file references and filter
         // that, rather than making separate calls to the state store for reasons
         // of efficiency and to ensure consistency.
-        List<FileReference> fileReferencesWithNoJobId = fileReferences.stream().filter(f -> null == f.getJobId()).collect(Collectors.toList());
-        List<FileReference> fileReferencesWithJobId = fileReferences.stream().filter(f -> null != f.getJobId()).collect(Collectors.toList());
+        Map<Boolean, List<FileReference>> fileReferencesByHasJobId = fileReferences.stream()
+                .collect(Collectors.partitioningBy(f -> null != f.getJobId()));
+        List<FileReference> fileReferencesWithNoJobId = fileReferencesByHasJobId.get(false);
+        List<FileReference> fileReferencesWithJobId = fileReferencesByHasJobId.get(true);
         LOGGER.debug("Found {} file references with no job id in table {}", fileReferencesWithNoJobId.size(), table);
         LOGGER.debug("Found {} file references with a job id in table {}", fileReferencesWithJobId.size(), table);
 
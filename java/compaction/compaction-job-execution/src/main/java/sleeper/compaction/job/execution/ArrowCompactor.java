@@ -0,0 +1,223 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution;
+
+import com.facebook.collections.ByteArray;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.datasketches.quantiles.ItemsSketch;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.compaction.job.CompactionJob;
+import sleeper.compaction.job.CompactionRunner;
+import sleeper.compaction.job.execution.arrow.ArrowBatchMerger;
+import sleeper.compaction.job.execution.arrow.ArrowBatchReader;
+import sleeper.compaction.job.execution.arrow.ArrowRow;
+import sleeper.compaction.job.execution.arrow.ArrowRowComparator;
+import sleeper.compaction.job.execution.arrow.ArrowRowWriterBuilder;
+import sleeper.compaction.job.execution.arrow.ArrowSchemaConverter;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.configuration.properties.table.TablePropertiesProvider;
+import sleeper.core.partition.Partition;
+import sleeper.core.record.process.RecordsProcessed;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.statestore.StateStore;
+import sleeper.core.statestore.StateStoreException;
+import sleeper.io.parquet.utils.RangeQueryUtils;
+import sleeper.sketches.Sketches;
+import sleeper.sketches.s3.SketchesSerDeToS3;
+import sleeper.statestore.StateStoreProvider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import static sleeper.sketches.s3.SketchesSerDeToS3.sketchesPathForDataFile;
+
+/**
+ * Executes a compaction job with rows held in Arrow vectors. Input files are read in batches of columns, merged by
+ * building an index permutation over those batches, and written to Parquet straight from the vectors. Records are
+ * never converted to the {@link sleeper.core.record.Record} API, so iterators are not supported. This also only
+ * supports schemas where every field has a primitive type, which can be checked with {@link #supportsSchema}.
+ */
+public class ArrowCompactor implements CompactionRunner {
+    private final TablePropertiesProvider tablePropertiesProvider;
+    private final StateStoreProvider stateStoreProvider;
+    private final Configuration configuration;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArrowCompactor.class);
+    private static final int BATCH_SIZE = 4096;
+
+    public ArrowCompactor(
+            TablePropertiesProvider tablePropertiesProvider, StateStoreProvider stateStoreProvider,
+            Configuration configuration) {
+        this.tablePropertiesProvider = tablePropertiesProvider;
+        this.stateStoreProvider = stateStoreProvider;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Checks whether a table can be compacted with this compactor.
+     *
+     * @param  schema the schema of the table
+     * @return        true if every field has an int, long, string or byte array type
+     */
+    public static boolean supportsSchema(Schema schema) {
+        return ArrowSchemaConverter.isSupported(schema);
+    }
+
+    @Override
+    public RecordsProcessed compact(CompactionJob compactionJob) throws IOException, StateStoreException {
+        TableProperties tableProperties = tablePropertiesProvider.getById(compactionJob.getTableId());
+        Schema schema = tableProperties.getSchema();
+        StateStore stateStore = stateStoreProvider.getStateStore(tableProperties);
+        Partition partition = stateStore.getAllPartitions().stream()
+                .filter(p -> Objects.equals(compactionJob.getPartitionId(), p.getId()))
+                .findFirst().orElseThrow(() -> new NoSuchElementException("Partition not found for compaction job"));
+
+        try (BufferAllocator allocator = new RootAllocator()) {
+            List<ArrowBatchReader> readers = new ArrayList<>();
+            try {
+                FilterCompat.Filter partitionFilter = FilterCompat.get(RangeQueryUtils.getFilterPredicate(partition));
+                for (String file : compactionJob.getInputFiles()) {
+                    readers.add(new ArrowBatchReader(new Path(file), schema, configuration, partitionFilter,
+                            allocator, BATCH_SIZE));
+                    LOGGER.debug("Compaction job {}: Created reader for file {}", compactionJob.getId(), file);
+                }
+                return compact(compactionJob, tableProperties, readers);
+            } finally {
+                for (ArrowBatchReader reader : readers) {
+                    reader.close();
+                }
+                LOGGER.debug("Compaction job {}: Closed readers", compactionJob.getId());
+            }
+        }
+    }
+
+    private RecordsProcessed compact(
+            CompactionJob compactionJob, TableProperties tableProperties, List<ArrowBatchReader> readers) throws IOException {
+        Schema schema = tableProperties.getSchema();
+        LOGGER.debug("Creating writer for file {}", compactionJob.getOutputFile());
+        // Setting file writer mode to OVERWRITE so if the same job runs again after failing to
+        // update the state store, it will overwrite the existing output file written
+        // by the previous run
+        ParquetWriter<ArrowRow> writer = ArrowRowWriterBuilder.builder(new Path(compactionJob.getOutputFile()), tableProperties)
+                .withConf(configuration)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .build();
+        LOGGER.info("Compaction job {}: Created writer for file {}", compactionJob.getId(), compactionJob.getOutputFile());
+
+        Sketches sketches = Sketches.from(schema);
+        SketchUpdater sketchUpdater = new SketchUpdater(schema, sketches);
+        ArrowRow row = new ArrowRow();
+        long recordsWritten = new ArrowBatchMerger(new ArrowRowComparator(schema), readers, BATCH_SIZE)
+                .merge((batches, inputs, rows, count) -> {
+                    for (int i = 0; i < count; i++) {
+                        row.set(batches.get(inputs[i]), rows[i]);
+                        writer.write(row);
+                    }
+                    sketchUpdater.update(batches, inputs, rows, count);
+                });
+        writer.close();
+        LOGGER.debug("Compaction job {}: Closed writer", compactionJob.getId());
+
+        Path sketchesPath = sketchesPathForDataFile(compactionJob.getOutputFile());
+        new SketchesSerDeToS3(schema).saveToHadoopFS(sketchesPath, sketches, configuration);
+        LOGGER.info("Compaction job {}: Wrote sketches file to {}", compactionJob.getId(), sketchesPath);
+
+        long totalNumberOfRecordsRead = 0L;
+        for (ArrowBatchReader reader : readers) {
+            totalNumberOfRecordsRead += reader.getNumberOfRecordsRead();
+        }
+        LOGGER.info("Compaction job {}: Read {} records and wrote {} records", compactionJob.getId(), totalNumberOfRecordsRead, recordsWritten);
+        return new RecordsProcessed(totalNumberOfRecordsRead, recordsWritten);
+    }
+
+    @Override
+    public String implementationLanguage() {
+        return "Java";
+    }
+
+    @Override
+    public boolean isHardwareAccelerated() {
+        return false;
+    }
+
+    @Override
+    public boolean supportsIterators() {
+        return false;
+    }
+
+    /**
+     * Updates the sketches of the row key fields from chunks of merged rows. Each row key field is updated in turn
+     * across the whole chunk.
+     */
+    private static class SketchUpdater {
+        private final int[] rowKeyIndexes;
+        private final ItemsSketch<Object>[] rowKeySketches;
+
+        @SuppressWarnings("unchecked")
+        SketchUpdater(Schema schema, Sketches sketches) {
+            List<Field> allFields = schema.getAllFields();
+            List<Field> rowKeyFields = schema.getRowKeyFields();
+            rowKeyIndexes = new int[rowKeyFields.size()];
+            rowKeySketches = new ItemsSketch[rowKeyFields.size()];
+            for (int i = 0; i < rowKeyIndexes.length; i++) {
+                Field field = rowKeyFields.get(i);
+                rowKeyIndexes[i] = allFields.indexOf(field);
+                rowKeySketches[i] = sketches.getQuantilesSketch(field.getName());
+            }
+        }
+
+        void update(List<VectorSchemaRoot> batches, int[] inputs, int[] rows, int count) {
+            for (int key = 0; key < rowKeyIndexes.length; key++) {
+                int fieldIndex = rowKeyIndexes[key];
+                ItemsSketch<Object> sketch = rowKeySketches[key];
+                for (int i = 0; i < count; i++) {
+                    sketch.update(readValue(batches.get(inputs[i]).getVector(fieldIndex), rows[i]));
+                }
+            }
+        }
+
+        private static Object readValue(FieldVector vector, int row) {
+            if (vector instanceof IntVector) {
+                return ((IntVector) vector).get(row);
+            } else if (vector instanceof BigIntVector) {
+                return ((BigIntVector) vector).get(row);
+            } else if (vector instanceof VarCharVector) {
+                return new String(((VarCharVector) vector).get(row), StandardCharsets.UTF_8);
+            } else {
+                return ByteArray.wrap(((VarBinaryVector) vector).get(row));
+            }
+        }
+    }
+}
@@ -22,6 +22,11 @@ package sleeper.compaction.job.execution;
 public enum CompactionMethod {
     /** Pure Java compaction implementation. */
     JAVA,
+    /**
+     * Java compaction method holding rows in Arrow vectors. This does not support iterators, or schemas with list or
+     * map fields.
+     */
+    ARROW,
     /**
      * Rust compaction method. This uses a native library written in Rust to perform a
      * compaction.
@@ -39,16 +39,25 @@ public class DefaultSelector implements CompactionAlgorithmSelector {
     private final ObjectFactory objectFactory;
     private final StateStoreProvider stateStoreProvider;
     private final Configuration configuration;
+    private final long maxReadAheadBytes;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultSelector.class);
 
     public DefaultSelector(
             TablePropertiesProvider tablePropertiesProvider,
             StateStoreProvider stateStoreProvider, ObjectFactory objectFactory, Configuration configuration) {
+        this(tablePropertiesProvider, stateStoreProvider, objectFactory, configuration, Long.MAX_VALUE);
+    }
+
+    public DefaultSelector(
+            TablePropertiesProvider tablePropertiesProvider,
+            StateStoreProvider stateStoreProvider, ObjectFactory objectFactory, Configuration configuration,
+            long maxReadAheadBytes) {
         this.tablePropertiesProvider = tablePropertiesProvider;
         this.objectFactory = objectFactory;
         this.stateStoreProvider = stateStoreProvider;
         this.configuration = configuration;
+        this.maxReadAheadBytes = maxReadAheadBytes;
     }
 
     @Override
@@ -65,12 +74,19 @@ public class DefaultSelector implements CompactionAlgorithmSelector {
             desired = CompactionMethod.DEFAULT;
         }
 
-        CompactionRunner defaultRunner = new StandardCompactor(tablePropertiesProvider, stateStoreProvider, objectFactory, configuration);
+        CompactionRunner defaultRunner = new StandardCompactor(tablePropertiesProvider, stateStoreProvider, objectFactory, configuration, maxReadAheadBytes);
         CompactionRunner runner = defaultRunner;
         switch (desired) {
             case RUST:
                 runner = new RustCompaction(tablePropertiesProvider, stateStoreProvider);
                 break;
+            case ARROW:
+                if (ArrowCompactor.supportsSchema(tableProperties.getSchema())) {
+                    runner = new ArrowCompactor(tablePropertiesProvider, stateStoreProvider, configuration);
+                } else {
+                    LOGGER.debug("Table schema has a field type which compactor ArrowCompactor doesn't support, falling back to default");
+                }
+                break;
             default:
                 break;
         }
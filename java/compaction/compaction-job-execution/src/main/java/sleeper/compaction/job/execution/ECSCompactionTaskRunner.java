@@ -35,6 +35,8 @@ import sleeper.compaction.job.commit.CompactionJobCommitterOrSendToLambda.Commit
 import sleeper.compaction.status.store.job.CompactionJobStatusStoreFactory;
 import sleeper.compaction.status.store.task.CompactionTaskStatusStoreFactory;
 import sleeper.compaction.task.CompactionTask;
+import sleeper.compaction.task.CompactionTask.JobSlot;
+import sleeper.compaction.task.CompactionTask.JobSlotFactory;
 import sleeper.compaction.task.CompactionTask.WaitForFileAssignment;
 import sleeper.compaction.task.CompactionTaskStatusStore;
 import sleeper.compaction.task.StateStoreWaitForFiles;
@@ -54,6 +56,8 @@ import java.util.UUID;
 
 import static sleeper.configuration.properties.instance.CdkDefinedInstanceProperty.STATESTORE_COMMITTER_QUEUE_URL;
 import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_ECS_LAUNCHTYPE;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONCURRENT_JOBS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MEMORY_BUDGET;
 import static sleeper.configuration.utils.AwsV1ClientHelper.buildAwsV1Client;
 
 /**
@@ -86,10 +90,6 @@ public class ECSCompactionTaskRunner {
             // Log some basic data if running on EC2 inside ECS
             logEC2Metadata(instanceProperties, ecsClient);
 
-            TablePropertiesProvider tablePropertiesProvider = new TablePropertiesProvider(instanceProperties, s3Client, dynamoDBClient);
-            PropertiesReloader propertiesReloader = PropertiesReloader.ifConfigured(s3Client, instanceProperties, tablePropertiesProvider);
-            StateStoreProvider stateStoreProvider = new StateStoreProvider(instanceProperties, s3Client, dynamoDBClient,
-                    HadoopConfigurationProvider.getConfigurationForECS(instanceProperties));
             CompactionJobStatusStore jobStatusStore = CompactionJobStatusStoreFactory.getStatusStore(dynamoDBClient,
                     instanceProperties);
             CompactionTaskStatusStore taskStatusStore = CompactionTaskStatusStoreFactory.getStatusStore(dynamoDBClient,
@@ -97,17 +97,30 @@ public class ECSCompactionTaskRunner {
             String taskId = UUID.randomUUID().toString();
 
             ObjectFactory objectFactory = new ObjectFactory(instanceProperties, s3Client, "/tmp");
-
-            DefaultSelector compactionSelector = new DefaultSelector(tablePropertiesProvider, stateStoreProvider, objectFactory,
-                    HadoopConfigurationProvider.getConfigurationForECS(instanceProperties));
-
-            WaitForFileAssignment waitForFiles = new StateStoreWaitForFiles(stateStoreProvider.byTableId(tablePropertiesProvider));
-
-            CompactionJobCommitterOrSendToLambda committerOrLambda = committerOrSendToLambda(
-                    tablePropertiesProvider, stateStoreProvider, jobStatusStore, instanceProperties, sqsClient);
-            CompactionTask task = new CompactionTask(instanceProperties, propertiesReloader,
+            long maxReadAheadBytesPerJob = instanceProperties.getBytes(COMPACTION_TASK_MEMORY_BUDGET)
+                    / instanceProperties.getInt(COMPACTION_TASK_MAX_CONCURRENT_JOBS);
+
+            // Table properties and state stores are cached in memory and are not thread safe, so each job slot
+            // needs its own. Instance properties are reloaded in place, so each job slot also needs its own copy.
+            JobSlotFactory jobSlotFactory = () -> {
+                InstanceProperties slotProperties = InstanceProperties.copyOf(instanceProperties);
+                TablePropertiesProvider tablePropertiesProvider = new TablePropertiesProvider(slotProperties, s3Client, dynamoDBClient);
+                PropertiesReloader propertiesReloader = PropertiesReloader.ifConfigured(s3Client, slotProperties, tablePropertiesProvider);
+                StateStoreProvider stateStoreProvider = new StateStoreProvider(slotProperties, s3Client, dynamoDBClient,
+                        HadoopConfigurationProvider.getConfigurationForECS(slotProperties));
+
+                DefaultSelector compactionSelector = new DefaultSelector(tablePropertiesProvider, stateStoreProvider, objectFactory,
+                        HadoopConfigurationProvider.getConfigurationForECS(slotProperties), maxReadAheadBytesPerJob);
+
+                WaitForFileAssignment waitForFiles = new StateStoreWaitForFiles(stateStoreProvider.byTableId(tablePropertiesProvider));
+
+                CompactionJobCommitterOrSendToLambda committerOrLambda = committerOrSendToLambda(
+                        tablePropertiesProvider, stateStoreProvider, jobStatusStore, slotProperties, sqsClient);
+                return new JobSlot(propertiesReloader, waitForFiles, committerOrLambda, compactionSelector);
+            };
+            CompactionTask task = new CompactionTask(instanceProperties,
                     new SqsCompactionQueueHandler(sqsClient, instanceProperties),
-                    waitForFiles, committerOrLambda, jobStatusStore, taskStatusStore, compactionSelector, taskId);
+                    jobStatusStore, taskStatusStore, jobSlotFactory, taskId);
             task.run();
         } finally {
             sqsClient.shutdown();
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes elements to one or more consumers, each on its own thread. Elements are handed over in batches through a
+ * bounded queue for each consumer. When a queue is full, writing blocks until the consumer catches up. Each consumer
+ * sees every element in the order they were written.
+ * <p>
+ * If a consumer fails, the failure is thrown from the next call to write or finish. The other consumers are not
+ * stopped, but will no longer be passed any elements.
+ *
+ * @param <T> the type of elements to write
+ */
+public class PipelinedBatchWriter<T> implements AutoCloseable {
+
+    private final List<T> endOfElements = new ArrayList<>(0);
+    private final int batchSize;
+    private final List<BlockingQueue<List<T>>> queues = new ArrayList<>();
+    private final List<Future<Void>> futures = new ArrayList<>();
+    private final ExecutorService executor;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private List<T> batch;
+
+    public PipelinedBatchWriter(int batchSize, int maxQueuedBatches, List<Consumer<T>> consumers) {
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+        this.executor = Executors.newFixedThreadPool(consumers.size());
+        for (Consumer<T> consumer : consumers) {
+            BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(maxQueuedBatches);
+            queues.add(queue);
+            futures.add(executor.submit(() -> consume(queue, consumer)));
+        }
+    }
+
+    /**
+     * Writes an element. This will be passed to the consumers when a full batch has been written.
+     *
+     * @param  element     the element
+     * @throws IOException if a consumer failed, or this thread was interrupted waiting for a consumer
+     */
+    public void write(T element) throws IOException {
+        batch.add(element);
+        if (batch.size() >= batchSize) {
+            sendBatch();
+        }
+    }
+
+    /**
+     * Passes any remaining elements to the consumers, and waits for all consumers to finish.
+     *
+     * @throws IOException if a consumer failed, or this thread was interrupted waiting for a consumer
+     */
+    public void finish() throws IOException {
+        if (!batch.isEmpty()) {
+            sendBatch();
+        }
+        for (BlockingQueue<List<T>> queue : queues) {
+            put(queue, endOfElements);
+        }
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for pipelined write to finish");
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Stops all consumers. If this is called before finish, any elements that have not yet been consumed will be
+     * discarded.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void sendBatch() throws IOException {
+        checkFailure();
+        List<T> sending = batch;
+        batch = new ArrayList<>(batchSize);
+        for (BlockingQueue<List<T>> queue : queues) {
+            put(queue, sending);
+        }
+    }
+
+    private void put(BlockingQueue<List<T>> queue, List<T> sending) throws IOException {
+        try {
+            queue.put(sending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for pipelined consumer");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable e = failure.get();
+        if (e != null) {
+            throw new IOException("Failed in pipelined consumer", e);
+        }
+    }
+
+    private Void consume(BlockingQueue<List<T>> queue, Consumer<T> consumer) throws InterruptedException {
+        while (true) {
+            List<T> consuming = queue.take();
+            if (consuming == endOfElements) {
+                return null;
+            }
+            // After a failure, keep taking from the queue so that the writer is not blocked
+            if (failure.get() != null) {
+                continue;
+            }
+            try {
+                for (T element : consuming) {
+                    consumer.accept(element);
+                }
+            } catch (Throwable e) {
+                // Any failure must be passed to the writer, including errors, or the writer could block on a full queue
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    /**
+     * Consumes elements on a separate thread.
+     *
+     * @param <T> the type of elements to consume
+     */
+    @FunctionalInterface
+    public interface Consumer<T> {
+
+        /**
+         * Consumes an element.
+         *
+         * @param  element     the element
+         * @throws IOException if the element could not be consumed
+         */
+        void accept(T element) throws IOException;
+    }
+}
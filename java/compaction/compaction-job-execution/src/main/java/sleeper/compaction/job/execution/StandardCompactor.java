@@ -30,30 +30,47 @@ import sleeper.configuration.jars.ObjectFactory;
 import sleeper.configuration.jars.ObjectFactoryException;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TablePropertiesProvider;
+import sleeper.core.iterator.ArrayRecordToRecordIterator;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.iterator.IteratorCreationException;
 import sleeper.core.iterator.MergingIterator;
+import sleeper.core.iterator.ReadAheadIterator;
+import sleeper.core.iterator.RecordToArrayRecordIterator;
+import sleeper.core.iterator.SortedMergingIterator;
 import sleeper.core.iterator.SortedRecordIterator;
+import sleeper.core.iterator.WrappedIterator;
 import sleeper.core.partition.Partition;
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.ArrayRecordComparator;
 import sleeper.core.record.Record;
+import sleeper.core.record.RecordLayout;
 import sleeper.core.record.process.RecordsProcessed;
 import sleeper.core.schema.Schema;
 import sleeper.core.statestore.StateStore;
 import sleeper.core.statestore.StateStoreException;
-import sleeper.io.parquet.record.ParquetReaderIterator;
-import sleeper.io.parquet.record.ParquetRecordReader;
+import sleeper.io.parquet.record.ParquetArrayRecordIterator;
+import sleeper.io.parquet.record.ParquetArrayRecordReader;
 import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+import sleeper.io.parquet.utils.ParquetFooter;
 import sleeper.io.parquet.utils.RangeQueryUtils;
+import sleeper.io.parquet.utils.RowGroupSkipCounter;
 import sleeper.sketches.Sketches;
 import sleeper.sketches.s3.SketchesSerDeToS3;
 import sleeper.statestore.StateStoreProvider;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static sleeper.configuration.properties.table.TableProperty.COMPACTION_PIPELINED_WRITE;
+import static sleeper.configuration.properties.table.TableProperty.COMPACTION_READ_AHEAD_BYTES;
+import static sleeper.configuration.properties.table.TableProperty.COMPACTION_READ_AHEAD_THREADS;
 import static sleeper.sketches.s3.SketchesSerDeToS3.sketchesPathForDataFile;
 
 /**
@@ -64,16 +81,38 @@ public class StandardCompactor implements CompactionRunner {
     private final ObjectFactory objectFactory;
     private final StateStoreProvider stateStoreProvider;
     private final Configuration configuration;
+    private final long maxReadAheadBytes;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(StandardCompactor.class);
+    private static final int READ_AHEAD_BATCH_SIZE = 1000;
+    private static final int PIPELINED_WRITE_BATCH_SIZE = 1000;
+    private static final int PIPELINED_WRITE_MAX_QUEUED_BATCHES = 4;
 
     public StandardCompactor(
             TablePropertiesProvider tablePropertiesProvider,
             StateStoreProvider stateStoreProvider, ObjectFactory objectFactory, Configuration configuration) {
+        this(tablePropertiesProvider, stateStoreProvider, objectFactory, configuration, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a compactor with a limit on how much memory a job may use to buffer records. This limit is applied if
+     * it is less than the limit set in the table properties.
+     *
+     * @param tablePropertiesProvider the table properties provider
+     * @param stateStoreProvider      the state store provider
+     * @param objectFactory           the object factory to create iterators
+     * @param configuration           the Hadoop configuration
+     * @param maxReadAheadBytes       the maximum size of records read ahead from input files in a job
+     */
+    public StandardCompactor(
+            TablePropertiesProvider tablePropertiesProvider,
+            StateStoreProvider stateStoreProvider, ObjectFactory objectFactory, Configuration configuration,
+            long maxReadAheadBytes) {
         this.tablePropertiesProvider = tablePropertiesProvider;
         this.objectFactory = objectFactory;
         this.stateStoreProvider = stateStoreProvider;
         this.configuration = configuration;
+        this.maxReadAheadBytes = maxReadAheadBytes;
     }
 
     public RecordsProcessed compact(CompactionJob compactionJob) throws IOException, IteratorCreationException, StateStoreException, InterruptedException {
@@ -85,10 +124,27 @@ public class StandardCompactor implements CompactionRunner {
                 .findFirst().orElseThrow(() -> new NoSuchElementException("Partition not found for compaction job"));
 
         // Create a reader for each file
-        List<CloseableIterator<Record>> inputIterators = createInputIterators(compactionJob, partition, schema);
+        RecordLayout layout = RecordLayout.from(schema);
+        ExecutorService readAheadExecutor = createReadAheadExecutor(compactionJob, tableProperties);
+        try {
+            return compact(compactionJob, tableProperties, partition, layout, readAheadExecutor);
+        } finally {
+            if (readAheadExecutor != null) {
+                readAheadExecutor.shutdownNow();
+            }
+        }
+    }
+
+    private RecordsProcessed compact(
+            CompactionJob compactionJob, TableProperties tableProperties, Partition partition, RecordLayout layout,
+            ExecutorService readAheadExecutor) throws IOException, IteratorCreationException {
+        Schema schema = layout.getSchema();
+        RowGroupSkipCounter rowGroupSkipCounter = new RowGroupSkipCounter();
+        List<ReadAheadIterator<ArrayRecord>> inputIterators = createInputIterators(
+                compactionJob, tableProperties, partition, layout, readAheadExecutor, rowGroupSkipCounter);
 
-        CloseableIterator<Record> mergingIterator = getMergingIterator(objectFactory, schema, compactionJob, inputIterators);
-        // Merge these iterator into one sorted iterator
+        // Merge these iterators into one sorted iterator
+        CloseableIterator<ArrayRecord> mergingIterator = getMergingIterator(objectFactory, layout, compactionJob, inputIterators);
 
         // Create writer
         LOGGER.debug("Creating writer for file {}", compactionJob.getOutputFile());
@@ -96,22 +152,17 @@ public class StandardCompactor implements CompactionRunner {
         // Setting file writer mode to OVERWRITE so if the same job runs again after failing to
         // update the state store, it will overwrite the existing output file written
         // by the previous run
-        ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(
+        ParquetWriter<ArrayRecord> writer = ParquetRecordWriterFactory.createParquetArrayRecordWriter(
                 outputPath, tableProperties, configuration, ParquetFileWriter.Mode.OVERWRITE);
 
         LOGGER.info("Compaction job {}: Created writer for file {}", compactionJob.getId(), compactionJob.getOutputFile());
         Sketches sketches = Sketches.from(schema);
 
-        long recordsWritten = 0L;
-        while (mergingIterator.hasNext()) {
-            Record record = mergingIterator.next();
-            sketches.update(schema, record);
-            // Write out
-            writer.write(record);
-            recordsWritten++;
-            if (0 == recordsWritten % 1_000_000) {
-                LOGGER.info("Compaction job {}: Written {} records", compactionJob.getId(), recordsWritten);
-            }
+        long recordsWritten;
+        if (tableProperties.getBoolean(COMPACTION_PIPELINED_WRITE)) {
+            recordsWritten = writePipelined(compactionJob, mergingIterator, writer, sketches);
+        } else {
+            recordsWritten = write(compactionJob, mergingIterator, writer, sketches);
         }
         writer.close();
         LOGGER.debug("Compaction job {}: Closed writer", compactionJob.getId());
@@ -121,43 +172,145 @@ public class StandardCompactor implements CompactionRunner {
         new SketchesSerDeToS3(schema).saveToHadoopFS(sketchesPath, sketches, configuration);
         LOGGER.info("Compaction job {}: Wrote sketches file to {}", compactionJob.getId(), sketchesPath);
 
-        for (CloseableIterator<Record> iterator : inputIterators) {
+        for (CloseableIterator<ArrayRecord> iterator : inputIterators) {
             iterator.close();
         }
         LOGGER.debug("Compaction job {}: Closed readers", compactionJob.getId());
 
         long totalNumberOfRecordsRead = 0L;
-        for (CloseableIterator<Record> iterator : inputIterators) {
-            totalNumberOfRecordsRead += ((ParquetReaderIterator) iterator).getNumberOfRecordsRead();
+        for (ReadAheadIterator<ArrayRecord> iterator : inputIterators) {
+            totalNumberOfRecordsRead += iterator.getNumberOfRecordsRead();
         }
 
         LOGGER.info("Compaction job {}: Read {} records and wrote {} records", compactionJob.getId(), totalNumberOfRecordsRead, recordsWritten);
+        LOGGER.info("Compaction job {}: Skipped {} row groups outside the partition, read {} row groups, skipped {} files entirely",
+                compactionJob.getId(), rowGroupSkipCounter.getRowGroupsSkipped(), rowGroupSkipCounter.getRowGroupsRead(),
+                rowGroupSkipCounter.getFilesSkipped());
         return new RecordsProcessed(totalNumberOfRecordsRead, recordsWritten);
     }
 
-    private List<CloseableIterator<Record>> createInputIterators(CompactionJob compactionJob, Partition partition, Schema schema) throws IOException {
-        List<CloseableIterator<Record>> inputIterators = new ArrayList<>();
+    private static long write(
+            CompactionJob compactionJob, CloseableIterator<ArrayRecord> mergingIterator,
+            ParquetWriter<ArrayRecord> writer, Sketches sketches) throws IOException {
+        long recordsWritten = 0L;
+        while (mergingIterator.hasNext()) {
+            ArrayRecord record = mergingIterator.next();
+            sketches.update(record);
+            // Write out
+            writer.write(record);
+            recordsWritten++;
+            if (0 == recordsWritten % 1_000_000) {
+                LOGGER.info("Compaction job {}: Written {} records", compactionJob.getId(), recordsWritten);
+            }
+        }
+        return recordsWritten;
+    }
 
+    private static long writePipelined(
+            CompactionJob compactionJob, CloseableIterator<ArrayRecord> mergingIterator,
+            ParquetWriter<ArrayRecord> writer, Sketches sketches) throws IOException {
+        long recordsWritten = 0L;
+        try (PipelinedBatchWriter<ArrayRecord> pipeline = new PipelinedBatchWriter<>(
+                PIPELINED_WRITE_BATCH_SIZE, PIPELINED_WRITE_MAX_QUEUED_BATCHES,
+                List.of(writer::write, sketches::update))) {
+            while (mergingIterator.hasNext()) {
+                pipeline.write(mergingIterator.next());
+                recordsWritten++;
+                if (0 == recordsWritten % 1_000_000) {
+                    LOGGER.info("Compaction job {}: Merged {} records", compactionJob.getId(), recordsWritten);
+                }
+            }
+            pipeline.finish();
+        }
+        return recordsWritten;
+    }
+
+    private static ExecutorService createReadAheadExecutor(CompactionJob compactionJob, TableProperties tableProperties) {
+        int threads = Math.min(tableProperties.getInt(COMPACTION_READ_AHEAD_THREADS), compactionJob.getInputFiles().size());
+        if (threads < 1) {
+            return null;
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private List<ReadAheadIterator<ArrayRecord>> createInputIterators(
+            CompactionJob compactionJob, TableProperties tableProperties, Partition partition, RecordLayout layout,
+            ExecutorService readAheadExecutor, RowGroupSkipCounter rowGroupSkipCounter) {
+        List<ReadAheadIterator<ArrayRecord>> inputIterators = new ArrayList<>();
+
+        // If there's no executor to read ahead on, each batch is read on this thread when it's needed
+        Executor executor = readAheadExecutor != null ? readAheadExecutor : Runnable::run;
+        long maxBufferedBytesPerFile = readAheadExecutor != null
+                ? Math.min(tableProperties.getBytes(COMPACTION_READ_AHEAD_BYTES), maxReadAheadBytes) / compactionJob.getInputFiles().size()
+                : 0;
         FilterCompat.Filter partitionFilter = FilterCompat.get(RangeQueryUtils.getFilterPredicate(partition));
         for (String file : compactionJob.getInputFiles()) {
-            ParquetReader<Record> reader = new ParquetRecordReader.Builder(new Path(file), schema)
-                    .withConf(configuration)
-                    .withFilter(partitionFilter)
-                    .build();
-            ParquetReaderIterator recordIterator = new ParquetReaderIterator(reader);
-            inputIterators.add(recordIterator);
-            LOGGER.debug("Compaction job {}: Created reader for file {}", compactionJob.getId(), file);
-            LOGGER.debug("Compaction job {}: File is being filtered on ranges {}", compactionJob.getId(),
-                    partition.getRegion().getRanges().toString());
+            inputIterators.add(ReadAheadIterator.<ArrayRecord>builder()
+                    .source(() -> openInputFile(compactionJob, partition, layout, partitionFilter, rowGroupSkipCounter, file))
+                    .executor(executor)
+                    .sizeEstimator(ArrayRecord::estimateSizeInBytes)
+                    .batchSize(READ_AHEAD_BATCH_SIZE)
+                    .maxBufferedBytes(maxBufferedBytesPerFile)
+                    .build());
         }
         return inputIterators;
     }
 
+    private CloseableIterator<ArrayRecord> openInputFile(
+            CompactionJob compactionJob, Partition partition, RecordLayout layout,
+            FilterCompat.Filter partitionFilter, RowGroupSkipCounter rowGroupSkipCounter, String file) throws IOException {
+        // The footer is read once, and used both to check for row groups to skip and to create the reader
+        ParquetFooter footer = ParquetFooter.read(new Path(file), configuration);
+        // A file referenced from a partition after a split may hold no data in that partition's range
+        if (!rowGroupSkipCounter.checkFooter(footer.getMetadata(), partitionFilter)) {
+            LOGGER.debug("Compaction job {}: Skipping file {} as no row groups are in partition range {}",
+                    compactionJob.getId(), file, partition.getRegion().getRanges());
+            return new WrappedIterator<>(Collections.emptyIterator());
+        }
+        ParquetReader<ArrayRecord> reader = new ParquetArrayRecordReader.Builder(footer.toInputFile(configuration), layout)
+                .withConf(configuration)
+                .withFilter(partitionFilter)
+                .build();
+        ParquetArrayRecordIterator recordIterator = new ParquetArrayRecordIterator(reader);
+        LOGGER.debug("Compaction job {}: Created reader for file {}", compactionJob.getId(), file);
+        LOGGER.debug("Compaction job {}: File is being filtered on ranges {}", compactionJob.getId(),
+                partition.getRegion().getRanges().toString());
+        return recordIterator;
+    }
+
+    /**
+     * Merges input files held by position. Records are only converted to the {@link Record} API if an iterator is
+     * applied, and converted back afterwards.
+     *
+     * @param  objectFactory              the object factory to create an iterator
+     * @param  layout                     the layout of records in the table schema
+     * @param  compactionJob              the compaction job
+     * @param  inputIterators             an iterator for each input file
+     * @return                            an iterator of the merged records
+     * @throws IteratorCreationException if the iterator could not be created
+     */
+    public static CloseableIterator<ArrayRecord> getMergingIterator(
+            ObjectFactory objectFactory, RecordLayout layout, CompactionJob compactionJob,
+            List<? extends CloseableIterator<ArrayRecord>> inputIterators) throws IteratorCreationException {
+        CloseableIterator<ArrayRecord> mergingIterator = new SortedMergingIterator<>(
+                new ArrayRecordComparator(layout), inputIterators);
+        if (null == compactionJob.getIteratorClassName()) {
+            return mergingIterator;
+        }
+        CloseableIterator<Record> iterator = applyIterator(objectFactory, layout.getSchema(), compactionJob,
+                new ArrayRecordToRecordIterator(mergingIterator));
+        return new RecordToArrayRecordIterator(layout, iterator);
+    }
+
     public static CloseableIterator<Record> getMergingIterator(
             ObjectFactory objectFactory, Schema schema, CompactionJob compactionJob,
             List<CloseableIterator<Record>> inputIterators) throws IteratorCreationException {
-        CloseableIterator<Record> mergingIterator = new MergingIterator(schema, inputIterators);
+        return applyIterator(objectFactory, schema, compactionJob, new MergingIterator(schema, inputIterators));
+    }
 
+    private static CloseableIterator<Record> applyIterator(
+            ObjectFactory objectFactory, Schema schema, CompactionJob compactionJob,
+            CloseableIterator<Record> mergingIterator) throws IteratorCreationException {
         // Apply an iterator if one is provided
         if (null != compactionJob.getIteratorClassName()) {
             SortedRecordIterator iterator;
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution.arrow;
+
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges sorted batches of rows held in Arrow vectors. Each input is read in batches by an {@link ArrowBatchReader}.
+ * The merge does not copy any rows. Instead it builds an index permutation, made of the input and row index of each
+ * merged row, which is passed to an output in chunks.
+ * <p>
+ * The inputs are merged with a tournament tree of losers, in the same way as
+ * {@link sleeper.core.iterator.SortedMergingIterator}. Each comparison reads the key values straight from the
+ * vectors. A chunk is passed to the output when it is full, or before the batch of an input is replaced by its next
+ * batch, since the chunk may refer to rows in that batch.
+ */
+public class ArrowBatchMerger {
+    private final ArrowRowComparator comparator;
+    private final List<ArrowBatchReader> inputs;
+    private final List<VectorSchemaRoot> batches = new ArrayList<>();
+    private final int numInputs;
+    private final FieldVector[][] keyVectors;
+    private final int[] positions;
+    private final int[] rowCounts;
+    private final boolean[] exhausted;
+    private final int[] tree;
+    private final int[] chunkInputs;
+    private final int[] chunkRows;
+    private int chunkSize;
+
+    public ArrowBatchMerger(ArrowRowComparator comparator, List<ArrowBatchReader> inputs, int maxRowsPerChunk) {
+        this.comparator = comparator;
+        this.inputs = inputs;
+        this.numInputs = inputs.size();
+        this.keyVectors = new FieldVector[numInputs][];
+        this.positions = new int[numInputs];
+        this.rowCounts = new int[numInputs];
+        this.exhausted = new boolean[numInputs];
+        this.tree = new int[Math.max(1, numInputs)];
+        this.chunkInputs = new int[maxRowsPerChunk];
+        this.chunkRows = new int[maxRowsPerChunk];
+        for (int i = 0; i < numInputs; i++) {
+            VectorSchemaRoot batch = inputs.get(i).getBatch();
+            batches.add(batch);
+            keyVectors[i] = comparator.getKeyVectors(batch);
+        }
+    }
+
+    /**
+     * Merges all inputs, passing the merged rows to the output.
+     *
+     * @param  output      the output
+     * @return             the number of rows merged
+     * @throws IOException if an input could not be read, or the output failed
+     */
+    public long merge(Output output) throws IOException {
+        for (int i = 0; i < numInputs; i++) {
+            readNextBatch(i);
+        }
+        if (numInputs == 0) {
+            return 0;
+        }
+        buildTree();
+        long rowsMerged = 0;
+        while (!exhausted[tree[0]]) {
+            int winner = tree[0];
+            if (chunkSize == chunkInputs.length) {
+                flush(output);
+            }
+            chunkInputs[chunkSize] = winner;
+            chunkRows[chunkSize] = positions[winner];
+            chunkSize++;
+            rowsMerged++;
+            positions[winner]++;
+            if (positions[winner] >= rowCounts[winner]) {
+                flush(output);
+                readNextBatch(winner);
+            }
+            replay(winner);
+        }
+        flush(output);
+        return rowsMerged;
+    }
+
+    private void readNextBatch(int input) throws IOException {
+        exhausted[input] = !inputs.get(input).readNextBatch();
+        positions[input] = 0;
+        rowCounts[input] = batches.get(input).getRowCount();
+    }
+
+    private void flush(Output output) throws IOException {
+        if (chunkSize > 0) {
+            output.write(batches, chunkInputs, chunkRows, chunkSize);
+            chunkSize = 0;
+        }
+    }
+
+    /**
+     * Plays the initial tournament. Leaves are numbered from numInputs to 2 * numInputs - 1, and the children of
+     * internal node n are 2n and 2n + 1. The winner is held at index 0.
+     */
+    private void buildTree() {
+        int[] winners = new int[2 * numInputs];
+        for (int i = 0; i < numInputs; i++) {
+            winners[numInputs + i] = i;
+        }
+        for (int node = numInputs - 1; node >= 1; node--) {
+            int left = winners[2 * node];
+            int right = winners[2 * node + 1];
+            if (beats(left, right)) {
+                winners[node] = left;
+                tree[node] = right;
+            } else {
+                winners[node] = right;
+                tree[node] = left;
+            }
+        }
+        tree[0] = winners[1];
+    }
+
+    private void replay(int input) {
+        int winner = input;
+        for (int node = (numInputs + input) >> 1; node >= 1; node >>= 1) {
+            int loser = tree[node];
+            if (beats(loser, winner)) {
+                tree[node] = winner;
+                winner = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+
+    private boolean beats(int input1, int input2) {
+        if (exhausted[input1]) {
+            return false;
+        } else if (exhausted[input2]) {
+            return true;
+        }
+        int diff = comparator.compare(
+                keyVectors[input1], positions[input1],
+                keyVectors[input2], positions[input2]);
+        return diff < 0 || (diff == 0 && input1 < input2);
+    }
+
+    /**
+     * Receives merged rows in chunks. The rows must be consumed before this returns, as the batches they are held in
+     * may be replaced afterwards.
+     */
+    @FunctionalInterface
+    public interface Output {
+
+        /**
+         * Writes a chunk of merged rows. The rows are in order, and row i of the chunk is held at index rows[i] of
+         * batches[inputs[i]].
+         *
+         * @param  batches     the current batch of each input
+         * @param  inputs      the index of the input holding each row
+         * @param  rows        the index of each row in the batch of its input
+         * @param  count       the number of rows in the chunk
+         * @throws IOException if the rows could not be written
+         */
+        void write(List<VectorSchemaRoot> batches, int[] inputs, int[] rows, int count) throws IOException;
+    }
+}
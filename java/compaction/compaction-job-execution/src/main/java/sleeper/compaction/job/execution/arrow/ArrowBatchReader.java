@@ -0,0 +1,259 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution.arrow;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.MessageType;
+
+import sleeper.core.schema.Schema;
+import sleeper.io.parquet.record.SchemaConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a Parquet file in batches of rows held in Arrow vectors. Values are decoded from Parquet straight into the
+ * vectors, without creating an object for each row. The same vectors are reused for each batch, so a batch must be
+ * fully consumed before the next one is read.
+ * <p>
+ * Rows that do not match the given filter are skipped. The schema must be supported by {@link ArrowSchemaConverter}.
+ */
+public class ArrowBatchReader implements AutoCloseable {
+    private final VectorSchemaRoot batch;
+    private final ParquetReader<VectorSchemaRoot> reader;
+    private final int maxRowsPerBatch;
+    private int rowsInBatch;
+    private long recordsRead;
+
+    public ArrowBatchReader(
+            Path path, Schema schema, Configuration configuration, FilterCompat.Filter filter,
+            BufferAllocator allocator, int maxRowsPerBatch) throws IOException {
+        this.batch = VectorSchemaRoot.create(ArrowSchemaConverter.getArrowSchema(schema), allocator);
+        this.maxRowsPerBatch = maxRowsPerBatch;
+        try {
+            this.batch.allocateNew();
+            this.reader = new Builder(path, schema)
+                    .withConf(configuration)
+                    .withFilter(filter)
+                    .build();
+        } catch (IOException | RuntimeException e) {
+            batch.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next batch of rows into the vectors. This replaces the previous batch.
+     *
+     * @return             true if any rows were read, false if the end of the file has been reached
+     * @throws IOException if the file could not be read
+     */
+    public boolean readNextBatch() throws IOException {
+        for (FieldVector vector : batch.getFieldVectors()) {
+            vector.reset();
+        }
+        rowsInBatch = 0;
+        while (rowsInBatch < maxRowsPerBatch && reader.read() != null) {
+            // Each row is written to the vectors as it is read
+        }
+        batch.setRowCount(rowsInBatch);
+        recordsRead += rowsInBatch;
+        return rowsInBatch > 0;
+    }
+
+    public VectorSchemaRoot getBatch() {
+        return batch;
+    }
+
+    public long getNumberOfRecordsRead() {
+        return recordsRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } finally {
+            batch.close();
+        }
+    }
+
+    /**
+     * Builds a Parquet reader which writes rows into the vectors of this batch reader.
+     */
+    private class Builder extends ParquetReader.Builder<VectorSchemaRoot> {
+        private final Schema schema;
+
+        Builder(Path path, Schema schema) {
+            super(path);
+            this.schema = schema;
+        }
+
+        @Override
+        protected ReadSupport<VectorSchemaRoot> getReadSupport() {
+            return new VectorReadSupport(schema);
+        }
+    }
+
+    /**
+     * Requests all fields of the Sleeper schema, and materializes rows into the vectors of this batch reader.
+     */
+    private class VectorReadSupport extends ReadSupport<VectorSchemaRoot> {
+        private final Schema schema;
+
+        VectorReadSupport(Schema schema) {
+            this.schema = schema;
+        }
+
+        @Override
+        public ReadContext init(InitContext context) {
+            return new ReadContext(SchemaConverter.getSchema(schema));
+        }
+
+        @Override
+        public RecordMaterializer<VectorSchemaRoot> prepareForRead(
+                Configuration configuration, Map<String, String> keyValueMetaData,
+                MessageType fileSchema, ReadContext readContext) {
+            return new VectorMaterializer();
+        }
+    }
+
+    /**
+     * Writes each field of a row at the next index in the vectors. The row is only kept if it is materialized, which
+     * will not happen if it is rejected by a filter. Otherwise the next row will overwrite it.
+     */
+    private class VectorMaterializer extends RecordMaterializer<VectorSchemaRoot> {
+        private final RowConverter rowConverter = new RowConverter(createConverters());
+
+        @Override
+        public VectorSchemaRoot getCurrentRecord() {
+            rowsInBatch++;
+            return batch;
+        }
+
+        @Override
+        public GroupConverter getRootConverter() {
+            return rowConverter;
+        }
+
+        private Converter[] createConverters() {
+            List<FieldVector> vectors = batch.getFieldVectors();
+            Converter[] converters = new Converter[vectors.size()];
+            for (int i = 0; i < converters.length; i++) {
+                FieldVector vector = vectors.get(i);
+                if (vector instanceof IntVector) {
+                    converters[i] = new IntConverter((IntVector) vector);
+                } else if (vector instanceof BigIntVector) {
+                    converters[i] = new LongConverter((BigIntVector) vector);
+                } else {
+                    converters[i] = new VariableWidthConverter((BaseVariableWidthVector) vector);
+                }
+            }
+            return converters;
+        }
+    }
+
+    /**
+     * Passes the fields of a row to a converter for each vector.
+     */
+    private static class RowConverter extends GroupConverter {
+        private final Converter[] converters;
+
+        RowConverter(Converter[] converters) {
+            this.converters = converters;
+        }
+
+        @Override
+        public Converter getConverter(int fieldIndex) {
+            return converters[fieldIndex];
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+
+    /**
+     * Sets an int field.
+     */
+    private class IntConverter extends PrimitiveConverter {
+        private final IntVector vector;
+
+        IntConverter(IntVector vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        public void addInt(int value) {
+            vector.setSafe(rowsInBatch, value);
+        }
+    }
+
+    /**
+     * Sets a long field.
+     */
+    private class LongConverter extends PrimitiveConverter {
+        private final BigIntVector vector;
+
+        LongConverter(BigIntVector vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        public void addLong(long value) {
+            vector.setSafe(rowsInBatch, value);
+        }
+    }
+
+    /**
+     * Sets a string or byte array field, copying the bytes straight from Parquet.
+     */
+    private class VariableWidthConverter extends PrimitiveConverter {
+        private final BaseVariableWidthVector vector;
+
+        VariableWidthConverter(BaseVariableWidthVector vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        public void addBinary(Binary value) {
+            ByteBuffer buffer = value.toByteBuffer();
+            vector.setSafe(rowsInBatch, buffer, buffer.position(), buffer.remaining());
+        }
+    }
+}
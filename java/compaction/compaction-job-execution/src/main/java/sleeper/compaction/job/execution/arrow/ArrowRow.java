@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution.arrow;
+
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+/**
+ * A reference to a row in a batch of Arrow vectors. This is mutable, so that one instance can be moved between rows
+ * without creating an object for each row.
+ */
+public class ArrowRow {
+    private VectorSchemaRoot batch;
+    private int index;
+
+    /**
+     * Moves this reference to a row.
+     *
+     * @param batch the batch holding the row
+     * @param index the index of the row in the batch
+     */
+    public void set(VectorSchemaRoot batch, int index) {
+        this.batch = batch;
+        this.index = index;
+    }
+
+    public VectorSchemaRoot getBatch() {
+        return batch;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution.arrow;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.schema.type.Type;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares rows held in Arrow vectors by the row keys and then the sort keys of a Sleeper schema. Values are read
+ * directly from the vectors without creating any objects. This gives the same order as
+ * {@link sleeper.core.record.RecordComparator}.
+ * <p>
+ * Strings are compared as UTF-8 bytes, adjusted to give the same order as {@link String#compareTo}, which compares
+ * UTF-16 code units. Byte arrays are compared as signed bytes, the same as {@link java.util.Arrays#compare}.
+ */
+public class ArrowRowComparator {
+    private final int[] keyIndexes;
+    private final KeyType[] keyTypes;
+
+    public ArrowRowComparator(Schema schema) {
+        List<Field> allFields = schema.getAllFields();
+        List<Field> keyFields = Stream.of(schema.getRowKeyFields(), schema.getSortKeyFields())
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        this.keyIndexes = new int[keyFields.size()];
+        this.keyTypes = new KeyType[keyFields.size()];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            Field field = keyFields.get(i);
+            keyIndexes[i] = allFields.indexOf(field);
+            keyTypes[i] = KeyType.forType(field.getType());
+        }
+    }
+
+    /**
+     * Finds the vectors holding the key fields in a batch. These can be held to compare rows of the batch.
+     *
+     * @param  batch the batch
+     * @return       the vectors of the key fields, in the order they are compared
+     */
+    public FieldVector[] getKeyVectors(VectorSchemaRoot batch) {
+        FieldVector[] vectors = new FieldVector[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            vectors[i] = batch.getVector(keyIndexes[i]);
+        }
+        return vectors;
+    }
+
+    /**
+     * Compares two rows.
+     *
+     * @param  keys1 the key vectors holding the first row, from {@link #getKeyVectors}
+     * @param  row1  the index of the first row
+     * @param  keys2 the key vectors holding the second row, from {@link #getKeyVectors}
+     * @param  row2  the index of the second row
+     * @return       a negative number, zero or a positive number as the first row is less than, equal to or greater
+     *               than the second
+     */
+    public int compare(FieldVector[] keys1, int row1, FieldVector[] keys2, int row2) {
+        for (int i = 0; i < keyTypes.length; i++) {
+            int diff = keyTypes[i].compare(keys1[i], row1, keys2[i], row2);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compares values of a key field directly from vectors by type.
+     */
+    private enum KeyType {
+        INT {
+            @Override
+            int compare(FieldVector vector1, int row1, FieldVector vector2, int row2) {
+                return Integer.compare(((IntVector) vector1).get(row1), ((IntVector) vector2).get(row2));
+            }
+        },
+        LONG {
+            @Override
+            int compare(FieldVector vector1, int row1, FieldVector vector2, int row2) {
+                return Long.compare(((BigIntVector) vector1).get(row1), ((BigIntVector) vector2).get(row2));
+            }
+        },
+        STRING {
+            @Override
+            int compare(FieldVector vector1, int row1, FieldVector vector2, int row2) {
+                return compareBytes((BaseVariableWidthVector) vector1, row1, (BaseVariableWidthVector) vector2, row2, true);
+            }
+        },
+        BYTE_ARRAY {
+            @Override
+            int compare(FieldVector vector1, int row1, FieldVector vector2, int row2) {
+                return compareBytes((BaseVariableWidthVector) vector1, row1, (BaseVariableWidthVector) vector2, row2, false);
+            }
+        };
+
+        abstract int compare(FieldVector vector1, int row1, FieldVector vector2, int row2);
+
+        static KeyType forType(Type type) {
+            if (type instanceof IntType) {
+                return INT;
+            } else if (type instanceof LongType) {
+                return LONG;
+            } else if (type instanceof StringType) {
+                return STRING;
+            } else if (type instanceof ByteArrayType) {
+                return BYTE_ARRAY;
+            } else {
+                throw new IllegalArgumentException("Unsupported key type: " + type);
+            }
+        }
+    }
+
+    private static int compareBytes(
+            BaseVariableWidthVector vector1, int row1, BaseVariableWidthVector vector2, int row2, boolean utf8) {
+        ArrowBuf data1 = vector1.getDataBuffer();
+        ArrowBuf data2 = vector2.getDataBuffer();
+        long start1 = vector1.getStartOffset(row1);
+        long start2 = vector2.getStartOffset(row2);
+        int length1 = vector1.getValueLength(row1);
+        int length2 = vector2.getValueLength(row2);
+        int length = Math.min(length1, length2);
+        for (int i = 0; i < length; i++) {
+            byte byte1 = data1.getByte(start1 + i);
+            byte byte2 = data2.getByte(start2 + i);
+            if (byte1 != byte2) {
+                if (utf8) {
+                    return Integer.compare(utf16Order(byte1), utf16Order(byte2));
+                } else {
+                    return Byte.compare(byte1, byte2);
+                }
+            }
+        }
+        return Integer.compare(length1, length2);
+    }
+
+    /**
+     * Ranks the first differing byte of two UTF-8 strings, to give the same order as comparing UTF-16 code units.
+     * UTF-8 bytes compared unsigned give code point order. This only differs from UTF-16 order between characters from
+     * U+E000 to U+FFFF, which start with byte 0xEE or 0xEF, and supplementary characters, which start with 0xF0 to 0xF4
+     * and are held as surrogates from 0xD800 in UTF-16. A differing byte of 0xEE or above can only be the first byte of
+     * a character, so the start bytes of supplementary characters are moved before 0xEE.
+     *
+     * @param  value the byte
+     * @return       the rank of the byte
+     */
+    private static int utf16Order(byte value) {
+        int unsigned = Byte.toUnsignedInt(value);
+        if (unsigned >= 0xF0) {
+            return unsigned - 2;
+        } else if (unsigned >= 0xEE) {
+            return unsigned + 5;
+        } else {
+            return unsigned;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution.arrow;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.Type;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Support for writing rows held in Arrow vectors to Parquet files. Values are read straight from the vectors. Strings
+ * and byte arrays are copied into a reused buffer, which Parquet copies if it needs to retain the value.
+ */
+public class ArrowRowWriteSupport extends WriteSupport<ArrowRow> {
+    private final MessageType messageType;
+    private final String[] fieldNames;
+    private final Type[] fieldTypes;
+    private RecordConsumer recordConsumer;
+    private byte[] buffer = new byte[1024];
+
+    public ArrowRowWriteSupport(MessageType messageType, Schema schema) {
+        this.messageType = messageType;
+        this.fieldNames = schema.getAllFieldNames().toArray(new String[0]);
+        this.fieldTypes = schema.getAllFields().stream().map(field -> field.getType()).toArray(Type[]::new);
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(messageType, new HashMap<>());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.recordConsumer = recordConsumer;
+    }
+
+    @Override
+    @SuppressFBWarnings("UWF_FIELD_NOT_INITIALIZED_IN_CONSTRUCTOR")
+    public void write(ArrowRow row) {
+        VectorSchemaRoot batch = row.getBatch();
+        int index = row.getIndex();
+        List<FieldVector> vectors = batch.getFieldVectors();
+        recordConsumer.startMessage();
+        for (int i = 0; i < fieldNames.length; i++) {
+            String name = fieldNames[i];
+            Type type = fieldTypes[i];
+            recordConsumer.startField(name, i);
+            if (type instanceof IntType) {
+                recordConsumer.addInteger(((IntVector) vectors.get(i)).get(index));
+            } else if (type instanceof LongType) {
+                recordConsumer.addLong(((BigIntVector) vectors.get(i)).get(index));
+            } else {
+                recordConsumer.addBinary(readBinary((BaseVariableWidthVector) vectors.get(i), index));
+            }
+            recordConsumer.endField(name, i);
+        }
+        recordConsumer.endMessage();
+    }
+
+    private Binary readBinary(BaseVariableWidthVector vector, int index) {
+        int length = vector.getValueLength(index);
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        vector.getDataBuffer().getBytes(vector.getStartOffset(index), buffer, 0, length);
+        return Binary.fromReusedByteArray(buffer, 0, length);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution.arrow;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.api.WriteSupport;
+
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.schema.Schema;
+import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+
+/**
+ * Builds a writer for rows held in Arrow vectors. Uses {@link ArrowRowWriteSupport}.
+ */
+public class ArrowRowWriterBuilder extends ParquetRecordWriterFactory.BaseBuilder<ArrowRow, ArrowRowWriterBuilder> {
+
+    private ArrowRowWriterBuilder(Path path, Schema schema) {
+        super(path, schema);
+    }
+
+    /**
+     * Creates a builder for a writer, configured from the given table properties.
+     *
+     * @param  path            the path of the file to write
+     * @param  tableProperties the table properties
+     * @return                 the builder
+     */
+    public static ArrowRowWriterBuilder builder(Path path, TableProperties tableProperties) {
+        return ParquetRecordWriterFactory.configureFromTableProperties(
+                new ArrowRowWriterBuilder(path, tableProperties.getSchema()), tableProperties);
+    }
+
+    @Override
+    protected WriteSupport<ArrowRow> getWriteSupport(Configuration conf) {
+        return new ArrowRowWriteSupport(getMessageType(), getSchema());
+    }
+
+    @Override
+    protected ArrowRowWriterBuilder self() {
+        return this;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution.arrow;
+
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.schema.type.Type;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Converts a Sleeper schema to an Arrow schema for compaction. Only schemas where every field has a primitive type are
+ * supported. The Arrow fields are in the same order as {@link Schema#getAllFields()}.
+ */
+public class ArrowSchemaConverter {
+
+    private ArrowSchemaConverter() {
+    }
+
+    /**
+     * Checks whether a schema can be held in Arrow vectors for compaction.
+     *
+     * @param  schema the Sleeper schema
+     * @return        true if every field has an int, long, string or byte array type
+     */
+    public static boolean isSupported(Schema schema) {
+        return schema.getAllFields().stream()
+                .allMatch(field -> isSupported(field.getType()));
+    }
+
+    /**
+     * Creates an Arrow schema matching a Sleeper schema.
+     *
+     * @param  schema the Sleeper schema
+     * @return        the Arrow schema
+     */
+    public static org.apache.arrow.vector.types.pojo.Schema getArrowSchema(Schema schema) {
+        List<Field> fields = schema.getAllFields().stream()
+                .map(field -> new Field(field.getName(), FieldType.notNullable(getArrowType(field.getType())), null))
+                .collect(Collectors.toList());
+        return new org.apache.arrow.vector.types.pojo.Schema(fields);
+    }
+
+    private static boolean isSupported(Type type) {
+        return type instanceof IntType
+                || type instanceof LongType
+                || type instanceof StringType
+                || type instanceof ByteArrayType;
+    }
+
+    private static ArrowType getArrowType(Type type) {
+        if (type instanceof IntType) {
+            return new ArrowType.Int(32, true);
+        } else if (type instanceof LongType) {
+            return new ArrowType.Int(64, true);
+        } else if (type instanceof StringType) {
+            return new ArrowType.Utf8();
+        } else if (type instanceof ByteArrayType) {
+            return new ArrowType.Binary();
+        } else {
+            throw new IllegalArgumentException("Type not supported for Arrow compaction: " + type);
+        }
+    }
+}
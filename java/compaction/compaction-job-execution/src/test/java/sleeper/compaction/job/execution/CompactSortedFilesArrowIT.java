@@ -0,0 +1,267 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import sleeper.compaction.job.CompactionJob;
+import sleeper.compaction.job.CompactionRunner;
+import sleeper.compaction.job.execution.testutils.CompactSortedFilesTestBase;
+import sleeper.compaction.job.execution.testutils.CompactSortedFilesTestData;
+import sleeper.core.iterator.impl.AgeOffIterator;
+import sleeper.core.partition.PartitionsBuilder;
+import sleeper.core.record.Record;
+import sleeper.core.record.process.RecordsProcessed;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.statestore.FileReference;
+import sleeper.io.parquet.utils.HadoopConfigurationProvider;
+import sleeper.sketches.Sketches;
+import sleeper.sketches.s3.SketchesSerDeToS3;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.compaction.job.execution.testutils.CompactSortedFilesTestData.readDataFile;
+import static sleeper.compaction.job.execution.testutils.CompactSortedFilesTestData.writeRootFile;
+import static sleeper.compaction.job.execution.testutils.CompactSortedFilesTestUtils.assignJobIdToInputFiles;
+import static sleeper.compaction.job.execution.testutils.CompactSortedFilesTestUtils.createSchemaWithTypesForKeyAndTwoValues;
+import static sleeper.configuration.properties.table.TableProperty.COMPACTION_METHOD;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CLASS_NAME;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CONFIG;
+import static sleeper.configuration.properties.table.TableProperty.TABLE_ID;
+import static sleeper.sketches.s3.SketchesSerDeToS3.sketchesPathForDataFile;
+
+class CompactSortedFilesArrowIT extends CompactSortedFilesTestBase {
+
+    @BeforeEach
+    void setUp() {
+        tableProperties.set(COMPACTION_METHOD, "ARROW");
+    }
+
+    @Nested
+    class MergeFiles {
+
+        @Test
+        void shouldMergeFilesWithLongKey() throws Exception {
+            // Given
+            Schema schema = createSchemaWithTypesForKeyAndTwoValues(new LongType(), new LongType(), new LongType());
+            tableProperties.setSchema(schema);
+            stateStore.initialise(new PartitionsBuilder(schema).singlePartition("root").buildList());
+
+            List<Record> data1 = CompactSortedFilesTestData.keyAndTwoValuesSortedEvenLongs();
+            List<Record> data2 = CompactSortedFilesTestData.keyAndTwoValuesSortedOddLongs();
+            FileReference file1 = ingestRecordsGetFile(data1);
+            FileReference file2 = ingestRecordsGetFile(data2);
+
+            CompactionJob compactionJob = compactionFactory().createCompactionJob(List.of(file1, file2), "root");
+            assignJobIdToInputFiles(stateStore, compactionJob);
+
+            // When
+            CompactionRunner runner = chooseCompactor(schema, compactionJob);
+            RecordsProcessed summary = runner.compact(compactionJob);
+
+            // Then
+            List<Record> expectedResults = CompactSortedFilesTestData.combineSortedBySingleKey(data1, data2);
+            assertThat(runner).isInstanceOf(ArrowCompactor.class);
+            assertThat(summary.getRecordsRead()).isEqualTo(expectedResults.size());
+            assertThat(summary.getRecordsWritten()).isEqualTo(expectedResults.size());
+            assertThat(readDataFile(schema, compactionJob.getOutputFile())).isEqualTo(expectedResults);
+            Sketches sketches = new SketchesSerDeToS3(schema).loadFromHadoopFS(
+                    sketchesPathForDataFile(compactionJob.getOutputFile()), new Configuration());
+            assertThat(sketches.getQuantilesSketch("key").getMinValue()).isEqualTo(0L);
+            assertThat(sketches.getQuantilesSketch("key").getMaxValue()).isEqualTo(199L);
+        }
+
+        @Test
+        void shouldMergeFilesWithStringKey() throws Exception {
+            // Given
+            Schema schema = createSchemaWithTypesForKeyAndTwoValues(new StringType(), new StringType(), new LongType());
+            tableProperties.setSchema(schema);
+            stateStore.initialise(new PartitionsBuilder(schema).singlePartition("root").buildList());
+
+            List<Record> data1 = CompactSortedFilesTestData.keyAndTwoValuesSortedEvenStrings();
+            List<Record> data2 = CompactSortedFilesTestData.keyAndTwoValuesSortedOddStrings();
+            FileReference file1 = ingestRecordsGetFile(data1);
+            FileReference file2 = ingestRecordsGetFile(data2);
+
+            CompactionJob compactionJob = compactionFactory().createCompactionJob(List.of(file1, file2), "root");
+            assignJobIdToInputFiles(stateStore, compactionJob);
+
+            // When
+            RecordsProcessed summary = chooseCompactor(schema, compactionJob).compact(compactionJob);
+
+            // Then
+            List<Record> expectedResults = CompactSortedFilesTestData.combineSortedBySingleKey(data1, data2);
+            assertThat(summary.getRecordsRead()).isEqualTo(expectedResults.size());
+            assertThat(summary.getRecordsWritten()).isEqualTo(expectedResults.size());
+            assertThat(readDataFile(schema, compactionJob.getOutputFile())).isEqualTo(expectedResults);
+        }
+
+        @Test
+        void shouldMergeFilesWithByteArrayKey() throws Exception {
+            // Given
+            Schema schema = createSchemaWithTypesForKeyAndTwoValues(new ByteArrayType(), new ByteArrayType(), new LongType());
+            tableProperties.setSchema(schema);
+            stateStore.initialise(new PartitionsBuilder(schema).singlePartition("root").buildList());
+
+            List<Record> data1 = CompactSortedFilesTestData.keyAndTwoValuesSortedEvenByteArrays();
+            List<Record> data2 = CompactSortedFilesTestData.keyAndTwoValuesSortedOddByteArrays();
+            FileReference file1 = ingestRecordsGetFile(data1);
+            FileReference file2 = ingestRecordsGetFile(data2);
+
+            CompactionJob compactionJob = compactionFactory().createCompactionJob(List.of(file1, file2), "root");
+            assignJobIdToInputFiles(stateStore, compactionJob);
+
+            // When
+            RecordsProcessed summary = chooseCompactor(schema, compactionJob).compact(compactionJob);
+
+            // Then
+            List<Record> expectedResults = CompactSortedFilesTestData.combineSortedBySingleByteArrayKey(data1, data2);
+            assertThat(summary.getRecordsRead()).isEqualTo(expectedResults.size());
+            assertThat(summary.getRecordsWritten()).isEqualTo(expectedResults.size());
+            assertThat(readDataFile(schema, compactionJob.getOutputFile())).isEqualTo(expectedResults);
+        }
+
+        @Test
+        void shouldMergeFilesWithMoreRecordsThanOneBatch() throws Exception {
+            // Given
+            Schema schema = Schema.builder()
+                    .rowKeyFields(new Field("key", new IntType()))
+                    .sortKeyFields(new Field("sort", new LongType()))
+                    .valueFields(new Field("value", new StringType()))
+                    .build();
+            tableProperties.setSchema(schema);
+            stateStore.initialise(new PartitionsBuilder(schema).singlePartition("root").buildList());
+
+            List<Record> data1 = recordsWithKeyModulo(3, 0, 10000);
+            List<Record> data2 = recordsWithKeyModulo(3, 1, 10000);
+            List<Record> data3 = recordsWithKeyModulo(3, 2, 10000);
+            FileReference file1 = writeRootFile(schema, stateStore, dataFolderName + "/file1.parquet", data1);
+            FileReference file2 = writeRootFile(schema, stateStore, dataFolderName + "/file2.parquet", data2);
+            FileReference file3 = writeRootFile(schema, stateStore, dataFolderName + "/file3.parquet", data3);
+
+            CompactionJob compactionJob = compactionFactory().createCompactionJob(List.of(file1, file2, file3), "root");
+            assignJobIdToInputFiles(stateStore, compactionJob);
+
+            // When
+            RecordsProcessed summary = chooseCompactor(schema, compactionJob).compact(compactionJob);
+
+            // Then
+            assertThat(summary.getRecordsRead()).isEqualTo(10000);
+            assertThat(summary.getRecordsWritten()).isEqualTo(10000);
+            assertThat(readDataFile(schema, compactionJob.getOutputFile()))
+                    .isEqualTo(recordsWithKeyModulo(1, 0, 10000));
+        }
+
+        @Test
+        void shouldOnlyMergeRecordsInPartitionOfJob() throws Exception {
+            // Given
+            Schema schema = createSchemaWithTypesForKeyAndTwoValues(new LongType(), new LongType(), new LongType());
+            tableProperties.setSchema(schema);
+            stateStore.initialise(new PartitionsBuilder(schema)
+                    .rootFirst("root")
+                    .splitToNewChildren("root", "L", "R", 100L)
+                    .buildList());
+
+            List<Record> data1 = CompactSortedFilesTestData.keyAndTwoValuesSortedEvenLongs();
+            List<Record> data2 = CompactSortedFilesTestData.keyAndTwoValuesSortedOddLongs();
+            writeRootFile(schema, stateStore, dataFolderName + "/file1.parquet", data1);
+            writeRootFile(schema, stateStore, dataFolderName + "/file2.parquet", data2);
+
+            CompactionJob compactionJob = CompactionJob.builder()
+                    .tableId(tableProperties.get(TABLE_ID))
+                    .jobId(UUID.randomUUID().toString())
+                    .partitionId("R")
+                    .inputFiles(List.of(dataFolderName + "/file1.parquet", dataFolderName + "/file2.parquet"))
+                    .outputFile(dataFolderName + "/output.parquet")
+                    .build();
+
+            // When
+            RecordsProcessed summary = chooseCompactor(schema, compactionJob).compact(compactionJob);
+
+            // Then
+            List<Record> expectedResults = CompactSortedFilesTestData.combineSortedBySingleKey(data1, data2)
+                    .subList(100, 200);
+            assertThat(summary.getRecordsRead()).isEqualTo(100);
+            assertThat(summary.getRecordsWritten()).isEqualTo(100);
+            assertThat(readDataFile(schema, compactionJob.getOutputFile())).isEqualTo(expectedResults);
+        }
+    }
+
+    @Nested
+    class FallBackToStandardCompactor {
+
+        @Test
+        void shouldUseStandardCompactorWhenSchemaHasListField() throws Exception {
+            // Given
+            Schema schema = createSchemaWithTypesForKeyAndTwoValues(new LongType(), new ListType(new LongType()), new LongType());
+            tableProperties.setSchema(schema);
+            stateStore.initialise(new PartitionsBuilder(schema).singlePartition("root").buildList());
+            FileReference file = writeRootFile(schema, stateStore, dataFolderName + "/file1.parquet", List.of());
+            CompactionJob compactionJob = compactionFactory().createCompactionJob(List.of(file), "root");
+
+            // When
+            CompactionRunner runner = chooseCompactor(schema, compactionJob);
+
+            // Then
+            assertThat(runner).isInstanceOf(StandardCompactor.class);
+        }
+
+        @Test
+        void shouldUseStandardCompactorWhenTableHasIterator() throws Exception {
+            // Given
+            Schema schema = createSchemaWithTypesForKeyAndTwoValues(new LongType(), new LongType(), new LongType());
+            tableProperties.setSchema(schema);
+            tableProperties.set(ITERATOR_CLASS_NAME, AgeOffIterator.class.getName());
+            tableProperties.set(ITERATOR_CONFIG, "value1,1000000");
+            stateStore.initialise(new PartitionsBuilder(schema).singlePartition("root").buildList());
+            FileReference file = writeRootFile(schema, stateStore, dataFolderName + "/file1.parquet", List.of());
+            CompactionJob compactionJob = compactionFactory().createCompactionJob(List.of(file), "root");
+
+            // When
+            CompactionRunner runner = chooseCompactor(schema, compactionJob);
+
+            // Then
+            assertThat(runner).isInstanceOf(StandardCompactor.class);
+        }
+    }
+
+    private CompactionRunner chooseCompactor(Schema schema, CompactionJob compactionJob) throws Exception {
+        DefaultSelector selector = createCompactionSelector(schema,
+                HadoopConfigurationProvider.getConfigurationForECS(instanceProperties));
+        return selector.chooseCompactor(compactionJob);
+    }
+
+    private static List<Record> recordsWithKeyModulo(int modulo, int remainder, int maxKey) {
+        return IntStream.range(0, maxKey)
+                .filter(key -> key % modulo == remainder)
+                .mapToObj(key -> new Record(Map.of("key", key, "sort", (long) -key, "value", "value-" + key)))
+                .collect(Collectors.toList());
+    }
+}
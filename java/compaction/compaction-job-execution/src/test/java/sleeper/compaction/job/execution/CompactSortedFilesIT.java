@@ -38,6 +38,8 @@ import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 import static sleeper.compaction.job.execution.testutils.CompactSortedFilesTestUtils.assignJobIdToInputFiles;
 import static sleeper.compaction.job.execution.testutils.CompactSortedFilesTestUtils.createSchemaWithTypesForKeyAndTwoValues;
+import static sleeper.configuration.properties.table.TableProperty.COMPACTION_PIPELINED_WRITE;
+import static sleeper.configuration.properties.table.TableProperty.COMPACTION_READ_AHEAD_THREADS;
 
 class CompactSortedFilesIT extends CompactSortedFilesTestBase {
 
@@ -175,4 +177,51 @@ class CompactSortedFilesIT extends CompactSortedFilesTestBase {
             assertThat(CompactSortedFilesTestData.readDataFile(schema, compactionJob.getOutputFile())).isEqualTo(expectedResults);
         }
     }
+
+    @Nested
+    @DisplayName("Configure threads")
+    class ConfigureThreads {
+
+        @Test
+        void shouldMergeFilesCorrectlyWithPipelinedWrite() throws Exception {
+            // Given
+            tableProperties.set(COMPACTION_PIPELINED_WRITE, "true");
+
+            // When / Then
+            shouldMergeFilesWithLongKey();
+        }
+
+        @Test
+        void shouldMergeFilesCorrectlyWithNoReadAheadThreads() throws Exception {
+            // Given
+            tableProperties.set(COMPACTION_READ_AHEAD_THREADS, "0");
+
+            // When / Then
+            shouldMergeFilesWithLongKey();
+        }
+
+        private void shouldMergeFilesWithLongKey() throws Exception {
+            Schema schema = createSchemaWithTypesForKeyAndTwoValues(new LongType(), new LongType(), new LongType());
+            tableProperties.setSchema(schema);
+            stateStore.initialise(new PartitionsBuilder(schema).singlePartition("root").buildList());
+
+            List<Record> data1 = CompactSortedFilesTestData.keyAndTwoValuesSortedEvenLongs();
+            List<Record> data2 = CompactSortedFilesTestData.keyAndTwoValuesSortedOddLongs();
+            FileReference file1 = ingestRecordsGetFile(data1);
+            FileReference file2 = ingestRecordsGetFile(data2);
+
+            CompactionJob compactionJob = compactionFactory().createCompactionJob(List.of(file1, file2), "root");
+            assignJobIdToInputFiles(stateStore, compactionJob);
+
+            DefaultSelector selector = createCompactionSelector(schema,
+                    HadoopConfigurationProvider.getConfigurationForECS(instanceProperties));
+            CompactionRunner runner = selector.chooseCompactor(compactionJob);
+            RecordsProcessed summary = runner.compact(compactionJob);
+
+            List<Record> expectedResults = CompactSortedFilesTestData.combineSortedBySingleKey(data1, data2);
+            assertThat(summary.getRecordsRead()).isEqualTo(expectedResults.size());
+            assertThat(summary.getRecordsWritten()).isEqualTo(expectedResults.size());
+            assertThat(CompactSortedFilesTestData.readDataFile(schema, compactionJob.getOutputFile())).isEqualTo(expectedResults);
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PipelinedBatchWriterTest {
+
+    @Test
+    void shouldPassAllElementsToEachConsumerInOrder() throws Exception {
+        // Given
+        List<Integer> consumed1 = new ArrayList<>();
+        List<Integer> consumed2 = new ArrayList<>();
+
+        // When
+        try (PipelinedBatchWriter<Integer> writer = new PipelinedBatchWriter<>(3, 2,
+                List.of(consumed1::add, consumed2::add))) {
+            for (int i = 0; i < 100; i++) {
+                writer.write(i);
+            }
+            writer.finish();
+        }
+
+        // Then
+        assertThat(consumed1).containsExactlyElementsOf(range(0, 100));
+        assertThat(consumed2).containsExactlyElementsOf(range(0, 100));
+    }
+
+    @Test
+    void shouldPassPartialBatchOnFinish() throws Exception {
+        // Given
+        List<Integer> consumed = new ArrayList<>();
+
+        // When
+        try (PipelinedBatchWriter<Integer> writer = new PipelinedBatchWriter<>(10, 2, List.of(consumed::add))) {
+            writer.write(1);
+            writer.write(2);
+            writer.finish();
+        }
+
+        // Then
+        assertThat(consumed).containsExactly(1, 2);
+    }
+
+    @Test
+    void shouldThrowConsumerFailureOnFinish() throws Exception {
+        // Given
+        IOException failure = new IOException("Failed consuming");
+        try (PipelinedBatchWriter<Integer> writer = new PipelinedBatchWriter<>(10, 2, List.of(
+                element -> {
+                },
+                element -> {
+                    throw failure;
+                }))) {
+            writer.write(1);
+
+            // When / Then
+            assertThatThrownBy(writer::finish)
+                    .isInstanceOf(IOException.class)
+                    .hasCause(failure);
+        }
+    }
+
+    @Test
+    void shouldThrowConsumerFailureOnWriteWithoutBlocking() throws Exception {
+        // Given
+        RuntimeException failure = new RuntimeException("Failed consuming");
+        try (PipelinedBatchWriter<Integer> writer = new PipelinedBatchWriter<>(1, 1, List.of(element -> {
+            throw failure;
+        }))) {
+
+            // When / Then
+            assertThatThrownBy(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    writer.write(i);
+                }
+            }).isInstanceOf(IOException.class).hasCause(failure);
+        }
+    }
+
+    @Test
+    void shouldThrowConsumerErrorOnWriteWithoutBlocking() throws Exception {
+        // Given
+        OutOfMemoryError failure = new OutOfMemoryError("Out of memory consuming");
+        try (PipelinedBatchWriter<Integer> writer = new PipelinedBatchWriter<>(1, 1, List.of(element -> {
+            throw failure;
+        }))) {
+
+            // When / Then
+            assertThatThrownBy(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    writer.write(i);
+                }
+            }).isInstanceOf(IOException.class).hasCause(failure);
+        }
+    }
+
+    private static List<Integer> range(int start, int end) {
+        return IntStream.range(start, end).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.execution.arrow;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArrowRowComparatorTest {
+
+    private final BufferAllocator allocator = new RootAllocator();
+    private final List<VectorSchemaRoot> batches = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        batches.forEach(VectorSchemaRoot::close);
+        allocator.close();
+    }
+
+    @Test
+    void shouldOrderStringsTheSameAsJava() {
+        // Given
+        Schema schema = Schema.builder().rowKeyFields(new Field("key", new StringType())).build();
+        List<String> values = List.of("", "a", "ab", "b", "\u00e9", "\u07ff", "\ud7ff", "\ue000", "\uffff",
+                "\ud800\udc00", "\udbff\udfff", "a\uffff", "a\ud83d\ude00");
+        VectorSchemaRoot batch = createBatch(schema);
+        VarCharVector vector = (VarCharVector) batch.getVector(0);
+        for (int i = 0; i < values.size(); i++) {
+            vector.setSafe(i, values.get(i).getBytes(StandardCharsets.UTF_8));
+        }
+        batch.setRowCount(values.size());
+
+        // When
+        List<String> sorted = sortRows(schema, batch).stream()
+                .map(values::get)
+                .collect(Collectors.toList());
+
+        // Then
+        assertThat(sorted).isEqualTo(values.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldOrderByteArraysTheSameAsJava() {
+        // Given
+        Schema schema = Schema.builder().rowKeyFields(new Field("key", new ByteArrayType())).build();
+        List<byte[]> values = List.of(new byte[]{}, new byte[]{0}, new byte[]{1}, new byte[]{-1},
+                new byte[]{127}, new byte[]{-128}, new byte[]{0, 0}, new byte[]{0, -1});
+        VectorSchemaRoot batch = createBatch(schema);
+        VarBinaryVector vector = (VarBinaryVector) batch.getVector(0);
+        for (int i = 0; i < values.size(); i++) {
+            vector.setSafe(i, values.get(i));
+        }
+        batch.setRowCount(values.size());
+
+        // When
+        List<byte[]> sorted = sortRows(schema, batch).stream()
+                .map(values::get)
+                .collect(Collectors.toList());
+
+        // Then
+        assertThat(sorted).containsExactlyElementsOf(values.stream()
+                .sorted(Arrays::compare)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldCompareSortKeyWhenRowKeysAreEqual() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new LongType()))
+                .sortKeyFields(new Field("sort", new LongType()))
+                .build();
+        VectorSchemaRoot batch = createBatch(schema);
+        BigIntVector keys = (BigIntVector) batch.getVector(0);
+        BigIntVector sorts = (BigIntVector) batch.getVector(1);
+        keys.setSafe(0, 2L);
+        sorts.setSafe(0, 1L);
+        keys.setSafe(1, 1L);
+        sorts.setSafe(1, 5L);
+        keys.setSafe(2, 1L);
+        sorts.setSafe(2, 3L);
+        batch.setRowCount(3);
+
+        // When / Then
+        assertThat(sortRows(schema, batch)).containsExactly(2, 1, 0);
+    }
+
+    private VectorSchemaRoot createBatch(Schema schema) {
+        VectorSchemaRoot batch = VectorSchemaRoot.create(ArrowSchemaConverter.getArrowSchema(schema), allocator);
+        batches.add(batch);
+        batch.allocateNew();
+        return batch;
+    }
+
+    private static List<Integer> sortRows(Schema schema, VectorSchemaRoot batch) {
+        ArrowRowComparator comparator = new ArrowRowComparator(schema);
+        FieldVector[] keys = comparator.getKeyVectors(batch);
+        return IntStream.range(0, batch.getRowCount()).boxed()
+                .sorted((row1, row2) -> comparator.compare(keys, row1, keys, row2))
+                .collect(Collectors.toList());
+    }
+}
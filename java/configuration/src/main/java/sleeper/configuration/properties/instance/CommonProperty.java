@@ -291,6 +291,19 @@ public interface CommonProperty {
             .defaultValue("10")
             .validationPredicate(Utils::isPositiveIntegerLtEq10)
             .propertyGroup(InstancePropertyGroup.COMMON).build();
+    UserDefinedInstanceProperty STATESTORE_COMMITTER_SERVICE_THREADS = Index.propertyBuilder("sleeper.statestore.committer.service.threads")
+            .description("The number of worker threads when state store updates are committed by a long running " +
+                    "service rather than the state store committer lambda. Sleeper tables are split between the " +
+                    "threads, and each thread keeps the state of its tables in memory between commits.")
+            .defaultValue("4")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.COMMON).build();
+    UserDefinedInstanceProperty STATESTORE_COMMITTER_SERVICE_WAIT_TIME_IN_SECONDS = Index.propertyBuilder("sleeper.statestore.committer.service.wait.time.seconds")
+            .description("The time in seconds for a long running state store committer service to wait for state " +
+                    "store updates to appear on the SQS queue (must be <= 20).")
+            .defaultValue("20")
+            .validationPredicate(val -> Utils.isNonNegativeIntLtEqValue(val, 20))
+            .propertyGroup(InstancePropertyGroup.COMMON).build();
     UserDefinedInstanceProperty ECS_SECURITY_GROUPS = Index.propertyBuilder("sleeper.ecs.security.groups")
             .description("A comma-separated list of up to 5 security group IDs to be used when running ECS tasks.")
             .validationPredicate(value -> Utils.isListWithMaxSize(value, 5))
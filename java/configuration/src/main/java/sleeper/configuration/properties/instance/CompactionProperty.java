@@ -87,6 +87,24 @@ public interface CompactionProperty {
             .defaultValue("3")
             .validationPredicate(Utils::isPositiveInteger)
             .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty COMPACTION_TASK_MAX_CONCURRENT_JOBS = Index.propertyBuilder("sleeper.compaction.task.max.concurrent.jobs")
+            .description("The maximum number of compaction jobs that a compaction task can run at once.\n" +
+                    "Each job runs in its own slot in the task, which receives messages from the compaction job queue " +
+                    "independently. Each slot keeps its own count of consecutive failures, and stops when it reaches " +
+                    "the maximum, or when it has been idle for the maximum idle time. The task terminates when all " +
+                    "its slots have stopped.\n" +
+                    "If this is more than 1, you may want to increase the CPU and memory of compaction tasks.")
+            .defaultValue("1")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty COMPACTION_TASK_MEMORY_BUDGET = Index.propertyBuilder("sleeper.compaction.task.memory.budget")
+            .description("The memory that a compaction task can use to buffer records, shared between the jobs it " +
+                    "runs at once. Each job may buffer up to this divided by the value of " +
+                    "sleeper.compaction.task.max.concurrent.jobs. If a table sets a smaller limit in " +
+                    "sleeper.table.compaction.read.ahead.bytes, the table's limit is used instead.")
+            .defaultValue("1G")
+            .validationPredicate(Utils::isValidNumberOfBytes)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
     UserDefinedInstanceProperty COMPACTION_JOB_CREATION_LAMBDA_PERIOD_IN_MINUTES = Index.propertyBuilder("sleeper.compaction.job.creation.period.minutes")
             .description("The rate at which the compaction job creation lambda runs (in minutes, must be >=1).")
             .defaultValue("1")
@@ -252,10 +270,37 @@ public interface CompactionProperty {
             .propertyGroup(InstancePropertyGroup.COMPACTION).build();
 
     UserDefinedInstanceProperty DEFAULT_COMPACTION_METHOD = Index.propertyBuilder("sleeper.default.table.compaction.method")
-            .description("Select what compaction method to use on a table. Current options are JAVA and RUST. Rust compaction support is " +
-                    "experimental.")
+            .description("Select what compaction method to use on a table. Current options are JAVA, ARROW and RUST. " +
+                    "ARROW is a Java compaction which holds rows in Arrow vectors rather than converting each row to " +
+                    "an object. It does not support iterators, or schemas with list or map fields, and falls back to " +
+                    "JAVA for those tables. Rust compaction support is experimental.")
             .defaultValue("JAVA")
             .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty DEFAULT_COMPACTION_READ_AHEAD_THREADS = Index.propertyBuilder("sleeper.default.table.compaction.read.ahead.threads")
+            .description("The number of threads a Java compaction job uses to read ahead from its input files. Each " +
+                    "input file is read in batches in the background while the job merges the records that have " +
+                    "already been read. If this is 0, input files are read on the same thread that merges them.\n" +
+                    "It can be overridden on a per-table basis.")
+            .defaultValue("8")
+            .validationPredicate(Utils::isNonNegativeInteger)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty DEFAULT_COMPACTION_READ_AHEAD_BYTES = Index.propertyBuilder("sleeper.default.table.compaction.read.ahead.bytes")
+            .description("The memory budget for records read ahead from input files by a Java compaction job. This is " +
+                    "split evenly between the input files of the job. This is based on an estimate of the size of " +
+                    "records in memory. At least one batch of records is always read ahead from each file.\n" +
+                    "It can be overridden on a per-table basis.")
+            .defaultValue("128M")
+            .validationPredicate(Utils::isValidNumberOfBytes)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty DEFAULT_COMPACTION_PIPELINED_WRITE = Index.propertyBuilder("sleeper.default.table.compaction.pipelined.write")
+            .description("If true, a Java compaction job will write its output file and update its sketches on " +
+                    "separate threads from the thread that merges its input files. Merged records are passed to " +
+                    "each thread in batches through a bounded queue. This lets a compaction job use more than one " +
+                    "CPU core.\n" +
+                    "It can be overridden on a per-table basis.")
+            .defaultValue("false")
+            .validationPredicate(Utils::isTrueOrFalse)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
 
     static List<UserDefinedInstanceProperty> getAll() {
         return Index.INSTANCE.getAll();
@@ -141,6 +141,25 @@ public interface DefaultProperty {
             .validationPredicate(Utils::isPositiveInteger)
             .propertyGroup(InstancePropertyGroup.DEFAULT)
             .build();
+    UserDefinedInstanceProperty DEFAULT_TRANSACTION_LOG_SNAPSHOT_MAX_DELTA_SEGMENTS = Index.propertyBuilder("sleeper.default.statestore.transactionlog.snapshot.max.delta.segments")
+            .description("The maximum number of deltas that a snapshot of files may be built from on top of a full " +
+                    "snapshot. When a new snapshot is created, only the files that changed since the previous " +
+                    "snapshot will be written, until this number of deltas is reached or the changes are too large " +
+                    "compared to the whole state. A full snapshot is then written. Set this to 0 to always write a " +
+                    "full snapshot.")
+            .defaultValue("10")
+            .validationPredicate(Utils::isNonNegativeInteger)
+            .propertyGroup(InstancePropertyGroup.DEFAULT)
+            .build();
+    UserDefinedInstanceProperty DEFAULT_TRANSACTION_LOG_SNAPSHOT_FILES_PER_SHARD = Index.propertyBuilder("sleeper.default.statestore.transactionlog.snapshot.files.per.shard")
+            .description("The number of files to aim for in each shard of a snapshot of files. When a snapshot " +
+                    "holds more files than this, it will be split into shards by partition, held in separate Arrow " +
+                    "files. The shards are written and read in parallel. All the files referenced in a partition " +
+                    "are held in the same shard.")
+            .defaultValue("100000")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.DEFAULT)
+            .build();
     UserDefinedInstanceProperty DEFAULT_TRANSACTION_LOG_SNAPSHOT_MIN_AGE_MINUTES_TO_DELETE_TRANSACTIONS = Index
             .propertyBuilder("sleeper.default.statestore.transactionlog.delete.behind.snapshot.min.age.minutes")
             .description("The minimum age in minutes of a snapshot in order to allow deletion of transactions " +
@@ -72,6 +72,23 @@ public interface IngestProperty {
                     "on the refresh frequency.)")
             .defaultValue("120")
             .propertyGroup(InstancePropertyGroup.INGEST).build();
+    UserDefinedInstanceProperty INGEST_PARTITION_FILE_WRITER_THREADS = Index.propertyBuilder("sleeper.ingest.partition.file.writer.threads")
+            .description("The number of threads an ingest task uses to write partition files, when ingest creates one file " +
+                    "per leaf partition. If this is more than 1, sorted records are passed to a queue for each partition, " +
+                    "and the Parquet files for different partitions are written in parallel. If this is 1, all partition " +
+                    "files are written on the thread that sorts the records.")
+            .defaultValue("1")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.INGEST).build();
+    UserDefinedInstanceProperty INGEST_BACKGROUND_FLUSH_BATCHES = Index.propertyBuilder("sleeper.ingest.background.flush.batches")
+            .description("The maximum number of full record batches an ingest task may flush to partition files in the " +
+                    "background, while a new batch accepts more records. If this is 0, writes block while each full " +
+                    "batch is sorted and written to partition files.\n" +
+                    "Each batch being flushed holds its own memory and local disk, so the total used is this number " +
+                    "plus one, times the memory and local disk allowed for a single batch.")
+            .defaultValue("0")
+            .validationPredicate(Utils::isNonNegativeInteger)
+            .propertyGroup(InstancePropertyGroup.INGEST).build();
     UserDefinedInstanceProperty INGEST_SOURCE_BUCKET = Index.propertyBuilder("sleeper.ingest.source.bucket")
             .description("A comma-separated list of buckets that contain files to be ingested via ingest jobs. The buckets should already " +
                     "exist, i.e. they will not be created as part of the cdk deployment of this instance of Sleeper. The ingest " +
@@ -58,6 +58,16 @@ public interface QueryProperty {
             .defaultValue("60")
             .validationPredicate(Utils::isPositiveInteger)
             .propertyGroup(InstancePropertyGroup.QUERY).build();
+    UserDefinedInstanceProperty QUERY_PROCESSOR_PARQUET_FOOTER_CACHE_SIZE = Index.propertyBuilder("sleeper.query.processor.parquet.footer.cache.size")
+            .description("The maximum total size of Parquet file footers held in memory by a leaf partition query " +
+                    "processing lambda. This is an estimate of the memory used, including the parsed metadata, " +
+                    "which is usually several times larger than the footer in the file. Footers are reused by later queries to the same lambda instance, so that a " +
+                    "file's footer does not need to be read again each time it is queried. Data files are never " +
+                    "modified, so footers remain cached until they are evicted to make space for others. Set this " +
+                    "to 0 to disable the cache.")
+            .defaultValue("64M")
+            .validationPredicate(Utils::isValidNumberOfBytes)
+            .propertyGroup(InstancePropertyGroup.QUERY).build();
     UserDefinedInstanceProperty QUERY_TRACKER_ITEM_TTL_IN_DAYS = Index.propertyBuilder("sleeper.query.tracker.ttl.days")
             .description("This value is used to set the time-to-live on the tracking of the queries in the DynamoDB-based query tracker.")
             .defaultValue("1")
@@ -31,6 +31,9 @@ import static sleeper.configuration.Utils.describeEnumValuesInLowerCase;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_COMPACTION_FILES_BATCH_SIZE;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_COMPACTION_JOB_SEND_BATCH_SIZE;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_COMPACTION_METHOD;
+import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_COMPACTION_PIPELINED_WRITE;
+import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_COMPACTION_READ_AHEAD_BYTES;
+import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_COMPACTION_READ_AHEAD_THREADS;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_COMPACTION_STRATEGY_CLASS;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_SIZERATIO_COMPACTION_STRATEGY_MAX_CONCURRENT_JOBS_PER_PARTITION;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_SIZERATIO_COMPACTION_STRATEGY_RATIO;
@@ -67,6 +70,8 @@ import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_
 import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_TIME_BETWEEN_TRANSACTION_CHECKS_MS;
 import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_TRANSACTION_LOG_NUMBER_BEHIND_TO_DELETE;
 import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_TRANSACTION_LOG_SNAPSHOT_EXPIRY_IN_DAYS;
+import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_TRANSACTION_LOG_SNAPSHOT_FILES_PER_SHARD;
+import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_TRANSACTION_LOG_SNAPSHOT_MAX_DELTA_SEGMENTS;
 import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_TRANSACTION_LOG_SNAPSHOT_MIN_AGE_MINUTES_TO_DELETE_TRANSACTIONS;
 import static sleeper.configuration.properties.instance.GarbageCollectionProperty.DEFAULT_GARBAGE_COLLECTOR_DELAY_BEFORE_DELETION;
 import static sleeper.configuration.properties.instance.NonPersistentEMRProperty.DEFAULT_BULK_IMPORT_EMR_EXECUTOR_ARM_INSTANCE_TYPES;
@@ -251,8 +256,32 @@ public interface TableProperty extends SleeperProperty {
 
     TableProperty COMPACTION_METHOD = Index.propertyBuilder("sleeper.table.compaction.method")
             .defaultProperty(DEFAULT_COMPACTION_METHOD)
-            .description("Select what compaction method to use on a table. Current options are JAVA and RUST. Rust compaction support is " +
-                    "experimental.")
+            .description("Select what compaction method to use on a table. Current options are JAVA, ARROW and RUST. " +
+                    "ARROW is a Java compaction which holds rows in Arrow vectors rather than converting each row to " +
+                    "an object. It does not support iterators, or schemas with list or map fields, and falls back to " +
+                    "JAVA for those tables. Rust compaction support is experimental.")
+            .propertyGroup(TablePropertyGroup.COMPACTION)
+            .build();
+    TableProperty COMPACTION_READ_AHEAD_THREADS = Index.propertyBuilder("sleeper.table.compaction.read.ahead.threads")
+            .defaultProperty(DEFAULT_COMPACTION_READ_AHEAD_THREADS)
+            .description("The number of threads a Java compaction job uses to read ahead from its input files. Each " +
+                    "input file is read in batches in the background while the job merges the records that have " +
+                    "already been read. If this is 0, input files are read on the same thread that merges them.")
+            .propertyGroup(TablePropertyGroup.COMPACTION)
+            .build();
+    TableProperty COMPACTION_READ_AHEAD_BYTES = Index.propertyBuilder("sleeper.table.compaction.read.ahead.bytes")
+            .defaultProperty(DEFAULT_COMPACTION_READ_AHEAD_BYTES)
+            .description("The memory budget for records read ahead from input files by a Java compaction job. This is " +
+                    "split evenly between the input files of the job. This is based on an estimate of the size of " +
+                    "records in memory. At least one batch of records is always read ahead from each file.")
+            .propertyGroup(TablePropertyGroup.COMPACTION)
+            .build();
+    TableProperty COMPACTION_PIPELINED_WRITE = Index.propertyBuilder("sleeper.table.compaction.pipelined.write")
+            .defaultProperty(DEFAULT_COMPACTION_PIPELINED_WRITE)
+            .description("If true, a Java compaction job will write its output file and update its sketches on " +
+                    "separate threads from the thread that merges its input files. Merged records are passed to " +
+                    "each thread in batches through a bounded queue. This lets a compaction job use more than one " +
+                    "CPU core.")
             .propertyGroup(TablePropertyGroup.COMPACTION)
             .build();
 
@@ -316,6 +345,23 @@ public interface TableProperty extends SleeperProperty {
             .description("The number of days that transaction log snapshots remain in the snapshot store before being deleted.")
             .propertyGroup(TablePropertyGroup.METADATA)
             .build();
+    TableProperty TRANSACTION_LOG_SNAPSHOT_MAX_DELTA_SEGMENTS = Index.propertyBuilder("sleeper.table.statestore.transactionlog.snapshot.max.delta.segments")
+            .defaultProperty(DEFAULT_TRANSACTION_LOG_SNAPSHOT_MAX_DELTA_SEGMENTS)
+            .description("The maximum number of deltas that a snapshot of files may be built from on top of a full " +
+                    "snapshot. When a new snapshot is created, only the files that changed since the previous " +
+                    "snapshot will be written, until this number of deltas is reached or the changes are too large " +
+                    "compared to the whole state. A full snapshot is then written. Set this to 0 to always write a " +
+                    "full snapshot.")
+            .propertyGroup(TablePropertyGroup.METADATA)
+            .build();
+    TableProperty TRANSACTION_LOG_SNAPSHOT_FILES_PER_SHARD = Index.propertyBuilder("sleeper.table.statestore.transactionlog.snapshot.files.per.shard")
+            .defaultProperty(DEFAULT_TRANSACTION_LOG_SNAPSHOT_FILES_PER_SHARD)
+            .description("The number of files to aim for in each shard of a snapshot of files. When a snapshot " +
+                    "holds more files than this, it will be split into shards by partition, held in separate Arrow " +
+                    "files. The shards are written and read in parallel. All the files referenced in a partition " +
+                    "are held in the same shard.")
+            .propertyGroup(TablePropertyGroup.METADATA)
+            .build();
     TableProperty TRANSACTION_LOG_SNAPSHOT_MIN_AGE_MINUTES_TO_DELETE_TRANSACTIONS = Index.propertyBuilder("sleeper.table.statestore.transactionlog.delete.behind.snapshot.min.age.minutes")
             .description("The minimum age in minutes of a snapshot in order to allow deletion of transactions " +
                     "leading up to it. When deleting old transactions, there's a chance that processes may still " +
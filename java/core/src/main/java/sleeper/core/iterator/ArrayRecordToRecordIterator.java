@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.Record;
+
+import java.io.IOException;
+
+/**
+ * Adapts an iterator of records held by position to records held in maps. This is used where records must be passed
+ * to code that expects a {@link Record}, e.g. user defined iterators.
+ */
+public class ArrayRecordToRecordIterator implements CloseableIterator<Record> {
+    private final CloseableIterator<ArrayRecord> iterator;
+
+    public ArrayRecordToRecordIterator(CloseableIterator<ArrayRecord> iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    @Override
+    public Record next() {
+        return iterator.next().toRecord();
+    }
+
+    @Override
+    public void close() throws IOException {
+        iterator.close();
+    }
+}
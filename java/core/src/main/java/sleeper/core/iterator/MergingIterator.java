@@ -15,100 +15,26 @@
  */
 package sleeper.core.iterator;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import sleeper.core.record.Record;
 import sleeper.core.record.RecordComparator;
 import sleeper.core.schema.Schema;
 
-import java.io.IOException;
-import java.util.Comparator;
 import java.util.List;
-import java.util.PriorityQueue;
 
 /**
- * Merges a list of sorted iterators into one fully sorted iterator. This is done by using a {@link PriorityQueue} where
- * the smallest record is returned first.
+ * Merges a list of sorted iterators of records into one fully sorted iterator, ordered by row keys then sort keys. See
+ * {@link SortedMergingIterator} for how the merge is done.
  * <p>
  * Note: for performance reasons this does not check that the given iterators are sorted. As this class is only used
  * internally it should never be called with non-sorted iterators.
  */
-public class MergingIterator implements CloseableIterator<Record> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(MergingIterator.class);
-
-    private final List<CloseableIterator<Record>> inputIterators;
-    private final PriorityQueue<RecordIteratorPair> queue;
-    private long recordsRead;
+public class MergingIterator extends SortedMergingIterator<Record> {
 
     public MergingIterator(Schema schema, List<CloseableIterator<Record>> inputIterators) {
-        this.inputIterators = inputIterators;
-        this.recordsRead = 0L;
-        this.queue = new PriorityQueue<>(new RecordIteratorPairComparator(schema));
-        for (CloseableIterator<Record> iterator : inputIterators) {
-            if (iterator.hasNext()) {
-                queue.add(new RecordIteratorPair(iterator.next(), iterator));
-                this.recordsRead++;
-            }
-        }
-    }
-
-    @Override
-    public boolean hasNext() {
-        return !queue.isEmpty();
-    }
-
-    @Override
-    public Record next() {
-        RecordIteratorPair pair = queue.poll();
-        if (pair.iterator.hasNext()) {
-            RecordIteratorPair newPair = new RecordIteratorPair(pair.iterator.next(), pair.iterator);
-            queue.add(newPair);
-            recordsRead++;
-            if (0 == recordsRead % 1_000_000) {
-                LOGGER.info("Read {} records", recordsRead);
-            }
-        }
-        return pair.record;
-    }
-
-    @Override
-    public void close() throws IOException {
-        for (CloseableIterator<Record> iterator : inputIterators) {
-            iterator.close();
-        }
+        this(new RecordComparator(schema), inputIterators);
     }
 
-    public long getNumberOfRecordsRead() {
-        return recordsRead;
-    }
-
-    /**
-     * Holds the next record available for an iterator, and the iterator to retrieve further records.
-     */
-    private static class RecordIteratorPair {
-        private final Record record;
-        private final CloseableIterator<Record> iterator;
-
-        RecordIteratorPair(Record record, CloseableIterator<Record> iterator) {
-            this.record = record;
-            this.iterator = iterator;
-        }
-    }
-
-    /**
-     * Compares the state for two iterators to find the next record in the sort order.
-     */
-    private static class RecordIteratorPairComparator implements Comparator<RecordIteratorPair> {
-        private final RecordComparator recordComparator;
-
-        RecordIteratorPairComparator(Schema schema) {
-            this.recordComparator = new RecordComparator(schema);
-        }
-
-        @Override
-        public int compare(RecordIteratorPair pair1, RecordIteratorPair pair2) {
-            return recordComparator.compare(pair1.record, pair2.record);
-        }
+    public MergingIterator(RecordComparator comparator, List<CloseableIterator<Record>> inputIterators) {
+        super(comparator, inputIterators);
     }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Applies a function to each element of an iterator on a background executor, returning the results in the same order
+ * as the source. Up to a maximum number of elements are mapped concurrently ahead of consumption. This is useful when
+ * the mapping is slow or blocks, e.g. reading from a remote store, but the results must be processed in order.
+ * <p>
+ * The source is read on the consuming thread. If the mapping fails for an element, the failure will be thrown when
+ * that element is reached.
+ *
+ * @param <I> the type of elements in the source
+ * @param <O> the type of elements returned by this iterator
+ */
+public class ParallelMappingIterator<I, O> implements CloseableIterator<O> {
+
+    private final CloseableIterator<I> source;
+    private final Function<I, O> mapping;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final Deque<CompletableFuture<O>> inFlight = new ArrayDeque<>();
+
+    public ParallelMappingIterator(CloseableIterator<I> source, Function<I, O> mapping, Executor executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Must allow at least one element in flight, found " + maxInFlight);
+        }
+        this.source = source;
+        this.mapping = mapping;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public boolean hasNext() {
+        submitUpToLimit();
+        return !inFlight.isEmpty();
+    }
+
+    @Override
+    public O next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CompletableFuture<O> future = inFlight.poll();
+        submitUpToLimit();
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inFlight.forEach(future -> future.cancel(false));
+        inFlight.clear();
+        source.close();
+    }
+
+    private void submitUpToLimit() {
+        while (inFlight.size() < maxInFlight && source.hasNext()) {
+            I element = source.next();
+            inFlight.add(CompletableFuture.supplyAsync(() -> mapping.apply(element), executor));
+        }
+    }
+}
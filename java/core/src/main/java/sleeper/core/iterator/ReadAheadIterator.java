@@ -0,0 +1,397 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reads ahead from an iterator on a background executor, buffering batches of elements until they are consumed. The
+ * source is opened and read in tasks submitted to the executor, so that the latency of reading from the source
+ * overlaps with processing of elements that have already been read.
+ * <p>
+ * The buffer may be limited by an estimate of the size of the buffered elements in bytes, and by the number of
+ * buffered elements. If neither limit is set, only one batch is read ahead. When a limit is reached, no task is held
+ * on the executor. Reading resumes when elements are consumed. This means many of these iterators may
+ * share an executor with fewer threads than there are iterators, e.g. when merging many files at once. At least one
+ * batch is always read ahead, even if it is larger than the limit.
+ * <p>
+ * If reading from the source fails, the failure will be thrown from this iterator when the elements read before the
+ * failure have been consumed.
+ *
+ * @param <T> the type of elements returned by this iterator
+ */
+public class ReadAheadIterator<T> implements CloseableIterator<T> {
+
+    private final Source<T> openSource;
+    private final Executor executor;
+    private final ToLongFunction<T> sizeEstimator;
+    private final int batchSize;
+    private final int firstBatchSize;
+    private final long maxBufferedBytes;
+    private final long maxBufferedElements;
+    private final BlockingQueue<BufferEntry<T>> buffer = new LinkedBlockingQueue<>();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final AtomicLong bufferedElements = new AtomicLong();
+    private final AtomicBoolean readScheduled = new AtomicBoolean();
+    private final AtomicLong recordsRead = new AtomicLong();
+    private final Object sourceLock = new Object();
+    private CloseableIterator<T> source;
+    private volatile boolean sourceFinished;
+    private volatile boolean closed;
+    private List<T> currentBatch = List.of();
+    private int currentIndex;
+    private boolean reachedEnd;
+
+    private ReadAheadIterator(Builder<T> builder) {
+        openSource = builder.openSource;
+        executor = builder.executor;
+        sizeEstimator = builder.sizeEstimator;
+        batchSize = builder.batchSize;
+        firstBatchSize = builder.firstBatchSize != null ? builder.firstBatchSize : builder.batchSize;
+        if (builder.maxBufferedBytes == null && builder.maxBufferedElements == null) {
+            maxBufferedBytes = 0;
+            maxBufferedElements = 0;
+        } else {
+            maxBufferedBytes = Optional.ofNullable(builder.maxBufferedBytes).orElse(Long.MAX_VALUE);
+            maxBufferedElements = Optional.ofNullable(builder.maxBufferedElements).orElse(Long.MAX_VALUE);
+        }
+        scheduleRead();
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (currentIndex >= currentBatch.size()) {
+            if (reachedEnd) {
+                return false;
+            }
+            BufferEntry<T> entry = takeFromBuffer();
+            if (entry.failure != null) {
+                reachedEnd = true;
+                throw entry.failure;
+            }
+            if (entry.batch == null) {
+                reachedEnd = true;
+                return false;
+            }
+            currentBatch = entry.batch;
+            currentIndex = 0;
+            bufferedBytes.addAndGet(-entry.sizeInBytes);
+            bufferedElements.addAndGet(-entry.batch.size());
+            scheduleRead();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentBatch.get(currentIndex++);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (sourceLock) {
+            closeSource();
+        }
+        buffer.clear();
+        currentBatch = List.of();
+        reachedEnd = true;
+    }
+
+    /**
+     * Retrieves the number of elements that have been read from the source. This may be more than the number of
+     * elements that have been returned by this iterator, as elements are read ahead.
+     *
+     * @return the number of elements read from the source
+     */
+    public long getNumberOfRecordsRead() {
+        return recordsRead.get();
+    }
+
+    private BufferEntry<T> takeFromBuffer() {
+        try {
+            return buffer.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for elements to be read ahead", e);
+        }
+    }
+
+    private void scheduleRead() {
+        if (shouldRead() && readScheduled.compareAndSet(false, true)) {
+            executor.execute(this::readBatches);
+        }
+    }
+
+    private boolean shouldRead() {
+        return !closed && !sourceFinished
+                && ((bufferedBytes.get() < maxBufferedBytes && bufferedElements.get() < maxBufferedElements)
+                        || buffer.isEmpty());
+    }
+
+    private void readBatches() {
+        try {
+            synchronized (sourceLock) {
+                while (shouldRead()) {
+                    readBatch();
+                }
+            }
+        } catch (Throwable e) {
+            // Any failure must be passed to the consumer, including errors, or it will wait forever
+            fail(e);
+        } finally {
+            readScheduled.set(false);
+        }
+        // Elements may have been consumed after the last check, while the read was still marked as scheduled
+        scheduleRead();
+    }
+
+    private void readBatch() throws IOException {
+        int size = batchSize;
+        if (source == null) {
+            source = openSource.open();
+            size = firstBatchSize;
+        }
+        List<T> batch = new ArrayList<>(size);
+        long sizeInBytes = 0;
+        while (batch.size() < size && source.hasNext()) {
+            T element = source.next();
+            sizeInBytes += sizeEstimator.applyAsLong(element);
+            batch.add(element);
+        }
+        recordsRead.addAndGet(batch.size());
+        if (!batch.isEmpty()) {
+            bufferedBytes.addAndGet(sizeInBytes);
+            bufferedElements.addAndGet(batch.size());
+            buffer.add(new BufferEntry<>(batch, sizeInBytes, null));
+        }
+        if (!source.hasNext()) {
+            sourceFinished = true;
+            closeSource();
+            buffer.add(new BufferEntry<>(null, 0, null));
+        }
+    }
+
+    private void fail(Throwable e) {
+        sourceFinished = true;
+        RuntimeException failure;
+        if (e instanceof IOException) {
+            failure = new UncheckedIOException("Failed reading ahead from iterator", (IOException) e);
+        } else if (e instanceof RuntimeException) {
+            failure = (RuntimeException) e;
+        } else {
+            failure = new IllegalStateException("Failed reading ahead from iterator", e);
+        }
+        synchronized (sourceLock) {
+            try {
+                closeSource();
+            } catch (IOException | RuntimeException closeFailure) {
+                failure.addSuppressed(closeFailure);
+            }
+        }
+        buffer.add(new BufferEntry<>(null, 0, failure));
+    }
+
+    private void closeSource() throws IOException {
+        if (source != null) {
+            CloseableIterator<T> closing = source;
+            source = EmptyIterator.INSTANCE.cast();
+            closing.close();
+        } else {
+            source = EmptyIterator.INSTANCE.cast();
+        }
+    }
+
+    /**
+     * Opens the iterator to read ahead from. This is called on the executor.
+     *
+     * @param <T> the type of elements returned by the iterator
+     */
+    @FunctionalInterface
+    public interface Source<T> {
+
+        /**
+         * Opens the iterator.
+         *
+         * @return             the iterator
+         * @throws IOException if the iterator could not be opened
+         */
+        CloseableIterator<T> open() throws IOException;
+    }
+
+    /**
+     * An entry in the buffer. Holds a batch of elements, or the end of the source, or a failure.
+     *
+     * @param <T> the type of elements in the batch
+     */
+    private static class BufferEntry<T> {
+        private final List<T> batch;
+        private final long sizeInBytes;
+        private final RuntimeException failure;
+
+        BufferEntry(List<T> batch, long sizeInBytes, RuntimeException failure) {
+            this.batch = batch;
+            this.sizeInBytes = sizeInBytes;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Takes the place of the source after it is closed, so that it is not read from again.
+     */
+    private enum EmptyIterator implements CloseableIterator<Object> {
+        INSTANCE;
+
+        @Override
+        public boolean hasNext() {
+            return false;
+        }
+
+        @Override
+        public Object next() {
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> CloseableIterator<T> cast() {
+            return (CloseableIterator<T>) (CloseableIterator<?>) this;
+        }
+    }
+
+    /**
+     * Builds an iterator to read ahead from a source.
+     *
+     * @param <T> the type of elements returned by the iterator
+     */
+    public static final class Builder<T> {
+        private Source<T> openSource;
+        private Executor executor;
+        private ToLongFunction<T> sizeEstimator = element -> 1;
+        private int batchSize = 1000;
+        private Integer firstBatchSize;
+        private Long maxBufferedBytes;
+        private Long maxBufferedElements;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets how to open the iterator to read ahead from.
+         *
+         * @param  openSource the source
+         * @return            the builder
+         */
+        public Builder<T> source(Source<T> openSource) {
+            this.openSource = openSource;
+            return this;
+        }
+
+        /**
+         * Sets the executor to read ahead on.
+         *
+         * @param  executor the executor
+         * @return          the builder
+         */
+        public Builder<T> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Sets how to estimate the size in memory of an element, to limit the size of the buffer.
+         *
+         * @param  sizeEstimator the size estimator
+         * @return               the builder
+         */
+        public Builder<T> sizeEstimator(ToLongFunction<T> sizeEstimator) {
+            this.sizeEstimator = sizeEstimator;
+            return this;
+        }
+
+        /**
+         * Sets the number of elements to read at once from the source.
+         *
+         * @param  batchSize the batch size
+         * @return           the builder
+         */
+        public Builder<T> batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of elements to read in the first batch from the source. A small first batch means the first
+         * elements are available sooner, e.g. when a merge needs the first element of every input before it can
+         * return anything. Defaults to the batch size.
+         *
+         * @param  firstBatchSize the size of the first batch
+         * @return                the builder
+         */
+        public Builder<T> firstBatchSize(int firstBatchSize) {
+            this.firstBatchSize = firstBatchSize;
+            return this;
+        }
+
+        /**
+         * Sets the limit on the estimated size of buffered elements. Reading stops when the limit is reached.
+         *
+         * @param  maxBufferedBytes the maximum size of the buffer in bytes
+         * @return                  the builder
+         */
+        public Builder<T> maxBufferedBytes(long maxBufferedBytes) {
+            this.maxBufferedBytes = maxBufferedBytes;
+            return this;
+        }
+
+        /**
+         * Sets the limit on the number of buffered elements. Reading stops when the limit is reached. This may be used
+         * instead of or as well as a limit on the size in bytes.
+         *
+         * @param  maxBufferedElements the maximum number of elements in the buffer
+         * @return                     the builder
+         */
+        public Builder<T> maxBufferedElements(long maxBufferedElements) {
+            this.maxBufferedElements = maxBufferedElements;
+            return this;
+        }
+
+        public ReadAheadIterator<T> build() {
+            return new ReadAheadIterator<>(this);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.Record;
+import sleeper.core.record.RecordLayout;
+
+import java.io.IOException;
+
+/**
+ * Converts an iterator of records held in maps to records held by position. This is used where records have passed
+ * through code that uses the {@link Record} API, e.g. user defined iterators.
+ */
+public class RecordToArrayRecordIterator implements CloseableIterator<ArrayRecord> {
+    private final RecordLayout layout;
+    private final CloseableIterator<Record> iterator;
+
+    public RecordToArrayRecordIterator(RecordLayout layout, CloseableIterator<Record> iterator) {
+        this.layout = layout;
+        this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    @Override
+    public ArrayRecord next() {
+        return ArrayRecord.fromRecord(layout, iterator.next());
+    }
+
+    @Override
+    public void close() throws IOException {
+        iterator.close();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Merges a list of sorted iterators into one fully sorted iterator, with any comparator. This is done with a
+ * tournament tree of losers, where the internal nodes of a binary tree over the inputs hold the input that lost the
+ * comparison at that node, and the overall winner is held separately. When the winner is read, only the path from its
+ * input to the root is replayed. This takes one comparison per level of the tree for each item, and does not create
+ * any objects per item.
+ * <p>
+ * Note: for performance reasons this does not check that the given iterators are sorted. As this class is only used
+ * internally it should never be called with non-sorted iterators.
+ *
+ * @param <T> the type of the items being merged
+ */
+public class SortedMergingIterator<T> implements CloseableIterator<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SortedMergingIterator.class);
+
+    private final List<? extends CloseableIterator<T>> inputIterators;
+    private final Comparator<T> comparator;
+    private final int numInputs;
+    private final Object[] heads;
+    private final boolean[] exhausted;
+    private final int[] tree;
+    private long recordsRead;
+
+    public SortedMergingIterator(Comparator<T> comparator, List<? extends CloseableIterator<T>> inputIterators) {
+        this.inputIterators = inputIterators;
+        this.comparator = comparator;
+        this.numInputs = inputIterators.size();
+        this.heads = new Object[numInputs];
+        this.exhausted = new boolean[numInputs];
+        this.tree = new int[Math.max(1, numInputs)];
+        this.recordsRead = 0L;
+        for (int i = 0; i < numInputs; i++) {
+            CloseableIterator<T> iterator = inputIterators.get(i);
+            if (iterator.hasNext()) {
+                heads[i] = iterator.next();
+                this.recordsRead++;
+            } else {
+                exhausted[i] = true;
+            }
+        }
+        buildTree();
+    }
+
+    /**
+     * Plays the initial tournament. Leaves are numbered from numInputs to 2 * numInputs - 1, and the children of
+     * internal node n are 2n and 2n + 1. The winner is held at index 0.
+     */
+    private void buildTree() {
+        if (numInputs == 0) {
+            return;
+        }
+        int[] winners = new int[2 * numInputs];
+        for (int i = 0; i < numInputs; i++) {
+            winners[numInputs + i] = i;
+        }
+        for (int node = numInputs - 1; node >= 1; node--) {
+            int left = winners[2 * node];
+            int right = winners[2 * node + 1];
+            if (beats(left, right)) {
+                winners[node] = left;
+                tree[node] = right;
+            } else {
+                winners[node] = right;
+                tree[node] = left;
+            }
+        }
+        tree[0] = winners[1];
+    }
+
+    @Override
+    public boolean hasNext() {
+        return numInputs > 0 && !exhausted[tree[0]];
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int winner = tree[0];
+        T item = head(winner);
+        CloseableIterator<T> iterator = inputIterators.get(winner);
+        if (iterator.hasNext()) {
+            heads[winner] = iterator.next();
+            recordsRead++;
+            if (0 == recordsRead % 1_000_000) {
+                LOGGER.info("Read {} records", recordsRead);
+            }
+        } else {
+            heads[winner] = null;
+            exhausted[winner] = true;
+        }
+        replay(winner);
+        return item;
+    }
+
+    /**
+     * Replays the tournament from the leaf of the given input to the root, after its head has changed.
+     *
+     * @param input the index of the input whose head has changed
+     */
+    private void replay(int input) {
+        int winner = input;
+        for (int node = (numInputs + input) >> 1; node >= 1; node >>= 1) {
+            int loser = tree[node];
+            if (beats(loser, winner)) {
+                tree[node] = winner;
+                winner = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+
+    /**
+     * Checks whether the head of one input comes before the head of another. An exhausted input always loses, and
+     * ties are broken by the index of the input.
+     *
+     * @param  input1 the index of the first input
+     * @param  input2 the index of the second input
+     * @return        true if the first input wins
+     */
+    private boolean beats(int input1, int input2) {
+        if (exhausted[input1]) {
+            return false;
+        } else if (exhausted[input2]) {
+            return true;
+        }
+        int diff = comparator.compare(head(input1), head(input2));
+        return diff < 0 || (diff == 0 && input1 < input2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T head(int input) {
+        return (T) heads[input];
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (CloseableIterator<T> iterator : inputIterators) {
+            iterator.close();
+        }
+    }
+
+    public long getNumberOfRecordsRead() {
+        return recordsRead;
+    }
+}
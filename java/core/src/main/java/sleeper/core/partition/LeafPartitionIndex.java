@@ -0,0 +1,533 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.partition;
+
+import sleeper.core.key.Key;
+import sleeper.core.range.Range;
+import sleeper.core.record.KeyValueComparison;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.PrimitiveType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * An immutable index to find the leaf partition containing a row key, without creating any objects. This is built
+ * from a snapshot of a partition tree, and must be rebuilt if partitions are split.
+ * <p>
+ * With one row key field, the split points between the leaf partitions are held in a sorted array, and the leaf
+ * partition is found by a binary search, in time logarithmic in the number of leaf partitions. Long and int keys are
+ * held in primitive arrays. With more than one row key field, the partition tree is flattened into arrays of the
+ * dimension and value each partition was split on, and the leaf partition is found by descending from the root. That
+ * takes time proportional to the depth of the tree, which is only logarithmic if the tree is balanced.
+ * <p>
+ * Records that are in sort order will usually be in the same leaf partition as the record before. A
+ * {@link SequentialLookup} checks the previous leaf partition first, and only searches the index if the record is
+ * outside it.
+ */
+public class LeafPartitionIndex {
+    private final Partition rootPartition;
+    private final String[] rowKeyFieldNames;
+    private final Partition[] leafPartitions;
+    private final Lookup lookup;
+
+    private LeafPartitionIndex(Partition rootPartition, String[] rowKeyFieldNames, Partition[] leafPartitions, Lookup lookup) {
+        this.rootPartition = rootPartition;
+        this.rowKeyFieldNames = rowKeyFieldNames;
+        this.leafPartitions = leafPartitions;
+        this.lookup = lookup;
+    }
+
+    /**
+     * Builds an index of the leaf partitions in a partition tree.
+     *
+     * @param  schema                   the schema of the Sleeper table
+     * @param  tree                     the partition tree
+     * @return                          the index
+     * @throws IllegalArgumentException if a partition that has been split does not have two children
+     */
+    public static LeafPartitionIndex from(Schema schema, PartitionTree tree) {
+        List<Field> rowKeyFields = schema.getRowKeyFields();
+        String[] rowKeyFieldNames = rowKeyFields.stream().map(Field::getName).toArray(String[]::new);
+        KeyValueComparison[] comparisons = rowKeyFields.stream()
+                .map(field -> KeyValueComparison.forType((PrimitiveType) field.getType()))
+                .toArray(KeyValueComparison[]::new);
+        Partition root = tree.getRootPartition();
+        if (root.isLeafPartition()) {
+            return new LeafPartitionIndex(root, rowKeyFieldNames, new Partition[]{root}, new SingleLeaf());
+        } else if (rowKeyFields.size() == 1) {
+            return fromSplitPoints(rowKeyFields.get(0), rowKeyFieldNames, comparisons[0], tree);
+        } else {
+            return fromFlattenedTree(rowKeyFieldNames, comparisons, tree);
+        }
+    }
+
+    /**
+     * Finds the leaf partition containing the row key of a record.
+     *
+     * @param  record the record
+     * @return        the leaf partition
+     */
+    public Partition getLeafPartition(Record record) {
+        return leafPartitions[lookup.leafIndex(record, rowKeyFieldNames)];
+    }
+
+    /**
+     * Finds the leaf partition containing a row key.
+     *
+     * @param  key the values of the row key
+     * @return     the leaf partition
+     */
+    public Partition getLeafPartition(Key key) {
+        if (key.size() != rowKeyFieldNames.length) {
+            throw new IllegalArgumentException("Key must match the row key fields from the schema (key was "
+                    + key + ", schema has row key fields " + List.of(rowKeyFieldNames) + ")");
+        }
+        return leafPartitions[lookup.leafIndex(key)];
+    }
+
+    /**
+     * Creates a lookup for records that are passed in sort order. This checks whether each record is in the leaf
+     * partition of the record before it, and only searches the index if it is not. The lookup holds state, so it
+     * should only be used from one thread. The index itself may be shared.
+     *
+     * @return the lookup
+     */
+    public SequentialLookup sequentialLookup() {
+        return new SequentialLookup();
+    }
+
+    public int getNumberOfLeafPartitions() {
+        return leafPartitions.length;
+    }
+
+    public Partition getRootPartition() {
+        return rootPartition;
+    }
+
+    /**
+     * Finds leaf partitions for records that are usually in the same leaf partition as the record before.
+     */
+    public class SequentialLookup {
+        private int currentLeafIndex = -1;
+
+        private SequentialLookup() {
+        }
+
+        /**
+         * Finds the leaf partition containing the row key of a record. Checks the leaf partition that was found for
+         * the previous record before searching the index.
+         *
+         * @param  record the record
+         * @return        the leaf partition
+         */
+        public Partition getLeafPartition(Record record) {
+            if (currentLeafIndex < 0 || !lookup.isInLeaf(currentLeafIndex, record, rowKeyFieldNames)) {
+                currentLeafIndex = lookup.leafIndex(record, rowKeyFieldNames);
+            }
+            return leafPartitions[currentLeafIndex];
+        }
+    }
+
+    private static LeafPartitionIndex fromSplitPoints(
+            Field rowKeyField, String[] rowKeyFieldNames, KeyValueComparison comparison, PartitionTree tree) {
+        String fieldName = rowKeyField.getName();
+        List<Partition> leaves = new ArrayList<>();
+        List<Object> splitPointList = new ArrayList<>();
+        // Visit the lower child first, so that leaves are found in sort order
+        Deque<Partition> toVisit = new ArrayDeque<>();
+        toVisit.push(tree.getRootPartition());
+        while (!toVisit.isEmpty()) {
+            Partition partition = toVisit.pop();
+            if (partition.isLeafPartition()) {
+                Range range = partition.getRegion().getRange(fieldName);
+                if (!leaves.isEmpty()) {
+                    splitPointList.add(range.getMin());
+                }
+                leaves.add(partition);
+            } else {
+                Split split = Split.of(tree, partition, new KeyValueComparison[]{comparison}, rowKeyFieldNames);
+                toVisit.push(split.upper);
+                toVisit.push(split.lower);
+            }
+        }
+        Partition[] leafPartitions = leaves.toArray(new Partition[0]);
+        Object[] splitPoints = splitPointList.toArray();
+        if (rowKeyField.getType() instanceof LongType) {
+            long[] longSplitPoints = new long[splitPoints.length];
+            for (int i = 0; i < splitPoints.length; i++) {
+                longSplitPoints[i] = (Long) splitPoints[i];
+            }
+            return new LeafPartitionIndex(tree.getRootPartition(), rowKeyFieldNames, leafPartitions, new LongSplitPoints(longSplitPoints));
+        } else if (rowKeyField.getType() instanceof IntType) {
+            int[] intSplitPoints = new int[splitPoints.length];
+            for (int i = 0; i < splitPoints.length; i++) {
+                intSplitPoints[i] = (Integer) splitPoints[i];
+            }
+            return new LeafPartitionIndex(tree.getRootPartition(), rowKeyFieldNames, leafPartitions, new IntSplitPoints(intSplitPoints));
+        } else {
+            return new LeafPartitionIndex(tree.getRootPartition(), rowKeyFieldNames, leafPartitions, new ObjectSplitPoints(splitPoints, comparison));
+        }
+    }
+
+    private static LeafPartitionIndex fromFlattenedTree(
+            String[] rowKeyFieldNames, KeyValueComparison[] comparisons, PartitionTree tree) {
+        int numSplits = (int) tree.getAllPartitions().stream().filter(partition -> !partition.isLeafPartition()).count();
+        int[] splitDimensions = new int[numSplits];
+        Object[] splitValues = new Object[numSplits];
+        int[] lowerChildren = new int[numSplits];
+        int[] upperChildren = new int[numSplits];
+        List<Partition> leaves = new ArrayList<>(numSplits + 1);
+        List<Partition> splitPartitions = new ArrayList<>(numSplits);
+        splitPartitions.add(tree.getRootPartition());
+        // Partitions that have been split are numbered in the order they are found, starting with the root at 0.
+        // Leaf partitions are numbered separately, and referenced from their parent as a negative number.
+        for (int node = 0; node < splitPartitions.size(); node++) {
+            Split split = Split.of(tree, splitPartitions.get(node), comparisons, rowKeyFieldNames);
+            splitDimensions[node] = split.dimension;
+            splitValues[node] = split.value;
+            lowerChildren[node] = addNode(split.lower, leaves, splitPartitions);
+            upperChildren[node] = addNode(split.upper, leaves, splitPartitions);
+        }
+        Partition[] leafPartitions = leaves.toArray(new Partition[0]);
+        return new LeafPartitionIndex(tree.getRootPartition(), rowKeyFieldNames, leafPartitions,
+                new FlattenedTree(splitDimensions, splitValues, lowerChildren, upperChildren, comparisons,
+                        LeafRegions.from(leafPartitions, rowKeyFieldNames)));
+    }
+
+    private static int addNode(Partition partition, List<Partition> leaves, List<Partition> splitPartitions) {
+        if (partition.isLeafPartition()) {
+            leaves.add(partition);
+            return -leaves.size();
+        } else {
+            splitPartitions.add(partition);
+            return splitPartitions.size() - 1;
+        }
+    }
+
+    /**
+     * A partition that has been split into two children. Finds the dimension that was split on from the regions of
+     * the child partitions.
+     */
+    private static class Split {
+        private final int dimension;
+        private final Object value;
+        private final Partition lower;
+        private final Partition upper;
+
+        private Split(int dimension, Object value, Partition lower, Partition upper) {
+            this.dimension = dimension;
+            this.value = value;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        static Split of(PartitionTree tree, Partition parent, KeyValueComparison[] comparisons, String[] rowKeyFieldNames) {
+            List<String> childIds = parent.getChildPartitionIds();
+            if (childIds.size() != 2) {
+                throw new IllegalArgumentException("Expected 2 child partitions, found " + childIds.size() + " under partition " + parent.getId());
+            }
+            Partition child1 = getPartition(tree, childIds.get(0));
+            Partition child2 = getPartition(tree, childIds.get(1));
+            for (int dimension = 0; dimension < rowKeyFieldNames.length; dimension++) {
+                Object min1 = child1.getRegion().getRange(rowKeyFieldNames[dimension]).getMin();
+                Object min2 = child2.getRegion().getRange(rowKeyFieldNames[dimension]).getMin();
+                int diff = comparisons[dimension].compare(min1, min2);
+                if (diff < 0) {
+                    return new Split(dimension, min2, child1, child2);
+                } else if (diff > 0) {
+                    return new Split(dimension, min1, child2, child1);
+                }
+            }
+            throw new IllegalArgumentException("Child partitions have the same minimum in every dimension under partition " + parent.getId());
+        }
+
+        private static Partition getPartition(PartitionTree tree, String partitionId) {
+            Partition partition = tree.getPartition(partitionId);
+            if (partition == null) {
+                throw new IllegalArgumentException("Child partition not found: " + partitionId);
+            }
+            return partition;
+        }
+    }
+
+    /**
+     * Finds the index of a leaf partition containing a row key.
+     */
+    private interface Lookup {
+        int leafIndex(Record record, String[] rowKeyFieldNames);
+
+        int leafIndex(Key key);
+
+        boolean isInLeaf(int leafIndex, Record record, String[] rowKeyFieldNames);
+    }
+
+    /**
+     * Finds the leaf partition when the root partition has not been split.
+     */
+    private static class SingleLeaf implements Lookup {
+        @Override
+        public int leafIndex(Record record, String[] rowKeyFieldNames) {
+            return 0;
+        }
+
+        @Override
+        public int leafIndex(Key key) {
+            return 0;
+        }
+
+        @Override
+        public boolean isInLeaf(int leafIndex, Record record, String[] rowKeyFieldNames) {
+            return true;
+        }
+    }
+
+    /**
+     * Finds the leaf partition with a binary search of split points, for a table with one row key field. The index of
+     * the leaf partition is the number of split points less than or equal to the key.
+     */
+    private abstract static class SplitPoints implements Lookup {
+        @Override
+        public int leafIndex(Record record, String[] rowKeyFieldNames) {
+            return leafIndex(record.get(rowKeyFieldNames[0]));
+        }
+
+        @Override
+        public int leafIndex(Key key) {
+            return leafIndex(key.get(0));
+        }
+
+        @Override
+        public boolean isInLeaf(int leafIndex, Record record, String[] rowKeyFieldNames) {
+            return isInLeaf(leafIndex, record.get(rowKeyFieldNames[0]));
+        }
+
+        abstract int leafIndex(Object value);
+
+        /**
+         * Checks whether a value is in a leaf partition. The leaf partition at a given index covers the values from
+         * the split point before it, inclusive, to the split point at the same index, exclusive.
+         *
+         * @param  leafIndex the index of the leaf partition
+         * @param  value     the value of the row key
+         * @return           true if the value is in the leaf partition
+         */
+        abstract boolean isInLeaf(int leafIndex, Object value);
+    }
+
+    /**
+     * Split points for a long row key.
+     */
+    private static class LongSplitPoints extends SplitPoints {
+        private final long[] splitPoints;
+
+        LongSplitPoints(long[] splitPoints) {
+            this.splitPoints = splitPoints;
+        }
+
+        @Override
+        int leafIndex(Object value) {
+            long key = (Long) value;
+            int low = 0;
+            int high = splitPoints.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (splitPoints[mid] <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        boolean isInLeaf(int leafIndex, Object value) {
+            long key = (Long) value;
+            return (leafIndex == 0 || splitPoints[leafIndex - 1] <= key)
+                    && (leafIndex == splitPoints.length || key < splitPoints[leafIndex]);
+        }
+    }
+
+    /**
+     * Split points for an int row key.
+     */
+    private static class IntSplitPoints extends SplitPoints {
+        private final int[] splitPoints;
+
+        IntSplitPoints(int[] splitPoints) {
+            this.splitPoints = splitPoints;
+        }
+
+        @Override
+        int leafIndex(Object value) {
+            int key = (Integer) value;
+            int low = 0;
+            int high = splitPoints.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (splitPoints[mid] <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        boolean isInLeaf(int leafIndex, Object value) {
+            int key = (Integer) value;
+            return (leafIndex == 0 || splitPoints[leafIndex - 1] <= key)
+                    && (leafIndex == splitPoints.length || key < splitPoints[leafIndex]);
+        }
+    }
+
+    /**
+     * Split points for a string or byte array row key.
+     */
+    private static class ObjectSplitPoints extends SplitPoints {
+        private final Object[] splitPoints;
+        private final KeyValueComparison comparison;
+
+        ObjectSplitPoints(Object[] splitPoints, KeyValueComparison comparison) {
+            this.splitPoints = splitPoints;
+            this.comparison = comparison;
+        }
+
+        @Override
+        int leafIndex(Object value) {
+            int low = 0;
+            int high = splitPoints.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparison.compare(splitPoints[mid], value) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        boolean isInLeaf(int leafIndex, Object value) {
+            return (leafIndex == 0 || comparison.compare(splitPoints[leafIndex - 1], value) <= 0)
+                    && (leafIndex == splitPoints.length || comparison.compare(value, splitPoints[leafIndex]) < 0);
+        }
+    }
+
+    /**
+     * Finds the leaf partition by descending a partition tree held in arrays, for a table with more than one row key
+     * field. Each node is a partition that has been split. A negative child is a leaf partition.
+     */
+    private static class FlattenedTree implements Lookup {
+        private final int[] splitDimensions;
+        private final Object[] splitValues;
+        private final int[] lowerChildren;
+        private final int[] upperChildren;
+        private final KeyValueComparison[] comparisons;
+        private final LeafRegions leafRegions;
+
+        FlattenedTree(int[] splitDimensions, Object[] splitValues, int[] lowerChildren, int[] upperChildren,
+                KeyValueComparison[] comparisons, LeafRegions leafRegions) {
+            this.splitDimensions = splitDimensions;
+            this.splitValues = splitValues;
+            this.lowerChildren = lowerChildren;
+            this.upperChildren = upperChildren;
+            this.comparisons = comparisons;
+            this.leafRegions = leafRegions;
+        }
+
+        @Override
+        public boolean isInLeaf(int leafIndex, Record record, String[] rowKeyFieldNames) {
+            Object[] mins = leafRegions.mins[leafIndex];
+            Object[] maxs = leafRegions.maxs[leafIndex];
+            for (int dimension = 0; dimension < rowKeyFieldNames.length; dimension++) {
+                Object value = record.get(rowKeyFieldNames[dimension]);
+                if (comparisons[dimension].compare(value, mins[dimension]) < 0) {
+                    return false;
+                }
+                Object max = maxs[dimension];
+                if (max != null && comparisons[dimension].compare(value, max) >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int leafIndex(Record record, String[] rowKeyFieldNames) {
+            int node = 0;
+            while (node >= 0) {
+                int dimension = splitDimensions[node];
+                node = child(node, dimension, record.get(rowKeyFieldNames[dimension]));
+            }
+            return -node - 1;
+        }
+
+        @Override
+        public int leafIndex(Key key) {
+            int node = 0;
+            while (node >= 0) {
+                int dimension = splitDimensions[node];
+                node = child(node, dimension, key.get(dimension));
+            }
+            return -node - 1;
+        }
+
+        private int child(int node, int dimension, Object value) {
+            if (comparisons[dimension].compare(value, splitValues[node]) < 0) {
+                return lowerChildren[node];
+            } else {
+                return upperChildren[node];
+            }
+        }
+    }
+
+    /**
+     * The minimum and maximum of each row key field in each leaf partition, indexed by leaf partition and then by
+     * dimension. The minimum is inclusive and the maximum is exclusive. A null maximum means the range is unbounded.
+     */
+    private static class LeafRegions {
+        private final Object[][] mins;
+        private final Object[][] maxs;
+
+        private LeafRegions(Object[][] mins, Object[][] maxs) {
+            this.mins = mins;
+            this.maxs = maxs;
+        }
+
+        static LeafRegions from(Partition[] leafPartitions, String[] rowKeyFieldNames) {
+            Object[][] mins = new Object[leafPartitions.length][rowKeyFieldNames.length];
+            Object[][] maxs = new Object[leafPartitions.length][rowKeyFieldNames.length];
+            for (int leaf = 0; leaf < leafPartitions.length; leaf++) {
+                for (int dimension = 0; dimension < rowKeyFieldNames.length; dimension++) {
+                    Range range = leafPartitions[leaf].getRegion().getRange(rowKeyFieldNames[dimension]);
+                    mins[leaf][dimension] = range.getMin();
+                    maxs[leaf][dimension] = range.getMax();
+                }
+            }
+            return new LeafRegions(mins, maxs);
+        }
+    }
+}
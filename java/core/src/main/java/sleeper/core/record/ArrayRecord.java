@@ -0,0 +1,308 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record;
+
+import com.facebook.collections.ByteArray;
+
+import sleeper.core.key.Key;
+import sleeper.core.schema.type.IntType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A record bound to a schema, with values held by position. This is an alternative to {@link Record} for use in hot
+ * paths such as compaction and ingest, which avoids a hash map per record and boxing of long and int values. The
+ * position of each field is resolved once in a {@link RecordLayout}.
+ * <p>
+ * Long and int fields are held in a primitive array. Other fields are held as objects. A record can be converted to
+ * and from a {@link Record} for code that uses that API, e.g. user defined iterators.
+ */
+public class ArrayRecord {
+    /**
+     * Marks that a value has been set for a field held in the primitive array.
+     */
+    private static final Object PRIMITIVE_SET = new Object();
+    private static final long RECORD_OVERHEAD_BYTES = 64;
+    private static final long OBJECT_OVERHEAD_BYTES = 32;
+
+    private final RecordLayout layout;
+    private final Object[] values;
+    private final long[] primitiveValues;
+
+    public ArrayRecord(RecordLayout layout) {
+        this.layout = layout;
+        this.values = new Object[layout.getNumberOfFields()];
+        this.primitiveValues = new long[layout.getNumberOfFields()];
+    }
+
+    /**
+     * Creates a copy of a record.
+     *
+     * @param record the record to copy
+     */
+    public ArrayRecord(ArrayRecord record) {
+        this.layout = record.layout;
+        this.values = Arrays.copyOf(record.values, record.values.length);
+        this.primitiveValues = Arrays.copyOf(record.primitiveValues, record.primitiveValues.length);
+    }
+
+    /**
+     * Converts a record held in a map to a record held by position. Fields of the record that are not in the schema
+     * are ignored.
+     *
+     * @param  layout the layout for the schema of the record
+     * @param  record the record
+     * @return        the record held by position
+     */
+    public static ArrayRecord fromRecord(RecordLayout layout, Record record) {
+        ArrayRecord arrayRecord = new ArrayRecord(layout);
+        for (int i = 0; i < layout.getNumberOfFields(); i++) {
+            arrayRecord.put(i, record.get(layout.getField(i).getName()));
+        }
+        return arrayRecord;
+    }
+
+    /**
+     * Converts this record to a record held in a map. This can be used to pass the record to code that uses the
+     * {@link Record} API.
+     *
+     * @return the record held in a map
+     */
+    public Record toRecord() {
+        Record record = new Record();
+        for (int i = 0; i < values.length; i++) {
+            Object value = get(i);
+            if (value != null) {
+                record.put(layout.getField(i).getName(), value);
+            }
+        }
+        return record;
+    }
+
+    public RecordLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Gets the value of a field. Long and int values will be boxed.
+     *
+     * @param  index the position of the field in the layout
+     * @return       the value of the field, or null if it is not set
+     */
+    public Object get(int index) {
+        if (layout.isPrimitiveSlot(index)) {
+            if (values[index] == null) {
+                return null;
+            } else if (layout.getType(index) instanceof IntType) {
+                return (int) primitiveValues[index];
+            } else {
+                return primitiveValues[index];
+            }
+        }
+        return values[index];
+    }
+
+    /**
+     * Gets the value of a field by its name. Prefer {@link #get(int)} in hot paths.
+     *
+     * @param  fieldName the name of the field
+     * @return           the value of the field, or null if it is not set
+     */
+    public Object get(String fieldName) {
+        return get(layout.getIndex(fieldName));
+    }
+
+    /**
+     * Gets the value of a long field without boxing. The value must have been set.
+     *
+     * @param  index the position of the field in the layout
+     * @return       the value of the field
+     */
+    public long getLong(int index) {
+        return primitiveValues[index];
+    }
+
+    /**
+     * Gets the value of an int field without boxing. The value must have been set.
+     *
+     * @param  index the position of the field in the layout
+     * @return       the value of the field
+     */
+    public int getInt(int index) {
+        return (int) primitiveValues[index];
+    }
+
+    /**
+     * Checks whether a value has been set for a field.
+     *
+     * @param  index the position of the field in the layout
+     * @return       true if the field has no value
+     */
+    public boolean isNull(int index) {
+        return values[index] == null;
+    }
+
+    /**
+     * Sets the value of a field. Long and int values will be unboxed.
+     *
+     * @param index the position of the field in the layout
+     * @param value the value to set, or null to clear the field
+     */
+    public void put(int index, Object value) {
+        if (value != null && layout.isPrimitiveSlot(index)) {
+            primitiveValues[index] = ((Number) value).longValue();
+            values[index] = PRIMITIVE_SET;
+        } else {
+            values[index] = value;
+        }
+    }
+
+    /**
+     * Sets the value of a field by its name. Prefer {@link #put(int, Object)} in hot paths.
+     *
+     * @param fieldName the name of the field
+     * @param value     the value to set, or null to clear the field
+     */
+    public void put(String fieldName, Object value) {
+        put(layout.getIndex(fieldName), value);
+    }
+
+    /**
+     * Sets the value of a long field without boxing.
+     *
+     * @param index the position of the field in the layout
+     * @param value the value to set
+     */
+    public void putLong(int index, long value) {
+        primitiveValues[index] = value;
+        values[index] = PRIMITIVE_SET;
+    }
+
+    /**
+     * Sets the value of an int field without boxing.
+     *
+     * @param index the position of the field in the layout
+     * @param value the value to set
+     */
+    public void putInt(int index, int value) {
+        primitiveValues[index] = value;
+        values[index] = PRIMITIVE_SET;
+    }
+
+    /**
+     * Gets a key containing the values of all row keys.
+     *
+     * @return a {@link Key} containing all row key values
+     */
+    public Key getRowKeys() {
+        int[] rowKeyIndexes = layout.getRowKeyIndexes();
+        List<Object> keys = new ArrayList<>(rowKeyIndexes.length);
+        for (int index : rowKeyIndexes) {
+            keys.add(get(index));
+        }
+        return Key.create(keys);
+    }
+
+    /**
+     * Estimates the size of this record in memory. This is approximate, and is intended for limiting how many records
+     * are held in a buffer.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimateSizeInBytes() {
+        long size = RECORD_OVERHEAD_BYTES + 16L * values.length;
+        for (int i = 0; i < values.length; i++) {
+            if (!layout.isPrimitiveSlot(i)) {
+                size += estimateSizeInBytes(values[i]);
+            }
+        }
+        return size;
+    }
+
+    private static long estimateSizeInBytes(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return OBJECT_OVERHEAD_BYTES + ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return OBJECT_OVERHEAD_BYTES + ((byte[]) value).length;
+        } else if (value instanceof List) {
+            long size = OBJECT_OVERHEAD_BYTES;
+            for (Object element : (List<?>) value) {
+                size += 8 + estimateSizeInBytes(element);
+            }
+            return size;
+        } else if (value instanceof Map) {
+            long size = OBJECT_OVERHEAD_BYTES;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += OBJECT_OVERHEAD_BYTES + estimateSizeInBytes(entry.getKey()) + estimateSizeInBytes(entry.getValue());
+            }
+            return size;
+        } else {
+            return OBJECT_OVERHEAD_BYTES;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hashCode(layout);
+        for (int i = 0; i < values.length; i++) {
+            hash = 31 * hash + Objects.hashCode(wrapByteArray(get(i)));
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        ArrayRecord other = (ArrayRecord) obj;
+        if (!Objects.equals(layout, other.layout)) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!Objects.equals(wrapByteArray(get(i)), wrapByteArray(other.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        List<String> terms = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            terms.add(layout.getField(i).getName() + "=" + wrapByteArray(get(i)));
+        }
+        return "ArrayRecord{" + String.join(", ", terms) + "}";
+    }
+
+    private static Object wrapByteArray(Object value) {
+        if (value instanceof byte[]) {
+            return ByteArray.wrap((byte[]) value);
+        } else {
+            return value;
+        }
+    }
+}
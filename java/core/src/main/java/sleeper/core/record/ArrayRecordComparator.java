@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record;
+
+import sleeper.core.schema.type.PrimitiveType;
+
+import java.util.Comparator;
+
+/**
+ * Compares records held by position by their row keys and then their sort keys. Gives the same order as
+ * {@link RecordComparator}, without creating any objects during comparison.
+ */
+public class ArrayRecordComparator implements Comparator<ArrayRecord> {
+    private final int[] keyIndexes;
+    private final boolean[] primitiveKeys;
+    private final KeyValueComparison[] keyComparisons;
+
+    public ArrayRecordComparator(RecordLayout layout) {
+        int[] rowKeyIndexes = layout.getRowKeyIndexes();
+        int[] sortKeyIndexes = layout.getSortKeyIndexes();
+        this.keyIndexes = new int[rowKeyIndexes.length + sortKeyIndexes.length];
+        System.arraycopy(rowKeyIndexes, 0, keyIndexes, 0, rowKeyIndexes.length);
+        System.arraycopy(sortKeyIndexes, 0, keyIndexes, rowKeyIndexes.length, sortKeyIndexes.length);
+        this.primitiveKeys = new boolean[keyIndexes.length];
+        this.keyComparisons = new KeyValueComparison[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            primitiveKeys[i] = layout.isPrimitiveSlot(keyIndexes[i]);
+            keyComparisons[i] = KeyValueComparison.forType((PrimitiveType) layout.getType(keyIndexes[i]));
+        }
+    }
+
+    @Override
+    public int compare(ArrayRecord record1, ArrayRecord record2) {
+        for (int i = 0; i < keyIndexes.length; i++) {
+            int index = keyIndexes[i];
+            boolean null1 = record1.isNull(index);
+            boolean null2 = record2.isNull(index);
+            if (null1 || null2) {
+                if (null1 && null2) {
+                    continue;
+                }
+                return null1 ? 1 : -1;
+            }
+            int diff;
+            if (primitiveKeys[i]) {
+                diff = Long.compare(record1.getLong(index), record2.getLong(index));
+            } else {
+                diff = keyComparisons[i].compareNonNull(record1.get(index), record2.get(index));
+            }
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+}
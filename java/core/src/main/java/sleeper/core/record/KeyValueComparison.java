@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record;
+
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.PrimitiveType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.Arrays;
+
+/**
+ * Compares values of a key field directly by type. This is resolved once per field when a comparator is created, so
+ * that no objects need to be created to compare records. Nulls are ordered after all other values.
+ */
+public enum KeyValueComparison {
+    LONG {
+        @Override
+        int compareNonNull(Object value1, Object value2) {
+            return Long.compare((Long) value1, (Long) value2);
+        }
+    },
+    INT {
+        @Override
+        int compareNonNull(Object value1, Object value2) {
+            return Integer.compare((Integer) value1, (Integer) value2);
+        }
+    },
+    STRING {
+        @Override
+        int compareNonNull(Object value1, Object value2) {
+            return ((String) value1).compareTo((String) value2);
+        }
+    },
+    BYTE_ARRAY {
+        @Override
+        int compareNonNull(Object value1, Object value2) {
+            return Arrays.compare((byte[]) value1, (byte[]) value2);
+        }
+    };
+
+    /**
+     * Compares two values of this type, where neither value is null.
+     *
+     * @param  value1 the first value
+     * @param  value2 the second value
+     * @return        a negative number, zero or a positive number as the first value is less than, equal to or
+     *                greater than the second
+     */
+    abstract int compareNonNull(Object value1, Object value2);
+
+    /**
+     * Compares two values of this type, ordering nulls last.
+     *
+     * @param  value1 the first value
+     * @param  value2 the second value
+     * @return        a negative number, zero or a positive number as the first value is less than, equal to or
+     *                greater than the second
+     */
+    public int compare(Object value1, Object value2) {
+        if (value1 == null) {
+            return value2 == null ? 0 : 1;
+        } else if (value2 == null) {
+            return -1;
+        }
+        return compareNonNull(value1, value2);
+    }
+
+    /**
+     * Finds how to compare values of a type.
+     *
+     * @param  type the type of a key field
+     * @return      the comparison for that type
+     */
+    public static KeyValueComparison forType(PrimitiveType type) {
+        if (type instanceof LongType) {
+            return LONG;
+        } else if (type instanceof IntType) {
+            return INT;
+        } else if (type instanceof StringType) {
+            return STRING;
+        } else if (type instanceof ByteArrayType) {
+            return BYTE_ARRAY;
+        } else {
+            throw new IllegalArgumentException("Unsupported key type: " + type);
+        }
+    }
+}
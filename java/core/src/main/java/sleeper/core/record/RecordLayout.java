@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record;
+
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.Type;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resolves the position of each field in a schema, for records held by position. Fields are held in the order they
+ * appear in the schema, i.e. row keys, then sort keys, then values. This should be created once for a schema and
+ * shared between all records read or written with that schema, in an {@link ArrayRecord}.
+ */
+public class RecordLayout {
+    private final Schema schema;
+    private final List<Field> fields;
+    private final Map<String, Integer> indexByFieldName;
+    private final Type[] types;
+    private final boolean[] primitiveSlots;
+    private final int[] rowKeyIndexes;
+    private final int[] sortKeyIndexes;
+
+    private RecordLayout(Schema schema) {
+        this.schema = schema;
+        this.fields = schema.getAllFields();
+        this.indexByFieldName = new HashMap<>();
+        this.types = new Type[fields.size()];
+        this.primitiveSlots = new boolean[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            indexByFieldName.put(field.getName(), i);
+            types[i] = field.getType();
+            primitiveSlots[i] = types[i] instanceof LongType || types[i] instanceof IntType;
+        }
+        int numRowKeys = schema.getRowKeyFields().size();
+        int numSortKeys = schema.getSortKeyFields().size();
+        this.rowKeyIndexes = new int[numRowKeys];
+        for (int i = 0; i < numRowKeys; i++) {
+            rowKeyIndexes[i] = i;
+        }
+        this.sortKeyIndexes = new int[numSortKeys];
+        for (int i = 0; i < numSortKeys; i++) {
+            sortKeyIndexes[i] = numRowKeys + i;
+        }
+    }
+
+    /**
+     * Creates a layout for records in the given schema.
+     *
+     * @param  schema the schema
+     * @return        the layout
+     */
+    public static RecordLayout from(Schema schema) {
+        return new RecordLayout(schema);
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public int getNumberOfFields() {
+        return types.length;
+    }
+
+    /**
+     * Retrieves the position of a field in this layout.
+     *
+     * @param  fieldName                the name of the field
+     * @return                          the index of the field
+     * @throws IllegalArgumentException if the field is not in the schema
+     */
+    public int getIndex(String fieldName) {
+        Integer index = indexByFieldName.get(fieldName);
+        if (index == null) {
+            throw new IllegalArgumentException("Field not found in schema: " + fieldName);
+        }
+        return index;
+    }
+
+    /**
+     * Checks whether a field is in this layout.
+     *
+     * @param  fieldName the name of the field
+     * @return           true if the field is in the schema
+     */
+    public boolean hasField(String fieldName) {
+        return indexByFieldName.containsKey(fieldName);
+    }
+
+    /**
+     * Retrieves the field at a position in this layout.
+     *
+     * @param  index the index of the field
+     * @return       the field
+     */
+    public Field getField(int index) {
+        return fields.get(index);
+    }
+
+    /**
+     * Retrieves the type of the field at a position in this layout.
+     *
+     * @param  index the index of the field
+     * @return       the type
+     */
+    public Type getType(int index) {
+        return types[index];
+    }
+
+    /**
+     * Checks whether the field at a position in this layout is held as a primitive long. This is true for fields of
+     * type {@link LongType} and {@link IntType}, which are held in a primitive array in an {@link ArrayRecord}.
+     *
+     * @param  index the index of the field
+     * @return       true if the value is held as a primitive
+     */
+    public boolean isPrimitiveSlot(int index) {
+        return primitiveSlots[index];
+    }
+
+    /**
+     * Retrieves the positions of the row key fields. The returned array must not be modified.
+     *
+     * @return the indexes of the row key fields
+     */
+    public int[] getRowKeyIndexes() {
+        return rowKeyIndexes;
+    }
+
+    /**
+     * Retrieves the positions of the sort key fields. The returned array must not be modified.
+     *
+     * @return the indexes of the sort key fields
+     */
+    public int[] getSortKeyIndexes() {
+        return sortKeyIndexes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RecordLayout that = (RecordLayout) o;
+        return Objects.equals(schema, that.schema);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(schema);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordLayout{schema=" + schema + "}";
+    }
+}
@@ -19,10 +19,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sleeper.core.partition.Partition;
+import sleeper.core.partition.PartitionTree;
 import sleeper.core.statestore.exception.ReplaceRequestsFailedException;
 import sleeper.core.statestore.exception.SplitRequestsFailedException;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -63,6 +65,11 @@ public class DelegatingStateStore implements StateStore {
         fileReferenceStore.addFilesWithReferences(files);
     }
 
+    @Override
+    public boolean addsFilesAtomically() {
+        return fileReferenceStore.addsFilesAtomically();
+    }
+
     @Override
     public void splitFileReferences(List<SplitFileReferenceRequest> splitRequests) throws SplitRequestsFailedException {
         if (splitRequests.isEmpty()) {
@@ -115,6 +122,17 @@ public class DelegatingStateStore implements StateStore {
         return fileReferenceStore.getPartitionToReferencedFilesMap();
     }
 
+    @Override
+    public List<FileReference> getFileReferencesInPartitions(Collection<String> partitionIds) throws StateStoreException {
+        return fileReferenceStore.getFileReferencesInPartitions(partitionIds);
+    }
+
+    @Override
+    public List<FileReference> getFileReferencesInPartitionsAndAncestors(
+            PartitionTree partitionTree, Collection<String> partitionIds) throws StateStoreException {
+        return fileReferenceStore.getFileReferencesInPartitionsAndAncestors(partitionTree, partitionIds);
+    }
+
     @Override
     public AllReferencesToAllFiles getAllFilesWithMaxUnreferenced(int maxUnreferencedFiles) throws StateStoreException {
         return fileReferenceStore.getAllFilesWithMaxUnreferenced(maxUnreferencedFiles);
@@ -15,6 +15,7 @@
  */
 package sleeper.core.statestore;
 
+import sleeper.core.partition.PartitionTree;
 import sleeper.core.statestore.exception.FileAlreadyExistsException;
 import sleeper.core.statestore.exception.FileHasReferencesException;
 import sleeper.core.statestore.exception.FileNotFoundException;
@@ -25,9 +26,14 @@ import sleeper.core.statestore.exception.SplitRequestsFailedException;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -77,6 +83,16 @@ public interface FileReferenceStore {
      */
     void addFilesWithReferences(List<AllReferencesToAFile> files) throws StateStoreException;
 
+    /**
+     * Checks whether adding files is atomic. If this is true, a call to add files either adds all of them or none of
+     * them. If this is false, a failed call may have added some of the files, e.g. if each file is added separately.
+     *
+     * @return true if adding files either adds all of them or none of them
+     */
+    default boolean addsFilesAtomically() {
+        return false;
+    }
+
     /**
      * Performs atomic updates to split file references. This is used to push file references down the partition tree,
      * eg. where records are ingested to a non-leaf partition, or when a partition is split. A file referenced in a
@@ -201,6 +217,41 @@ public interface FileReferenceStore {
         return partitionToFiles;
     }
 
+    /**
+     * Returns all file references in the given partitions. Only references directly against one of the given
+     * partitions are included, not references in their ancestors or descendents.
+     *
+     * @param  partitionIds        the IDs of the partitions to retrieve references for
+     * @return                     a list of all {@link FileReference}s in the given partitions
+     * @throws StateStoreException if query fails
+     */
+    default List<FileReference> getFileReferencesInPartitions(Collection<String> partitionIds) throws StateStoreException {
+        Set<String> partitionIdSet = new HashSet<>(partitionIds);
+        return getFileReferences().stream()
+                .filter(reference -> partitionIdSet.contains(reference.getPartitionId()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns all file references in the given partitions and their ancestors. This is the set of references that
+     * may contain records in any of the given partitions. This is useful when reading a leaf partition, as any records
+     * in that partition's range may still be held in files referenced against its ancestors.
+     *
+     * @param  partitionTree       the partition tree for the Sleeper table
+     * @param  partitionIds        the IDs of the partitions to retrieve references for
+     * @return                     a list of all {@link FileReference}s in the given partitions and their ancestors
+     * @throws StateStoreException if query fails
+     */
+    default List<FileReference> getFileReferencesInPartitionsAndAncestors(
+            PartitionTree partitionTree, Collection<String> partitionIds) throws StateStoreException {
+        Set<String> partitionIdsWithAncestors = new LinkedHashSet<>();
+        for (String partitionId : partitionIds) {
+            partitionIdsWithAncestors.add(partitionId);
+            partitionIdsWithAncestors.addAll(partitionTree.getAllAncestorIds(partitionId));
+        }
+        return getFileReferencesInPartitions(partitionIdsWithAncestors);
+    }
+
     /**
      * Returns a report of files tracked in the store and their references. This includes reference counts, and internal
      * references against Sleeper partitions. This will include all files whose reference count is tracked against the
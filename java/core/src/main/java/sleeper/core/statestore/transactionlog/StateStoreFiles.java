@@ -19,11 +19,19 @@ import sleeper.core.statestore.AllReferencesToAFile;
 import sleeper.core.statestore.FileReference;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
@@ -35,9 +43,20 @@ import static java.util.stream.Collectors.toUnmodifiableList;
  * safe.
  * <p>
  * The methods to update this object should only ever be called by the transactions.
+ * <p>
+ * Files are held by filename. Indexes are also kept of references by partition, references with no job assigned in
+ * the order they are returned, and unreferenced files by their last update time. These are updated whenever a file is
+ * added, removed or updated, so that queries for these do not need to scan or sort every file.
  */
 public class StateStoreFiles {
+    private static final Comparator<FileReference> REFERENCE_ORDER = Comparator
+            .comparing(FileReference::getFilename)
+            .thenComparing(FileReference::getPartitionId);
+
     private final Map<String, AllReferencesToAFile> filesByFilename = new TreeMap<>();
+    private final Map<String, Map<String, FileReference>> referencesByPartitionId = new HashMap<>();
+    private final NavigableSet<FileReference> unassignedReferences = new TreeSet<>(REFERENCE_ORDER);
+    private final NavigableMap<Instant, Set<String>> unreferencedFilenamesByUpdateTime = new TreeMap<>();
 
     /**
      * Streams through all references to all files in the state store.
@@ -66,13 +85,42 @@ public class StateStoreFiles {
      * @return               filenames of unreferenced files updated before the specified time
      */
     public Stream<String> unreferencedBefore(Instant maxUpdateTime) {
-        return filesByFilename.values().stream()
-                .filter(file -> file.getReferenceCount() == 0)
-                .filter(file -> file.getLastStateStoreUpdateTime().isBefore(maxUpdateTime))
-                .map(AllReferencesToAFile::getFilename)
+        return unreferencedFilenamesByUpdateTime.headMap(maxUpdateTime, false).values().stream()
+                .flatMap(Set::stream)
                 .collect(toUnmodifiableList()).stream(); // Avoid concurrent modification during GC
     }
 
+    /**
+     * Retrieves all file references which are not assigned to any job. These are ordered by filename, then by
+     * partition ID.
+     *
+     * @return the references with no job ID
+     */
+    public List<FileReference> referencesWithNoJobId() {
+        return new ArrayList<>(unassignedReferences);
+    }
+
+    /**
+     * Retrieves the references to files in a partition. These are ordered by filename.
+     *
+     * @param  partitionId the partition ID
+     * @return             the references in the partition
+     */
+    public Collection<FileReference> referencesInPartition(String partitionId) {
+        return referencesByPartitionId.getOrDefault(partitionId, Map.of()).values();
+    }
+
+    /**
+     * Retrieves the filenames referenced in each partition. The filenames in each partition are ordered.
+     *
+     * @return a map from partition ID to the filenames referenced in that partition
+     */
+    public Map<String, List<String>> partitionToReferencedFilenames() {
+        Map<String, List<String>> partitionToFiles = new HashMap<>();
+        referencesByPartitionId.forEach((partitionId, byFilename) -> partitionToFiles.put(partitionId, new ArrayList<>(byFilename.keySet())));
+        return partitionToFiles;
+    }
+
     /**
      * Retreives all information held about a specific file.
      *
@@ -93,7 +141,9 @@ public class StateStoreFiles {
      * @param file the file
      */
     public void add(AllReferencesToAFile file) {
-        filesByFilename.put(file.getFilename(), file);
+        AllReferencesToAFile existing = filesByFilename.put(file.getFilename(), file);
+        unindex(existing);
+        index(file);
     }
 
     /**
@@ -102,7 +152,7 @@ public class StateStoreFiles {
      * @param filename the filename
      */
     public void remove(String filename) {
-        filesByFilename.remove(filename);
+        unindex(filesByFilename.remove(filename));
     }
 
     /**
@@ -110,6 +160,9 @@ public class StateStoreFiles {
      */
     public void clear() {
         filesByFilename.clear();
+        referencesByPartitionId.clear();
+        unassignedReferences.clear();
+        unreferencedFilenamesByUpdateTime.clear();
     }
 
     /**
@@ -122,6 +175,57 @@ public class StateStoreFiles {
         AllReferencesToAFile existing = filesByFilename.get(filename);
         AllReferencesToAFile updated = update.apply(existing);
         filesByFilename.put(filename, updated);
+        unindex(existing);
+        index(updated);
+    }
+
+    private void index(AllReferencesToAFile file) {
+        if (file.getReferenceCount() == 0) {
+            unreferencedFilenamesByUpdateTime
+                    .computeIfAbsent(file.getLastStateStoreUpdateTime(), time -> new TreeSet<>())
+                    .add(file.getFilename());
+        }
+        for (FileReference reference : file.getReferences()) {
+            addToIndex(referencesByPartitionId, reference);
+            if (reference.getJobId() == null) {
+                unassignedReferences.add(reference);
+            }
+        }
+    }
+
+    private void unindex(AllReferencesToAFile file) {
+        if (file == null) {
+            return;
+        }
+        if (file.getReferenceCount() == 0) {
+            Set<String> filenames = unreferencedFilenamesByUpdateTime.get(file.getLastStateStoreUpdateTime());
+            if (filenames != null) {
+                filenames.remove(file.getFilename());
+                if (filenames.isEmpty()) {
+                    unreferencedFilenamesByUpdateTime.remove(file.getLastStateStoreUpdateTime());
+                }
+            }
+        }
+        for (FileReference reference : file.getReferences()) {
+            removeFromIndex(referencesByPartitionId, reference);
+            unassignedReferences.remove(reference);
+        }
+    }
+
+    private static void addToIndex(Map<String, Map<String, FileReference>> index, FileReference reference) {
+        index.computeIfAbsent(reference.getPartitionId(), id -> new TreeMap<>())
+                .put(reference.getFilename(), reference);
+    }
+
+    private static void removeFromIndex(Map<String, Map<String, FileReference>> index, FileReference reference) {
+        Map<String, FileReference> byFilename = index.get(reference.getPartitionId());
+        if (byFilename == null) {
+            return;
+        }
+        byFilename.remove(reference.getFilename());
+        if (byFilename.isEmpty()) {
+            index.remove(reference.getPartitionId());
+        }
     }
 
     @Override
@@ -39,7 +39,10 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -63,6 +66,11 @@ class TransactionLogFileReferenceStore implements FileReferenceStore {
         head.addTransaction(clock.instant(), new AddFilesTransaction(files));
     }
 
+    @Override
+    public boolean addsFilesAtomically() {
+        return true;
+    }
+
     @Override
     public void assignJobIds(List<AssignJobIdRequest> requests) throws StateStoreException {
         Optional<AssignJobIdsTransaction> transaction = AssignJobIdsTransaction.ignoringEmptyRequests(requests);
@@ -123,12 +131,23 @@ class TransactionLogFileReferenceStore implements FileReferenceStore {
     }
 
     @Override
-    public List<FileReference> getFileReferencesWithNoJobId() throws StateStoreException {
-        return files().references()
-                .filter(file -> file.getJobId() == null)
+    public List<FileReference> getFileReferencesInPartitions(Collection<String> partitionIds) throws StateStoreException {
+        StateStoreFiles files = files();
+        return partitionIds.stream().distinct()
+                .flatMap(partitionId -> files.referencesInPartition(partitionId).stream())
                 .collect(toUnmodifiableList());
     }
 
+    @Override
+    public List<FileReference> getFileReferencesWithNoJobId() throws StateStoreException {
+        return Collections.unmodifiableList(files().referencesWithNoJobId());
+    }
+
+    @Override
+    public Map<String, List<String>> getPartitionToReferencedFilesMap() throws StateStoreException {
+        return files().partitionToReferencedFilenames();
+    }
+
     @Override
     public Stream<String> getReadyForGCFilenamesBefore(Instant maxUpdateTime) throws StateStoreException {
         return files().unreferencedBefore(maxUpdateTime);
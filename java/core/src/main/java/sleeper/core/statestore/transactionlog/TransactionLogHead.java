@@ -27,6 +27,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Tracks some state derived from a transaction log, at a position in the log. This can perform an update to the state
@@ -180,8 +181,9 @@ class TransactionLogHead<T> {
         long transactionNumberBeforeLogLoad = lastTransactionNumber;
         LOGGER.debug("Updating {} for table {} from log from transaction {}",
                 state.getClass().getSimpleName(), sleeperTable, lastTransactionNumber);
-        logStore.readTransactionsAfter(lastTransactionNumber)
-                .forEach(this::applyTransaction);
+        try (Stream<TransactionLogEntry> entries = logStore.readTransactionsAfter(lastTransactionNumber)) {
+            entries.forEach(this::applyTransaction);
+        }
         long readTransactions = lastTransactionNumber - transactionNumberBeforeLogLoad;
         Instant finishTime = stateUpdateClock.get();
         nextTransactionCheckTime = finishTime.plus(timeBetweenTransactionChecks);
@@ -54,6 +54,10 @@ public class AddFilesTransaction implements FileReferenceTransaction {
         }
     }
 
+    List<AllReferencesToAFile> getFiles() {
+        return files;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(files);
@@ -85,6 +85,10 @@ public class AssignJobIdsTransaction implements FileReferenceTransaction {
         }
     }
 
+    List<AssignJobIdRequest> getRequests() {
+        return requests;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(requests);
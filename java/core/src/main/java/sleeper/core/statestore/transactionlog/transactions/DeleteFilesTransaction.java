@@ -53,6 +53,10 @@ public class DeleteFilesTransaction implements FileReferenceTransaction {
         filenames.forEach(stateStoreFiles::remove);
     }
 
+    List<String> getFilenames() {
+        return filenames;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(filenames);
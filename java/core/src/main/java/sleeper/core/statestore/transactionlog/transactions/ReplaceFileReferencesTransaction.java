@@ -77,6 +77,10 @@ public class ReplaceFileReferencesTransaction implements FileReferenceTransactio
         }
     }
 
+    List<ReplaceFileReferencesRequest> getJobs() {
+        return jobs;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(jobs);
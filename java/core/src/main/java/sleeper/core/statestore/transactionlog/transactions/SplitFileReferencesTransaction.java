@@ -72,6 +72,10 @@ public class SplitFileReferencesTransaction implements FileReferenceTransaction
         }
     }
 
+    List<SplitFileReferenceRequest> getRequests() {
+        return requests;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(requests);
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.statestore.transactionlog.transactions;
+
+import sleeper.core.schema.Schema;
+import sleeper.core.statestore.AllReferencesToAFile;
+import sleeper.core.statestore.FileReference;
+import sleeper.core.statestore.ReplaceFileReferencesRequest;
+import sleeper.core.statestore.SplitFileReferenceRequest;
+import sleeper.core.statestore.StateStoreException;
+import sleeper.core.statestore.transactionlog.StateStoreTransaction;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static sleeper.core.statestore.AssignJobIdRequest.assignJobOnPartitionToFiles;
+import static sleeper.core.statestore.ReplaceFileReferencesRequest.replaceJobFileReferences;
+
+/**
+ * Serialises and deserialises transactions to and from a compact binary format. This can be used to store the
+ * transactions in a log, in place of the JSON format in {@link TransactionSerDe}.
+ * <p>
+ * The format starts with a version byte and a flags byte. If the compressed flag is set, this is followed by the
+ * length of the uncompressed body as a 4 byte integer, and the body compressed with deflate. The body starts with a
+ * dictionary of all strings used in the transaction, and each string is then referenced by its index in the
+ * dictionary. This means repeated filenames, partition IDs and job IDs are only held once. Counts, indexes and numbers
+ * of records are written as variable length integers.
+ * <p>
+ * File reference transactions are encoded field by field. Every file reference must have a number of records, which
+ * is enforced when a reference is built but not when one is read from JSON. Partition transactions include region boundaries that
+ * depend on the schema, and are much less frequent, so they are held as JSON within the body.
+ */
+public class TransactionBinarySerDe {
+    public static final byte FORMAT_VERSION = 1;
+    private static final byte COMPRESSED_FLAG = 1;
+    private static final int MIN_BYTES_TO_COMPRESS = 1024;
+    private static final int COUNT_APPROXIMATE_FLAG = 1;
+    private static final int ONLY_CONTAINS_DATA_FOR_THIS_PARTITION_FLAG = 2;
+
+    private final TransactionSerDe jsonSerDe;
+
+    public TransactionBinarySerDe(Schema schema) {
+        this.jsonSerDe = new TransactionSerDe(schema);
+    }
+
+    /**
+     * Serialises a transaction to the binary format.
+     *
+     * @param  transaction              the transaction
+     * @return                          the serialised bytes
+     * @throws IllegalArgumentException if a file reference in the transaction has no number of records
+     */
+    public byte[] toBytes(StateStoreTransaction<?> transaction) {
+        Writer writer = new Writer();
+        writeTransaction(writer, transaction);
+        byte[] body = writer.toBytes();
+        if (body.length >= MIN_BYTES_TO_COMPRESS) {
+            byte[] compressed = compress(body);
+            if (compressed.length < body.length) {
+                return ByteBuffer.allocate(2 + Integer.BYTES + compressed.length)
+                        .put(FORMAT_VERSION).put(COMPRESSED_FLAG)
+                        .putInt(body.length).put(compressed)
+                        .array();
+            }
+        }
+        return ByteBuffer.allocate(2 + body.length)
+                .put(FORMAT_VERSION).put((byte) 0).put(body)
+                .array();
+    }
+
+    /**
+     * Deserialises a transaction from the binary format.
+     *
+     * @param  type  the type of transaction (expected to be held in the log entry)
+     * @param  bytes the serialised bytes
+     * @return       the transaction
+     */
+    public StateStoreTransaction<?> toTransaction(TransactionType type, byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            byte version = buffer.get();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unrecognised transaction format version: " + version);
+            }
+            byte flags = buffer.get();
+            if ((flags & COMPRESSED_FLAG) != 0) {
+                int length = buffer.getInt();
+                buffer = ByteBuffer.wrap(decompress(bytes, buffer.position(), length));
+            }
+            return readTransaction(new Reader(buffer), type);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Transaction body ended unexpectedly", e);
+        }
+    }
+
+    private void writeTransaction(Writer writer, StateStoreTransaction<?> transaction) {
+        TransactionType type = TransactionType.getType(transaction);
+        switch (type) {
+            case ADD_FILES:
+                writer.writeList(((AddFilesTransaction) transaction).getFiles(), writer::writeFile);
+                break;
+            case ASSIGN_JOB_IDS:
+                writer.writeList(((AssignJobIdsTransaction) transaction).getRequests(), request -> {
+                    writer.writeString(request.getJobId());
+                    writer.writeString(request.getPartitionId());
+                    writer.writeList(request.getFilenames(), writer::writeString);
+                });
+                break;
+            case CLEAR_FILES:
+                break;
+            case DELETE_FILES:
+                writer.writeList(((DeleteFilesTransaction) transaction).getFilenames(), writer::writeString);
+                break;
+            case REPLACE_FILE_REFERENCES:
+                writer.writeList(((ReplaceFileReferencesTransaction) transaction).getJobs(), job -> {
+                    writer.writeString(job.getJobId());
+                    writer.writeString(job.getPartitionId());
+                    writer.writeList(job.getInputFiles(), writer::writeString);
+                    writer.writeReference(job.getNewReference());
+                });
+                break;
+            case SPLIT_FILE_REFERENCES:
+                writer.writeList(((SplitFileReferencesTransaction) transaction).getRequests(), request -> {
+                    writer.writeReference(request.getOldReference());
+                    writer.writeList(request.getNewReferences(), writer::writeReference);
+                });
+                break;
+            case INITIALISE_PARTITIONS:
+            case SPLIT_PARTITION:
+                writer.writeRawString(jsonSerDe.toJson(transaction));
+                break;
+            default:
+                throw new IllegalArgumentException("Unrecognised transaction type: " + type);
+        }
+    }
+
+    private StateStoreTransaction<?> readTransaction(Reader reader, TransactionType type) {
+        switch (type) {
+            case ADD_FILES:
+                return new AddFilesTransaction(reader.readList(reader::readFile));
+            case ASSIGN_JOB_IDS:
+                return new AssignJobIdsTransaction(reader.readList(() -> {
+                    String jobId = reader.readString();
+                    String partitionId = reader.readString();
+                    return assignJobOnPartitionToFiles(jobId, partitionId, reader.readList(reader::readString));
+                }));
+            case CLEAR_FILES:
+                return new ClearFilesTransaction();
+            case DELETE_FILES:
+                return new DeleteFilesTransaction(reader.readList(reader::readString));
+            case REPLACE_FILE_REFERENCES:
+                return replaceFileReferences(reader.readList(() -> {
+                    String jobId = reader.readString();
+                    String partitionId = reader.readString();
+                    List<String> inputFiles = reader.readList(reader::readString);
+                    return replaceJobFileReferences(jobId, partitionId, inputFiles, reader.readReference());
+                }));
+            case SPLIT_FILE_REFERENCES:
+                return new SplitFileReferencesTransaction(reader.readList(() -> {
+                    FileReference oldReference = reader.readReference();
+                    return new SplitFileReferenceRequest(oldReference, reader.readList(reader::readReference));
+                }));
+            case INITIALISE_PARTITIONS:
+            case SPLIT_PARTITION:
+                return jsonSerDe.toTransaction(type, reader.readRawString());
+            default:
+                throw new IllegalArgumentException("Unrecognised transaction type: " + type);
+        }
+    }
+
+    private static ReplaceFileReferencesTransaction replaceFileReferences(List<ReplaceFileReferencesRequest> jobs) {
+        try {
+            return new ReplaceFileReferencesTransaction(jobs);
+        } catch (StateStoreException e) {
+            throw new IllegalArgumentException("Found invalid replace file references transaction", e);
+        }
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] bytes, int offset, int uncompressedLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, bytes.length - offset);
+            byte[] output = new byte[uncompressedLength];
+            int length = 0;
+            while (length < uncompressedLength && !inflater.finished()) {
+                int read = inflater.inflate(output, length, uncompressedLength - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != uncompressedLength) {
+                throw new IllegalArgumentException("Expected " + uncompressedLength + " bytes in compressed transaction, found " + length);
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Found invalid compressed transaction", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes a value to the body of a transaction.
+     *
+     * @param <T> the type of the value
+     */
+    @FunctionalInterface
+    private interface ValueWriter<T> {
+        void write(T value);
+    }
+
+    /**
+     * Reads a value from the body of a transaction.
+     *
+     * @param <T> the type of the value
+     */
+    @FunctionalInterface
+    private interface ValueReader<T> {
+        T read();
+    }
+
+    /**
+     * Builds the body of a transaction, collecting strings into a dictionary.
+     */
+    private static final class Writer {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final Map<String, Integer> dictionaryIndexes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+
+        <T> void writeList(List<T> list, ValueWriter<T> writeElement) {
+            writeVarLong(body, list.size());
+            for (T element : list) {
+                writeElement.write(element);
+            }
+        }
+
+        void writeFile(AllReferencesToAFile file) {
+            writeString(file.getFilename());
+            writeVarLong(body, file.getReferences().size());
+            for (FileReference reference : file.getReferences()) {
+                writeReferenceFields(reference);
+            }
+        }
+
+        void writeReference(FileReference reference) {
+            writeString(reference.getFilename());
+            writeReferenceFields(reference);
+        }
+
+        private void writeReferenceFields(FileReference reference) {
+            writeString(reference.getPartitionId());
+            writeString(reference.getJobId());
+            int flags = 0;
+            if (reference.isCountApproximate()) {
+                flags |= COUNT_APPROXIMATE_FLAG;
+            }
+            if (reference.onlyContainsDataForThisPartition()) {
+                flags |= ONLY_CONTAINS_DATA_FOR_THIS_PARTITION_FLAG;
+            }
+            body.write(flags);
+            if (reference.getNumberOfRecords() == null) {
+                throw new IllegalArgumentException("File reference has no number of records, for file "
+                        + reference.getFilename() + " in partition " + reference.getPartitionId());
+            }
+            writeVarLong(body, reference.getNumberOfRecords());
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(body, 0);
+                return;
+            }
+            Integer index = dictionaryIndexes.get(value);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.add(value);
+                dictionaryIndexes.put(value, index);
+            }
+            writeVarLong(body, index + 1);
+        }
+
+        void writeRawString(String value) {
+            writeBytes(body, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] toBytes() {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(body.size() + dictionary.size() * 16);
+            writeVarLong(output, dictionary.size());
+            for (String value : dictionary) {
+                writeBytes(output, value.getBytes(StandardCharsets.UTF_8));
+            }
+            output.writeBytes(body.toByteArray());
+            return output.toByteArray();
+        }
+
+        private static void writeBytes(ByteArrayOutputStream output, byte[] bytes) {
+            writeVarLong(output, bytes.length);
+            output.write(bytes, 0, bytes.length);
+        }
+
+        private static void writeVarLong(ByteArrayOutputStream output, long value) {
+            while ((value & ~0x7FL) != 0) {
+                output.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            output.write((int) value);
+        }
+    }
+
+    /**
+     * Reads the body of a transaction, resolving strings from the dictionary at the start.
+     */
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private final String[] dictionary;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.dictionary = new String[readCount()];
+            Arrays.setAll(dictionary, i -> readRawString());
+        }
+
+        <T> List<T> readList(ValueReader<T> readElement) {
+            int size = readCount();
+            List<T> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readElement.read());
+            }
+            return list;
+        }
+
+        AllReferencesToAFile readFile() {
+            String filename = readString();
+            int numReferences = readCount();
+            List<FileReference> references = new ArrayList<>(numReferences);
+            for (int i = 0; i < numReferences; i++) {
+                references.add(readReferenceFields(filename));
+            }
+            return AllReferencesToAFile.builder()
+                    .filename(filename)
+                    .references(references)
+                    .build();
+        }
+
+        FileReference readReference() {
+            return readReferenceFields(readString());
+        }
+
+        private FileReference readReferenceFields(String filename) {
+            String partitionId = readString();
+            String jobId = readString();
+            int flags = buffer.get();
+            long numberOfRecords = readVarLong();
+            return FileReference.builder()
+                    .filename(filename)
+                    .partitionId(partitionId)
+                    .jobId(jobId)
+                    .numberOfRecords(numberOfRecords)
+                    .countApproximate((flags & COUNT_APPROXIMATE_FLAG) != 0)
+                    .onlyContainsDataForThisPartition((flags & ONLY_CONTAINS_DATA_FOR_THIS_PARTITION_FLAG) != 0)
+                    .build();
+        }
+
+        String readString() {
+            int index = readCount();
+            if (index == 0) {
+                return null;
+            }
+            if (index > dictionary.length) {
+                throw new IllegalArgumentException("String index " + index + " is outside dictionary of size " + dictionary.length);
+            }
+            return dictionary[index - 1];
+        }
+
+        String readRawString() {
+            byte[] bytes = new byte[readCount()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readCount() {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Found invalid count in transaction: " + value);
+            }
+            return (int) value;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Found variable length integer longer than 64 bits");
+        }
+    }
+}
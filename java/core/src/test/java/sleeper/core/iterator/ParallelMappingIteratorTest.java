@@ -0,0 +1,171 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelMappingIteratorTest {
+
+    private final Queue<Runnable> scheduledTasks = new LinkedList<>();
+
+    @Test
+    void shouldMapElementsInOrderOnThreadPool() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ParallelMappingIterator<Integer, String> iterator = new ParallelMappingIterator<>(
+                    new WrappedIterator<>(range(0, 100).iterator()),
+                    i -> {
+                        sleepRandomly();
+                        return "value-" + i;
+                    }, executor, 8);
+
+            // When / Then
+            assertThat(iterator).toIterable().containsExactlyElementsOf(range(0, 100).stream()
+                    .map(i -> "value-" + i)
+                    .collect(Collectors.toList()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void shouldLimitElementsInFlight() {
+        // Given
+        ParallelMappingIterator<Integer, Integer> iterator = new ParallelMappingIterator<>(
+                new WrappedIterator<>(range(0, 10).iterator()),
+                i -> i * 2, scheduledTasks::add, 3);
+
+        // When
+        boolean hasNext = iterator.hasNext();
+
+        // Then
+        assertThat(hasNext).isTrue();
+        assertThat(scheduledTasks).hasSize(3);
+    }
+
+    @Test
+    void shouldSubmitNextElementBeforeWaitingForResult() {
+        // Given
+        ParallelMappingIterator<Integer, Integer> iterator = new ParallelMappingIterator<>(
+                new WrappedIterator<>(range(0, 10).iterator()),
+                i -> i * 2, scheduledTasks::add, 3);
+        iterator.hasNext();
+        scheduledTasks.poll().run();
+
+        // When
+        int first = iterator.next();
+
+        // Then
+        assertThat(first).isZero();
+        assertThat(scheduledTasks).hasSize(3);
+    }
+
+    @Test
+    void shouldThrowFailureWhenFailedElementIsReached() {
+        // Given
+        ParallelMappingIterator<Integer, Integer> iterator = new ParallelMappingIterator<>(
+                new WrappedIterator<>(range(0, 3).iterator()),
+                i -> {
+                    if (i == 1) {
+                        throw new IllegalStateException("Test failure");
+                    }
+                    return i;
+                }, Runnable::run, 3);
+
+        // When / Then
+        assertThat(iterator.next()).isZero();
+        assertThatThrownBy(iterator::next)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Test failure");
+    }
+
+    @Test
+    void shouldCloseSourceAndDiscardElementsInFlight() throws Exception {
+        // Given
+        TrackedCloseIterator source = new TrackedCloseIterator(range(0, 10));
+        ParallelMappingIterator<Integer, Integer> iterator = new ParallelMappingIterator<>(
+                source, i -> i, scheduledTasks::add, 3);
+        iterator.hasNext();
+
+        // When
+        iterator.close();
+
+        // Then
+        assertThat(source.closed).isTrue();
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test
+    void shouldRefuseNoElementsInFlight() {
+        WrappedIterator<Integer> source = new WrappedIterator<>(range(0, 1).iterator());
+        assertThatThrownBy(() -> new ParallelMappingIterator<>(source, i -> i, Runnable::run, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+
+    private static void sleepRandomly() {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * An iterator which tracks whether it has been closed, and returns no more elements once it is closed.
+     */
+    private static class TrackedCloseIterator implements CloseableIterator<Integer> {
+        private final List<Integer> elements;
+        private int index;
+        private boolean closed;
+
+        TrackedCloseIterator(List<Integer> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !closed && index < elements.size();
+        }
+
+        @Override
+        public Integer next() {
+            return elements.get(index++);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
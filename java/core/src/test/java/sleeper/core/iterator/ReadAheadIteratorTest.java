@@ -0,0 +1,401 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReadAheadIteratorTest {
+
+    private final Queue<Runnable> scheduledTasks = new LinkedList<>();
+
+    @Nested
+    class ReadOnExecutor {
+
+        @Test
+        void shouldReadAllElementsInOrder() throws Exception {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 10));
+
+            // When
+            ReadAheadIterator<Integer> iterator = builder(source)
+                    .batchSize(3)
+                    .maxBufferedBytes(100)
+                    .build();
+            runScheduledTasks();
+
+            // Then
+            assertThat(iterator).toIterable().containsExactlyElementsOf(range(0, 10));
+            assertThat(iterator.getNumberOfRecordsRead()).isEqualTo(10);
+            assertThat(source.closed).isTrue();
+        }
+
+        @Test
+        void shouldOpenSourceOnExecutor() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 10));
+
+            // When
+            builder(source).build();
+
+            // Then
+            assertThat(source.opened).isFalse();
+            assertThat(scheduledTasks).hasSize(1);
+        }
+
+        @Test
+        void shouldStopReadingWhenBufferIsFull() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 100));
+            ReadAheadIterator<Integer> iterator = builder(source)
+                    .batchSize(5)
+                    .maxBufferedBytes(10)
+                    .build();
+
+            // When
+            runScheduledTasks();
+
+            // Then
+            assertThat(source.numRead).isEqualTo(10);
+            assertThat(scheduledTasks).isEmpty();
+        }
+
+        @Test
+        void shouldStopReadingWhenMaxNumberOfElementsIsBuffered() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 100));
+            ReadAheadIterator<Integer> iterator = builder(source)
+                    .batchSize(5)
+                    .sizeEstimator(element -> 1000)
+                    .maxBufferedElements(10)
+                    .build();
+
+            // When
+            runScheduledTasks();
+
+            // Then
+            assertThat(source.numRead).isEqualTo(10);
+            assertThat(scheduledTasks).isEmpty();
+        }
+
+        @Test
+        void shouldStopReadingWhenBytesLimitIsReachedBeforeElementsLimit() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 100));
+            ReadAheadIterator<Integer> iterator = builder(source)
+                    .batchSize(5)
+                    .sizeEstimator(element -> 10)
+                    .maxBufferedBytes(50)
+                    .maxBufferedElements(100)
+                    .build();
+
+            // When
+            runScheduledTasks();
+
+            // Then
+            assertThat(source.numRead).isEqualTo(5);
+        }
+
+        @Test
+        void shouldResumeReadingWhenBatchIsConsumedWithMaxNumberOfElements() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 100));
+            ReadAheadIterator<Integer> iterator = builder(source)
+                    .batchSize(5)
+                    .maxBufferedElements(10)
+                    .build();
+            runScheduledTasks();
+
+            // When
+            iterator.next();
+            runScheduledTasks();
+
+            // Then
+            assertThat(source.numRead).isEqualTo(15);
+        }
+
+        @Test
+        void shouldResumeReadingWhenBatchIsConsumed() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 100));
+            ReadAheadIterator<Integer> iterator = builder(source)
+                    .batchSize(5)
+                    .maxBufferedBytes(10)
+                    .build();
+            runScheduledTasks();
+
+            // When
+            iterator.next();
+            runScheduledTasks();
+
+            // Then
+            assertThat(source.numRead).isEqualTo(15);
+        }
+
+        @Test
+        void shouldReadOneBatchWhenBatchIsBiggerThanBuffer() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 100));
+            builder(source)
+                    .batchSize(5)
+                    .maxBufferedBytes(1)
+                    .build();
+
+            // When
+            runScheduledTasks();
+
+            // Then
+            assertThat(source.numRead).isEqualTo(5);
+        }
+
+        @Test
+        void shouldReadSmallerFirstBatch() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 100));
+            ReadAheadIterator<Integer> iterator = builder(source)
+                    .batchSize(5)
+                    .firstBatchSize(1)
+                    .maxBufferedBytes(1)
+                    .build();
+            runScheduledTasks();
+            int numReadBeforeConsuming = source.numRead;
+
+            // When
+            iterator.next();
+            runScheduledTasks();
+
+            // Then
+            assertThat(numReadBeforeConsuming).isOne();
+            assertThat(source.numRead).isEqualTo(6);
+        }
+
+        @Test
+        void shouldCloseSourceWhenClosedEarly() throws Exception {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 100));
+            ReadAheadIterator<Integer> iterator = builder(source)
+                    .batchSize(5)
+                    .maxBufferedBytes(10)
+                    .build();
+            runScheduledTasks();
+
+            // When
+            iterator.close();
+
+            // Then
+            assertThat(source.closed).isTrue();
+            assertThat(iterator.hasNext()).isFalse();
+        }
+
+        @Test
+        void shouldNotOpenSourceWhenClosedBeforeRead() throws Exception {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 100));
+            ReadAheadIterator<Integer> iterator = builder(source).build();
+
+            // When
+            iterator.close();
+            runScheduledTasks();
+
+            // Then
+            assertThat(source.opened).isFalse();
+        }
+    }
+
+    @Nested
+    class HandleFailures {
+
+        @Test
+        void shouldThrowFailureReadingFromSourceAfterElementsReadBeforeIt() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 10));
+            source.failAfter = 7;
+            ReadAheadIterator<Integer> iterator = builder(source)
+                    .batchSize(5)
+                    .maxBufferedBytes(100)
+                    .build();
+            runScheduledTasks();
+
+            // When
+            List<Integer> read = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                read.add(iterator.next());
+            }
+
+            // Then
+            assertThat(read).containsExactly(0, 1, 2, 3, 4);
+            assertThatThrownBy(iterator::hasNext)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Failed reading element 7");
+            assertThat(source.closed).isTrue();
+        }
+
+        @Test
+        void shouldThrowFailureOpeningSource() {
+            // Given
+            ReadAheadIterator<Integer> iterator = ReadAheadIterator.<Integer>builder()
+                    .source(() -> {
+                        throw new IOException("Failed opening");
+                    })
+                    .executor(Runnable::run)
+                    .build();
+
+            // When / Then
+            assertThatThrownBy(iterator::hasNext)
+                    .isInstanceOf(UncheckedIOException.class)
+                    .hasRootCauseMessage("Failed opening");
+        }
+
+        @Test
+        void shouldThrowErrorFromSource() {
+            // Given
+            ReadAheadIterator<Integer> iterator = ReadAheadIterator.<Integer>builder()
+                    .source(() -> {
+                        throw new OutOfMemoryError("Out of memory");
+                    })
+                    .executor(Runnable::run)
+                    .build();
+
+            // When / Then
+            assertThatThrownBy(iterator::hasNext)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasCauseInstanceOf(OutOfMemoryError.class)
+                    .hasRootCauseMessage("Out of memory");
+        }
+    }
+
+    @Nested
+    class ReadOnSameThread {
+
+        @Test
+        void shouldReadAllElementsWithNoBuffer() {
+            // Given
+            TrackedIterator source = new TrackedIterator(range(0, 10));
+
+            // When
+            ReadAheadIterator<Integer> iterator = ReadAheadIterator.<Integer>builder()
+                    .source(() -> source.open())
+                    .executor(Runnable::run)
+                    .batchSize(3)
+                    .maxBufferedBytes(0)
+                    .build();
+
+            // Then
+            assertThat(source.numRead).isEqualTo(3);
+            assertThat(iterator).toIterable().containsExactlyElementsOf(range(0, 10));
+            assertThat(source.closed).isTrue();
+        }
+    }
+
+    @Nested
+    class ShareThreadPool {
+        private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        @AfterEach
+        void tearDown() {
+            executor.shutdownNow();
+        }
+
+        @Test
+        void shouldMergeMoreInputsThanThreads() {
+            // Given
+            List<CloseableIterator<Integer>> inputs = IntStream.range(0, 10)
+                    .mapToObj(i -> ReadAheadIterator.<Integer>builder()
+                            .source(new TrackedIterator(range(i * 1000, (i + 1) * 1000))::open)
+                            .executor(executor)
+                            .batchSize(10)
+                            .maxBufferedBytes(20)
+                            .build())
+                    .collect(Collectors.toList());
+
+            // When
+            SortedMergingIterator<Integer> iterator = new SortedMergingIterator<>(Comparator.naturalOrder(), inputs);
+
+            // Then
+            assertThat(iterator).toIterable().containsExactlyElementsOf(range(0, 10_000));
+        }
+    }
+
+    private ReadAheadIterator.Builder<Integer> builder(TrackedIterator source) {
+        return ReadAheadIterator.<Integer>builder()
+                .source(source::open)
+                .executor(scheduledTasks::add);
+    }
+
+    private void runScheduledTasks() {
+        while (!scheduledTasks.isEmpty()) {
+            scheduledTasks.poll().run();
+        }
+    }
+
+    private static List<Integer> range(int start, int end) {
+        return IntStream.range(start, end).boxed().collect(Collectors.toList());
+    }
+
+    /**
+     * A source which tracks how it was used.
+     */
+    private static class TrackedIterator implements CloseableIterator<Integer> {
+        private final List<Integer> elements;
+        private int numRead;
+        private int failAfter = -1;
+        private boolean opened;
+        private boolean closed;
+
+        TrackedIterator(List<Integer> elements) {
+            this.elements = elements;
+        }
+
+        CloseableIterator<Integer> open() {
+            opened = true;
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return numRead < elements.size();
+        }
+
+        @Override
+        public Integer next() {
+            if (numRead == failAfter) {
+                throw new IllegalStateException("Failed reading element " + numRead);
+            }
+            return elements.get(numRead++);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SortedMergingIteratorTest {
+
+    @Test
+    void shouldMergeSortedInputs() {
+        // Given
+        List<CloseableIterator<Integer>> inputs = List.of(
+                iterator(1, 4, 7),
+                iterator(2, 5, 8),
+                iterator(3, 6, 9));
+
+        // When
+        SortedMergingIterator<Integer> iterator = new SortedMergingIterator<>(Comparator.naturalOrder(), inputs);
+
+        // Then
+        assertThat(iterator).toIterable().containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(iterator.getNumberOfRecordsRead()).isEqualTo(9);
+    }
+
+    @Test
+    void shouldMergeInputsOfDifferentLengthsWithDuplicates() {
+        // Given
+        List<CloseableIterator<Integer>> inputs = List.of(
+                iterator(1, 1, 2, 10),
+                iterator(),
+                iterator(1),
+                iterator(2, 3, 4, 5, 6));
+
+        // When
+        SortedMergingIterator<Integer> iterator = new SortedMergingIterator<>(Comparator.naturalOrder(), inputs);
+
+        // Then
+        assertThat(iterator).toIterable().containsExactly(1, 1, 1, 2, 2, 3, 4, 5, 6, 10);
+    }
+
+    @Test
+    void shouldMergeSingleInput() {
+        // Given
+        List<CloseableIterator<Integer>> inputs = List.of(iterator(1, 2, 3));
+
+        // When
+        SortedMergingIterator<Integer> iterator = new SortedMergingIterator<>(Comparator.naturalOrder(), inputs);
+
+        // Then
+        assertThat(iterator).toIterable().containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void shouldReturnNothingWithNoInputs() {
+        // When
+        SortedMergingIterator<Integer> iterator = new SortedMergingIterator<>(Comparator.<Integer>naturalOrder(), List.of());
+
+        // Then
+        assertThat(iterator.hasNext()).isFalse();
+        assertThatThrownBy(iterator::next).isInstanceOf(java.util.NoSuchElementException.class);
+    }
+
+    @Test
+    void shouldMergeRandomInputsInSameOrderAsFullSort() {
+        for (int fanIn : new int[]{2, 3, 7, 30, 64, 100}) {
+            shouldMergeRandomInputsInSameOrderAsFullSort(fanIn);
+        }
+    }
+
+    @Test
+    void shouldUseOneComparisonPerTreeLevelForEachRecord() {
+        for (int fanIn : new int[]{2, 4, 8, 16, 30, 64, 128}) {
+            shouldUseOneComparisonPerTreeLevelForEachRecord(fanIn);
+        }
+    }
+
+    private void shouldMergeRandomInputsInSameOrderAsFullSort(int fanIn) {
+        // Given
+        Random random = new Random(fanIn);
+        List<List<Integer>> inputLists = randomSortedLists(random, fanIn, 50);
+        List<Integer> expected = inputLists.stream()
+                .flatMap(List::stream).sorted()
+                .collect(Collectors.toList());
+
+        // When
+        SortedMergingIterator<Integer> iterator = new SortedMergingIterator<>(
+                Comparator.naturalOrder(), iterators(inputLists));
+
+        // Then
+        assertThat(iterator).toIterable().as("fan-in %s", fanIn).containsExactlyElementsOf(expected);
+        assertThat(iterator.getNumberOfRecordsRead()).isEqualTo(expected.size());
+    }
+
+    private void shouldUseOneComparisonPerTreeLevelForEachRecord(int fanIn) {
+        // Given
+        Random random = new Random(fanIn);
+        List<List<Integer>> inputLists = randomSortedLists(random, fanIn, 1000);
+        long numRecords = inputLists.stream().mapToLong(List::size).sum();
+        int treeDepth = 32 - Integer.numberOfLeadingZeros(fanIn - 1);
+        AtomicLong loserTreeComparisons = new AtomicLong();
+        AtomicLong priorityQueueComparisons = new AtomicLong();
+
+        // When
+        SortedMergingIterator<Integer> iterator = new SortedMergingIterator<>(
+                countingComparator(loserTreeComparisons), iterators(inputLists));
+        iterator.forEachRemaining(value -> {
+        });
+        mergeWithPriorityQueue(inputLists, countingComparator(priorityQueueComparisons));
+
+        // Then
+        assertThat(loserTreeComparisons.get()).as("fan-in %s", fanIn)
+                .isLessThanOrEqualTo(fanIn - 1 + numRecords * treeDepth)
+                .isLessThanOrEqualTo(priorityQueueComparisons.get());
+    }
+
+    private static CloseableIterator<Integer> iterator(Integer... values) {
+        return new WrappedIterator<>(List.of(values).iterator());
+    }
+
+    private static List<CloseableIterator<Integer>> iterators(List<List<Integer>> lists) {
+        return lists.stream()
+                .map(list -> new WrappedIterator<>(list.iterator()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<List<Integer>> randomSortedLists(Random random, int numLists, int maxLength) {
+        return IntStream.range(0, numLists)
+                .mapToObj(i -> random.ints(random.nextInt(maxLength + 1), 0, 10_000)
+                        .sorted().boxed()
+                        .collect(Collectors.toList()))
+                .collect(Collectors.toList());
+    }
+
+    private static Comparator<Integer> countingComparator(AtomicLong count) {
+        return (a, b) -> {
+            count.incrementAndGet();
+            return Integer.compare(a, b);
+        };
+    }
+
+    /**
+     * Merges with a priority queue holding the head of each input, as a baseline for the number of comparisons.
+     */
+    private static void mergeWithPriorityQueue(List<List<Integer>> lists, Comparator<Integer> comparator) {
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> comparator.compare(
+                lists.get(a[0]).get(a[1]), lists.get(b[0]).get(b[1])));
+        List<int[]> heads = new ArrayList<>();
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        queue.addAll(heads);
+        while (!queue.isEmpty()) {
+            int[] head = queue.poll();
+            if (head[1] + 1 < lists.get(head[0]).size()) {
+                queue.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.partition;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.key.Key;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LeafPartitionIndexTest {
+
+    @Nested
+    class OneRowKeyField {
+
+        @Test
+        void shouldFindOnlyPartitionWhenRootIsLeaf() {
+            // Given
+            Schema schema = schemaWithKey(new Field("key", new LongType()));
+            PartitionTree tree = new PartitionsBuilder(schema).singlePartition("root").buildTree();
+
+            // When
+            LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree);
+
+            // Then
+            assertThat(index.getNumberOfLeafPartitions()).isOne();
+            assertThat(index.getLeafPartition(new Record(Map.of("key", 123L))).getId()).isEqualTo("root");
+        }
+
+        @Test
+        void shouldFindLeafPartitionByLongKey() {
+            // Given
+            Schema schema = schemaWithKey(new Field("key", new LongType()));
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .rootFirst("root")
+                    .splitToNewChildren("root", "L", "R", 0L)
+                    .splitToNewChildren("L", "LL", "LR", -100L)
+                    .splitToNewChildren("R", "RL", "RR", 100L)
+                    .buildTree();
+
+            // When
+            LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree);
+
+            // Then
+            assertThat(index.getNumberOfLeafPartitions()).isEqualTo(4);
+            assertThat(leafIdForKey(index, "key", Long.MIN_VALUE)).isEqualTo("LL");
+            assertThat(leafIdForKey(index, "key", -101L)).isEqualTo("LL");
+            assertThat(leafIdForKey(index, "key", -100L)).isEqualTo("LR");
+            assertThat(leafIdForKey(index, "key", -1L)).isEqualTo("LR");
+            assertThat(leafIdForKey(index, "key", 0L)).isEqualTo("RL");
+            assertThat(leafIdForKey(index, "key", 99L)).isEqualTo("RL");
+            assertThat(leafIdForKey(index, "key", 100L)).isEqualTo("RR");
+            assertThat(leafIdForKey(index, "key", Long.MAX_VALUE)).isEqualTo("RR");
+        }
+
+        @Test
+        void shouldFindLeafPartitionByIntKey() {
+            // Given
+            Schema schema = schemaWithKey(new Field("key", new IntType()));
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .rootFirst("root")
+                    .splitToNewChildren("root", "L", "R", 10)
+                    .buildTree();
+
+            // When
+            LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree);
+
+            // Then
+            assertThat(leafIdForKey(index, "key", 9)).isEqualTo("L");
+            assertThat(leafIdForKey(index, "key", 10)).isEqualTo("R");
+        }
+
+        @Test
+        void shouldFindLeafPartitionByStringKey() {
+            // Given
+            Schema schema = schemaWithKey(new Field("key", new StringType()));
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .rootFirst("root")
+                    .splitToNewChildren("root", "L", "R", "m")
+                    .splitToNewChildren("L", "LL", "LR", "c")
+                    .buildTree();
+
+            // When
+            LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree);
+
+            // Then
+            assertThat(leafIdForKey(index, "key", "")).isEqualTo("LL");
+            assertThat(leafIdForKey(index, "key", "bbb")).isEqualTo("LL");
+            assertThat(leafIdForKey(index, "key", "c")).isEqualTo("LR");
+            assertThat(leafIdForKey(index, "key", "lzz")).isEqualTo("LR");
+            assertThat(leafIdForKey(index, "key", "m")).isEqualTo("R");
+            assertThat(leafIdForKey(index, "key", "zzz")).isEqualTo("R");
+        }
+
+        @Test
+        void shouldFindLeafPartitionByByteArrayKey() {
+            // Given
+            Schema schema = schemaWithKey(new Field("key", new ByteArrayType()));
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .rootFirst("root")
+                    .splitToNewChildren("root", "L", "R", new byte[]{1, 2})
+                    .buildTree();
+
+            // When
+            LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree);
+
+            // Then
+            assertThat(leafIdForKey(index, "key", new byte[]{1})).isEqualTo("L");
+            assertThat(leafIdForKey(index, "key", new byte[]{1, 2})).isEqualTo("R");
+            assertThat(leafIdForKey(index, "key", new byte[]{1, 2, 0})).isEqualTo("R");
+        }
+
+        @Test
+        void shouldFindSameLeafPartitionsAsPartitionTreeWithManyLeaves() {
+            // Given
+            Schema schema = schemaWithKey(new Field("key", new LongType()));
+            List<Object> splitPoints = LongStream.range(1, 1000).mapToObj(i -> i * 10).collect(Collectors.toList());
+            List<String> leafIds = IntStream.range(0, 1000).mapToObj(i -> "leaf-" + i).collect(Collectors.toList());
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .leavesWithSplits(leafIds, splitPoints)
+                    .anyTreeJoiningAllLeaves()
+                    .buildTree();
+
+            // When
+            LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree);
+
+            // Then
+            assertThat(index.getNumberOfLeafPartitions()).isEqualTo(1000);
+            for (long key = -5; key < 10005; key += 3) {
+                Key rowKey = Key.create(key);
+                assertThat(index.getLeafPartition(rowKey))
+                        .isSameAs(index.getLeafPartition(new Record(Map.of("key", key))))
+                        .isEqualTo(tree.getLeafPartition(schema, rowKey));
+            }
+        }
+
+        @Test
+        void shouldFindLeafPartitionsForSortedRecordsWithSequentialLookup() {
+            // Given
+            Schema schema = schemaWithKey(new Field("key", new LongType()));
+            List<Object> splitPoints = LongStream.range(1, 100).mapToObj(i -> i * 10).collect(Collectors.toList());
+            List<String> leafIds = IntStream.range(0, 100).mapToObj(i -> "leaf-" + i).collect(Collectors.toList());
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .leavesWithSplits(leafIds, splitPoints)
+                    .anyTreeJoiningAllLeaves()
+                    .buildTree();
+            LeafPartitionIndex.SequentialLookup lookup = LeafPartitionIndex.from(schema, tree).sequentialLookup();
+
+            // When / Then
+            for (long key = -5; key < 1005; key++) {
+                assertThat(lookup.getLeafPartition(new Record(Map.of("key", key))))
+                        .isEqualTo(tree.getLeafPartition(schema, Key.create(key)));
+            }
+        }
+
+        @Test
+        void shouldFindLeafPartitionWithSequentialLookupWhenKeyMovesBackwards() {
+            // Given
+            Schema schema = schemaWithKey(new Field("key", new StringType()));
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .rootFirst("root")
+                    .splitToNewChildren("root", "L", "R", "m")
+                    .splitToNewChildren("L", "LL", "LR", "c")
+                    .buildTree();
+            LeafPartitionIndex.SequentialLookup lookup = LeafPartitionIndex.from(schema, tree).sequentialLookup();
+
+            // When / Then
+            assertThat(lookup.getLeafPartition(new Record(Map.of("key", "d"))).getId()).isEqualTo("LR");
+            assertThat(lookup.getLeafPartition(new Record(Map.of("key", "z"))).getId()).isEqualTo("R");
+            assertThat(lookup.getLeafPartition(new Record(Map.of("key", "a"))).getId()).isEqualTo("LL");
+            assertThat(lookup.getLeafPartition(new Record(Map.of("key", "c"))).getId()).isEqualTo("LR");
+        }
+    }
+
+    @Nested
+    class MultipleRowKeyFields {
+        private final Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key1", new LongType()), new Field("key2", new StringType()))
+                .build();
+
+        @Test
+        void shouldFindLeafPartitionSplitOnEachDimension() {
+            // Given
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .rootFirst("root")
+                    .splitToNewChildrenOnDimension("root", "L", "R", 0, 10L)
+                    .splitToNewChildrenOnDimension("L", "LL", "LR", 1, "m")
+                    .splitToNewChildrenOnDimension("R", "RL", "RR", 1, "f")
+                    .splitToNewChildrenOnDimension("RR", "RRL", "RRR", 0, 20L)
+                    .buildTree();
+
+            // When
+            LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree);
+
+            // Then
+            assertThat(index.getNumberOfLeafPartitions()).isEqualTo(5);
+            assertThat(leafIdForKeys(index, 9L, "a")).isEqualTo("LL");
+            assertThat(leafIdForKeys(index, 9L, "m")).isEqualTo("LR");
+            assertThat(leafIdForKeys(index, 10L, "e")).isEqualTo("RL");
+            assertThat(leafIdForKeys(index, 10L, "m")).isEqualTo("RRL");
+            assertThat(leafIdForKeys(index, 20L, "f")).isEqualTo("RRR");
+        }
+
+        @Test
+        void shouldFindSameLeafPartitionsAsPartitionTree() {
+            // Given
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .rootFirst("root")
+                    .splitToNewChildrenOnDimension("root", "L", "R", 1, "n")
+                    .splitToNewChildrenOnDimension("L", "LL", "LR", 0, 0L)
+                    .splitToNewChildrenOnDimension("R", "RL", "RR", 0, 50L)
+                    .splitToNewChildrenOnDimension("LR", "LRL", "LRR", 1, "g")
+                    .buildTree();
+
+            // When
+            LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree);
+
+            // Then
+            for (long key1 = -20; key1 < 80; key1 += 7) {
+                for (String key2 : List.of("", "a", "g", "h", "n", "o", "zz")) {
+                    Key rowKey = Key.create(List.of(key1, key2));
+                    assertThat(index.getLeafPartition(rowKey))
+                            .isEqualTo(tree.getLeafPartition(schema, rowKey));
+                }
+            }
+        }
+
+        @Test
+        void shouldFindLeafPartitionsForSortedRecordsWithSequentialLookup() {
+            // Given
+            PartitionTree tree = new PartitionsBuilder(schema)
+                    .rootFirst("root")
+                    .splitToNewChildrenOnDimension("root", "L", "R", 1, "n")
+                    .splitToNewChildrenOnDimension("L", "LL", "LR", 0, 0L)
+                    .splitToNewChildrenOnDimension("R", "RL", "RR", 0, 50L)
+                    .splitToNewChildrenOnDimension("LR", "LRL", "LRR", 1, "g")
+                    .buildTree();
+            LeafPartitionIndex.SequentialLookup lookup = LeafPartitionIndex.from(schema, tree).sequentialLookup();
+
+            // When / Then
+            for (long key1 = -20; key1 < 80; key1 += 7) {
+                for (String key2 : List.of("", "a", "g", "h", "n", "o", "zz")) {
+                    assertThat(lookup.getLeafPartition(new Record(Map.of("key1", key1, "key2", key2))))
+                            .isEqualTo(tree.getLeafPartition(schema, Key.create(List.of(key1, key2))));
+                }
+            }
+        }
+
+        @Test
+        void shouldRejectKeyWithWrongNumberOfFields() {
+            // Given
+            PartitionTree tree = new PartitionsBuilder(schema).singlePartition("root").buildTree();
+            LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree);
+
+            // When / Then
+            assertThatThrownBy(() -> index.getLeafPartition(Key.create(1L)))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        private String leafIdForKeys(LeafPartitionIndex index, long key1, String key2) {
+            return index.getLeafPartition(new Record(Map.of("key1", key1, "key2", key2))).getId();
+        }
+    }
+
+    private static Schema schemaWithKey(Field field) {
+        return Schema.builder().rowKeyFields(field).build();
+    }
+
+    private static String leafIdForKey(LeafPartitionIndex index, String fieldName, Object value) {
+        return index.getLeafPartition(new Record(Map.of(fieldName, value))).getId();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArrayRecordComparatorTest {
+
+    @Test
+    void shouldSortByRowKeyThenSortKey() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new LongType()))
+                .sortKeyFields(new Field("sort", new StringType()))
+                .valueFields(new Field("value", new IntType()))
+                .build();
+        RecordLayout layout = RecordLayout.from(schema);
+        ArrayRecord record1 = record(layout, Map.of("key", 2L, "sort", "A", "value", 1));
+        ArrayRecord record2 = record(layout, Map.of("key", 1L, "sort", "B", "value", 2));
+        ArrayRecord record3 = record(layout, Map.of("key", 1L, "sort", "A", "value", 3));
+        ArrayRecord record4 = record(layout, Map.of("key", -5L, "sort", "C", "value", 4));
+        List<ArrayRecord> records = new ArrayList<>(List.of(record1, record2, record3, record4));
+
+        // When
+        records.sort(new ArrayRecordComparator(layout));
+
+        // Then
+        assertThat(records).containsExactly(record4, record3, record2, record1);
+    }
+
+    @Test
+    void shouldIgnoreValueFields() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new IntType()))
+                .valueFields(new Field("value", new IntType()))
+                .build();
+        RecordLayout layout = RecordLayout.from(schema);
+        ArrayRecord record1 = record(layout, Map.of("key", 1, "value", 1));
+        ArrayRecord record2 = record(layout, Map.of("key", 1, "value", 2));
+
+        // When / Then
+        assertThat(new ArrayRecordComparator(layout).compare(record1, record2)).isZero();
+    }
+
+    @Test
+    void shouldGiveSameOrderAsRecordComparatorForByteArrays() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new ByteArrayType()))
+                .build();
+        RecordLayout layout = RecordLayout.from(schema);
+        List<byte[]> keys = List.of(new byte[]{1, 2}, new byte[]{1}, new byte[]{-1}, new byte[]{0, 5}, new byte[]{});
+        List<Record> records = new ArrayList<>();
+        List<ArrayRecord> arrayRecords = new ArrayList<>();
+        for (byte[] key : keys) {
+            Record record = new Record(Map.of("key", key));
+            records.add(record);
+            arrayRecords.add(ArrayRecord.fromRecord(layout, record));
+        }
+
+        // When
+        records.sort(new RecordComparator(schema));
+        arrayRecords.sort(new ArrayRecordComparator(layout));
+
+        // Then
+        assertThat(arrayRecords).extracting(ArrayRecord::toRecord)
+                .containsExactlyElementsOf(records);
+    }
+
+    @Test
+    void shouldSortNullsLast() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new StringType()))
+                .build();
+        RecordLayout layout = RecordLayout.from(schema);
+        ArrayRecord nullRecord = new ArrayRecord(layout);
+        ArrayRecord record = record(layout, Map.of("key", "A"));
+        List<ArrayRecord> records = new ArrayList<>(List.of(nullRecord, record));
+
+        // When
+        records.sort(new ArrayRecordComparator(layout));
+
+        // Then
+        assertThat(records).containsExactly(record, nullRecord);
+    }
+
+    private static ArrayRecord record(RecordLayout layout, Map<String, Object> values) {
+        return ArrayRecord.fromRecord(layout, new Record(values));
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.key.Key;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ArrayRecordTest {
+
+    Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new LongType()))
+            .sortKeyFields(new Field("sort", new IntType()))
+            .valueFields(
+                    new Field("string", new StringType()),
+                    new Field("bytes", new ByteArrayType()),
+                    new Field("list", new ListType(new StringType())))
+            .build();
+    RecordLayout layout = RecordLayout.from(schema);
+
+    @Nested
+    class ReadAndWriteFields {
+
+        @Test
+        void shouldSetPrimitiveFieldsWithoutBoxing() {
+            // Given
+            ArrayRecord record = new ArrayRecord(layout);
+
+            // When
+            record.putLong(0, 123L);
+            record.putInt(1, 42);
+
+            // Then
+            assertThat(record.getLong(0)).isEqualTo(123L);
+            assertThat(record.getInt(1)).isEqualTo(42);
+            assertThat(record.get("key")).isEqualTo(123L);
+            assertThat(record.get("sort")).isEqualTo(42);
+        }
+
+        @Test
+        void shouldSetFieldsByName() {
+            // Given
+            ArrayRecord record = new ArrayRecord(layout);
+
+            // When
+            record.put("key", 1L);
+            record.put("sort", 2);
+            record.put("string", "A");
+            record.put("bytes", new byte[]{1, 2});
+            record.put("list", List.of("B", "C"));
+
+            // Then
+            assertThat(record.getLong(0)).isEqualTo(1L);
+            assertThat(record.getInt(1)).isEqualTo(2);
+            assertThat(record.get(2)).isEqualTo("A");
+            assertThat(record.get(3)).isEqualTo(new byte[]{1, 2});
+            assertThat(record.get(4)).isEqualTo(List.of("B", "C"));
+        }
+
+        @Test
+        void shouldReportUnsetFieldsAsNull() {
+            // Given
+            ArrayRecord record = new ArrayRecord(layout);
+            record.putLong(0, 1L);
+
+            // When / Then
+            assertThat(record.isNull(0)).isFalse();
+            assertThat(record.isNull(1)).isTrue();
+            assertThat(record.get("sort")).isNull();
+            assertThat(record.get("string")).isNull();
+        }
+
+        @Test
+        void shouldClearPrimitiveField() {
+            // Given
+            ArrayRecord record = new ArrayRecord(layout);
+            record.putLong(0, 1L);
+
+            // When
+            record.put(0, null);
+
+            // Then
+            assertThat(record.isNull(0)).isTrue();
+            assertThat(record.get(0)).isNull();
+        }
+
+        @Test
+        void shouldFailToSetFieldNotInSchema() {
+            // Given
+            ArrayRecord record = new ArrayRecord(layout);
+
+            // When / Then
+            assertThatThrownBy(() -> record.put("unknown", 1))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        void shouldGetRowKeys() {
+            // Given
+            ArrayRecord record = new ArrayRecord(layout);
+            record.putLong(0, 10L);
+            record.putInt(1, 20);
+
+            // When / Then
+            assertThat(record.getRowKeys()).isEqualTo(Key.create(List.of(10L)));
+        }
+    }
+
+    @Nested
+    class ConvertToAndFromRecord {
+
+        @Test
+        void shouldConvertFromRecord() {
+            // Given
+            Record record = new Record(Map.of(
+                    "key", 1L,
+                    "sort", 2,
+                    "string", "A",
+                    "bytes", new byte[]{1, 2},
+                    "list", List.of("B")));
+
+            // When
+            ArrayRecord arrayRecord = ArrayRecord.fromRecord(layout, record);
+
+            // Then
+            assertThat(arrayRecord.getLong(0)).isEqualTo(1L);
+            assertThat(arrayRecord.getInt(1)).isEqualTo(2);
+            assertThat(arrayRecord.get(2)).isEqualTo("A");
+            assertThat(arrayRecord.get(3)).isEqualTo(new byte[]{1, 2});
+            assertThat(arrayRecord.get(4)).isEqualTo(List.of("B"));
+        }
+
+        @Test
+        void shouldConvertToRecordAndBack() {
+            // Given
+            Record record = new Record(Map.of(
+                    "key", 1L,
+                    "sort", 2,
+                    "string", "A",
+                    "bytes", new byte[]{1, 2},
+                    "list", List.of("B")));
+
+            // When
+            Record converted = ArrayRecord.fromRecord(layout, record).toRecord();
+
+            // Then
+            assertThat(converted).isEqualTo(record);
+        }
+
+        @Test
+        void shouldLeaveUnsetFieldsOutOfRecord() {
+            // Given
+            ArrayRecord arrayRecord = new ArrayRecord(layout);
+            arrayRecord.putLong(0, 1L);
+
+            // When
+            Record record = arrayRecord.toRecord();
+
+            // Then
+            assertThat(record.getKeys()).containsExactly("key");
+        }
+    }
+
+    @Nested
+    class CompareRecords {
+
+        @Test
+        void shouldBeEqualWithSameByteArrayContents() {
+            // Given
+            ArrayRecord record1 = new ArrayRecord(layout);
+            record1.putLong(0, 1L);
+            record1.put(3, new byte[]{1, 2});
+            ArrayRecord record2 = new ArrayRecord(layout);
+            record2.putLong(0, 1L);
+            record2.put(3, new byte[]{1, 2});
+
+            // When / Then
+            assertThat(record1).isEqualTo(record2)
+                    .hasSameHashCodeAs(record2);
+        }
+
+        @Test
+        void shouldNotBeEqualWithDifferentValues() {
+            // Given
+            ArrayRecord record1 = new ArrayRecord(layout);
+            record1.putLong(0, 1L);
+            ArrayRecord record2 = new ArrayRecord(layout);
+            record2.putLong(0, 2L);
+
+            // When / Then
+            assertThat(record1).isNotEqualTo(record2);
+        }
+
+        @Test
+        void shouldCopyRecord() {
+            // Given
+            ArrayRecord record = new ArrayRecord(layout);
+            record.putLong(0, 1L);
+            record.put(2, "A");
+
+            // When
+            ArrayRecord copy = new ArrayRecord(record);
+            record.putLong(0, 2L);
+
+            // Then
+            assertThat(copy.getLong(0)).isEqualTo(1L);
+            assertThat(copy.get(2)).isEqualTo("A");
+        }
+    }
+
+    @Nested
+    class EstimateSize {
+
+        @Test
+        void shouldEstimateLargerSizeWithLargerValues() {
+            // Given
+            ArrayRecord small = new ArrayRecord(layout);
+            small.putLong(0, 1L);
+            small.put(2, "A");
+            ArrayRecord large = new ArrayRecord(layout);
+            large.putLong(0, 1L);
+            large.put(2, "A".repeat(1000));
+            large.put(3, new byte[1000]);
+            large.put(4, List.of("B".repeat(1000)));
+
+            // When / Then
+            assertThat(large.estimateSizeInBytes())
+                    .isGreaterThan(small.estimateSizeInBytes() + 3000);
+        }
+
+        @Test
+        void shouldEstimateSameSizeWithDifferentPrimitiveValues() {
+            // Given
+            ArrayRecord empty = new ArrayRecord(layout);
+            ArrayRecord primitives = new ArrayRecord(layout);
+            primitives.putLong(0, Long.MAX_VALUE);
+            primitives.putInt(1, Integer.MAX_VALUE);
+
+            // When / Then
+            assertThat(primitives.estimateSizeInBytes()).isEqualTo(empty.estimateSizeInBytes());
+        }
+    }
+}
@@ -24,6 +24,8 @@ import sleeper.core.schema.type.IntType;
 import sleeper.core.schema.type.LongType;
 import sleeper.core.schema.type.StringType;
 
+import java.lang.management.ManagementFactory;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class RecordComparatorTest {
@@ -315,4 +317,78 @@ public class RecordComparatorTest {
         assertThat(comparison6).isGreaterThan(0);
         assertThat(comparison7).isZero();
     }
+
+    @Test
+    public void shouldOrderNullKeysLast() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new StringType()))
+                .build();
+        Record record1 = new Record();
+        record1.put("key", "A");
+        Record record2 = new Record();
+        RecordComparator comparator = new RecordComparator(schema);
+
+        // When / Then
+        assertThat(comparator.compare(record1, record2)).isLessThan(0);
+        assertThat(comparator.compare(record2, record1)).isGreaterThan(0);
+        assertThat(comparator.compare(record2, record2)).isZero();
+    }
+
+    @Test
+    public void shouldCompareSortKeyWhenBothRowKeysAreNull() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new StringType()))
+                .sortKeyFields(new Field("sort", new LongType()))
+                .build();
+        Record record1 = new Record();
+        record1.put("sort", 1L);
+        Record record2 = new Record();
+        record2.put("sort", 2L);
+        RecordComparator comparator = new RecordComparator(schema);
+
+        // When / Then
+        assertThat(comparator.compare(record1, record2)).isLessThan(0);
+    }
+
+    @Test
+    public void shouldNotAllocateWhenComparing() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key1", new LongType()), new Field("key2", new StringType()))
+                .sortKeyFields(new Field("sort1", new ByteArrayType()), new Field("sort2", new IntType()))
+                .build();
+        Record record1 = new Record();
+        record1.put("key1", 1L);
+        record1.put("key2", "A");
+        record1.put("sort1", new byte[]{1, 2});
+        record1.put("sort2", 1);
+        Record record2 = new Record();
+        record2.put("key1", 1L);
+        record2.put("key2", "A");
+        record2.put("sort1", new byte[]{1, 2});
+        record2.put("sort2", 2);
+        RecordComparator comparator = new RecordComparator(schema);
+        long baseline = bytesAllocatedBy(() -> {
+        });
+
+        // When
+        long allocated = bytesAllocatedBy(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                comparator.compare(record1, record2);
+            }
+        });
+
+        // Then
+        assertThat(allocated - baseline).isLessThan(1024);
+    }
+
+    private static long bytesAllocatedBy(Runnable runnable) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return threadBean.getThreadAllocatedBytes(threadId) - before;
+    }
 }
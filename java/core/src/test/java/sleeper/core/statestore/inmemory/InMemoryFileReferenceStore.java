@@ -69,10 +69,17 @@ public class InMemoryFileReferenceStore implements FileReferenceStore {
             if (filesByFilename.containsKey(file.getFilename())) {
                 throw new FileAlreadyExistsException(file.getFilename());
             }
+        }
+        for (AllReferencesToAFile file : files) {
             filesByFilename.put(file.getFilename(), file.withCreatedUpdateTime(updateTime));
         }
     }
 
+    @Override
+    public boolean addsFilesAtomically() {
+        return true;
+    }
+
     @Override
     public List<FileReference> getFileReferences() {
         return streamFileReferences().collect(toUnmodifiableList());
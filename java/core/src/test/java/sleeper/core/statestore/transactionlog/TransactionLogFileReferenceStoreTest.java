@@ -20,6 +20,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import sleeper.core.partition.PartitionTree;
 import sleeper.core.schema.type.LongType;
 import sleeper.core.statestore.AllReferencesToAFile;
 import sleeper.core.statestore.AllReferencesToAllFiles;
@@ -490,6 +491,25 @@ public class TransactionLogFileReferenceStoreTest extends InMemoryTransactionLog
             assertThat(store.getFileReferencesWithNoJobId()).containsExactly(right);
         }
 
+        @Test
+        public void shouldReturnFilesWithNoJobIdOrderedByFilenameThenPartition() throws Exception {
+            // Given
+            splitPartition("root", "L", "R", 5);
+            FileReference fileB = factory.rootFile("fileB", 100L);
+            FileReference leftB = splitFile(fileB, "L");
+            FileReference rightB = splitFile(fileB, "R");
+            FileReference rightA = factory.partitionFile("R", "fileA", 100L);
+            FileReference leftC = factory.partitionFile("L", "fileC", 100L);
+            store.addFiles(List.of(rightB, leftC, leftB, rightA));
+
+            // When
+            store.assignJobIds(List.of(
+                    assignJobOnPartitionToFiles("job", "L", List.of("fileC"))));
+
+            // Then
+            assertThat(store.getFileReferencesWithNoJobId()).containsExactly(rightA, leftB, rightB);
+        }
+
         @Test
         public void shouldMarkMultipleFilesWithJobIds() throws Exception {
             // Given
@@ -1157,6 +1177,62 @@ public class TransactionLogFileReferenceStoreTest extends InMemoryTransactionLog
             assertThat(store.getPartitionToReferencedFilesMap())
                     .isEqualTo(Map.of("L", List.of("file")));
         }
+
+        @Test
+        public void shouldReturnFilesInGivenPartitions() throws Exception {
+            // Given
+            splitPartition("root", "L", "R", 5);
+            FileReference rootFile = factory.rootFile("rootFile", 10);
+            FileReference leftFile1 = factory.partitionFile("L", "leftFile1", 10);
+            FileReference leftFile2 = factory.partitionFile("L", "leftFile2", 10);
+            FileReference rightFile = factory.partitionFile("R", "rightFile", 10);
+            store.addFiles(List.of(rootFile, leftFile1, leftFile2, rightFile));
+
+            // When / Then
+            assertThat(store.getFileReferencesInPartitions(List.of("L")))
+                    .containsExactlyInAnyOrder(leftFile1, leftFile2);
+            assertThat(store.getFileReferencesInPartitions(List.of("root", "R")))
+                    .containsExactlyInAnyOrder(rootFile, rightFile);
+        }
+
+        @Test
+        public void shouldReturnFilesInGivenPartitionsAndAncestors() throws Exception {
+            // Given
+            splitPartition("root", "L", "R", 5);
+            splitPartition("L", "LL", "LR", 2);
+            FileReference rootFile = factory.rootFile("rootFile", 10);
+            FileReference leftFile = factory.partitionFile("L", "leftFile", 10);
+            FileReference leftLeftFile = factory.partitionFile("LL", "leftLeftFile", 10);
+            FileReference leftRightFile = factory.partitionFile("LR", "leftRightFile", 10);
+            FileReference rightFile = factory.partitionFile("R", "rightFile", 10);
+            store.addFiles(List.of(rootFile, leftFile, leftLeftFile, leftRightFile, rightFile));
+            PartitionTree tree = new PartitionTree(store.getAllPartitions());
+
+            // When / Then
+            assertThat(store.getFileReferencesInPartitionsAndAncestors(tree, List.of("LL")))
+                    .containsExactlyInAnyOrder(leftLeftFile, leftFile, rootFile);
+        }
+
+        @Test
+        public void shouldUpdateFilesOnEachPartitionWhenFileIsSplitAndCompacted() throws Exception {
+            // Given
+            splitPartition("root", "L", "R", 5);
+            FileReference file = factory.rootFile("file", 100);
+            FileReference leftOutput = factory.partitionFile("L", "leftOutput", 50);
+            store.addFile(file);
+
+            // When
+            SplitFileReferences.from(store).split();
+            store.assignJobIds(List.of(assignJobOnPartitionToFiles("job1", "L", List.of("file"))));
+            store.atomicallyReplaceFileReferencesWithNewOnes(List.of(replaceJobFileReferences(
+                    "job1", "L", List.of("file"), leftOutput)));
+
+            // Then
+            assertThat(store.getPartitionToReferencedFilesMap())
+                    .isEqualTo(Map.of("L", List.of("leftOutput"), "R", List.of("file")));
+            assertThat(store.getFileReferencesWithNoJobId())
+                    .containsExactly(splitFile(file, "R"), leftOutput);
+        }
     }
 
     @Nested
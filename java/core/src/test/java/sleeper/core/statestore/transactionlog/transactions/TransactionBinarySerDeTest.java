@@ -0,0 +1,292 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.statestore.transactionlog.transactions;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsBuilder;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.statestore.AllReferencesToAFile;
+import sleeper.core.statestore.FileReference;
+import sleeper.core.statestore.FileReferenceFactory;
+import sleeper.core.statestore.transactionlog.FileReferenceTransaction;
+import sleeper.core.statestore.transactionlog.PartitionTransaction;
+import sleeper.core.statestore.transactionlog.StateStoreTransaction;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static sleeper.core.schema.SchemaTestHelper.schemaWithKey;
+import static sleeper.core.statestore.AssignJobIdRequest.assignJobOnPartitionToFiles;
+import static sleeper.core.statestore.ReplaceFileReferencesRequest.replaceJobFileReferences;
+import static sleeper.core.statestore.SplitFileReference.referenceForChildPartition;
+import static sleeper.core.statestore.SplitFileReferenceRequest.splitFileToChildPartitions;
+
+public class TransactionBinarySerDeTest {
+
+    private static byte[] whenSerDeThenMatch(Schema schema, StateStoreTransaction<?> transaction) {
+        // When
+        TransactionBinarySerDe serDe = new TransactionBinarySerDe(schema);
+        TransactionType type = TransactionType.getType(transaction);
+        byte[] bytes = serDe.toBytes(transaction);
+
+        // Then
+        assertThat(serDe.toTransaction(type, bytes))
+                .isEqualTo(transaction);
+        return bytes;
+    }
+
+    @Test
+    void shouldSerDeAddFiles() {
+        // Given
+        Schema schema = schemaWithKey("key");
+        PartitionTree partitions = new PartitionsBuilder(schema).singlePartition("root").buildTree();
+        Instant updateTime = Instant.parse("2024-03-26T09:43:01Z");
+        FileReferenceFactory fileFactory = FileReferenceFactory.fromUpdatedAt(partitions, updateTime);
+        FileReferenceTransaction transaction = new AddFilesTransaction(
+                AllReferencesToAFile.newFilesWithReferences(Stream.of(
+                        fileFactory.rootFile("file1.parquet", 100),
+                        fileFactory.rootFile("file2.parquet", 200)))
+                        .map(file -> file.withCreatedUpdateTime(updateTime))
+                        .collect(toUnmodifiableList()));
+
+        // When / Then
+        whenSerDeThenMatch(schema, transaction);
+    }
+
+    @Test
+    void shouldSerDeAddSplitFile() {
+        // Given
+        Schema schema = schemaWithKey("key", new StringType());
+        PartitionTree partitions = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", "p")
+                .buildTree();
+        FileReferenceFactory fileFactory = FileReferenceFactory.from(partitions);
+        FileReference file = fileFactory.rootFile("file.parquet", 200);
+        FileReferenceTransaction transaction = new AddFilesTransaction(
+                AllReferencesToAFile.newFilesWithReferences(Stream.of(
+                        referenceForChildPartition(file, "L"),
+                        referenceForChildPartition(file, "R")))
+                        .collect(toUnmodifiableList()));
+
+        // When / Then
+        whenSerDeThenMatch(schema, transaction);
+    }
+
+    @Test
+    void shouldSerDeAssignJobIds() {
+        // Given
+        FileReferenceTransaction transaction = new AssignJobIdsTransaction(List.of(
+                assignJobOnPartitionToFiles("job1", "root",
+                        List.of("file1.parquet", "file2.parquet")),
+                assignJobOnPartitionToFiles("job2", "L",
+                        List.of("file3.parquet", "file4.parquet"))));
+
+        // When / Then
+        whenSerDeThenMatch(schemaWithKey("key"), transaction);
+    }
+
+    @Test
+    void shouldSerDeClearFiles() {
+        // Given
+        FileReferenceTransaction transaction = new ClearFilesTransaction();
+
+        // When / Then
+        assertThat(whenSerDeThenMatch(schemaWithKey("key"), transaction))
+                .containsExactly(TransactionBinarySerDe.FORMAT_VERSION, 0, 0);
+    }
+
+    @Test
+    void shouldSerDeDeleteFiles() {
+        // Given
+        FileReferenceTransaction transaction = new DeleteFilesTransaction(List.of("file1.parquet", "file2.parquet"));
+
+        // When / Then
+        whenSerDeThenMatch(schemaWithKey("key"), transaction);
+    }
+
+    @Test
+    void shouldSerDeInitialisePartitions() {
+        // Given
+        Schema schema = schemaWithKey("key", new StringType());
+        PartitionTransaction transaction = new InitialisePartitionsTransaction(new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", "p")
+                .splitToNewChildren("L", "LL", "LR", "g")
+                .splitToNewChildren("R", "RL", "RR", "u")
+                .buildList());
+
+        // When / Then
+        whenSerDeThenMatch(schema, transaction);
+    }
+
+    @Test
+    void shouldSerDeReplaceFileReferences() throws Exception {
+        // Given
+        Schema schema = schemaWithKey("key");
+        PartitionTree partitions = new PartitionsBuilder(schema).singlePartition("root").buildTree();
+        FileReferenceFactory fileFactory = FileReferenceFactory.from(partitions);
+        FileReferenceTransaction transaction = new ReplaceFileReferencesTransaction(List.of(
+                replaceJobFileReferences(
+                        "job", "root", List.of("file1.parquet", "file2.parquet"),
+                        fileFactory.rootFile("file3.parquet", 100))));
+
+        // When / Then
+        whenSerDeThenMatch(schema, transaction);
+    }
+
+    @Test
+    void shouldSerDeSplitFileReferences() {
+        // Given
+        Schema schema = schemaWithKey("key", new StringType());
+        PartitionTree partitions = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", "p")
+                .splitToNewChildren("L", "LL", "LR", "g")
+                .buildTree();
+        FileReferenceFactory fileFactory = FileReferenceFactory.from(partitions);
+        FileReferenceTransaction transaction = new SplitFileReferencesTransaction(List.of(
+                splitFileToChildPartitions(
+                        fileFactory.rootFile("file1.parquet", 100), "L", "R"),
+                splitFileToChildPartitions(
+                        fileFactory.partitionFile("L", "file2.parquet", 200), "LL", "LR")));
+
+        // When / Then
+        whenSerDeThenMatch(schema, transaction);
+    }
+
+    @Test
+    void shouldSerDeSplitPartition() {
+        // Given
+        Schema schema = schemaWithKey("key", new StringType());
+        PartitionTree partitions = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", "p")
+                .splitToNewChildren("L", "LL", "LR", "g")
+                .buildTree();
+        PartitionTransaction transaction = new SplitPartitionTransaction(
+                partitions.getPartition("L"),
+                List.of(partitions.getPartition("LL"), partitions.getPartition("LR")));
+
+        // When / Then
+        whenSerDeThenMatch(schema, transaction);
+    }
+
+    @Test
+    void shouldSerialiseLargeAddFilesTransactionSmallerThanJson() {
+        // Given
+        Schema schema = schemaWithKey("key", new StringType());
+        List<String> leafIds = IntStream.range(0, 100)
+                .mapToObj(i -> "partition-" + i)
+                .collect(toUnmodifiableList());
+        List<Object> splitPoints = IntStream.range(1, 100)
+                .mapToObj(i -> StringUtils.leftPad(i + "", 4, "0"))
+                .collect(toUnmodifiableList());
+        PartitionTree partitions = new PartitionsBuilder(schema)
+                .leavesWithSplits(leafIds, splitPoints)
+                .anyTreeJoiningAllLeaves()
+                .buildTree();
+        FileReferenceFactory fileFactory = FileReferenceFactory.from(partitions);
+        FileReferenceTransaction transaction = new AddFilesTransaction(
+                AllReferencesToAFile.newFilesWithReferences(IntStream.range(0, 1000)
+                        .mapToObj(i -> fileFactory.partitionFile(leafIds.get(i % 100),
+                                "s3a://test-bucket/table-id/data/partition_" + leafIds.get(i % 100) + "/file-" + i + ".parquet", i)))
+                        .collect(toUnmodifiableList()));
+
+        // When
+        byte[] bytes = whenSerDeThenMatch(schema, transaction);
+        String json = new TransactionSerDe(schema).toJson(transaction);
+
+        // Then
+        assertThat(bytes.length).isLessThan(json.getBytes(StandardCharsets.UTF_8).length / 5);
+    }
+
+    @Test
+    void shouldSerialiseTooManyPartitionsForJsonToFitInOneDynamoDBItem() {
+        // Given
+        Schema schema = schemaWithKey("key", new StringType());
+        List<String> leafIds = IntStream.range(0, 250)
+                .mapToObj(i -> "" + i)
+                .collect(toUnmodifiableList());
+        List<Object> splitPoints = LongStream.range(1, 250)
+                .mapToObj(i -> StringUtils.repeat("abc", 100) // Use a long split point
+                        + StringUtils.leftPad(i + "", 4, "0"))
+                .collect(toUnmodifiableList());
+        PartitionTree partitions = new PartitionsBuilder(schema)
+                .leavesWithSplits(leafIds, splitPoints)
+                .anyTreeJoiningAllLeaves()
+                .buildTree();
+        PartitionTransaction transaction = new InitialisePartitionsTransaction(partitions.getAllPartitions());
+
+        // When
+        byte[] bytes = whenSerDeThenMatch(schema, transaction);
+
+        // Then
+        assertThat(bytes.length).isLessThan(350 * 1024);
+    }
+
+    @Test
+    void shouldSerDeFileReferencesWithMinimumAndMaximumRecordCounts() {
+        // Given
+        Schema schema = schemaWithKey("key");
+        FileReferenceFactory fileFactory = FileReferenceFactory.from(new PartitionsBuilder(schema).singlePartition("root").buildTree());
+        FileReferenceTransaction transaction = new AddFilesTransaction(
+                AllReferencesToAFile.newFilesWithReferences(Stream.of(
+                        fileFactory.rootFile("file1.parquet", 0),
+                        fileFactory.rootFile("file2.parquet", Long.MAX_VALUE)))
+                        .collect(toUnmodifiableList()));
+
+        // When / Then
+        whenSerDeThenMatch(schema, transaction);
+    }
+
+    @Test
+    void shouldRefuseFileReferenceReadFromJsonWithNoRecordCount() {
+        // Given
+        Schema schema = schemaWithKey("key");
+        StateStoreTransaction<?> transaction = new TransactionSerDe(schema).toTransaction(TransactionType.ADD_FILES,
+                "{\"files\":[{\"filename\":\"file.parquet\",\"references\":[{\"partitionId\":\"root\"}]}]}");
+        TransactionBinarySerDe serDe = new TransactionBinarySerDe(schema);
+
+        // When / Then
+        assertThatThrownBy(() -> serDe.toBytes(transaction))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("File reference has no number of records, for file file.parquet in partition root");
+    }
+
+    @Test
+    void shouldRefuseUnrecognisedFormatVersion() {
+        // Given
+        TransactionBinarySerDe serDe = new TransactionBinarySerDe(schemaWithKey("key"));
+        byte[] json = "{}".getBytes(StandardCharsets.UTF_8);
+
+        // When / Then
+        assertThatThrownBy(() -> serDe.toTransaction(TransactionType.CLEAR_FILES, json))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unrecognised transaction format version: 123");
+    }
+}
@@ -24,6 +24,7 @@ import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.validation.IngestFileWritingStrategy;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.iterator.IteratorCreationException;
+import sleeper.core.partition.LeafPartitionIndex;
 import sleeper.core.partition.Partition;
 import sleeper.core.partition.PartitionTree;
 import sleeper.core.record.Record;
@@ -39,15 +40,28 @@ import sleeper.ingest.impl.recordbatch.RecordBatch;
 import sleeper.ingest.impl.recordbatch.RecordBatchFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.DecimalFormat;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
 import static java.util.Objects.requireNonNullElseGet;
+import static sleeper.configuration.properties.instance.IngestProperty.INGEST_BACKGROUND_FLUSH_BATCHES;
+import static sleeper.configuration.properties.instance.IngestProperty.INGEST_PARTITION_FILE_WRITER_THREADS;
 import static sleeper.configuration.properties.instance.IngestProperty.INGEST_PARTITION_REFRESH_PERIOD_IN_SECONDS;
 import static sleeper.configuration.properties.table.TableProperty.INGEST_FILE_WRITING_STRATEGY;
 import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CLASS_NAME;
@@ -107,14 +121,21 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
     private final int ingestPartitionRefreshFrequencyInSeconds;
     private final RecordBatchFactory<INCOMINGDATATYPE> recordBatchFactory;
     private final PartitionFileWriterFactory partitionFileWriterFactory;
+    private final ExecutorService partitionFileWriterExecutor;
+    private final ExecutorService backgroundFlushExecutor;
+    private final int maxBackgroundFlushBatches;
+    private final Deque<CompletableFuture<?>> backgroundFlushes = new ArrayDeque<>();
+    private final List<CompletableFuture<CompletableFuture<List<FileReference>>>> backgroundFlushResults = new ArrayList<>();
+    private final Set<RecordBatch<INCOMINGDATATYPE>> batchesWaitingToFlush = ConcurrentHashMap.newKeySet();
     private final IngesterIntoPartitions ingesterIntoPartitions;
     private final List<CompletableFuture<List<FileReference>>> ingestFutures;
     private final Instant ingestCoordinatorCreationTime;
     protected RecordBatch<INCOMINGDATATYPE> currentRecordBatch;
     private Instant lastPartitionsUpdateTime;
     private long recordsRead;
-    private PartitionTree partitionTree;
+    private LeafPartitionIndex leafPartitionIndex;
     private boolean isClosed;
+    private volatile boolean isAborted;
 
     private IngestCoordinator(Builder<INCOMINGDATATYPE> builder) {
         LOGGER.info("Creating IngestCoordinator with schema of {}", builder.schema);
@@ -134,8 +155,17 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
         this.ingestCoordinatorCreationTime = Instant.now();
         this.ingestFutures = new ArrayList<>();
         this.partitionFileWriterFactory = requireNonNull(builder.partitionFileWriterFactory);
+        this.partitionFileWriterExecutor = builder.partitionFileWriterThreads > 1
+                ? Executors.newFixedThreadPool(builder.partitionFileWriterThreads)
+                : null;
         this.ingesterIntoPartitions = new IngesterIntoPartitions(sleeperSchema,
-                partitionFileWriterFactory::createPartitionFileWriter, builder.ingestFileWritingStrategy);
+                partitionFileWriterFactory::createPartitionFileWriter, builder.ingestFileWritingStrategy,
+                partitionFileWriterExecutor);
+        this.maxBackgroundFlushBatches = builder.backgroundFlushBatches;
+        // Batches are flushed one at a time, so that files are added to the state store in the order they were written
+        this.backgroundFlushExecutor = maxBackgroundFlushBatches > 0
+                ? Executors.newSingleThreadExecutor()
+                : null;
         this.currentRecordBatch = this.recordBatchFactory.createRecordBatch();
         this.isClosed = false;
     }
@@ -154,6 +184,10 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
      * Commits data to the Sleeper table and state store if the current record batch is full. If the current
      * {@link RecordBatch} reports it is full, retrieve the records from the batch in sorted order, apply a Sleeper
      * iterator if required, split the sorted data into partitions and ingest the partitions into the back-end store.
+     * <p>
+     * If batches are flushed in the background, the full batch is passed to a background thread and a new batch is
+     * created straight away to accept more data. This only blocks if the maximum number of batches are already being
+     * flushed.
      *
      * @param  isClosing                 Indicates that the {@link IngestCoordinator} is closing, so force the ingest,
      *                                   even if the record batch is not full, and do not recreate internal data
@@ -170,40 +204,112 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
         if (isClosing || currentRecordBatch.isFull()) {
             // Update view of partitions if necessary
             updatePartitionTreeIfNecessary();
-            // Apply the Sleeper iterator to the record batch, within a try-with-resources block. This will ensure that
-            // the iterators are closed in both success and failure
-            try (CloseableIterator<Record> orderedRecordIteratorFromBatch = currentRecordBatch.createOrderedRecordIterator();
-                    CloseableIterator<Record> recordIteratorWithSleeperIteratorApplied = new RecordIteratorWithSleeperIteratorApplied(
-                            objectFactory,
-                            sleeperSchema,
-                            sleeperIteratorClassName,
-                            sleeperIteratorConfig,
-                            orderedRecordIteratorFromBatch)) {
-                // Create a future which completes once the partitions are created, the records ingested
-                // and the state store updated.
-                // Note that once initiateIngest() has been called, below, the record batch has been consumed and is no
-                // longer required.
-                CompletableFuture<List<FileReference>> consumedFuture = ingesterIntoPartitions
-                        .initiateIngest(recordIteratorWithSleeperIteratorApplied, partitionTree)
-                        .thenApply(fileReferenceList -> {
-                            try {
-                                addFilesToStateStore.addFiles(fileReferenceList);
-                            } catch (StateStoreException e) {
-                                throw new RuntimeException(e);
-                            }
-                            return fileReferenceList;
-                        });
-                ingestFutures.add(consumedFuture);
+            RecordBatch<INCOMINGDATATYPE> fullRecordBatch = currentRecordBatch;
+            currentRecordBatch = null;
+            if (backgroundFlushExecutor == null) {
+                ingestFutures.add(ingestRecordBatch(fullRecordBatch, leafPartitionIndex));
+            } else {
+                waitForBackgroundFlushesBelow(maxBackgroundFlushBatches);
+                LeafPartitionIndex flushPartitionIndex = leafPartitionIndex;
+                batchesWaitingToFlush.add(fullRecordBatch);
+                CompletableFuture<CompletableFuture<List<FileReference>>> flushFuture = CompletableFuture.supplyAsync(() -> {
+                    if (!batchesWaitingToFlush.remove(fullRecordBatch)) {
+                        throw new CancellationException("Record batch was closed before it was flushed");
+                    }
+                    if (isAborted) {
+                        closeRecordBatch(fullRecordBatch);
+                        throw new CancellationException("Ingest was aborted before record batch was flushed");
+                    }
+                    try {
+                        return ingestRecordBatch(fullRecordBatch, flushPartitionIndex);
+                    } catch (IteratorCreationException | IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, backgroundFlushExecutor);
+                backgroundFlushes.add(flushFuture);
+                backgroundFlushResults.add(flushFuture);
+                ingestFutures.add(flushFuture.thenCompose(future -> future));
             }
-            // The record batch has now been consumed and so close it.
-            currentRecordBatch.close();
             currentRecordBatch = (isClosing) ? null : recordBatchFactory.createRecordBatch();
         }
     }
 
+    /**
+     * Ingests the records in a batch into partition files, and closes the batch. The returned future completes once
+     * the partition files are written and the state store is updated.
+     *
+     * @param  recordBatch               the batch of records
+     * @param  leafPartitionIndex        an index of the partition tree to split the records into partitions
+     * @return                           a future which completes once the files have been added to the state store
+     * @throws IOException               if there was a failure writing the new files
+     * @throws IteratorCreationException if there was a failure creating the Sleeper iterator
+     */
+    private CompletableFuture<List<FileReference>> ingestRecordBatch(
+            RecordBatch<INCOMINGDATATYPE> recordBatch, LeafPartitionIndex leafPartitionIndex) throws IteratorCreationException, IOException {
+        CompletableFuture<List<FileReference>> consumedFuture;
+        // Apply the Sleeper iterator to the record batch, within a try-with-resources block. This will ensure that
+        // the iterators are closed in both success and failure
+        try (recordBatch;
+                CloseableIterator<Record> orderedRecordIteratorFromBatch = recordBatch.createOrderedRecordIterator();
+                CloseableIterator<Record> recordIteratorWithSleeperIteratorApplied = new RecordIteratorWithSleeperIteratorApplied(
+                        objectFactory,
+                        sleeperSchema,
+                        sleeperIteratorClassName,
+                        sleeperIteratorConfig,
+                        orderedRecordIteratorFromBatch)) {
+            // Create a future which completes once the partitions are created, the records ingested
+            // and the state store updated.
+            // Note that once initiateIngest() has been called, below, the record batch has been consumed and is no
+            // longer required, so it is closed at the end of this block.
+            consumedFuture = ingesterIntoPartitions
+                    .initiateIngest(recordIteratorWithSleeperIteratorApplied, leafPartitionIndex)
+                    .thenApply(fileReferenceList -> {
+                        try {
+                            addFilesToStateStore.addFiles(fileReferenceList);
+                        } catch (StateStoreException e) {
+                            throw new RuntimeException(e);
+                        }
+                        return fileReferenceList;
+                    });
+        }
+        return consumedFuture;
+    }
+
+    /**
+     * Waits until fewer than the given number of record batches are being flushed in the background. Fails if a
+     * background flush failed.
+     *
+     * @param  maxFlushing the number of batches that may still be flushing
+     * @throws IOException if a background flush failed, or this thread was interrupted
+     */
+    private void waitForBackgroundFlushesBelow(int maxFlushing) throws IOException {
+        for (CompletableFuture<?> flush : backgroundFlushes) {
+            if (flush.isCompletedExceptionally()) {
+                awaitBackgroundFlush(flush);
+            }
+        }
+        backgroundFlushes.removeIf(CompletableFuture::isDone);
+        while (backgroundFlushes.size() >= maxFlushing) {
+            awaitBackgroundFlush(backgroundFlushes.poll());
+        }
+    }
+
+    private static void awaitBackgroundFlush(CompletableFuture<?> flush) throws IOException {
+        try {
+            flush.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for record batch to flush");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new IOException("Failed flushing record batch in background", cause);
+        }
+    }
+
     /**
      * Retrieves the partition tree from the state store if the current view is out of date. If too much time has
-     * elapsed since the last refresh, it queries the {@link StateStore} to retrieve the current partition tree.
+     * elapsed since the last refresh, it queries the {@link StateStore} to retrieve the current partition tree. The
+     * tree is indexed once here, and the index is shared by every record batch ingested until the next refresh.
      *
      * @throws StateStoreException if there was a failure reading partitions from the state store
      */
@@ -223,7 +329,7 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
 
         LOGGER.debug("Loading partitions from state store {}", addFilesToStateStore);
         List<Partition> allPartitions = sleeperStateStore.getAllPartitions();
-        partitionTree = new PartitionTree(allPartitions);
+        leafPartitionIndex = LeafPartitionIndex.from(sleeperSchema, new PartitionTree(allPartitions));
         lastPartitionsUpdateTime = Instant.now();
         LOGGER.info("There are {} partitions", allPartitions.size());
     }
@@ -283,8 +389,12 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
         initiateIngestIfNecessary(true);
         // There are many futures which have been created. Create a future which waits for them all to complete
         // and then returns a flattened list of all of the FileReference objects which were passed to the state store
-        return CompletableFuture.allOf(ingestFutures.toArray(new CompletableFuture[0]))
-                .whenComplete((msg, ex) -> internalClose())
+        CompletableFuture<Void> allIngested = CompletableFuture.allOf(ingestFutures.toArray(new CompletableFuture[0]));
+        // If batches are flushed in the background, the last ingest may complete on the background thread. That thread
+        // cannot wait for itself to finish, so release resources on another thread.
+        return (backgroundFlushExecutor == null
+                ? allIngested.whenComplete((msg, ex) -> internalClose())
+                : allIngested.whenCompleteAsync((msg, ex) -> internalClose()))
                 .thenApply(dummy -> {
                     List<FileReference> filesWritten = ingestFutures.stream().map(CompletableFuture::join)
                             .flatMap(List::stream).collect(Collectors.toList());
@@ -304,11 +414,54 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
      */
     public void abort() {
         LOGGER.info("Aborting ingest");
+        isAborted = true;
+        // Any batch waiting to be flushed in the background will be closed without being flushed. Once the background
+        // flushes have finished, we can cancel the ingest of the batches that were flushed.
+        stopBackgroundFlushes();
+        for (CompletableFuture<CompletableFuture<List<FileReference>>> flush : backgroundFlushResults) {
+            if (flush.isDone() && !flush.isCompletedExceptionally()) {
+                flush.join().cancel(true);
+            }
+        }
         ingestFutures.forEach(future -> future.cancel(true));
         internalClose();
         LOGGER.info("Ingest aborted");
     }
 
+    /**
+     * Waits for any record batches being flushed in the background, so that they are closed before the factories. If
+     * this times out or is interrupted, any batches that have not started flushing are closed without being flushed.
+     */
+    private void stopBackgroundFlushes() {
+        if (backgroundFlushExecutor == null) {
+            return;
+        }
+        backgroundFlushExecutor.shutdown();
+        try {
+            if (!backgroundFlushExecutor.awaitTermination(5, TimeUnit.MINUTES)) {
+                LOGGER.error("Timed out waiting for record batch to finish flushing");
+                backgroundFlushExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted waiting for record batch to finish flushing", e);
+            backgroundFlushExecutor.shutdownNow();
+        }
+        for (RecordBatch<INCOMINGDATATYPE> batch : batchesWaitingToFlush) {
+            if (batchesWaitingToFlush.remove(batch)) {
+                closeRecordBatch(batch);
+            }
+        }
+    }
+
+    private static void closeRecordBatch(RecordBatch<?> batch) {
+        try {
+            batch.close();
+        } catch (Exception e) {
+            LOGGER.error("Failed to close record batch", e);
+        }
+    }
+
     /**
      * Release internal data structures.
      */
@@ -321,6 +474,10 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
             }
         }
         currentRecordBatch = null;
+        stopBackgroundFlushes();
+        if (partitionFileWriterExecutor != null) {
+            partitionFileWriterExecutor.shutdownNow();
+        }
         try {
             partitionFileWriterFactory.close();
         } catch (Exception e) {
@@ -365,6 +522,8 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
         private RecordBatchFactory<T> recordBatchFactory;
         private PartitionFileWriterFactory partitionFileWriterFactory;
         private IngestFileWritingStrategy ingestFileWritingStrategy = IngestFileWritingStrategy.ONE_FILE_PER_LEAF;
+        private int partitionFileWriterThreads = 1;
+        private int backgroundFlushBatches = 0;
 
         Builder() {
         }
@@ -480,9 +639,37 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
             return this;
         }
 
+        /**
+         * The number of threads to write partition files in parallel, when creating one file per leaf partition.
+         * Defaults to 1, which writes all partition files on the thread that calls the ingest coordinator.
+         *
+         * @param  partitionFileWriterThreads the number of threads
+         * @return                            the builder for call chaining
+         */
+        public Builder<T> partitionFileWriterThreads(int partitionFileWriterThreads) {
+            this.partitionFileWriterThreads = partitionFileWriterThreads;
+            return this;
+        }
+
+        /**
+         * The maximum number of full record batches to flush in the background while a new batch accepts data.
+         * Defaults to 0, which flushes each batch on the thread that calls the ingest coordinator, blocking writes
+         * until the batch has been written to partition files. The record batch factory must allow for this many
+         * batches to exist at once, in addition to the batch accepting data.
+         *
+         * @param  backgroundFlushBatches the number of batches
+         * @return                        the builder for call chaining
+         */
+        public Builder<T> backgroundFlushBatches(int backgroundFlushBatches) {
+            this.backgroundFlushBatches = backgroundFlushBatches;
+            return this;
+        }
+
         public Builder<T> instanceProperties(InstanceProperties instanceProperties) {
             return ingestPartitionRefreshFrequencyInSeconds(
-                    instanceProperties.getInt(INGEST_PARTITION_REFRESH_PERIOD_IN_SECONDS));
+                    instanceProperties.getInt(INGEST_PARTITION_REFRESH_PERIOD_IN_SECONDS))
+                    .partitionFileWriterThreads(instanceProperties.getInt(INGEST_PARTITION_FILE_WRITER_THREADS))
+                    .backgroundFlushBatches(instanceProperties.getInt(INGEST_BACKGROUND_FLUSH_BATCHES));
         }
 
         public Builder<T> tableProperties(TableProperties tableProperties) {
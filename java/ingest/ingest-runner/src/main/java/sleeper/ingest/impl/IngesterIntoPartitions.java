@@ -20,14 +20,14 @@ import org.slf4j.LoggerFactory;
 
 import sleeper.configuration.properties.validation.IngestFileWritingStrategy;
 import sleeper.core.iterator.CloseableIterator;
-import sleeper.core.key.Key;
+import sleeper.core.partition.LeafPartitionIndex;
 import sleeper.core.partition.Partition;
-import sleeper.core.partition.PartitionTree;
 import sleeper.core.range.Range;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Schema;
 import sleeper.core.statestore.FileReference;
 import sleeper.ingest.impl.partitionfilewriter.PartitionFileWriter;
+import sleeper.ingest.impl.partitionfilewriter.QueuedPartitionFileWriter;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -37,6 +37,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -49,27 +50,36 @@ import static java.util.Objects.requireNonNull;
  */
 class IngesterIntoPartitions {
     private static final Logger LOGGER = LoggerFactory.getLogger(IngesterIntoPartitions.class);
+    private static final int PARALLEL_WRITE_BATCH_SIZE = 1000;
+    private static final int PARALLEL_WRITE_MAX_QUEUED_BATCHES = 4;
 
     private final Function<Partition, PartitionFileWriter> partitionFileWriterFactoryFn;
     private final Schema sleeperSchema;
     private final IngestFileWritingStrategy ingestFileWritingStrategy;
+    private final ExecutorService partitionFileWriterExecutor;
 
     /**
-     * Create an instance.
+     * Create an instance. If an executor is given and one file is created per leaf partition, records for each
+     * partition are passed in batches through a bounded queue, and files for different partitions are written in
+     * parallel on the executor. Records are still written to each file in sort order.
      *
      * @param sleeperSchema                the Sleeper schema
      * @param partitionFileWriterFactoryFn a function which takes a {@link Partition} and returns the
      *                                     {@link PartitionFileWriter} which will write {@link Record} objects to that
      *                                     partition
      * @param ingestFileWritingStrategy    how files and references should be created during ingest
+     * @param partitionFileWriterExecutor  the executor to write partition files, or null to write all files on the
+     *                                     calling thread
      */
     IngesterIntoPartitions(
             Schema sleeperSchema,
             Function<Partition, PartitionFileWriter> partitionFileWriterFactoryFn,
-            IngestFileWritingStrategy ingestFileWritingStrategy) {
+            IngestFileWritingStrategy ingestFileWritingStrategy,
+            ExecutorService partitionFileWriterExecutor) {
         this.partitionFileWriterFactoryFn = requireNonNull(partitionFileWriterFactoryFn);
         this.sleeperSchema = requireNonNull(sleeperSchema);
         this.ingestFileWritingStrategy = requireNonNull(ingestFileWritingStrategy);
+        this.partitionFileWriterExecutor = partitionFileWriterExecutor;
     }
 
     /**
@@ -108,27 +118,27 @@ class IngesterIntoPartitions {
      * caller.
      *
      * @param  orderedRecordIterator the {@link Record} objects to write, passed in sort order
-     * @param  partitionTree         the {@link PartitionTree} to used to determine which partition to place each record
-     *                               in
+     * @param  leafPartitionIndex    an index of the partition tree, used to determine which partition to place each
+     *                               record in
      * @return                       a {@link CompletableFuture} which completes to return a list of
      *                               {@link FileReference} objects, one for each partition file that has been created
      * @throws IOException           if there was a failure writing the file
      */
     public CompletableFuture<List<FileReference>> initiateIngest(
-            CloseableIterator<Record> orderedRecordIterator, PartitionTree partitionTree) throws IOException {
+            CloseableIterator<Record> orderedRecordIterator, LeafPartitionIndex leafPartitionIndex) throws IOException {
         if (ingestFileWritingStrategy == IngestFileWritingStrategy.ONE_FILE_PER_LEAF) {
-            return ingestOneFilePerLeafPartition(orderedRecordIterator, partitionTree);
+            return ingestOneFilePerLeafPartition(orderedRecordIterator, leafPartitionIndex);
         } else if (ingestFileWritingStrategy == IngestFileWritingStrategy.ONE_REFERENCE_PER_LEAF) {
-            return ingestOneFileWithReferencesInLeafPartitions(orderedRecordIterator, partitionTree);
+            return ingestOneFileWithReferencesInLeafPartitions(orderedRecordIterator, leafPartitionIndex);
         } else {
             throw new IllegalArgumentException("Unknown ingest file writing strategy: " + ingestFileWritingStrategy);
         }
     }
 
     public CompletableFuture<List<FileReference>> ingestOneFilePerLeafPartition(
-            CloseableIterator<Record> orderedRecordIterator, PartitionTree partitionTree) throws IOException {
-        List<String> rowKeyNames = sleeperSchema.getRowKeyFieldNames();
-        String firstDimensionRowKey = rowKeyNames.get(0);
+            CloseableIterator<Record> orderedRecordIterator, LeafPartitionIndex leafPartitionIndex) throws IOException {
+        LeafPartitionIndex.SequentialLookup leafPartitionLookup = leafPartitionIndex.sequentialLookup();
+        String firstDimensionRowKey = sleeperSchema.getRowKeyFieldNames().get(0);
         Map<String, PartitionFileWriter> partitionIdToFileWriterMap = new HashMap<>();
         Range currentFirstDimensionRange = null;
         // Set up various flags, counters and the like which will be updated as the write progresses
@@ -150,20 +160,20 @@ class IngesterIntoPartitions {
         try {
             while (orderedRecordIterator.hasNext()) {
                 Record record = orderedRecordIterator.next();
-                Key key = Key.create(record.getValues(rowKeyNames));
+                Partition partition = leafPartitionLookup.getLeafPartition(record);
                 // Ensure that the current partition is the correct one for the new record
-                if (currentPartition == null || !currentPartition.isRowKeyInPartition(sleeperSchema, key)) {
+                if (partition != currentPartition) {
                     // Close all of the current partition file writers if the first dimension has changed.
                     if (currentFirstDimensionRange != null &&
                             !currentFirstDimensionRange.doesRangeContainObject(record.get(firstDimensionRowKey))) {
                         completableFutures.addAll(closeMultiplePartitionFileWriters(partitionIdToFileWriterMap.values()));
                         partitionIdToFileWriterMap.clear();
                     }
-                    currentPartition = partitionTree.getLeafPartition(sleeperSchema, key);
+                    currentPartition = partition;
                     currentFirstDimensionRange = currentPartition.getRegion().getRange(firstDimensionRowKey);
                     // Create a new partition file writer if required
                     if (!partitionIdToFileWriterMap.containsKey(currentPartition.getId())) {
-                        partitionIdToFileWriterMap.put(currentPartition.getId(), partitionFileWriterFactoryFn.apply(currentPartition));
+                        partitionIdToFileWriterMap.put(currentPartition.getId(), createLeafPartitionFileWriter(currentPartition));
                     }
                     currentPartitionFileWriter = partitionIdToFileWriterMap.get(currentPartition.getId());
                 }
@@ -184,22 +194,34 @@ class IngesterIntoPartitions {
                         .collect(Collectors.toList()));
     }
 
+    private PartitionFileWriter createLeafPartitionFileWriter(Partition partition) {
+        PartitionFileWriter writer = partitionFileWriterFactoryFn.apply(partition);
+        if (partitionFileWriterExecutor == null) {
+            return writer;
+        } else {
+            return new QueuedPartitionFileWriter(writer, partitionFileWriterExecutor,
+                    PARALLEL_WRITE_BATCH_SIZE, PARALLEL_WRITE_MAX_QUEUED_BATCHES);
+        }
+    }
+
     public CompletableFuture<List<FileReference>> ingestOneFileWithReferencesInLeafPartitions(
-            CloseableIterator<Record> orderedRecordIterator, PartitionTree partitionTree) throws IOException {
-        List<String> rowKeyNames = sleeperSchema.getRowKeyFieldNames();
-        Map<String, Long> partitionIdToRecordCount = new HashMap<>();
+            CloseableIterator<Record> orderedRecordIterator, LeafPartitionIndex leafPartitionIndex) throws IOException {
+        LeafPartitionIndex.SequentialLookup leafPartitionLookup = leafPartitionIndex.sequentialLookup();
+        // Counts are held in arrays, so that a count can be incremented without a map lookup for every record
+        Map<String, long[]> partitionIdToRecordCount = new HashMap<>();
         Partition currentPartition = null;
-        PartitionFileWriter rootFileWriter = partitionFileWriterFactoryFn.apply(partitionTree.getRootPartition());
+        long[] currentRecordCount = null;
+        PartitionFileWriter rootFileWriter = partitionFileWriterFactoryFn.apply(leafPartitionIndex.getRootPartition());
         try {
             while (orderedRecordIterator.hasNext()) {
                 Record record = orderedRecordIterator.next();
                 rootFileWriter.append(record);
-                Key key = Key.create(record.getValues(rowKeyNames));
-                if (currentPartition == null || !currentPartition.isRowKeyInPartition(sleeperSchema, key)) {
-                    currentPartition = partitionTree.getLeafPartition(sleeperSchema, key);
+                Partition partition = leafPartitionLookup.getLeafPartition(record);
+                if (partition != currentPartition) {
+                    currentPartition = partition;
+                    currentRecordCount = partitionIdToRecordCount.computeIfAbsent(partition.getId(), id -> new long[1]);
                 }
-                partitionIdToRecordCount.compute(currentPartition.getId(),
-                        (partitionId, recordCount) -> (recordCount == null) ? 1 : recordCount + 1);
+                currentRecordCount[0]++;
             }
         } catch (Exception e) {
             rootFileWriter.abort();
@@ -210,7 +232,7 @@ class IngesterIntoPartitions {
                 .map((entry) -> FileReference.builder()
                         .partitionId(entry.getKey())
                         .filename(rootFile.getFilename())
-                        .numberOfRecords(entry.getValue())
+                        .numberOfRecords(entry.getValue()[0])
                         .countApproximate(false)
                         .onlyContainsDataForThisPartition(hasOnePartition)
                         .build())
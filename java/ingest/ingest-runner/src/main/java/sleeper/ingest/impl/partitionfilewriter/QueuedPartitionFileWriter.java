@@ -0,0 +1,192 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.partitionfilewriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.core.record.Record;
+import sleeper.core.statestore.FileReference;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Writes records to a partition file on a thread pool, so that files for different partitions can be written in
+ * parallel. Records are appended in batches to a bounded queue. When the queue is full, appending blocks until the
+ * batches ahead of it have been written.
+ * <p>
+ * At most one batch for a given partition file is written at a time, so records are written to the underlying
+ * {@link PartitionFileWriter} in the order they were appended. The thread pool can be shared between partition files,
+ * and no thread is blocked waiting for records.
+ */
+public class QueuedPartitionFileWriter implements PartitionFileWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueuedPartitionFileWriter.class);
+
+    private final PartitionFileWriter writer;
+    private final Executor executor;
+    private final int batchSize;
+    private final int maxQueuedBatches;
+    private final CompletableFuture<CompletableFuture<FileReference>> closeFuture = new CompletableFuture<>();
+    private final Deque<List<Record>> queue = new ArrayDeque<>();
+    private List<Record> batch;
+    private boolean writing;
+    private boolean closeRequested;
+    private boolean aborted;
+    private Throwable failure;
+
+    public QueuedPartitionFileWriter(PartitionFileWriter writer, Executor executor, int batchSize, int maxQueuedBatches) {
+        this.writer = writer;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxQueuedBatches = maxQueuedBatches;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void append(Record record) throws IOException {
+        batch.add(record);
+        if (batch.size() >= batchSize) {
+            enqueueBatch();
+        }
+    }
+
+    /**
+     * Closes the file after all queued records have been written. The underlying writer is closed on the thread pool,
+     * so that the final part of each file can also be written in parallel.
+     *
+     * @return             details about the new partition file
+     * @throws IOException if writing a previous batch failed, or this thread was interrupted waiting for the queue
+     */
+    @Override
+    public CompletableFuture<FileReference> close() throws IOException {
+        if (!batch.isEmpty()) {
+            enqueueBatch();
+        }
+        synchronized (this) {
+            checkFailure();
+            closeRequested = true;
+            startWritingIfIdle();
+        }
+        return closeFuture.thenCompose(future -> future);
+    }
+
+    @Override
+    public void abort() {
+        synchronized (this) {
+            aborted = true;
+            queue.clear();
+            notifyAll();
+            while (writing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.warn("Interrupted waiting for partition file writer to stop before aborting");
+                    break;
+                }
+            }
+        }
+        closeFuture.cancel(false);
+        writer.abort();
+    }
+
+    private void enqueueBatch() throws IOException {
+        List<Record> enqueuing = batch;
+        batch = new ArrayList<>(batchSize);
+        synchronized (this) {
+            while (queue.size() >= maxQueuedBatches && failure == null && !aborted) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for space in partition file writer queue");
+                }
+            }
+            checkFailure();
+            if (aborted) {
+                return;
+            }
+            queue.add(enqueuing);
+            startWritingIfIdle();
+        }
+    }
+
+    private void startWritingIfIdle() {
+        if (!writing) {
+            writing = true;
+            executor.execute(this::writeQueue);
+        }
+    }
+
+    private void writeQueue() {
+        while (true) {
+            List<Record> writingBatch;
+            boolean closing;
+            synchronized (this) {
+                writingBatch = queue.poll();
+                closing = writingBatch == null && closeRequested && !aborted;
+                if (writingBatch == null && !closing) {
+                    writing = false;
+                    notifyAll();
+                    return;
+                }
+                // Space in the queue
+                notifyAll();
+            }
+            boolean finished = true;
+            try {
+                if (closing) {
+                    closeFuture.complete(writer.close());
+                } else {
+                    for (Record record : writingBatch) {
+                        writer.append(record);
+                    }
+                    finished = false;
+                }
+            } catch (Throwable e) {
+                // Errors are also recorded, e.g. if memory runs out, so that the caller does not wait forever
+                synchronized (this) {
+                    failure = e;
+                    queue.clear();
+                }
+                closeFuture.completeExceptionally(e);
+            } finally {
+                if (finished) {
+                    synchronized (this) {
+                        writing = false;
+                        notifyAll();
+                    }
+                }
+            }
+            if (finished) {
+                return;
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Failed writing partition file", failure);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a local file through a memory mapping. Data is read directly from the page cache, without a system call for
+ * each read. The file is mapped in windows of a fixed size, as a single mapping is limited to 2GB. A window is remapped
+ * when a read falls outside it.
+ * <p>
+ * This is used to read back the files that a record batch spills to local disk. These files are written once and then
+ * read sequentially during the final merge, so they do not need to be decoded through a stream.
+ * <p>
+ * Each window is unmapped as soon as it is replaced, and when the file is closed. Otherwise the mapped memory would only
+ * be released when the buffer is garbage collected, which may be long after the file has been deleted.
+ */
+public class MemoryMappedFile implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryMappedFile.class);
+    private static final long DEFAULT_WINDOW_BYTES = 64L * 1024 * 1024;
+    private static final Unmapper UNMAPPER = Unmapper.create();
+
+    private final FileChannel fileChannel;
+    private final long size;
+    private final long windowBytes;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private MemoryMappedFile(FileChannel fileChannel, long windowBytes) throws IOException {
+        this.fileChannel = fileChannel;
+        this.size = fileChannel.size();
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * Opens a file to read through a memory mapping.
+     *
+     * @param  path        the path to the file
+     * @return             the file
+     * @throws IOException if the file could not be opened
+     */
+    public static MemoryMappedFile open(Path path) throws IOException {
+        return open(path, DEFAULT_WINDOW_BYTES);
+    }
+
+    /**
+     * Opens a file to read through a memory mapping, with a given size of window to map at once.
+     *
+     * @param  path        the path to the file
+     * @param  windowBytes the number of bytes to map at once, unless a single read needs more
+     * @return             the file
+     * @throws IOException if the file could not be opened
+     */
+    public static MemoryMappedFile open(Path path, long windowBytes) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MemoryMappedFile(channel, windowBytes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Retrieves a range of the file. The returned buffer is a view over the memory mapping, and is only valid until
+     * the next call to this method.
+     *
+     * @param  position    the position in the file to start from
+     * @param  length      the number of bytes to read
+     * @return             a buffer containing exactly the requested bytes
+     * @throws IOException if the range is outside the file, or the file could not be mapped
+     */
+    public ByteBuffer read(long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position + length > size) {
+            throw new EOFException("Cannot read " + length + " bytes at position " + position + " of file with size " + size);
+        }
+        if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+            long mapLength = Math.min(size - position, Math.max(windowBytes, length));
+            unmapWindow();
+            window = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, mapLength);
+            windowStart = position;
+        }
+        ByteBuffer view = window.duplicate();
+        int start = (int) (position - windowStart);
+        view.position(start);
+        view.limit(start + length);
+        return view.slice();
+    }
+
+    /**
+     * Creates a channel to read the file through the memory mapping. The channel shares the mapping with this object,
+     * so only one channel should be used at once.
+     *
+     * @return the channel
+     */
+    public SeekableByteChannel channel() {
+        return new MappedChannel();
+    }
+
+    @Override
+    public void close() throws IOException {
+        unmapWindow();
+        fileChannel.close();
+    }
+
+    private void unmapWindow() {
+        if (window != null) {
+            MappedByteBuffer unmapping = window;
+            window = null;
+            UNMAPPER.unmap(unmapping);
+        }
+    }
+
+    /**
+     * Releases a memory mapping explicitly. The JDK has no public API for this, so this uses the cleaner exposed by
+     * sun.misc.Unsafe. If that is not available, mappings are left to be released by the garbage collector.
+     */
+    @SuppressFBWarnings("DP_DO_INSIDE_DO_PRIVILEGED")
+    private static class Unmapper {
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        private Unmapper(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        static Unmapper create() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                return new Unmapper(theUnsafe.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.warn("Cannot unmap memory mapped files explicitly, mappings will be released on garbage collection", e);
+                return new Unmapper(null, null);
+            }
+        }
+
+        void unmap(MappedByteBuffer buffer) {
+            if (invokeCleaner == null) {
+                return;
+            }
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+                LOGGER.warn("Failed unmapping memory mapped file, mapping will be released on garbage collection", e);
+            }
+        }
+    }
+
+    /**
+     * A read-only channel over the memory mapping.
+     */
+    private class MappedChannel implements SeekableByteChannel {
+        private long position;
+        private boolean open = true;
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            checkOpen();
+            if (position >= size) {
+                return -1;
+            }
+            int length = (int) Math.min(dst.remaining(), Math.min(size - position, windowBytes));
+            dst.put(MemoryMappedFile.this.read(position, length));
+            position += length;
+            return length;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            checkOpen();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            checkOpen();
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("Position must not be negative: " + newPosition);
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            checkOpen();
+            return size;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long newSize) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            MemoryMappedFile.this.close();
+        }
+
+        private void checkOpen() throws ClosedChannelException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Sorts the contents of a record batch before it is written to local disk. Batches at or above a size threshold are
+ * sorted in parallel on the common fork/join pool. Smaller batches are sorted on the calling thread, as splitting the
+ * work would cost more than it saves.
+ */
+public class ParallelSort {
+    /**
+     * The minimum number of elements to sort in parallel. This is also the size below which a parallel sort stops
+     * splitting the work into further tasks.
+     */
+    public static final int MIN_PARALLEL_SORT_SIZE = 1 << 13;
+
+    private ParallelSort() {
+    }
+
+    /**
+     * Sorts a list in place. This is equivalent to {@link List#sort}, but is done in parallel for large lists. The
+     * comparator may be called from multiple threads at once.
+     *
+     * @param <T>        the type of the list elements
+     * @param list       the list to sort
+     * @param comparator the comparator to sort by
+     */
+    public static <T> void sortList(List<T> list, Comparator<? super T> comparator) {
+        if (list.size() < MIN_PARALLEL_SORT_SIZE) {
+            list.sort(comparator);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        T[] array = (T[]) list.toArray();
+        Arrays.parallelSort(array, comparator);
+        ListIterator<T> iterator = list.listIterator();
+        for (T element : array) {
+            iterator.next();
+            iterator.set(element);
+        }
+    }
+
+    /**
+     * Creates a permutation of the indexes from 0 to size - 1, sorted by a comparator over the indexes. This is a
+     * stable merge sort. Above the size threshold, this is done as a fork/join task in the common pool. The comparator
+     * factory is called once for each task, so that each comparator is only used by one thread at a time.
+     *
+     * @param  size              the number of indexes to sort
+     * @param  comparatorFactory creates comparators over the indexes
+     * @return                   the sorted indexes
+     */
+    public static int[] sortedIndexes(int size, Supplier<IndexComparator> comparatorFactory) {
+        int[] indexes = new int[size];
+        Arrays.setAll(indexes, i -> i);
+        int[] buffer = new int[size];
+        SortTask task = new SortTask(indexes, buffer, 0, size, comparatorFactory);
+        if (size < MIN_PARALLEL_SORT_SIZE) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        return indexes;
+    }
+
+    /**
+     * Compares two elements of a collection by their indexes.
+     */
+    @FunctionalInterface
+    public interface IndexComparator {
+
+        /**
+         * Compares the elements at two indexes.
+         *
+         * @param  index1 the index of the first element
+         * @param  index2 the index of the second element
+         * @return        a negative integer, zero, or a positive integer as the first element is less than, equal
+         *                to, or greater than the second
+         */
+        int compare(int index1, int index2);
+    }
+
+    /**
+     * Sorts a range of an array of indexes, using a buffer of the same size as working space.
+     */
+    private static class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] indexes;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final transient Supplier<IndexComparator> comparatorFactory;
+
+        SortTask(int[] indexes, int[] buffer, int from, int to, Supplier<IndexComparator> comparatorFactory) {
+            this.indexes = indexes;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparatorFactory = comparatorFactory;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < MIN_PARALLEL_SORT_SIZE) {
+                mergeSort(comparatorFactory.get(), from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                    new SortTask(indexes, buffer, from, mid, comparatorFactory),
+                    new SortTask(indexes, buffer, mid, to, comparatorFactory));
+            merge(comparatorFactory.get(), from, mid, to);
+        }
+
+        private void mergeSort(IndexComparator comparator, int start, int end) {
+            if (end - start < 2) {
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            mergeSort(comparator, start, mid);
+            mergeSort(comparator, mid, end);
+            merge(comparator, start, mid, end);
+        }
+
+        private void merge(IndexComparator comparator, int start, int mid, int end) {
+            if (comparator.compare(indexes[mid - 1], indexes[mid]) <= 0) {
+                return;
+            }
+            System.arraycopy(indexes, start, buffer, start, end - start);
+            int left = start;
+            int right = mid;
+            for (int i = start; i < end; i++) {
+                if (right >= end || (left < mid && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                    indexes[i] = buffer[left++];
+                } else {
+                    indexes[i] = buffer[right++];
+                }
+            }
+        }
+    }
+}
@@ -15,26 +15,25 @@
  */
 package sleeper.ingest.impl.recordbatch.arraylist;
 
-import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FileSystem;
-import org.apache.hadoop.fs.Path;
-import org.apache.parquet.hadoop.ParquetReader;
-import org.apache.parquet.hadoop.ParquetWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import sleeper.core.iterator.ArrayRecordToRecordIterator;
 import sleeper.core.iterator.CloseableIterator;
-import sleeper.core.iterator.MergingIterator;
+import sleeper.core.iterator.SortedMergingIterator;
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.ArrayRecordComparator;
 import sleeper.core.record.Record;
-import sleeper.core.record.RecordComparator;
-import sleeper.core.schema.Schema;
+import sleeper.core.record.RecordLayout;
 import sleeper.core.util.LoggedDuration;
 import sleeper.ingest.impl.ParquetConfiguration;
+import sleeper.ingest.impl.recordbatch.ParallelSort;
 import sleeper.ingest.impl.recordbatch.RecordBatch;
-import sleeper.io.parquet.record.ParquetReaderIterator;
-import sleeper.io.parquet.record.ParquetRecordReader;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -45,12 +44,16 @@ import static java.util.Objects.requireNonNull;
 
 /**
  * Stores a batch of records in an array in memory. This class implements a {@link RecordBatch} backed by an ArrayList,
- * and spilled to local disk as Parquet files when the ArrayList contains a set number of records. Each time the records
- * are spilled to disk, they are sorted.
+ * and spilled to local disk when the ArrayList contains a set number of records. Each time the records are spilled to
+ * disk, they are sorted. The local files are uncompressed and are read back through a memory mapping, as they never
+ * leave the machine. See {@link ArrayRecordFileWriter}.
  * <p>
  * When the batch is read, all of the sorted files and the sorted in-memory batch are merged together into a single
  * iterator of sorted records.
  * <p>
+ * Records are held in memory, written to local files and merged as {@link ArrayRecord}s, and are only converted back
+ * to {@link Record}s as they are read from the final iterator.
+ * <p>
  * The batch is considered to be full when the local disk contains more than a specified number of records.
  * <p>
  * This class needs a mapper extending the {@link ArrayListRecordMapper} interface. Data is always retrieved from
@@ -61,15 +64,14 @@ import static java.util.Objects.requireNonNull;
 public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGDATATYPE> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ArrayListRecordBatch.class);
     private static final DecimalFormat FORMATTER = new DecimalFormat("0.#");
-    private final ParquetConfiguration parquetConfiguration;
-    private final Schema sleeperSchema;
+    private final RecordLayout recordLayout;
+    private final ArrayRecordComparator recordComparator;
     private final ArrayListRecordMapper<INCOMINGDATATYPE> recordMapper;
     private final String localWorkingDirectory;
     private final int maxNoOfRecordsInMemory;
     private final long maxNoOfRecordsInLocalStore;
-    private final Configuration hadoopConfiguration;
     private final UUID uniqueIdentifier;
-    private final List<Record> inMemoryBatch;
+    private final List<ArrayRecord> inMemoryBatch;
     private final List<String> localFileNames;
     private long noOfRecordsInLocalStore;
     private CloseableIterator<Record> internalOrderedRecordIterator;
@@ -79,10 +81,8 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
     /**
      * Create an instance. Should be called by an {@link ArrayListRecordBatchFactory}.
      *
-     * @param parquetConfiguration       Hadoop, schema and Parquet configuration for writing files.
-     *                                   The Hadoop configuration is used during read and write of the Parquet files.
-     *                                   Note that the library code uses caching and so unusual errors can occur if
-     *                                   different configurations are used in different calls.
+     * @param parquetConfiguration       Hadoop, schema and Parquet configuration. The schema is used to lay out the
+     *                                   records held in memory and written to local files.
      * @param localWorkingDirectory      A local directory to use to store temporary files
      * @param maxNoOfRecordsInMemory     The maximum number of records to store in the internal ArrayList
      * @param maxNoOfRecordsInLocalStore The maximum number of records to store on the local disk
@@ -92,13 +92,12 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
             String localWorkingDirectory,
             int maxNoOfRecordsInMemory,
             long maxNoOfRecordsInLocalStore) {
-        this.parquetConfiguration = requireNonNull(parquetConfiguration);
-        this.sleeperSchema = parquetConfiguration.getTableProperties().getSchema();
+        this.recordLayout = RecordLayout.from(requireNonNull(parquetConfiguration).getTableProperties().getSchema());
+        this.recordComparator = new ArrayRecordComparator(recordLayout);
         this.recordMapper = recordMapper;
         this.localWorkingDirectory = requireNonNull(localWorkingDirectory);
         this.maxNoOfRecordsInMemory = maxNoOfRecordsInMemory;
         this.maxNoOfRecordsInLocalStore = maxNoOfRecordsInLocalStore;
-        this.hadoopConfiguration = parquetConfiguration.getHadoopConfiguration();
         this.uniqueIdentifier = UUID.randomUUID();
         this.internalOrderedRecordIterator = null;
         this.isWriteable = true;
@@ -121,7 +120,7 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
         if (inMemoryBatch.size() >= maxNoOfRecordsInMemory) {
             flushToLocalDiskAndClear();
         }
-        inMemoryBatch.add(record);
+        inMemoryBatch.add(ArrayRecord.fromRecord(recordLayout, record));
     }
 
     /**
@@ -134,17 +133,19 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
             LOGGER.info("There are no records to flush");
         } else {
             Instant startTime = Instant.now();
-            String outputFileName = String.format("%s/localfile-batch-%s-file-%09d.parquet",
+            String outputFileName = String.format("%s/localfile-batch-%s-file-%09d.records",
                     localWorkingDirectory,
                     uniqueIdentifier,
                     batchNo);
-            inMemoryBatch.sort(new RecordComparator(sleeperSchema));
+            ParallelSort.sortList(inMemoryBatch, recordComparator);
             Instant writeTime = Instant.now();
-            // Write the records to a local Parquet file. The try-with-resources block ensures that the writer
+            // Write the records to a local file. The try-with-resources block ensures that the writer
             // is closed in both success and failure.
-            try (ParquetWriter<Record> parquetWriter = parquetConfiguration.createParquetWriter(outputFileName)) {
-                for (Record record : inMemoryBatch) {
-                    parquetWriter.write(record);
+            Files.createDirectories(Paths.get(localWorkingDirectory));
+            Path outputPath = Paths.get(outputFileName);
+            try (ArrayRecordFileWriter writer = new ArrayRecordFileWriter(outputPath, recordLayout)) {
+                for (ArrayRecord record : inMemoryBatch) {
+                    writer.write(record);
                 }
             }
             Instant finishTime = Instant.now();
@@ -200,13 +201,11 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
         isWriteable = false;
         // Flush the current in-memory batch to disk, to free up as much memory as possible for the merge
         flushToLocalDiskAndClear();
-        // Create an iterator for each one of the local Parquet files
-        List<CloseableIterator<Record>> inputIterators = new ArrayList<>();
+        // Create an iterator for each one of the local files
+        List<CloseableIterator<ArrayRecord>> inputIterators = new ArrayList<>();
         try {
             for (String localFileName : localFileNames) {
-                ParquetReader<Record> readerForBatch = createParquetReader(localFileName);
-                ParquetReaderIterator recordIterator = new ParquetReaderIterator(readerForBatch);
-                inputIterators.add(recordIterator);
+                inputIterators.add(new ArrayRecordFileIterator(Paths.get(localFileName), recordLayout));
                 LOGGER.info("Created reader for file {}", localFileName);
             }
         } catch (Exception e1) {
@@ -222,7 +221,8 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
             throw e1;
         }
         // Merge into one sorted iterator
-        internalOrderedRecordIterator = new MergingIterator(sleeperSchema, inputIterators);
+        internalOrderedRecordIterator = new ArrayRecordToRecordIterator(
+                new SortedMergingIterator<>(recordComparator, inputIterators));
         return internalOrderedRecordIterator;
     }
 
@@ -239,19 +239,6 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
         }
     }
 
-    /**
-     * Create a reader for a local Parquet file. Uses the parameters specified during construction.
-     *
-     * @param  inputFile   the Parquet file to read
-     * @return             the {@link ParquetReader}
-     * @throws IOException Thrown when the reader cannot be created
-     */
-    private ParquetReader<Record> createParquetReader(String inputFile) throws IOException {
-        ParquetReader.Builder<Record> builder = new ParquetRecordReader.Builder(new Path(inputFile), sleeperSchema)
-                .withConf(hadoopConfiguration);
-        return builder.build();
-    }
-
     /**
      * Delete all of the local files. Errors are logged but are not propagated.
      */
@@ -263,7 +250,7 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
                     localFileNames.get(localFileNames.size() - 1));
             localFileNames.forEach(localFileName -> {
                 try {
-                    boolean success = FileSystem.getLocal(hadoopConfiguration).delete(new Path(localFileName), false);
+                    boolean success = Files.deleteIfExists(Paths.get(localFileName));
                     if (!success) {
                         LOGGER.error("Failed to delete local file {}", localFileName);
                     }
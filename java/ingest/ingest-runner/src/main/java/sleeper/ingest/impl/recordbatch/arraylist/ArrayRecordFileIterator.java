@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arraylist;
+
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.RecordLayout;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.PrimitiveType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.schema.type.Type;
+import sleeper.ingest.impl.recordbatch.MemoryMappedFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads records from a local file through a memory mapping. Each record is decoded directly from the mapped bytes. The
+ * file must have been written by an {@link ArrayRecordFileWriter}.
+ */
+class ArrayRecordFileIterator implements CloseableIterator<ArrayRecord> {
+    private final MemoryMappedFile file;
+    private final RecordLayout layout;
+    private long position;
+
+    ArrayRecordFileIterator(Path path, RecordLayout layout) throws IOException {
+        this.file = MemoryMappedFile.open(path);
+        this.layout = layout;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < file.size();
+    }
+
+    @Override
+    public ArrayRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            int length = file.read(position, Integer.BYTES).getInt();
+            ArrayRecord record = readRecord(file.read(position + Integer.BYTES, length));
+            position += Integer.BYTES + length;
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private ArrayRecord readRecord(ByteBuffer buffer) throws IOException {
+        ArrayRecord record = new ArrayRecord(layout);
+        for (int index = 0; index < layout.getNumberOfFields(); index++) {
+            if (buffer.get() == 0) {
+                continue;
+            }
+            Type type = layout.getType(index);
+            if (type instanceof IntType) {
+                record.putInt(index, buffer.getInt());
+            } else if (type instanceof LongType) {
+                record.putLong(index, buffer.getLong());
+            } else if (type instanceof PrimitiveType) {
+                record.put(index, readPrimitive(buffer, (PrimitiveType) type));
+            } else if (type instanceof ListType) {
+                PrimitiveType elementType = ((ListType) type).getElementType();
+                int size = buffer.getInt();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readPrimitive(buffer, elementType));
+                }
+                record.put(index, list);
+            } else if (type instanceof MapType) {
+                MapType mapType = (MapType) type;
+                int size = buffer.getInt();
+                Map<Object, Object> map = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    Object key = readPrimitive(buffer, mapType.getKeyType());
+                    map.put(key, readPrimitive(buffer, mapType.getValueType()));
+                }
+                record.put(index, map);
+            } else {
+                throw new IOException("Unknown type " + type);
+            }
+        }
+        return record;
+    }
+
+    private static Object readPrimitive(ByteBuffer buffer, PrimitiveType type) throws IOException {
+        if (type instanceof IntType) {
+            return buffer.getInt();
+        } else if (type instanceof LongType) {
+            return buffer.getLong();
+        } else if (type instanceof StringType) {
+            return new String(readBytes(buffer), StandardCharsets.UTF_8);
+        } else if (type instanceof ByteArrayType) {
+            return readBytes(buffer);
+        } else {
+            throw new IOException("Unknown type " + type);
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
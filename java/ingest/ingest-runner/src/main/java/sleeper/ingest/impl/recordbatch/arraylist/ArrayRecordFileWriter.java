@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arraylist;
+
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.RecordLayout;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.PrimitiveType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.schema.type.Type;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes records to a local file in a simple uncompressed binary format. The file can be read back with an
+ * {@link ArrayRecordFileIterator}. This is used for the files an {@link ArrayListRecordBatch} spills to local disk,
+ * which are only read back on the same machine.
+ * <p>
+ * Each record is written as its length in bytes, followed by each field in the order of the {@link RecordLayout}. Each
+ * field is a byte marking whether it is set, followed by the value if it is. Ints and longs are written as fixed width
+ * values. Strings and byte arrays are written as their length followed by their bytes. Lists and maps are written as
+ * their size followed by their elements. Null elements of lists and maps are not supported.
+ */
+class ArrayRecordFileWriter implements Closeable {
+    private static final int OUTPUT_BUFFER_BYTES = 1024 * 1024;
+
+    private final RecordLayout layout;
+    private final DataOutputStream output;
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private final DataOutputStream recordOutput = new DataOutputStream(recordBytes);
+    private long bytesWritten;
+
+    ArrayRecordFileWriter(Path path, RecordLayout layout) throws IOException {
+        this.layout = layout;
+        this.output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                OUTPUT_BUFFER_BYTES));
+    }
+
+    /**
+     * Writes a record to the end of the file.
+     *
+     * @param  record      the record
+     * @throws IOException if the record could not be written
+     */
+    void write(ArrayRecord record) throws IOException {
+        recordBytes.reset();
+        for (int index = 0; index < layout.getNumberOfFields(); index++) {
+            if (record.isNull(index)) {
+                recordOutput.writeBoolean(false);
+                continue;
+            }
+            recordOutput.writeBoolean(true);
+            Type type = layout.getType(index);
+            if (type instanceof IntType) {
+                recordOutput.writeInt(record.getInt(index));
+            } else if (type instanceof LongType) {
+                recordOutput.writeLong(record.getLong(index));
+            } else if (type instanceof PrimitiveType) {
+                writePrimitive(record.get(index), (PrimitiveType) type);
+            } else if (type instanceof ListType) {
+                PrimitiveType elementType = ((ListType) type).getElementType();
+                List<?> list = (List<?>) record.get(index);
+                recordOutput.writeInt(list.size());
+                for (Object element : list) {
+                    writeElement(element, elementType, index, "list element");
+                }
+            } else if (type instanceof MapType) {
+                MapType mapType = (MapType) type;
+                Map<?, ?> map = (Map<?, ?>) record.get(index);
+                recordOutput.writeInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeElement(entry.getKey(), mapType.getKeyType(), index, "map key");
+                    writeElement(entry.getValue(), mapType.getValueType(), index, "map value");
+                }
+            } else {
+                throw new IOException("Unknown type " + type);
+            }
+        }
+        output.writeInt(recordBytes.size());
+        recordBytes.writeTo(output);
+        bytesWritten += Integer.BYTES + recordBytes.size();
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+    private void writeElement(Object value, PrimitiveType type, int index, String description) throws IOException {
+        if (value == null) {
+            throw new IOException("Found null " + description + " in field " + layout.getField(index).getName() + ", which is not supported");
+        }
+        writePrimitive(value, type);
+    }
+
+    private void writePrimitive(Object value, PrimitiveType type) throws IOException {
+        if (type instanceof IntType) {
+            recordOutput.writeInt((int) value);
+        } else if (type instanceof LongType) {
+            recordOutput.writeLong((long) value);
+        } else if (type instanceof StringType) {
+            writeBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (type instanceof ByteArrayType) {
+            writeBytes((byte[]) value);
+        } else {
+            throw new IOException("Unknown type " + type);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        recordOutput.writeInt(bytes.length);
+        recordOutput.write(bytes);
+    }
+}
@@ -17,13 +17,11 @@ package sleeper.ingest.impl.recordbatch.arrow;
 
 import org.apache.arrow.algorithm.sort.CompositeVectorComparator;
 import org.apache.arrow.algorithm.sort.DefaultVectorComparators;
-import org.apache.arrow.algorithm.sort.IndexSorter;
 import org.apache.arrow.algorithm.sort.VectorValueComparator;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.vector.BaseVariableWidthVector;
 import org.apache.arrow.vector.BigIntVector;
 import org.apache.arrow.vector.IntVector;
-import org.apache.arrow.vector.ValueVector;
 import org.apache.arrow.vector.VarBinaryVector;
 import org.apache.arrow.vector.VarCharVector;
 import org.apache.arrow.vector.VectorSchemaRoot;
@@ -33,6 +31,7 @@ import sleeper.core.schema.type.IntType;
 import sleeper.core.schema.type.LongType;
 import sleeper.core.schema.type.StringType;
 import sleeper.core.schema.type.Type;
+import sleeper.ingest.impl.recordbatch.ParallelSort;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -63,8 +62,47 @@ class ArrowIngestSupport {
     public static IntVector createSortOrderVector(BufferAllocator bufferAllocator,
             sleeper.core.schema.Schema sleeperSchema,
             VectorSchemaRoot vectorSchemaRoot) {
-        // Work out which field is to be used for the sort, where it is in the fields, and what type it is
         int vectorSize = vectorSchemaRoot.getRowCount();
+        // Create a vector to hold the row indices of the data once it has been sorted in the order specified by the
+        // comparator
+        IntVector sortOrderVector = new IntVector("Sort order vector", bufferAllocator);
+        try {
+            sortOrderVector.allocateNew(vectorSize);
+            sortOrderVector.setValueCount(vectorSize);
+            // Rows are compared by a normalised prefix of their first row key held off-heap, and only compared in
+            // full when the prefixes are equal. The vector comparators hold state while comparing variable width
+            // values, so each sort task needs its own comparator.
+            try (SortKeyPrefixes prefixes = SortKeyPrefixes.createIfPossible(bufferAllocator, sleeperSchema, vectorSchemaRoot)) {
+                int[] sortedIndexes = ParallelSort.sortedIndexes(vectorSize,
+                        () -> createIndexComparator(prefixes, createComparator(sleeperSchema, vectorSchemaRoot)));
+                for (int i = 0; i < vectorSize; i++) {
+                    sortOrderVector.set(i, sortedIndexes[i]);
+                }
+            }
+            return sortOrderVector;
+        } catch (Exception e) {
+            sortOrderVector.close();
+            throw e;
+        }
+    }
+
+    private static ParallelSort.IndexComparator createIndexComparator(
+            SortKeyPrefixes prefixes, CompositeVectorComparator fullComparator) {
+        if (prefixes == null) {
+            return fullComparator::compare;
+        }
+        return (index1, index2) -> {
+            int diff = prefixes.compare(index1, index2);
+            if (diff != 0) {
+                return diff;
+            }
+            return fullComparator.compare(index1, index2);
+        };
+    }
+
+    private static CompositeVectorComparator createComparator(
+            sleeper.core.schema.Schema sleeperSchema, VectorSchemaRoot vectorSchemaRoot) {
+        // Work out which field is to be used for the sort, where it is in the fields, and what type it is
         List<sleeper.core.schema.Field> allSleeperFields = sleeperSchema.getAllFields();
         List<sleeper.core.schema.Field> sleeperSortOrderFieldsInOrder = Stream.of(sleeperSchema.getRowKeyFields(), sleeperSchema.getSortKeyFields())
                 .flatMap(List::stream)
@@ -93,20 +131,6 @@ class ArrowIngestSupport {
                         throw new UnsupportedOperationException("Sleeper column type " + fieldType.toString() + " is not handled");
                     }
                 }).collect(Collectors.toList());
-        CompositeVectorComparator compositeVectorComparator = new CompositeVectorComparator(vectorValueComparatorsInOrder.toArray(new VectorValueComparator[0]));
-        // Create a vector to hold the row indices of the data before it has been sorted and populate it with the
-        // values 0...vectorSize. This will be sorted in the order specified by the CompositeVectorComparator
-        // and so we create a vector to hold the row indices of the data once it has been sorted
-        IntVector sortOrderVector = new IntVector("Sort order vector", bufferAllocator);
-        try {
-            sortOrderVector.allocateNew(vectorSize);
-            sortOrderVector.setValueCount(vectorSize);
-            IndexSorter<ValueVector> indexSorter = new IndexSorter<>();
-            indexSorter.sort(vectorSchemaRoot.getVector(0), sortOrderVector, compositeVectorComparator);
-            return sortOrderVector;
-        } catch (Exception e) {
-            sortOrderVector.close();
-            throw e;
-        }
+        return new CompositeVectorComparator(vectorValueComparatorsInOrder.toArray(new VectorValueComparator[0]));
     }
 }
@@ -21,8 +21,8 @@ import org.apache.arrow.memory.OutOfMemoryException;
 import org.apache.arrow.vector.IntVector;
 import org.apache.arrow.vector.ValueVector;
 import org.apache.arrow.vector.VectorSchemaRoot;
-import org.apache.arrow.vector.ipc.ArrowStreamReader;
-import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +40,7 @@ import sleeper.core.schema.type.MapType;
 import sleeper.core.schema.type.StringType;
 import sleeper.core.schema.type.Type;
 import sleeper.core.util.LoggedDuration;
+import sleeper.ingest.impl.recordbatch.MemoryMappedFile;
 import sleeper.ingest.impl.recordbatch.RecordBatch;
 
 import java.io.File;
@@ -70,10 +71,12 @@ import static java.util.Objects.requireNonNull;
  * <li>Data is provided to this class through the {@link #append} methods. These are stored in a
  * {@link VectorSchemaRoot}</li>
  * <li>When an {@link org.apache.arrow.memory.OutOfMemoryException} occurs, the Arrow data is sorted and written to a
- * local file in Arrow format, and the {@link VectorSchemaRoot} is cleared to receive new data</li>
+ * local file in the Arrow IPC file format, uncompressed, and the {@link VectorSchemaRoot} is cleared to receive new
+ * data</li>
  * <li>The batch is deemed to be full when the total amount of data on the local disk exceeds a threshold</li>
  * <li>To retrieve the data, a {@link MergingIterator} is used to create one iterator of records from those local Arrow
- * files. No more data may be appended at this stage</li>
+ * files. The local files are read through a memory mapping, so that the merge reads them from the page cache. No more
+ * data may be appended at this stage</li>
  * <li>The record batch cannot be reused and {@link #close} will delete all of the local files and free the memory</li>
  * </ul>
  * <p>
@@ -226,7 +229,7 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
         // Determine the order in which the rows are to be written to the Arrow file
         // Create a VectorSchemaRoot to hold each small batch before it is written
         // Open an output channel to write to the destination file
-        // Create a writer to write the small batches into the output stream
+        // Create a writer to write the small batches into the output file
         long bytesWritten;
         Path arrowFilePath = Paths.get(localArrowFileName);
         Path arrowFileParent = Objects.requireNonNull(arrowFilePath.getParent());
@@ -235,11 +238,11 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
         try (IntVector wholeFileSortOrderVector = ArrowIngestSupport.createSortOrderVector(temporaryBufferAllocator, sleeperSchema, sourceVectorSchemaRoot);
                 VectorSchemaRoot smallBatchVectorSchemaRoot = VectorSchemaRoot.create(sourceVectorSchemaRoot.getSchema(), temporaryBufferAllocator);
                 FileChannel outputFileChannel = FileChannel.open(arrowFilePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
-                ArrowStreamWriter arrowStreamWriter = new ArrowStreamWriter(smallBatchVectorSchemaRoot, null, outputFileChannel)) {
+                ArrowFileWriter arrowFileWriter = new ArrowFileWriter(smallBatchVectorSchemaRoot, null, outputFileChannel)) {
             // Allocate memory in the vectors underlying the VectorSchemaRoot and start the writer
             smallBatchVectorSchemaRoot.getFieldVectors().forEach(fieldVector -> fieldVector.setInitialCapacity(maxNoOfRecordsToWriteToArrowFileAtOnce));
             smallBatchVectorSchemaRoot.allocateNew();
-            arrowStreamWriter.start();
+            arrowFileWriter.start();
             // Write a slice of maxNoOfRecordsToWriteToArrowFileAtOnce rows at a time
             int sliceStart = 0;
             int sliceNo = 0;
@@ -265,13 +268,13 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
                     smallBatchVectorSchemaRoot.setRowCount(sliceIndex + 1);
                 }
                 // Write the batch
-                arrowStreamWriter.writeBatch();
+                arrowFileWriter.writeBatch();
                 // Prepare for the next batch
                 sliceStart = sliceEnd;
                 sliceNo++;
             }
-            arrowStreamWriter.end();
-            bytesWritten = arrowStreamWriter.bytesWritten();
+            arrowFileWriter.end();
+            bytesWritten = arrowFileWriter.bytesWritten();
             // The sort vector, smallBatchVectorSchemaRoot, channel and writer are auto-closed at the end of the try block
         }
         LOGGER.debug(String.format("Written %09d bytes", bytesWritten));
@@ -289,9 +292,14 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
      */
     private static CloseableIterator<Record> createCloseableRecordIteratorForArrowFile(BufferAllocator bufferAllocator,
             String localArrowFileName) throws IOException {
-        FileChannel inputFileChannel = FileChannel.open(Paths.get(localArrowFileName), StandardOpenOption.READ);
-        ArrowStreamReader arrowStreamReader = new ArrowStreamReader(inputFileChannel, bufferAllocator);
-        return new RecordIteratorFromArrowStreamReader(arrowStreamReader);
+        MemoryMappedFile mappedFile = MemoryMappedFile.open(Paths.get(localArrowFileName));
+        ArrowFileReader arrowFileReader = new ArrowFileReader(mappedFile.channel(), bufferAllocator);
+        try {
+            return new RecordIteratorFromArrowReader(arrowFileReader);
+        } catch (IOException | RuntimeException e) {
+            arrowFileReader.close();
+            throw e;
+        }
     }
 
     /**
@@ -300,7 +308,7 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
      * @param  sleeperSchema The Sleeper {@link Schema}
      * @return               The Arrow {@link org.apache.arrow.vector.types.pojo.Schema}
      */
-    private static org.apache.arrow.vector.types.pojo.Schema convertSleeperSchemaToArrowSchema(Schema sleeperSchema) {
+    static org.apache.arrow.vector.types.pojo.Schema convertSleeperSchemaToArrowSchema(Schema sleeperSchema) {
         List<org.apache.arrow.vector.types.pojo.Field> arrowFields = sleeperSchema.getAllFields().stream()
                 .map(ArrowRecordBatch::convertSleeperFieldToArrowField)
                 .collect(Collectors.toList());
@@ -33,6 +33,7 @@ import static sleeper.configuration.properties.instance.ArrowIngestProperty.ARRO
 import static sleeper.configuration.properties.instance.ArrowIngestProperty.ARROW_INGEST_MAX_LOCAL_STORE_BYTES;
 import static sleeper.configuration.properties.instance.ArrowIngestProperty.ARROW_INGEST_MAX_SINGLE_WRITE_TO_FILE_RECORDS;
 import static sleeper.configuration.properties.instance.ArrowIngestProperty.ARROW_INGEST_WORKING_BUFFER_BYTES;
+import static sleeper.configuration.properties.instance.IngestProperty.INGEST_BACKGROUND_FLUSH_BATCHES;
 
 public class ArrowRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatchFactory<INCOMINGDATATYPE> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ArrowRecordBatchFactory.class);
@@ -72,7 +73,8 @@ public class ArrowRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatchFac
         this.recordWriter = Objects.requireNonNull(builder.recordWriter, "recordWriter must not be null");
         if (builder.bufferAllocator == null) {
             this.closeBufferAllocator = true;
-            this.bufferAllocator = new RootAllocator(workingBufferAllocatorBytes + maxBatchBufferAllocatorBytes);
+            // Batches may be flushed in the background while a new batch accepts data, so each batch needs its own share
+            this.bufferAllocator = new RootAllocator((workingBufferAllocatorBytes + maxBatchBufferAllocatorBytes) * builder.maxBatchesAtOnce);
         } else {
             this.closeBufferAllocator = false;
             this.bufferAllocator = builder.bufferAllocator;
@@ -129,6 +131,7 @@ public class ArrowRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatchFac
         private int maxNoOfRecordsToWriteToArrowFileAtOnce;
         private BufferAllocator bufferAllocator;
         private ArrowRecordWriter<T> recordWriter;
+        private int maxBatchesAtOnce = 1;
 
         private Builder() {
         }
@@ -178,8 +181,22 @@ public class ArrowRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatchFac
             return this;
         }
 
+        /**
+         * Sets the maximum number of record batches that may exist at once. This is more than 1 if full batches are
+         * flushed in the background while a new batch accepts data. The buffer allocator is sized to allow for this,
+         * unless a buffer allocator is provided.
+         *
+         * @param  maxBatchesAtOnce the maximum number of record batches
+         * @return                  the builder for call chaining
+         */
+        public Builder<T> maxBatchesAtOnce(int maxBatchesAtOnce) {
+            this.maxBatchesAtOnce = maxBatchesAtOnce;
+            return this;
+        }
+
         public Builder<T> instanceProperties(InstanceProperties instanceProperties) {
-            return maxNoOfRecordsToWriteToArrowFileAtOnce(instanceProperties.getInt(ARROW_INGEST_MAX_SINGLE_WRITE_TO_FILE_RECORDS))
+            return maxBatchesAtOnce(1 + instanceProperties.getInt(INGEST_BACKGROUND_FLUSH_BATCHES))
+                    .maxNoOfRecordsToWriteToArrowFileAtOnce(instanceProperties.getInt(ARROW_INGEST_MAX_SINGLE_WRITE_TO_FILE_RECORDS))
                     .workingBufferAllocatorBytes(instanceProperties.getLong(ARROW_INGEST_WORKING_BUFFER_BYTES))
                     .minBatchBufferAllocatorBytes(instanceProperties.getLong(ARROW_INGEST_BATCH_BUFFER_BYTES))
                     .maxBatchBufferAllocatorBytes(instanceProperties.getLong(ARROW_INGEST_BATCH_BUFFER_BYTES))
@@ -16,7 +16,7 @@
 package sleeper.ingest.impl.recordbatch.arrow;
 
 import org.apache.arrow.vector.VectorSchemaRoot;
-import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.ipc.ArrowReader;
 
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.record.Record;
@@ -26,30 +26,30 @@ import java.util.NoSuchElementException;
 
 /**
  * Reads through records read into memory with Arrow. This is a {@link CloseableIterator} of {@link Record}s, where
- * those records are read from a {@link ArrowStreamReader}.
+ * those records are read from an {@link ArrowReader}.
  * <p>
  * The rows are read from the file in small batches, which correspond to the small batches that were used when the file
  * was orginally written.
  */
-class RecordIteratorFromArrowStreamReader implements CloseableIterator<Record> {
-    private final ArrowStreamReader arrowStreamReader;
+class RecordIteratorFromArrowReader implements CloseableIterator<Record> {
+    private final ArrowReader arrowReader;
     private int currentRecordNoInBatch;
     private long totalNoOfRecordsRead = 0L;
     private boolean nextBatchLoaded;
 
-    RecordIteratorFromArrowStreamReader(ArrowStreamReader arrowStreamReader) throws IOException {
-        this.arrowStreamReader = arrowStreamReader;
+    RecordIteratorFromArrowReader(ArrowReader arrowReader) throws IOException {
+        this.arrowReader = arrowReader;
         this.loadNextBatch();
     }
 
     /**
-     * Read the next small batch of rows from the source file. Instruct the {@link ArrowStreamReader} to read into its
+     * Read the next small batch of rows from the source file. Instruct the {@link ArrowReader} to read into its
      * internal {@link VectorSchemaRoot}.
      *
      * @throws IOException if there was a failure reading a batch from the source file
      */
     private void loadNextBatch() throws IOException {
-        nextBatchLoaded = arrowStreamReader.loadNextBatch();
+        nextBatchLoaded = arrowReader.loadNextBatch();
         currentRecordNoInBatch = 0;
     }
 
@@ -57,7 +57,7 @@ class RecordIteratorFromArrowStreamReader implements CloseableIterator<Record> {
     public boolean hasNext() {
         try {
             // The most recent batch must have been loaded and it must have at least one row
-            return nextBatchLoaded && arrowStreamReader.getVectorSchemaRoot().getRowCount() > 0;
+            return nextBatchLoaded && arrowReader.getVectorSchemaRoot().getRowCount() > 0;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -69,9 +69,9 @@ class RecordIteratorFromArrowStreamReader implements CloseableIterator<Record> {
             throw new NoSuchElementException();
         }
         try {
-            // Retrieve the current small batch from within the ArrowStreamReader, read the value from
+            // Retrieve the current small batch from within the ArrowReader, read the value from
             // row currentRecordNoInBatch and use these values to construct a Record object.
-            VectorSchemaRoot smallBatchVectorSchemaRoot = arrowStreamReader.getVectorSchemaRoot();
+            VectorSchemaRoot smallBatchVectorSchemaRoot = arrowReader.getVectorSchemaRoot();
             Record record = ArrowToRecordConversionUtils.convertVectorSchemaRootToRecord(smallBatchVectorSchemaRoot, currentRecordNoInBatch);
             currentRecordNoInBatch++;
             totalNoOfRecordsRead++;
@@ -87,7 +87,7 @@ class RecordIteratorFromArrowStreamReader implements CloseableIterator<Record> {
 
     @Override
     public void close() throws IOException {
-        arrowStreamReader.close();
+        arrowReader.close();
     }
 
     public long getNumberOfRecordsRead() {
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arrow;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.OutOfMemoryException;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+
+/**
+ * Holds a normalised prefix of the first row key for each row of Arrow data, in an off-heap buffer. Each prefix is an
+ * unsigned 64-bit value, such that if the prefix of one row is less than the prefix of another, then that row sorts
+ * first by the comparators in {@link ArrowIngestSupport}. If the prefixes are equal, the rows must be compared in full.
+ * <p>
+ * Integer keys are encoded with the sign bit flipped, so that they are in order when compared as unsigned values.
+ * Strings and byte arrays are encoded as their first 8 bytes, padded with zeroes, which matches the unsigned byte
+ * comparison done by Arrow. Only the first row key is encoded, so no escaping of variable width values is needed.
+ */
+class SortKeyPrefixes implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SortKeyPrefixes.class);
+
+    private final ArrowBuf buffer;
+
+    private SortKeyPrefixes(ArrowBuf buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Computes the sort key prefix of each row. This will not compute prefixes if the first row key has any null
+     * values, or if there is not enough space in the buffer allocator.
+     *
+     * @param  bufferAllocator  the allocator to hold the prefixes
+     * @param  sleeperSchema    the schema of the data
+     * @param  vectorSchemaRoot the data
+     * @return                  the prefixes, or null if they could not be computed
+     */
+    static SortKeyPrefixes createIfPossible(BufferAllocator bufferAllocator, Schema sleeperSchema, VectorSchemaRoot vectorSchemaRoot) {
+        Field field = sleeperSchema.getRowKeyFields().get(0);
+        FieldVector vector = vectorSchemaRoot.getVector(sleeperSchema.getAllFields().indexOf(field));
+        if (vector.getNullCount() > 0) {
+            return null;
+        }
+        int rowCount = vectorSchemaRoot.getRowCount();
+        ArrowBuf buffer;
+        try {
+            buffer = bufferAllocator.buffer((long) rowCount * Long.BYTES);
+        } catch (OutOfMemoryException e) {
+            LOGGER.warn("Not enough space in working buffer for sort key prefixes of {} rows, sorting without them", rowCount);
+            return null;
+        }
+        try {
+            for (int row = 0; row < rowCount; row++) {
+                buffer.setLong((long) row * Long.BYTES, prefix(vector, row));
+            }
+            return new SortKeyPrefixes(buffer);
+        } catch (RuntimeException e) {
+            buffer.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Compares the prefixes of two rows. If this returns zero, the rows may still be different.
+     *
+     * @param  row1 the index of the first row
+     * @param  row2 the index of the second row
+     * @return      a negative integer, zero, or a positive integer as the prefix of the first row is less than,
+     *              equal to, or greater than the second
+     */
+    int compare(int row1, int row2) {
+        return Long.compareUnsigned(
+                buffer.getLong((long) row1 * Long.BYTES),
+                buffer.getLong((long) row2 * Long.BYTES));
+    }
+
+    @Override
+    public void close() {
+        buffer.close();
+    }
+
+    private static long prefix(FieldVector vector, int row) {
+        if (vector instanceof BigIntVector) {
+            return ((BigIntVector) vector).get(row) ^ Long.MIN_VALUE;
+        } else if (vector instanceof IntVector) {
+            return Integer.toUnsignedLong(((IntVector) vector).get(row) ^ Integer.MIN_VALUE) << 32;
+        } else if (vector instanceof BaseVariableWidthVector) {
+            BaseVariableWidthVector variableWidthVector = (BaseVariableWidthVector) vector;
+            ArrowBuf data = variableWidthVector.getDataBuffer();
+            long start = variableWidthVector.getStartOffset(row);
+            int length = Math.min(Long.BYTES, variableWidthVector.getValueLength(row));
+            long prefix = 0;
+            for (int i = 0; i < length; i++) {
+                prefix |= (data.getByte(start + i) & 0xFFL) << (56 - 8 * i);
+            }
+            return prefix;
+        } else {
+            throw new UnsupportedOperationException("Arrow vector type " + vector.getClass().getSimpleName() + " is not handled");
+        }
+    }
+}
@@ -45,6 +45,8 @@ import static com.facebook.collections.ByteArray.wrap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static sleeper.configuration.properties.instance.ArrayListIngestProperty.MAX_IN_MEMORY_BATCH_SIZE;
 import static sleeper.configuration.properties.instance.ArrayListIngestProperty.MAX_RECORDS_TO_WRITE_LOCALLY;
+import static sleeper.configuration.properties.instance.IngestProperty.INGEST_BACKGROUND_FLUSH_BATCHES;
+import static sleeper.configuration.properties.instance.IngestProperty.INGEST_PARTITION_FILE_WRITER_THREADS;
 import static sleeper.configuration.properties.table.TableProperty.COMPRESSION_CODEC;
 import static sleeper.configuration.properties.table.TableProperty.INGEST_FILE_WRITING_STRATEGY;
 import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CLASS_NAME;
@@ -534,6 +536,65 @@ class IngestRecordsIT extends IngestRecordsTestBase {
         }
     }
 
+    @Test
+    void shouldFlushRecordBatchesInBackground() throws Exception {
+        // Given
+        StateStore stateStore = inMemoryStateStoreWithFixedPartitions(new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", 2L).buildList());
+        List<Record> records = getLotsOfRecords();
+
+        // When
+        long numWritten = ingestRecordsWithInstanceProperties(schema, stateStore, records, instanceProperties -> {
+            instanceProperties.setNumber(MAX_RECORDS_TO_WRITE_LOCALLY, 10L);
+            instanceProperties.setNumber(MAX_IN_MEMORY_BATCH_SIZE, 5);
+            instanceProperties.setNumber(INGEST_BACKGROUND_FLUSH_BATCHES, 2);
+        }).getRecordsWritten();
+
+        // Then
+        assertThat(numWritten).isEqualTo(records.size());
+        Map<String, List<String>> partitionToFileMapping = stateStore.getPartitionToReferencedFilesMap();
+        assertThat(partitionToFileMapping.get("L")).hasSize(40);
+        assertThat(partitionToFileMapping.get("R")).hasSize(40);
+        assertThat(readRecords(partitionToFileMapping.values().stream().flatMap(List::stream)))
+                .containsExactlyInAnyOrderElementsOf(records);
+    }
+
+    @Test
+    void shouldWriteRecordsToPartitionsInParallel() throws Exception {
+        // Given
+        StateStore stateStore = inMemoryStateStoreWithFixedPartitions(new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", 2L)
+                .splitToNewChildren("L", "LL", "LR", -100L)
+                .splitToNewChildren("R", "RL", "RR", 100L)
+                .buildList());
+        List<Record> records = getLotsOfRecords();
+
+        // When
+        long numWritten = ingestRecordsWithInstanceProperties(schema, stateStore, records, instanceProperties -> {
+            instanceProperties.setNumber(INGEST_PARTITION_FILE_WRITER_THREADS, 4);
+        }).getRecordsWritten();
+
+        // Then
+        assertThat(numWritten).isEqualTo(records.size());
+        Map<String, List<String>> partitionToFileMapping = stateStore.getPartitionToReferencedFilesMap();
+        assertThat(partitionToFileMapping).containsOnlyKeys("LL", "LR", "RL", "RR");
+        assertThat(partitionToFileMapping.values()).allSatisfy(files -> assertThat(files).hasSize(1));
+        assertThat(readRecords(partitionToFileMapping.get("LL").stream()))
+                .extracting(record -> (long) record.get("key"))
+                .isSorted()
+                .allMatch(key -> key < -100L)
+                .hasSize(98);
+        assertThat(readRecords(partitionToFileMapping.get("RR").stream()))
+                .extracting(record -> (long) record.get("key"))
+                .isSorted()
+                .allMatch(key -> key >= 100L)
+                .hasSize(102);
+        assertThat(readRecords(partitionToFileMapping.values().stream().flatMap(List::stream)))
+                .containsExactlyInAnyOrderElementsOf(records);
+    }
+
     @Test
     void shouldSortRecords() throws Exception {
         // Given
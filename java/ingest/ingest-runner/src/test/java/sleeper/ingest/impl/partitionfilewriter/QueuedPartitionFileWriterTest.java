@@ -0,0 +1,229 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.partitionfilewriter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.record.Record;
+import sleeper.core.statestore.FileReference;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class QueuedPartitionFileWriterTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldWriteRecordsInOrderForEachPartition() throws Exception {
+        // Given
+        List<FakeWriter> writers = List.of(new FakeWriter("A"), new FakeWriter("B"), new FakeWriter("C"));
+        List<QueuedPartitionFileWriter> queuedWriters = writers.stream()
+                .map(writer -> new QueuedPartitionFileWriter(writer, executor, 10, 2))
+                .collect(Collectors.toList());
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            for (QueuedPartitionFileWriter writer : queuedWriters) {
+                writer.append(record(i));
+            }
+        }
+        List<FileReference> files = new ArrayList<>();
+        for (QueuedPartitionFileWriter writer : queuedWriters) {
+            files.add(writer.close().join());
+        }
+
+        // Then
+        assertThat(files).extracting(FileReference::getPartitionId, FileReference::getNumberOfRecords)
+                .containsExactly(
+                        tuple("A", 1000L),
+                        tuple("B", 1000L),
+                        tuple("C", 1000L));
+        assertThat(writers).allSatisfy(writer -> assertThat(writer.records).isEqualTo(records(1000)));
+    }
+
+    @Test
+    void shouldWritePartialBatchOnClose() throws Exception {
+        // Given
+        FakeWriter writer = new FakeWriter("A");
+        QueuedPartitionFileWriter queuedWriter = new QueuedPartitionFileWriter(writer, executor, 10, 2);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            queuedWriter.append(record(i));
+        }
+        FileReference file = queuedWriter.close().join();
+
+        // Then
+        assertThat(file.getNumberOfRecords()).isEqualTo(5);
+        assertThat(writer.records).isEqualTo(records(5));
+    }
+
+    @Test
+    void shouldFailCloseWhenWriteFailed() throws Exception {
+        // Given
+        FakeWriter writer = new FakeWriter("A");
+        writer.failAfterRecords = 3;
+        QueuedPartitionFileWriter queuedWriter = new QueuedPartitionFileWriter(writer, executor, 2, 100);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            queuedWriter.append(record(i));
+        }
+
+        // Then
+        assertThatThrownBy(() -> queuedWriter.close().join())
+                .hasRootCauseMessage("Failed writing record 3");
+        assertThat(writer.closed).isFalse();
+    }
+
+    @Test
+    void shouldFailCloseAndAbortWhenWriteThrewError() throws Exception {
+        // Given
+        FakeWriter writer = new FakeWriter("A");
+        writer.failAfterRecords = 3;
+        writer.failWithError = true;
+        QueuedPartitionFileWriter queuedWriter = new QueuedPartitionFileWriter(writer, executor, 2, 100);
+        for (int i = 0; i < 10; i++) {
+            queuedWriter.append(record(i));
+        }
+
+        // When / Then
+        assertThatThrownBy(() -> queuedWriter.close().join())
+                .hasRootCauseInstanceOf(OutOfMemoryError.class)
+                .hasRootCauseMessage("Failed writing record 3");
+        queuedWriter.abort();
+        assertThat(writer.aborted).isTrue();
+    }
+
+    @Test
+    void shouldFailCloseWhenUnderlyingCloseFailed() throws Exception {
+        // Given
+        FakeWriter writer = new FakeWriter("A");
+        writer.failOnClose = true;
+        QueuedPartitionFileWriter queuedWriter = new QueuedPartitionFileWriter(writer, executor, 2, 100);
+        queuedWriter.append(record(0));
+
+        // When
+        CompletableFuture<FileReference> future = queuedWriter.close();
+
+        // Then
+        assertThatThrownBy(future::join)
+                .isInstanceOf(CompletionException.class)
+                .hasRootCauseMessage("Failed closing");
+    }
+
+    @Test
+    void shouldAbortUnderlyingWriter() throws Exception {
+        // Given
+        FakeWriter writer = new FakeWriter("A");
+        QueuedPartitionFileWriter queuedWriter = new QueuedPartitionFileWriter(writer, executor, 2, 100);
+        for (int i = 0; i < 10; i++) {
+            queuedWriter.append(record(i));
+        }
+
+        // When
+        queuedWriter.abort();
+
+        // Then
+        assertThat(writer.aborted).isTrue();
+        assertThat(writer.closed).isFalse();
+    }
+
+    private static Record record(int value) {
+        return new Record(Map.of("key", value));
+    }
+
+    private static List<Record> records(int count) {
+        return IntStream.range(0, count).mapToObj(QueuedPartitionFileWriterTest::record).collect(Collectors.toList());
+    }
+
+    /**
+     * Holds records in memory, and checks that it is only called from one thread at a time.
+     */
+    private static class FakeWriter implements PartitionFileWriter {
+        private final String partitionId;
+        private final List<Record> records = Collections.synchronizedList(new ArrayList<>());
+        private int failAfterRecords = -1;
+        private boolean failWithError;
+        private boolean failOnClose;
+        private volatile boolean closed;
+        private volatile boolean aborted;
+        private volatile boolean inUse;
+
+        FakeWriter(String partitionId) {
+            this.partitionId = partitionId;
+        }
+
+        @Override
+        public void append(Record record) throws IOException {
+            if (inUse) {
+                throw new IllegalStateException("Writer called concurrently");
+            }
+            inUse = true;
+            try {
+                if (records.size() == failAfterRecords) {
+                    String message = "Failed writing record " + records.size();
+                    if (failWithError) {
+                        throw new OutOfMemoryError(message);
+                    }
+                    throw new IOException(message);
+                }
+                records.add(record);
+            } finally {
+                inUse = false;
+            }
+        }
+
+        @Override
+        public CompletableFuture<FileReference> close() throws IOException {
+            if (failOnClose) {
+                throw new IOException("Failed closing");
+            }
+            closed = true;
+            return CompletableFuture.completedFuture(FileReference.builder()
+                    .filename(partitionId + ".parquet")
+                    .partitionId(partitionId)
+                    .numberOfRecords((long) records.size())
+                    .countApproximate(false)
+                    .onlyContainsDataForThisPartition(true)
+                    .build());
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MemoryMappedFileTest {
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void shouldReadRangesAcrossWindows() throws Exception {
+        // Given
+        Path path = writeFile(bytes(100));
+
+        // When / Then
+        try (MemoryMappedFile file = MemoryMappedFile.open(path, 16)) {
+            assertThat(file.size()).isEqualTo(100);
+            assertThat(toArray(file.read(0, 4))).containsExactly(0, 1, 2, 3);
+            assertThat(toArray(file.read(14, 4))).containsExactly(14, 15, 16, 17);
+            assertThat(toArray(file.read(96, 4))).containsExactly(96, 97, 98, 99);
+            assertThat(toArray(file.read(10, 40))).isEqualTo(range(10, 50));
+        }
+    }
+
+    @Test
+    void shouldFailReadingPastEndOfFile() throws Exception {
+        // Given
+        Path path = writeFile(bytes(10));
+
+        // When / Then
+        try (MemoryMappedFile file = MemoryMappedFile.open(path, 16)) {
+            assertThatThrownBy(() -> file.read(8, 4))
+                    .isInstanceOf(EOFException.class);
+        }
+    }
+
+    @Test
+    void shouldReadThroughChannel() throws Exception {
+        // Given
+        Path path = writeFile(bytes(100));
+
+        // When
+        try (MemoryMappedFile file = MemoryMappedFile.open(path, 16);
+                SeekableByteChannel channel = file.channel()) {
+            ByteBuffer start = ByteBuffer.allocate(30);
+            int startRead = channel.read(start);
+            channel.position(95);
+            ByteBuffer end = ByteBuffer.allocate(10);
+            int endRead = channel.read(end);
+            int afterEnd = channel.read(ByteBuffer.allocate(1));
+
+            // Then
+            assertThat(startRead).isEqualTo(16);
+            assertThat(toArray(start.flip())).isEqualTo(range(0, 16));
+            assertThat(endRead).isEqualTo(5);
+            assertThat(toArray(end.flip())).isEqualTo(range(95, 100));
+            assertThat(afterEnd).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void shouldCloseFileWithChannel() throws Exception {
+        // Given
+        Path path = writeFile(bytes(10));
+        MemoryMappedFile file = MemoryMappedFile.open(path);
+        SeekableByteChannel channel = file.channel();
+
+        // When
+        channel.close();
+
+        // Then
+        assertThat(channel.isOpen()).isFalse();
+        assertThatThrownBy(() -> channel.read(ByteBuffer.allocate(1)))
+                .isInstanceOf(ClosedChannelException.class);
+    }
+
+    @Test
+    void shouldFailReadingAfterClose() throws Exception {
+        // Given
+        Path path = writeFile(bytes(100));
+        MemoryMappedFile file = MemoryMappedFile.open(path, 16);
+        file.read(0, 4);
+
+        // When
+        file.close();
+
+        // Then
+        assertThatThrownBy(() -> file.read(0, 4))
+                .isInstanceOf(ClosedChannelException.class);
+    }
+
+    @Test
+    void shouldReadAgainFromEarlierWindowAfterRemapping() throws Exception {
+        // Given
+        Path path = writeFile(bytes(100));
+
+        // When / Then
+        try (MemoryMappedFile file = MemoryMappedFile.open(path, 16)) {
+            assertThat(toArray(file.read(80, 4))).containsExactly(80, 81, 82, 83);
+            assertThat(toArray(file.read(0, 4))).containsExactly(0, 1, 2, 3);
+            assertThat(toArray(file.read(80, 4))).containsExactly(80, 81, 82, 83);
+        }
+    }
+
+    private Path writeFile(byte[] bytes) throws Exception {
+        Path path = tempDir.resolve("file");
+        Files.write(path, bytes);
+        return path;
+    }
+
+    private static byte[] bytes(int length) {
+        return range(0, length);
+    }
+
+    private static byte[] range(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (from + i);
+        }
+        return bytes;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelSortTest {
+    private final Random random = new Random(0);
+
+    @Nested
+    class SortList {
+
+        @Test
+        void shouldSortSmallListOnCurrentThread() {
+            // Given
+            List<Integer> list = new ArrayList<>(List.of(3, 1, 2));
+
+            // When
+            ParallelSort.sortList(list, Comparator.naturalOrder());
+
+            // Then
+            assertThat(list).containsExactly(1, 2, 3);
+        }
+
+        @Test
+        void shouldSortLargeListInParallel() {
+            // Given
+            List<Integer> list = randomInts(ParallelSort.MIN_PARALLEL_SORT_SIZE * 10, 1000);
+
+            // When
+            ParallelSort.sortList(list, Comparator.naturalOrder());
+
+            // Then
+            assertThat(list).isSorted()
+                    .hasSize(ParallelSort.MIN_PARALLEL_SORT_SIZE * 10);
+        }
+    }
+
+    @Nested
+    class SortIndexes {
+
+        @Test
+        void shouldSortSmallNumberOfIndexes() {
+            // Given
+            int[] values = {30, 10, 20};
+
+            // When
+            int[] indexes = ParallelSort.sortedIndexes(values.length,
+                    () -> (index1, index2) -> Integer.compare(values[index1], values[index2]));
+
+            // Then
+            assertThat(indexes).containsExactly(1, 2, 0);
+        }
+
+        @Test
+        void shouldSortLargeNumberOfIndexesInStableOrder() {
+            // Given
+            List<Integer> values = randomInts(ParallelSort.MIN_PARALLEL_SORT_SIZE * 10, 100);
+
+            // When
+            int[] indexes = ParallelSort.sortedIndexes(values.size(),
+                    () -> (index1, index2) -> Integer.compare(values.get(index1), values.get(index2)));
+
+            // Then
+            int[] expected = IntStream.range(0, values.size()).boxed()
+                    .sorted(Comparator.comparing(values::get))
+                    .mapToInt(Integer::intValue).toArray();
+            assertThat(indexes).containsExactly(expected);
+        }
+
+        @Test
+        void shouldCreateComparatorForEachTask() {
+            // Given
+            int size = ParallelSort.MIN_PARALLEL_SORT_SIZE * 4;
+            List<Integer> values = randomInts(size, size);
+            AtomicInteger comparatorsCreated = new AtomicInteger();
+
+            // When
+            int[] indexes = ParallelSort.sortedIndexes(size, () -> {
+                comparatorsCreated.incrementAndGet();
+                return (index1, index2) -> Integer.compare(values.get(index1), values.get(index2));
+            });
+
+            // Then
+            assertThat(IntStream.of(indexes).mapToObj(values::get).collect(Collectors.toList())).isSorted();
+            assertThat(comparatorsCreated).hasValueGreaterThan(1);
+        }
+
+        @Test
+        void shouldSortNoIndexes() {
+            assertThat(ParallelSort.sortedIndexes(0, () -> Integer::compare)).isEmpty();
+        }
+    }
+
+    private List<Integer> randomInts(int count, int bound) {
+        return random.ints(count, 0, bound).boxed().collect(Collectors.toCollection(ArrayList::new));
+    }
+}
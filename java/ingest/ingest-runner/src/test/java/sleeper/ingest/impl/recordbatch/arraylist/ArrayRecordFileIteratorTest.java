@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arraylist;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.Record;
+import sleeper.core.record.RecordLayout;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.StringType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ArrayRecordFileIteratorTest {
+    @TempDir
+    private Path tempDir;
+
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new LongType()))
+            .sortKeyFields(new Field("sort", new IntType()))
+            .valueFields(
+                    new Field("string", new StringType()),
+                    new Field("bytes", new ByteArrayType()),
+                    new Field("list", new ListType(new StringType())),
+                    new Field("map", new MapType(new StringType(), new LongType())))
+            .build();
+    private final RecordLayout layout = RecordLayout.from(schema);
+
+    @Test
+    void shouldReadRecordsWrittenToFile() throws IOException {
+        // Given
+        Path path = tempDir.resolve("file");
+        ArrayRecord record1 = ArrayRecord.fromRecord(layout, new Record(Map.of(
+                "key", 1L, "sort", 2, "string", "Aé", "bytes", new byte[]{1, 2},
+                "list", List.of("B", "C"), "map", Map.of("D", 3L, "E", 4L))));
+        ArrayRecord record2 = ArrayRecord.fromRecord(layout, new Record(Map.of(
+                "key", Long.MIN_VALUE, "sort", -1, "string", "", "bytes", new byte[]{},
+                "list", List.of(), "map", Map.of())));
+
+        // When
+        long bytesWritten = write(path, record1, record2);
+        List<ArrayRecord> records = read(path);
+
+        // Then
+        assertThat(records).containsExactly(record1, record2);
+        assertThat(bytesWritten).isEqualTo(Files.size(path));
+    }
+
+    @Test
+    void shouldReadRecordWithUnsetFields() throws IOException {
+        // Given
+        Path path = tempDir.resolve("file");
+        ArrayRecord record = new ArrayRecord(layout);
+        record.putLong(0, 123L);
+
+        // When
+        write(path, record);
+        List<ArrayRecord> records = read(path);
+
+        // Then
+        assertThat(records).containsExactly(record);
+        assertThat(records.get(0).isNull(1)).isTrue();
+        assertThat(records.get(0).isNull(2)).isTrue();
+    }
+
+    @Test
+    void shouldReadNoRecordsFromEmptyFile() throws IOException {
+        // Given
+        Path path = tempDir.resolve("file");
+
+        // When
+        write(path);
+
+        // Then
+        assertThat(read(path)).isEmpty();
+    }
+
+    @Test
+    void shouldFailWritingNullListElement() throws IOException {
+        // Given
+        Path path = tempDir.resolve("file");
+        ArrayRecord record = new ArrayRecord(layout);
+        record.putLong(0, 1L);
+        record.put(layout.getIndex("list"), Arrays.asList("A", null));
+
+        // When / Then
+        assertThatThrownBy(() -> write(path, record))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Found null list element in field list, which is not supported");
+    }
+
+    @Test
+    void shouldFailWritingNullMapValue() throws IOException {
+        // Given
+        Path path = tempDir.resolve("file");
+        Map<String, Long> map = new HashMap<>();
+        map.put("A", null);
+        ArrayRecord record = new ArrayRecord(layout);
+        record.putLong(0, 1L);
+        record.put(layout.getIndex("map"), map);
+
+        // When / Then
+        assertThatThrownBy(() -> write(path, record))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Found null map value in field map, which is not supported");
+    }
+
+    private long write(Path path, ArrayRecord... records) throws IOException {
+        try (ArrayRecordFileWriter writer = new ArrayRecordFileWriter(path, layout)) {
+            for (ArrayRecord record : records) {
+                writer.write(record);
+            }
+            return writer.getBytesWritten();
+        }
+    }
+
+    private List<ArrayRecord> read(Path path) throws IOException {
+        List<ArrayRecord> records = new ArrayList<>();
+        try (ArrayRecordFileIterator iterator = new ArrayRecordFileIterator(path, layout)) {
+            iterator.forEachRemaining(records::add);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arrow;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.record.Record;
+import sleeper.core.record.RecordComparator;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+import sleeper.ingest.impl.recordbatch.ParallelSort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class ArrowIngestSupportTest {
+    private final BufferAllocator allocator = new RootAllocator();
+
+    @AfterEach
+    void tearDown() {
+        allocator.close();
+    }
+
+    @Test
+    void shouldSortByStringKeysSharingPrefix() {
+        // Given
+        Schema schema = Schema.builder().rowKeyFields(new Field("key", new StringType())).build();
+        List<Record> records = recordsWithKey("key", "aaaaaaaaZ", "b", "aaaaaaaa", "aaaaaaaaA", "", "aaaa");
+
+        // When
+        List<Record> sorted = sort(schema, records);
+
+        // Then
+        assertThat(sorted).extracting(record -> record.get("key"))
+                .containsExactly("", "aaaa", "aaaaaaaa", "aaaaaaaaA", "aaaaaaaaZ", "b");
+    }
+
+    @Test
+    void shouldSortByLongKeyThenSortKey() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new LongType()))
+                .sortKeyFields(new Field("sort", new IntType()))
+                .build();
+        List<Record> records = List.of(
+                new Record(Map.of("key", 1L, "sort", 2)),
+                new Record(Map.of("key", Long.MIN_VALUE, "sort", 0)),
+                new Record(Map.of("key", 1L, "sort", -5)),
+                new Record(Map.of("key", -1L, "sort", 0)),
+                new Record(Map.of("key", Long.MAX_VALUE, "sort", 0)));
+
+        // When
+        List<Record> sorted = sort(schema, records);
+
+        // Then
+        assertThat(sorted).extracting(record -> record.get("key"), record -> record.get("sort"))
+                .containsExactly(
+                        tuple(Long.MIN_VALUE, 0),
+                        tuple(-1L, 0),
+                        tuple(1L, -5),
+                        tuple(1L, 2),
+                        tuple(Long.MAX_VALUE, 0));
+    }
+
+    @Test
+    void shouldSortByIntKey() {
+        // Given
+        Schema schema = Schema.builder().rowKeyFields(new Field("key", new IntType())).build();
+        List<Record> records = recordsWithKey("key", 5, Integer.MIN_VALUE, -3, 0, Integer.MAX_VALUE);
+
+        // When
+        List<Record> sorted = sort(schema, records);
+
+        // Then
+        assertThat(sorted).extracting(record -> record.get("key"))
+                .containsExactly(Integer.MIN_VALUE, -3, 0, 5, Integer.MAX_VALUE);
+    }
+
+    @Test
+    void shouldSortByByteArrayKeyAsUnsignedBytes() {
+        // Given
+        Schema schema = Schema.builder().rowKeyFields(new Field("key", new ByteArrayType())).build();
+        List<Record> records = recordsWithKey("key",
+                new byte[]{(byte) 0x80}, new byte[]{0x7f}, new byte[]{0x7f, 0, 0, 0, 0, 0, 0, 0, 1}, new byte[]{});
+
+        // When
+        List<Record> sorted = sort(schema, records);
+
+        // Then
+        assertThat(sorted).extracting(record -> record.get("key"))
+                .containsExactly(new byte[]{}, new byte[]{0x7f}, new byte[]{0x7f, 0, 0, 0, 0, 0, 0, 0, 1}, new byte[]{(byte) 0x80});
+    }
+
+    @Test
+    void shouldSortLargeBatchInParallel() {
+        // Given
+        Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new StringType()))
+                .sortKeyFields(new Field("sort", new LongType()))
+                .build();
+        Random random = new Random(0);
+        List<Record> records = IntStream.range(0, ParallelSort.MIN_PARALLEL_SORT_SIZE * 3)
+                .mapToObj(i -> new Record(Map.of(
+                        "key", "prefix-" + random.nextInt(100),
+                        "sort", random.nextLong())))
+                .collect(Collectors.toList());
+
+        // When
+        List<Record> sorted = sort(schema, records);
+
+        // Then
+        List<Record> expected = new ArrayList<>(records);
+        expected.sort(new RecordComparator(schema));
+        assertThat(sorted).isEqualTo(expected);
+    }
+
+    private List<Record> sort(Schema schema, List<Record> records) {
+        try (VectorSchemaRoot vectorSchemaRoot = VectorSchemaRoot.create(
+                ArrowRecordBatch.convertSleeperSchemaToArrowSchema(schema), allocator)) {
+            for (int i = 0; i < records.size(); i++) {
+                ArrowRecordWriterAcceptingRecords.writeRecord(schema.getAllFields(), vectorSchemaRoot, records.get(i), i);
+            }
+            vectorSchemaRoot.setRowCount(records.size());
+            try (IntVector sortOrder = ArrowIngestSupport.createSortOrderVector(allocator, schema, vectorSchemaRoot)) {
+                List<Record> sorted = new ArrayList<>();
+                for (int i = 0; i < records.size(); i++) {
+                    sorted.add(ArrowToRecordConversionUtils.convertVectorSchemaRootToRecord(vectorSchemaRoot, sortOrder.get(i)));
+                }
+                return sorted;
+            }
+        }
+    }
+
+    private static List<Record> recordsWithKey(String fieldName, Object... values) {
+        List<Record> records = new ArrayList<>();
+        for (Object value : values) {
+            records.add(new Record(Map.of(fieldName, value)));
+        }
+        return records;
+    }
+}
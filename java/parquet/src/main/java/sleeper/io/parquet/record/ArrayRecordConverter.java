@@ -0,0 +1,234 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.record;
+
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.RecordLayout;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.PrimitiveType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.schema.type.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts rows of Parquet data into Sleeper records held by position. A new record is created for each row, and long
+ * and int values are set without boxing.
+ */
+public class ArrayRecordConverter extends GroupConverter {
+    private final RecordLayout layout;
+    private final Converter[] converters;
+    private ArrayRecord currentRecord;
+
+    public ArrayRecordConverter(RecordLayout layout) {
+        this.layout = layout;
+        this.converters = new Converter[layout.getNumberOfFields()];
+        for (int i = 0; i < converters.length; i++) {
+            Field field = layout.getField(i);
+            Type type = field.getType();
+            if (type instanceof IntType) {
+                converters[i] = new IntConverter(i);
+            } else if (type instanceof LongType) {
+                converters[i] = new LongConverter(i);
+            } else if (type instanceof StringType) {
+                converters[i] = new StringConverter(i);
+            } else if (type instanceof ByteArrayType) {
+                converters[i] = new ByteArrayConverter(i);
+            } else if (type instanceof MapType) {
+                MapType mapType = (MapType) type;
+                converters[i] = new MapConverter<>(i, mapType.getKeyType(), mapType.getValueType());
+            } else if (type instanceof ListType) {
+                ListType listType = (ListType) type;
+                converters[i] = new ListConverter<>(i, listType.getElementType());
+            } else {
+                throw new IllegalArgumentException("Schema has a field with an unknown type (" + field + ")");
+            }
+        }
+    }
+
+    @Override
+    public Converter getConverter(int fieldIndex) {
+        return converters[fieldIndex];
+    }
+
+    @Override
+    public void start() {
+        currentRecord = new ArrayRecord(layout);
+    }
+
+    @Override
+    public void end() {
+    }
+
+    public ArrayRecord getRecord() {
+        return currentRecord;
+    }
+
+    /**
+     * Sets an int field without boxing.
+     */
+    private class IntConverter extends PrimitiveConverter {
+        private final int index;
+
+        IntConverter(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void addInt(int value) {
+            currentRecord.putInt(index, value);
+        }
+    }
+
+    /**
+     * Sets a long field without boxing.
+     */
+    private class LongConverter extends PrimitiveConverter {
+        private final int index;
+
+        LongConverter(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void addLong(long value) {
+            currentRecord.putLong(index, value);
+        }
+    }
+
+    /**
+     * Sets a string field.
+     */
+    private class StringConverter extends PrimitiveConverter {
+        private final int index;
+
+        StringConverter(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void addBinary(Binary value) {
+            currentRecord.put(index, value.toStringUsingUTF8());
+        }
+    }
+
+    /**
+     * Sets a byte array field.
+     */
+    private class ByteArrayConverter extends PrimitiveConverter {
+        private final int index;
+
+        ByteArrayConverter(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void addBinary(Binary value) {
+            currentRecord.put(index, value.getBytes());
+        }
+    }
+
+    /**
+     * Sets a list field.
+     *
+     * @param <E> the type of the list elements
+     */
+    private class ListConverter<E> extends GroupConverter {
+        private final int index;
+        private final List<E> elements;
+        private final RecordConverter.ElementConverter<E> elementConverter;
+
+        ListConverter(int index, PrimitiveType elementType) {
+            this.index = index;
+            this.elements = new ArrayList<>();
+            this.elementConverter = new RecordConverter.ElementConverter<>(elements, elementType);
+        }
+
+        @Override
+        public Converter getConverter(int fieldIndex) {
+            if (0 != fieldIndex) {
+                throw new RuntimeException("Only 0 is a valid field index");
+            }
+            return elementConverter;
+        }
+
+        @Override
+        public void start() {
+            elements.clear();
+        }
+
+        @Override
+        public void end() {
+            currentRecord.put(index, new ArrayList<>(elements));
+        }
+    }
+
+    /**
+     * Sets a map field.
+     *
+     * @param <K> the type of the map keys
+     * @param <V> the type of the map values
+     */
+    private class MapConverter<K, V> extends GroupConverter {
+        private final int index;
+        private final List<K> keys;
+        private final List<V> values;
+        private final RecordConverter.KeyValueConverter<K, V> keyValueConverter;
+
+        MapConverter(int index, PrimitiveType keyType, PrimitiveType valueType) {
+            this.index = index;
+            this.keys = new ArrayList<>();
+            this.values = new ArrayList<>();
+            this.keyValueConverter = new RecordConverter.KeyValueConverter<>(keys, values, keyType, valueType);
+        }
+
+        @Override
+        public Converter getConverter(int fieldIndex) {
+            if (0 != fieldIndex) {
+                throw new RuntimeException("Only 0 is a valid field index");
+            }
+            return keyValueConverter;
+        }
+
+        @Override
+        public void start() {
+            keys.clear();
+            values.clear();
+        }
+
+        @Override
+        public void end() {
+            Map<K, V> map = new HashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                map.put(keys.get(i), values.get(i));
+            }
+            currentRecord.put(index, map);
+        }
+    }
+}
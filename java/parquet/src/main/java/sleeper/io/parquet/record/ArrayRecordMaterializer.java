@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.record;
+
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.RecordLayout;
+
+public class ArrayRecordMaterializer extends RecordMaterializer<ArrayRecord> {
+    private final ArrayRecordConverter recordConverter;
+
+    public ArrayRecordMaterializer(RecordLayout layout) {
+        this.recordConverter = new ArrayRecordConverter(layout);
+    }
+
+    @Override
+    public ArrayRecord getCurrentRecord() {
+        return recordConverter.getRecord();
+    }
+
+    @Override
+    public GroupConverter getRootConverter() {
+        return recordConverter;
+    }
+}
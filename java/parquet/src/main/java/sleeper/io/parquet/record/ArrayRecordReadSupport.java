@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.record;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.MessageType;
+
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.RecordLayout;
+
+import java.util.Map;
+
+/**
+ * Support for reading Sleeper records held by position from Parquet files.
+ */
+public class ArrayRecordReadSupport extends ReadSupport<ArrayRecord> {
+    private final RecordLayout layout;
+
+    public ArrayRecordReadSupport(RecordLayout layout) {
+        this.layout = layout;
+    }
+
+    @Override
+    public RecordMaterializer<ArrayRecord> prepareForRead(
+            Configuration configuration,
+            Map<String, String> keyValueMetaData,
+            MessageType fileSchema,
+            ReadContext readContext) {
+        return new ArrayRecordMaterializer(layout);
+    }
+
+    @Override
+    public ReadContext init(InitContext context) {
+        return new ReadContext(SchemaConverter.getSchema(layout.getSchema()));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.record;
+
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.RecordLayout;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.schema.type.Type;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes records held by position to a Parquet file via a record consumer. Long and int values are written without
+ * boxing.
+ */
+public class ArrayRecordWriter {
+    private final RecordConsumer recordConsumer;
+    private final RecordLayout layout;
+    private final String[] fieldNames;
+
+    public ArrayRecordWriter(RecordConsumer recordConsumer, RecordLayout layout) {
+        this.recordConsumer = recordConsumer;
+        this.layout = layout;
+        this.fieldNames = new String[layout.getNumberOfFields()];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldNames[i] = layout.getField(i).getName();
+        }
+    }
+
+    public void write(ArrayRecord record) {
+        recordConsumer.startMessage();
+        for (int i = 0; i < fieldNames.length; i++) {
+            String name = fieldNames[i];
+            Type type = layout.getType(i);
+            recordConsumer.startField(name, i);
+            if (type instanceof IntType) {
+                recordConsumer.addInteger(record.getInt(i));
+            } else if (type instanceof LongType) {
+                recordConsumer.addLong(record.getLong(i));
+            } else if (type instanceof StringType) {
+                recordConsumer.addBinary(Binary.fromString((String) record.get(i)));
+            } else if (type instanceof ByteArrayType) {
+                recordConsumer.addBinary(Binary.fromConstantByteArray((byte[]) record.get(i)));
+            } else if (type instanceof MapType) {
+                RecordWriter.addMap(recordConsumer, (MapType) type, (Map<?, ?>) record.get(i));
+            } else if (type instanceof ListType) {
+                RecordWriter.addList(recordConsumer, (ListType) type, (List<?>) record.get(i));
+            } else {
+                throw new RuntimeException("Unknown type " + type);
+            }
+            recordConsumer.endField(name, i);
+        }
+        recordConsumer.endMessage();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.record;
+
+import org.apache.parquet.hadoop.ParquetReader;
+
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.record.ArrayRecord;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates through records held by position read from a Parquet file. Wraps a {@link ParquetReader}. Unlike
+ * {@link ParquetReaderIterator} this does not need to copy each record, as the reader creates a new record for each
+ * row.
+ */
+public class ParquetArrayRecordIterator implements CloseableIterator<ArrayRecord> {
+    private final ParquetReader<ArrayRecord> reader;
+    private ArrayRecord record;
+    private long recordsRead;
+
+    public ParquetArrayRecordIterator(ParquetReader<ArrayRecord> reader) throws IOException {
+        this.reader = reader;
+        this.record = reader.read();
+        this.recordsRead = 0L;
+        if (null != this.record) {
+            this.recordsRead++;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return null != record;
+    }
+
+    @Override
+    public ArrayRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ArrayRecord current = record;
+        try {
+            record = reader.read();
+            if (null != record) {
+                recordsRead++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("IOException when reading from ParquetReader", e);
+        }
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    public long getNumberOfRecordsRead() {
+        return recordsRead;
+    }
+}
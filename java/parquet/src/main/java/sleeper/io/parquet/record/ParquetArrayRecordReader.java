@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.record;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.io.InputFile;
+
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.RecordLayout;
+
+import java.io.IOException;
+
+/**
+ * Reads Parquet files as records held by position. Uses {@link ArrayRecordReadSupport}.
+ */
+public class ParquetArrayRecordReader extends ParquetReader<ArrayRecord> {
+
+    public ParquetArrayRecordReader(Path file, RecordLayout layout) throws IOException {
+        super(file, new ArrayRecordReadSupport(layout));
+    }
+
+    public static class Builder extends ParquetReader.Builder<ArrayRecord> {
+        private final RecordLayout layout;
+
+        public Builder(Path path, RecordLayout layout) {
+            super(path);
+            this.layout = layout;
+        }
+
+        public Builder(InputFile file, RecordLayout layout) {
+            super(file);
+            this.layout = layout;
+        }
+
+        @Override
+        protected ReadSupport<ArrayRecord> getReadSupport() {
+            return new ArrayRecordReadSupport(layout);
+        }
+    }
+}
@@ -26,7 +26,9 @@ import org.apache.parquet.schema.MessageType;
 
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.record.ArrayRecord;
 import sleeper.core.record.Record;
+import sleeper.core.record.RecordLayout;
 import sleeper.core.schema.Schema;
 
 import java.io.IOException;
@@ -68,8 +70,50 @@ public class ParquetRecordWriterFactory {
                 .withWriteMode(writeMode).build();
     }
 
+    /**
+     * Creates a writer for records held by position, configured from the given table properties. It is the
+     * responsibility of the caller to close the writer after use.
+     *
+     * @param  path            the path of the file to write
+     * @param  tableProperties the table properties
+     * @param  conf            the Hadoop configuration
+     * @param  writeMode       the write mode
+     * @return                 the writer
+     * @throws IOException     if the writer could not be created
+     */
+    public static ParquetWriter<ArrayRecord> createParquetArrayRecordWriter(Path path, TableProperties tableProperties, Configuration conf, ParquetFileWriter.Mode writeMode) throws IOException {
+        return parquetArrayRecordWriterBuilder(path, tableProperties)
+                .withConf(conf)
+                .withWriteMode(writeMode).build();
+    }
+
     public static Builder parquetRecordWriterBuilder(Path path, TableProperties tableProperties) {
-        return new Builder(path, tableProperties.getSchema())
+        return configureFromTableProperties(new Builder(path, tableProperties.getSchema()), tableProperties);
+    }
+
+    /**
+     * Creates a builder for a writer for records held by position, configured from the given table properties.
+     *
+     * @param  path            the path of the file to write
+     * @param  tableProperties the table properties
+     * @return                 the builder
+     */
+    public static ArrayRecordBuilder parquetArrayRecordWriterBuilder(Path path, TableProperties tableProperties) {
+        return configureFromTableProperties(
+                new ArrayRecordBuilder(path, RecordLayout.from(tableProperties.getSchema())), tableProperties);
+    }
+
+    /**
+     * Applies settings from table properties to a builder for a writer of Sleeper records.
+     *
+     * @param  <T>             the type of records to write
+     * @param  <B>             the type of the builder
+     * @param  builder         the builder
+     * @param  tableProperties the table properties
+     * @return                 the builder
+     */
+    public static <T, B extends BaseBuilder<T, B>> B configureFromTableProperties(B builder, TableProperties tableProperties) {
+        return builder
                 .withCompressionCodec(tableProperties.get(COMPRESSION_CODEC))
                 .withRowGroupSize(tableProperties.getLong(ROW_GROUP_SIZE))
                 .withPageSize(tableProperties.getInt(PAGE_SIZE))
@@ -81,49 +125,94 @@ public class ParquetRecordWriterFactory {
                 .withWriterVersion(WriterVersion.fromString(tableProperties.get(PARQUET_WRITER_VERSION)));
     }
 
-    public static class Builder extends ParquetWriter.Builder<Record, Builder> {
-        private final MessageType messageType;
-        private final Schema schema;
-
+    /**
+     * Builds a writer for Sleeper records held in maps.
+     */
+    public static class Builder extends BaseBuilder<Record, Builder> {
         private Builder(Path path, Schema schema) {
-            super(path);
-            this.messageType = SchemaConverter.getSchema(schema);
-            this.schema = schema;
+            super(path, schema);
         }
 
         @Override
         protected WriteSupport<Record> getWriteSupport(Configuration conf) {
-            return new RecordWriteSupport(messageType, schema);
+            return new RecordWriteSupport(getMessageType(), getSchema());
         }
 
         @Override
         protected Builder self() {
             return this;
         }
+    }
 
-        public Builder withCompressionCodec(String compressionCodec) {
-            return withCompressionCodec(CompressionCodecName.fromConf(compressionCodec.toUpperCase(Locale.ROOT)));
+    /**
+     * Builds a writer for Sleeper records held by position.
+     */
+    public static class ArrayRecordBuilder extends BaseBuilder<ArrayRecord, ArrayRecordBuilder> {
+        private final RecordLayout layout;
+
+        private ArrayRecordBuilder(Path path, RecordLayout layout) {
+            super(path, layout.getSchema());
+            this.layout = layout;
         }
 
-        public Builder withDictionaryEncodingForRowKeyFields(boolean dictionaryEncodingForRowKeyFields) {
-            setDictionaryEncoding(this, schema.getRowKeyFieldNames(), dictionaryEncodingForRowKeyFields);
-            return this;
+        @Override
+        protected WriteSupport<ArrayRecord> getWriteSupport(Configuration conf) {
+            return new ArrayRecordWriteSupport(getMessageType(), layout);
         }
 
-        public Builder withDictionaryEncodingForSortKeyFields(boolean dictionaryEncodingForSortKeyFields) {
-            setDictionaryEncoding(this, schema.getSortKeyFieldNames(), dictionaryEncodingForSortKeyFields);
+        @Override
+        protected ArrayRecordBuilder self() {
             return this;
         }
+    }
 
-        public Builder withDictionaryEncodingForValueFields(boolean dictionaryEncodingForValueFields) {
-            setDictionaryEncoding(this, schema.getValueFieldNames(), dictionaryEncodingForValueFields);
-            return this;
+    /**
+     * Common configuration for writers of Sleeper records.
+     *
+     * @param <T> the type of records to write
+     * @param <B> the type of the builder
+     */
+    public abstract static class BaseBuilder<T, B extends BaseBuilder<T, B>> extends ParquetWriter.Builder<T, B> {
+        private final MessageType messageType;
+        private final Schema schema;
+
+        protected BaseBuilder(Path path, Schema schema) {
+            super(path);
+            this.messageType = SchemaConverter.getSchema(schema);
+            this.schema = schema;
+        }
+
+        protected MessageType getMessageType() {
+            return messageType;
+        }
+
+        protected Schema getSchema() {
+            return schema;
+        }
+
+        public B withCompressionCodec(String compressionCodec) {
+            return withCompressionCodec(CompressionCodecName.fromConf(compressionCodec.toUpperCase(Locale.ROOT)));
+        }
+
+        public B withDictionaryEncodingForRowKeyFields(boolean dictionaryEncodingForRowKeyFields) {
+            setDictionaryEncoding(self(), schema.getRowKeyFieldNames(), dictionaryEncodingForRowKeyFields);
+            return self();
+        }
+
+        public B withDictionaryEncodingForSortKeyFields(boolean dictionaryEncodingForSortKeyFields) {
+            setDictionaryEncoding(self(), schema.getSortKeyFieldNames(), dictionaryEncodingForSortKeyFields);
+            return self();
+        }
+
+        public B withDictionaryEncodingForValueFields(boolean dictionaryEncodingForValueFields) {
+            setDictionaryEncoding(self(), schema.getValueFieldNames(), dictionaryEncodingForValueFields);
+            return self();
         }
     }
 
-    private static void setDictionaryEncoding(Builder builder, List<String> fieldNames, boolean dictionaryEncodingEnabled) {
+    private static void setDictionaryEncoding(BaseBuilder<?, ?> builder, List<String> fieldNames, boolean dictionaryEncodingEnabled) {
         for (String fieldName : fieldNames) {
-            builder = builder.withDictionaryEncoding(fieldName, dictionaryEncodingEnabled);
+            builder.withDictionaryEncoding(fieldName, dictionaryEncodingEnabled);
         }
     }
 }
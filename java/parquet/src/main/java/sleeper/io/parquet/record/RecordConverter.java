@@ -274,11 +274,11 @@ public class RecordConverter extends GroupConverter {
         }
     }
 
-    private static class KeyValueConverter<K, V> extends GroupConverter {
+    static class KeyValueConverter<K, V> extends GroupConverter {
         private final PrimitiveConverter keyConverter;
         private final PrimitiveConverter valueConverter;
 
-        private KeyValueConverter(List<K> keys, List<V> values,
+        KeyValueConverter(List<K> keys, List<V> values,
                 PrimitiveType keyType, PrimitiveType valueType) {
             this.keyConverter = getInListConverter(keyType, keys);
             this.valueConverter = getInListConverter(valueType, values);
@@ -304,10 +304,10 @@ public class RecordConverter extends GroupConverter {
         }
     }
 
-    private static class ElementConverter<E> extends GroupConverter {
+    static class ElementConverter<E> extends GroupConverter {
         private final PrimitiveConverter elementConverter;
 
-        private ElementConverter(List<E> elements, PrimitiveType elementType) {
+        ElementConverter(List<E> elements, PrimitiveType elementType) {
             this.elementConverter = getInListConverter(elementType, elements);
         }
 
@@ -328,7 +328,7 @@ public class RecordConverter extends GroupConverter {
         }
     }
 
-    private static <T> PrimitiveConverter getInListConverter(PrimitiveType type, List<T> list) {
+    static <T> PrimitiveConverter getInListConverter(PrimitiveType type, List<T> list) {
         if (type instanceof IntType) {
             return new IntInMapConverter((List<Integer>) list);
         }
@@ -73,7 +73,7 @@ public class RecordWriter {
         recordConsumer.endMessage();
     }
 
-    private void addList(RecordConsumer recordConsumer, ListType listType, List<?> list) {
+    static void addList(RecordConsumer recordConsumer, ListType listType, List<?> list) {
         PrimitiveType elementType = listType.getElementType();
         recordConsumer.startGroup();
         if (!list.isEmpty()) {
@@ -106,7 +106,7 @@ public class RecordWriter {
         recordConsumer.endGroup();
     }
 
-    private void addMap(RecordConsumer recordConsumer, MapType mapType, Map<?, ?> map) {
+    static void addMap(RecordConsumer recordConsumer, MapType mapType, Map<?, ?> map) {
         PrimitiveType keyType = mapType.getKeyType();
         PrimitiveType valueType = mapType.getValueType();
         recordConsumer.startGroup();
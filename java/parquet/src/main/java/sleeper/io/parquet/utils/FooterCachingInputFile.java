@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.util.HadoopStreams;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A Parquet input file where the footer is already held in memory. The length of the file and reads of the footer
+ * are served from memory. The file is only opened if data outside the footer is read.
+ */
+class FooterCachingInputFile implements InputFile {
+    private final Path path;
+    private final Configuration configuration;
+    private final long fileLength;
+    private final byte[] footerBytes;
+
+    FooterCachingInputFile(Path path, Configuration configuration, long fileLength, byte[] footerBytes) {
+        this.path = path;
+        this.configuration = configuration;
+        this.fileLength = fileLength;
+        this.footerBytes = footerBytes;
+    }
+
+    @Override
+    public long getLength() {
+        return fileLength;
+    }
+
+    @Override
+    public SeekableInputStream newStream() {
+        return new Stream();
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    /**
+     * Reads from the footer in memory, or from the file outside the footer. Reads from the file are not allowed to
+     * cross into the footer, so a read may return fewer bytes than requested.
+     */
+    private class Stream extends SeekableInputStream {
+        private final long footerOffset = fileLength - footerBytes.length;
+        private SeekableInputStream file;
+        private long pos;
+
+        @Override
+        public long getPos() {
+            return pos;
+        }
+
+        @Override
+        public void seek(long newPos) {
+            pos = newPos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= fileLength) {
+                return -1;
+            } else if (pos >= footerOffset) {
+                return footerBytes[(int) (pos++ - footerOffset)] & 0xff;
+            } else {
+                int value = fileAtPosition().read();
+                if (value >= 0) {
+                    pos++;
+                }
+                return value;
+            }
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            } else if (pos >= fileLength) {
+                return -1;
+            } else if (pos >= footerOffset) {
+                int footerIndex = (int) (pos - footerOffset);
+                int read = Math.min(length, footerBytes.length - footerIndex);
+                System.arraycopy(footerBytes, footerIndex, bytes, offset, read);
+                pos += read;
+                return read;
+            } else {
+                int read = fileAtPosition().read(bytes, offset, (int) Math.min(length, footerOffset - pos));
+                if (read > 0) {
+                    pos += read;
+                }
+                return read;
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer buffer) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return 0;
+            } else if (pos >= fileLength) {
+                return -1;
+            } else if (pos >= footerOffset) {
+                int footerIndex = (int) (pos - footerOffset);
+                int read = Math.min(buffer.remaining(), footerBytes.length - footerIndex);
+                buffer.put(footerBytes, footerIndex, read);
+                pos += read;
+                return read;
+            } else {
+                ByteBuffer outsideFooter = buffer.duplicate();
+                outsideFooter.limit(outsideFooter.position() + (int) Math.min(buffer.remaining(), footerOffset - pos));
+                int read = fileAtPosition().read(outsideFooter);
+                if (read > 0) {
+                    buffer.position(buffer.position() + read);
+                    pos += read;
+                }
+                return read;
+            }
+        }
+
+        @Override
+        public void readFully(byte[] bytes) throws IOException {
+            readFully(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public void readFully(byte[] bytes, int offset, int length) throws IOException {
+            int totalRead = 0;
+            while (totalRead < length) {
+                int read = read(bytes, offset + totalRead, length - totalRead);
+                if (read < 0) {
+                    throw new EOFException("Reached the end of " + path + " with " + (length - totalRead) + " bytes left to read");
+                }
+                totalRead += read;
+            }
+        }
+
+        @Override
+        public void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (read(buffer) < 0) {
+                    throw new EOFException("Reached the end of " + path + " with " + buffer.remaining() + " bytes left to read");
+                }
+            }
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, fileLength - pos));
+            pos += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                file.close();
+            }
+        }
+
+        private SeekableInputStream fileAtPosition() throws IOException {
+            if (file == null) {
+                file = HadoopStreams.wrap(path.getFileSystem(configuration).open(path));
+            }
+            if (file.getPos() != pos) {
+                file.seek(pos);
+            }
+            return file;
+        }
+    }
+}
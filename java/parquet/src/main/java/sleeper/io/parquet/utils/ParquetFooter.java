@@ -0,0 +1,176 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.HadoopReadOptions;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The footer of a Parquet file, held in memory. Holds the parsed metadata, as well as the bytes of the footer so that
+ * a Parquet reader can be created without reading the footer from the file again. See {@link ParquetFooterCache}.
+ */
+public class ParquetFooter {
+
+    /**
+     * The number of bytes read from the end of a file in one request, in the hope of getting the whole footer. If the
+     * footer is larger than this, it is read with a second request.
+     */
+    private static final int SPECULATIVE_READ_BYTES = 64 * 1024;
+    /**
+     * The footer is followed by its length as a 4 byte integer, and the 4 byte magic number.
+     */
+    private static final int FOOTER_TRAILER_BYTES = 8;
+    /**
+     * Estimates of the memory held by the objects in the parsed metadata, besides any variable length data. These are
+     * rough figures for the Java objects the Parquet library creates for each part of the footer.
+     */
+    private static final long METADATA_OVERHEAD_BYTES = 512;
+    private static final long ROW_GROUP_OVERHEAD_BYTES = 128;
+    private static final long COLUMN_CHUNK_OVERHEAD_BYTES = 512;
+    private static final long SCHEMA_COLUMN_OVERHEAD_BYTES = 256;
+    private static final long KEY_VALUE_OVERHEAD_BYTES = 96;
+
+    private final Path path;
+    private final long fileLength;
+    private final byte[] footerBytes;
+    private final ParquetMetadata metadata;
+    private final long sizeInBytes;
+
+    private ParquetFooter(Path path, long fileLength, byte[] footerBytes, Configuration configuration) throws IOException {
+        this.path = path;
+        this.fileLength = fileLength;
+        this.footerBytes = footerBytes;
+        InputFile inputFile = toInputFile(configuration);
+        try (SeekableInputStream stream = inputFile.newStream()) {
+            this.metadata = ParquetFileReader.readFooter(inputFile, HadoopReadOptions.builder(configuration, path).build(), stream);
+        }
+        this.sizeInBytes = footerBytes.length + estimateMetadataBytes(metadata);
+    }
+
+    /**
+     * Reads the footer of a Parquet file.
+     *
+     * @param  path          the path to the file
+     * @param  configuration the Hadoop configuration
+     * @return               the footer
+     * @throws IOException   if the footer could not be read, or the file is not a valid Parquet file
+     */
+    public static ParquetFooter read(Path path, Configuration configuration) throws IOException {
+        FileSystem fs = path.getFileSystem(configuration);
+        long fileLength = fs.getFileStatus(path).getLen();
+        if (fileLength < FOOTER_TRAILER_BYTES) {
+            throw new IOException(path + " is not a Parquet file (length is too small: " + fileLength + ")");
+        }
+        byte[] footerBytes;
+        try (FSDataInputStream in = fs.open(path)) {
+            int tailLength = (int) Math.min(fileLength, SPECULATIVE_READ_BYTES);
+            byte[] tail = new byte[tailLength];
+            in.readFully(fileLength - tailLength, tail);
+            int footerLength = readIntLittleEndian(tail, tailLength - FOOTER_TRAILER_BYTES);
+            if (footerLength < 0 || footerLength > fileLength - FOOTER_TRAILER_BYTES) {
+                throw new IOException(path + " is not a Parquet file (invalid footer length: " + footerLength + ")");
+            }
+            int footerBytesLength = footerLength + FOOTER_TRAILER_BYTES;
+            if (footerBytesLength <= tailLength) {
+                footerBytes = Arrays.copyOfRange(tail, tailLength - footerBytesLength, tailLength);
+            } else {
+                footerBytes = new byte[footerBytesLength];
+                in.readFully(fileLength - footerBytesLength, footerBytes);
+            }
+        }
+        return new ParquetFooter(path, fileLength, footerBytes, configuration);
+    }
+
+    /**
+     * Creates an input file to read the Parquet file this footer is from. Reads of the footer will be served from
+     * memory, and the file will only be opened when other data is read.
+     *
+     * @param  configuration the Hadoop configuration
+     * @return               the input file
+     */
+    public InputFile toInputFile(Configuration configuration) {
+        return new FooterCachingInputFile(path, configuration, fileLength, footerBytes);
+    }
+
+    public ParquetMetadata getMetadata() {
+        return metadata;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    /**
+     * Estimates the memory held by this footer. This includes the bytes of the footer as it was read from the file, and
+     * an estimate of the parsed metadata. The parsed metadata is usually several times larger than the footer in the
+     * file, as each row group holds Java objects for every column chunk and its statistics.
+     *
+     * @return the estimated size of the footer in memory, in bytes
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    private static long estimateMetadataBytes(ParquetMetadata metadata) {
+        FileMetaData fileMetaData = metadata.getFileMetaData();
+        long bytes = METADATA_OVERHEAD_BYTES
+                + SCHEMA_COLUMN_OVERHEAD_BYTES * fileMetaData.getSchema().getColumns().size();
+        for (Map.Entry<String, String> entry : fileMetaData.getKeyValueMetaData().entrySet()) {
+            bytes += KEY_VALUE_OVERHEAD_BYTES + stringBytes(entry.getKey()) + stringBytes(entry.getValue());
+        }
+        for (BlockMetaData rowGroup : metadata.getBlocks()) {
+            bytes += ROW_GROUP_OVERHEAD_BYTES;
+            for (ColumnChunkMetaData column : rowGroup.getColumns()) {
+                bytes += COLUMN_CHUNK_OVERHEAD_BYTES;
+                Statistics<?> statistics = column.getStatistics();
+                if (statistics != null && statistics.hasNonNullValue()) {
+                    bytes += statistics.getMinBytes().length + statistics.getMaxBytes().length;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String string) {
+        return string == null ? 0 : 2L * string.length();
+    }
+
+    private static int readIntLittleEndian(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+                | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16
+                | (bytes[offset + 3] & 0xff) << 24;
+    }
+}
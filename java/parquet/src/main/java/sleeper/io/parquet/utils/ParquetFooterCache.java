@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the footers of Parquet files in memory, to avoid reading the footer from the file system each time a file is
+ * opened. Data files in Sleeper are never modified after they are written, so a cached footer remains valid until it
+ * is evicted.
+ * <p>
+ * The cache is bounded by the total estimated memory held by the footers, including their parsed metadata. See
+ * {@link ParquetFooter#getSizeInBytes()}. When this is exceeded, the least recently used footers are evicted. This
+ * class is thread safe, so that it can be shared between queries.
+ */
+public class ParquetFooterCache {
+    private final long maxBytes;
+    private final Map<String, ParquetFooter> footerByFilename = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private long hits;
+    private long misses;
+
+    public ParquetFooterCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Retrieves the footer of a file, reading it from the file if it is not cached.
+     *
+     * @param  path          the path to the file
+     * @param  configuration the Hadoop configuration
+     * @return               the footer
+     * @throws IOException   if the footer was not cached and could not be read
+     */
+    public ParquetFooter getFooter(Path path, Configuration configuration) throws IOException {
+        String filename = path.toString();
+        synchronized (this) {
+            ParquetFooter footer = footerByFilename.get(filename);
+            if (footer != null) {
+                hits++;
+                return footer;
+            }
+            misses++;
+        }
+        // Read outside of the lock so that other files can be read in parallel
+        ParquetFooter footer = ParquetFooter.read(path, configuration);
+        add(filename, footer);
+        return footer;
+    }
+
+    private synchronized void add(String filename, ParquetFooter footer) {
+        if (footer.getSizeInBytes() > maxBytes) {
+            return;
+        }
+        ParquetFooter replaced = footerByFilename.put(filename, footer);
+        if (replaced != null) {
+            cachedBytes -= replaced.getSizeInBytes();
+        }
+        cachedBytes += footer.getSizeInBytes();
+        Iterator<ParquetFooter> leastRecentlyUsed = footerByFilename.values().iterator();
+        while (cachedBytes > maxBytes) {
+            cachedBytes -= leastRecentlyUsed.next().getSizeInBytes();
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized int getCachedFooters() {
+        return footerByFilename.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.utils;
+
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.compat.RowGroupFilter;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks the row groups of Parquet files against a filter, and counts how many can be skipped. This uses the min/max
+ * statistics in the footer of each file, so no data pages are read. A file with no row groups that could match the
+ * filter does not need to be read at all.
+ * <p>
+ * The footer should be read once with {@link ParquetFooter}, and the same footer used to create a reader for the file,
+ * so that the footer is not read from the file again. Readers created with the same filter will skip the same row
+ * groups. This class is thread safe, so that files can be checked in parallel.
+ */
+public class RowGroupSkipCounter {
+    private final AtomicLong filesSkipped = new AtomicLong();
+    private final AtomicLong rowGroupsRead = new AtomicLong();
+    private final AtomicLong rowGroupsSkipped = new AtomicLong();
+
+    /**
+     * Counts the row groups that can be skipped in a file whose footer has already been read.
+     *
+     * @param  footer the footer of the file
+     * @param  filter the filter for rows that will be read from the file
+     * @return        true if any row group in the file may contain rows matching the filter
+     */
+    public boolean checkFooter(ParquetMetadata footer, FilterCompat.Filter filter) {
+        List<BlockMetaData> rowGroups = footer.getBlocks();
+        List<BlockMetaData> rowGroupsToRead = RowGroupFilter.filterRowGroups(
+                filter, rowGroups, footer.getFileMetaData().getSchema());
+        rowGroupsRead.addAndGet(rowGroupsToRead.size());
+        rowGroupsSkipped.addAndGet(rowGroups.size() - rowGroupsToRead.size());
+        if (rowGroupsToRead.isEmpty()) {
+            filesSkipped.incrementAndGet();
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    public long getFilesSkipped() {
+        return filesSkipped.get();
+    }
+
+    public long getRowGroupsRead() {
+        return rowGroupsRead.get();
+    }
+
+    public long getRowGroupsSkipped() {
+        return rowGroupsSkipped.get();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.record;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.record.ArrayRecord;
+import sleeper.core.record.Record;
+import sleeper.core.record.RecordLayout;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.StringType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.Files.createTempDirectory;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParquetArrayRecordReaderIT {
+
+    @TempDir
+    public java.nio.file.Path folder;
+
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new LongType()))
+            .sortKeyFields(new Field("sort", new IntType()))
+            .valueFields(
+                    new Field("string", new StringType()),
+                    new Field("bytes", new ByteArrayType()),
+                    new Field("list", new ListType(new StringType())),
+                    new Field("map", new MapType(new StringType(), new LongType())))
+            .build();
+    private final RecordLayout layout = RecordLayout.from(schema);
+
+    @Test
+    void shouldReadRecordsWrittenAsRecords() throws IOException {
+        // Given
+        Path path = new Path(createTempDirectory(folder, null).toString() + "/file.parquet");
+        Record record1 = new Record(Map.of(
+                "key", 1L, "sort", 2, "string", "A", "bytes", new byte[]{1, 2},
+                "list", List.of("B", "C"), "map", Map.of("D", 3L)));
+        Record record2 = new Record(Map.of(
+                "key", 4L, "sort", 5, "string", "E", "bytes", new byte[]{3},
+                "list", List.of(), "map", Map.of()));
+        try (ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(path, schema)) {
+            writer.write(record1);
+            writer.write(record2);
+        }
+
+        // When
+        List<ArrayRecord> records = readArrayRecords(path);
+
+        // Then
+        assertThat(records).containsExactly(
+                ArrayRecord.fromRecord(layout, record1),
+                ArrayRecord.fromRecord(layout, record2));
+        assertThat(records.get(0).getLong(0)).isEqualTo(1L);
+        assertThat(records.get(0).getInt(1)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldWriteRecordsReadableAsRecords() throws IOException {
+        // Given
+        Path path = new Path(createTempDirectory(folder, null).toString() + "/file.parquet");
+        Record record = new Record(Map.of(
+                "key", 1L, "sort", 2, "string", "A", "bytes", new byte[]{1, 2},
+                "list", List.of("B", "C"), "map", Map.of("D", 3L)));
+        TableProperties tableProperties = new TableProperties(new InstanceProperties());
+        tableProperties.setSchema(schema);
+        try (ParquetWriter<ArrayRecord> writer = ParquetRecordWriterFactory.createParquetArrayRecordWriter(
+                path, tableProperties, new Configuration(), ParquetFileWriter.Mode.CREATE)) {
+            writer.write(ArrayRecord.fromRecord(layout, record));
+        }
+
+        // When
+        List<Record> records = new ArrayList<>();
+        try (ParquetReaderIterator iterator = new ParquetReaderIterator(
+                new ParquetRecordReader.Builder(path, schema).build())) {
+            iterator.forEachRemaining(records::add);
+        }
+
+        // Then
+        assertThat(records).containsExactly(record);
+    }
+
+    @Test
+    void shouldCreateNewRecordForEachRow() throws IOException {
+        // Given
+        Path path = new Path(createTempDirectory(folder, null).toString() + "/file.parquet");
+        try (ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(path, schema)) {
+            for (long i = 0; i < 3; i++) {
+                writer.write(new Record(Map.of(
+                        "key", i, "sort", 0, "string", "", "bytes", new byte[]{},
+                        "list", List.of(), "map", Map.of())));
+            }
+        }
+
+        // When
+        List<ArrayRecord> records = readArrayRecords(path);
+
+        // Then
+        assertThat(records).extracting(record -> record.getLong(0))
+                .containsExactly(0L, 1L, 2L);
+    }
+
+    private List<ArrayRecord> readArrayRecords(Path path) throws IOException {
+        ParquetReader<ArrayRecord> reader = new ParquetArrayRecordReader.Builder(path, layout).build();
+        List<ArrayRecord> records = new ArrayList<>();
+        try (ParquetArrayRecordIterator iterator = new ParquetArrayRecordIterator(reader)) {
+            iterator.forEachRemaining(records::add);
+            assertThat(iterator.getNumberOfRecordsRead()).isEqualTo(records.size());
+        }
+        return records;
+    }
+}
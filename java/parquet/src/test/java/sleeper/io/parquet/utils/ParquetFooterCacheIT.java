@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsBuilder;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+import sleeper.io.parquet.record.ParquetReaderIterator;
+import sleeper.io.parquet.record.ParquetRecordReader;
+import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.configuration.properties.table.TableProperty.ROW_GROUP_SIZE;
+
+class ParquetFooterCacheIT {
+
+    @TempDir
+    public java.nio.file.Path folder;
+
+    private final Configuration configuration = new Configuration();
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new LongType()))
+            .valueFields(new Field("value", new StringType()))
+            .build();
+
+    @Test
+    void shouldReadRecordsWithCachedFooter() throws IOException {
+        // Given
+        List<Record> records = records(0, 1000);
+        Path path = writeFile("file.parquet", records);
+        ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024);
+
+        // When
+        ParquetFooter footer = cache.getFooter(path, configuration);
+
+        // Then
+        assertThat(footer.getMetadata().getBlocks()).isNotEmpty();
+        assertThat(footer.getFileLength()).isEqualTo(Files.size(folder.resolve("file.parquet")));
+        assertThat(readRecords(footer, FilterCompat.NOOP)).isEqualTo(records);
+    }
+
+    @Test
+    void shouldReadRecordsInPartitionWithCachedFooter() throws IOException {
+        // Given
+        Path path = writeFile("file.parquet", records(0, 1000));
+        PartitionTree partitions = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", 500L)
+                .buildTree();
+        FilterCompat.Filter filter = FilterCompat.get(RangeQueryUtils.getFilterPredicate(partitions.getPartition("R")));
+        ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024);
+
+        // When
+        ParquetFooter footer = cache.getFooter(path, configuration);
+
+        // Then
+        assertThat(readRecords(footer, filter)).isEqualTo(records(500, 1000));
+    }
+
+    @Test
+    void shouldReuseFooterWithoutReadingFileAgain() throws IOException {
+        // Given
+        Path path = writeFile("file.parquet", records(0, 10));
+        ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024);
+        ParquetFooter footer = cache.getFooter(path, configuration);
+        Files.delete(folder.resolve("file.parquet"));
+
+        // When / Then
+        assertThat(cache.getFooter(path, configuration)).isSameAs(footer);
+        assertThat(cache.getHits()).isOne();
+        assertThat(cache.getMisses()).isOne();
+        assertThat(cache.getCachedFooters()).isOne();
+        assertThat(cache.getCachedBytes()).isEqualTo(footer.getSizeInBytes());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedFooterWhenFull() throws IOException {
+        // Given
+        Path path1 = writeFile("file1.parquet", records(0, 10));
+        Path path2 = writeFile("file2.parquet", records(10, 20));
+        Path path3 = writeFile("file3.parquet", records(20, 30));
+        long footerSize = ParquetFooter.read(path1, configuration).getSizeInBytes();
+        ParquetFooterCache cache = new ParquetFooterCache(footerSize * 2 + footerSize / 2);
+        cache.getFooter(path1, configuration);
+        cache.getFooter(path2, configuration);
+        cache.getFooter(path1, configuration);
+
+        // When
+        cache.getFooter(path3, configuration);
+        cache.getFooter(path1, configuration);
+        cache.getFooter(path2, configuration);
+
+        // Then
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(4);
+        assertThat(cache.getCachedFooters()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheFooterLargerThanCache() throws IOException {
+        // Given
+        Path path = writeFile("file.parquet", records(0, 10));
+        ParquetFooterCache cache = new ParquetFooterCache(1);
+
+        // When
+        ParquetFooter footer = cache.getFooter(path, configuration);
+
+        // Then
+        assertThat(readRecords(footer, FilterCompat.NOOP)).isEqualTo(records(0, 10));
+        assertThat(cache.getCachedFooters()).isZero();
+        assertThat(cache.getCachedBytes()).isZero();
+    }
+
+    @Test
+    void shouldEstimateSizeIncludingParsedMetadata() throws IOException {
+        // Given
+        Path path = writeFile("file.parquet", records(0, 1000));
+
+        // When
+        ParquetFooter footer = ParquetFooter.read(path, configuration);
+
+        // Then
+        int rowGroups = footer.getMetadata().getBlocks().size();
+        assertThat(rowGroups).isGreaterThan(1);
+        assertThat(footer.getSizeInBytes())
+                .isGreaterThan(footerLengthInFile("file.parquet"))
+                .isGreaterThan(rowGroups * 2L * 512);
+    }
+
+    private int footerLengthInFile(String filename) throws IOException {
+        byte[] bytes = Files.readAllBytes(folder.resolve(filename));
+        return ByteBuffer.wrap(bytes, bytes.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    private Path writeFile(String filename, List<Record> records) throws IOException {
+        TableProperties tableProperties = new TableProperties(new InstanceProperties());
+        tableProperties.setSchema(schema);
+        tableProperties.set(ROW_GROUP_SIZE, "1");
+        Path path = new Path(folder.resolve(filename).toString());
+        try (ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(path, tableProperties, configuration)) {
+            for (Record record : records) {
+                writer.write(record);
+            }
+        }
+        return path;
+    }
+
+    private List<Record> readRecords(ParquetFooter footer, FilterCompat.Filter filter) throws IOException {
+        ParquetReader<Record> reader = new ParquetRecordReader.Builder(footer.toInputFile(configuration), schema)
+                .withConf(configuration)
+                .withFilter(filter)
+                .build();
+        List<Record> records = new ArrayList<>();
+        try (ParquetReaderIterator iterator = new ParquetReaderIterator(reader)) {
+            iterator.forEachRemaining(records::add);
+        }
+        return records;
+    }
+
+    private static List<Record> records(long minKey, long maxKeyExclusive) {
+        return LongStream.range(minKey, maxKeyExclusive)
+                .mapToObj(key -> new Record(Map.of("key", key, "value", "value-" + key)))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsBuilder;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+import sleeper.io.parquet.record.ParquetReaderIterator;
+import sleeper.io.parquet.record.ParquetRecordReader;
+import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.configuration.properties.table.TableProperty.ROW_GROUP_SIZE;
+
+class RowGroupSkipCounterIT {
+
+    @TempDir
+    public java.nio.file.Path folder;
+
+    private final Configuration configuration = new Configuration();
+    private final Schema schema = Schema.builder().rowKeyFields(new Field("key", new LongType())).build();
+    private final PartitionTree partitions = new PartitionsBuilder(schema)
+            .rootFirst("root")
+            .splitToNewChildren("root", "L", "R", 500L)
+            .buildTree();
+
+    @Test
+    void shouldSkipRowGroupsOutsidePartition() throws IOException {
+        // Given
+        Path path = writeFileWithSmallRowGroups(0, 1000);
+        FilterCompat.Filter filter = partitionFilter("R");
+        RowGroupSkipCounter counter = new RowGroupSkipCounter();
+
+        // When
+        boolean shouldRead = counter.checkFooter(readFooter(path), filter);
+
+        // Then
+        assertThat(shouldRead).isTrue();
+        assertThat(counter.getRowGroupsSkipped()).isPositive();
+        assertThat(counter.getRowGroupsRead()).isPositive();
+        assertThat(counter.getRowGroupsSkipped() + counter.getRowGroupsRead()).isEqualTo(countRowGroups(path));
+        assertThat(counter.getFilesSkipped()).isZero();
+        assertThat(readKeys(path, filter))
+                .hasSize(500)
+                .allSatisfy(key -> assertThat(key).isGreaterThanOrEqualTo(500L));
+    }
+
+    @Test
+    void shouldSkipFileWithNoRowGroupsInPartition() throws IOException {
+        // Given
+        Path path = writeFileWithSmallRowGroups(0, 500);
+        RowGroupSkipCounter counter = new RowGroupSkipCounter();
+
+        // When
+        boolean shouldRead = counter.checkFooter(readFooter(path), partitionFilter("R"));
+
+        // Then
+        assertThat(shouldRead).isFalse();
+        assertThat(counter.getRowGroupsSkipped()).isEqualTo(countRowGroups(path));
+        assertThat(counter.getRowGroupsRead()).isZero();
+        assertThat(counter.getFilesSkipped()).isOne();
+    }
+
+    @Test
+    void shouldAddCountsForMultipleFiles() throws IOException {
+        // Given
+        Path path1 = writeFileWithSmallRowGroups(0, 1000);
+        Path path2 = writeFileWithSmallRowGroups(0, 300);
+        FilterCompat.Filter filter = partitionFilter("L");
+        RowGroupSkipCounter counter = new RowGroupSkipCounter();
+
+        // When
+        counter.checkFooter(readFooter(path1), filter);
+        counter.checkFooter(readFooter(path2), filter);
+
+        // Then
+        assertThat(counter.getRowGroupsSkipped()).isPositive();
+        assertThat(counter.getRowGroupsSkipped() + counter.getRowGroupsRead())
+                .isEqualTo(countRowGroups(path1) + countRowGroups(path2));
+        assertThat(counter.getFilesSkipped()).isZero();
+    }
+
+    private FilterCompat.Filter partitionFilter(String partitionId) {
+        return FilterCompat.get(RangeQueryUtils.getFilterPredicate(partitions.getPartition(partitionId)));
+    }
+
+    private Path writeFileWithSmallRowGroups(long minKey, long maxKeyExclusive) throws IOException {
+        TableProperties tableProperties = new TableProperties(new InstanceProperties());
+        tableProperties.setSchema(schema);
+        // Parquet checks the size of the row group at most every 100 records, so this writes many row groups
+        tableProperties.set(ROW_GROUP_SIZE, "1");
+        Path path = new Path(folder.resolve(minKey + "-" + maxKeyExclusive + ".parquet").toString());
+        try (ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(path, tableProperties, configuration)) {
+            for (long key = minKey; key < maxKeyExclusive; key++) {
+                writer.write(new Record(Map.of("key", key)));
+            }
+        }
+        return path;
+    }
+
+    private ParquetMetadata readFooter(Path path) throws IOException {
+        return ParquetFooter.read(path, configuration).getMetadata();
+    }
+
+    private long countRowGroups(Path path) throws IOException {
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(path, configuration))) {
+            return reader.getRowGroups().size();
+        }
+    }
+
+    private List<Long> readKeys(Path path, FilterCompat.Filter filter) throws IOException {
+        ParquetReader<Record> reader = new ParquetRecordReader.Builder(path, schema)
+                .withConf(configuration)
+                .withFilter(filter)
+                .build();
+        List<Long> keys = new ArrayList<>();
+        try (ParquetReaderIterator iterator = new ParquetReaderIterator(reader)) {
+            iterator.forEachRemaining(record -> keys.add((Long) record.get("key")));
+        }
+        return keys;
+    }
+}
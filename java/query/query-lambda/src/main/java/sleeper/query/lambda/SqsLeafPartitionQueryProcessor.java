@@ -31,6 +31,7 @@ import sleeper.configuration.properties.table.TablePropertiesProvider;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.record.Record;
 import sleeper.io.parquet.utils.HadoopConfigurationProvider;
+import sleeper.io.parquet.utils.ParquetFooterCache;
 import sleeper.query.model.LeafPartitionQuery;
 import sleeper.query.model.QueryException;
 import sleeper.query.model.QueryOrLeafPartitionQuery;
@@ -42,6 +43,7 @@ import sleeper.query.runner.output.S3ResultsOutput;
 import sleeper.query.runner.output.SQSResultsOutput;
 import sleeper.query.runner.output.WebSocketResultsOutput;
 import sleeper.query.runner.recordretrieval.LeafPartitionQueryExecutor;
+import sleeper.query.runner.recordretrieval.LeafPartitionRecordRetrieverImpl;
 import sleeper.query.runner.tracker.DynamoDBQueryTracker;
 import sleeper.query.runner.tracker.QueryStatusReportListeners;
 
@@ -53,6 +55,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import static sleeper.configuration.properties.instance.QueryProperty.QUERY_PROCESSOR_LAMBDA_RECORD_RETRIEVAL_THREADS;
+import static sleeper.configuration.properties.instance.QueryProperty.QUERY_PROCESSOR_PARQUET_FOOTER_CACHE_SIZE;
 import static sleeper.configuration.properties.table.TableProperty.TABLE_NAME;
 import static sleeper.query.runner.output.NoResultsOutput.NO_RESULTS_OUTPUT;
 
@@ -66,6 +69,7 @@ public class SqsLeafPartitionQueryProcessor {
     private final TablePropertiesProvider tablePropertiesProvider;
     private final ObjectFactory objectFactory;
     private final DynamoDBQueryTracker queryTracker;
+    private final ParquetFooterCache footerCache;
     private final Map<String, Configuration> configurationCache = new HashMap<>();
 
     private SqsLeafPartitionQueryProcessor(Builder builder) throws ObjectFactoryException {
@@ -75,6 +79,16 @@ public class SqsLeafPartitionQueryProcessor {
         executorService = Executors.newFixedThreadPool(instanceProperties.getInt(EXECUTOR_POOL_THREADS));
         objectFactory = new ObjectFactory(instanceProperties, builder.s3Client, "/tmp");
         queryTracker = new DynamoDBQueryTracker(instanceProperties, builder.dynamoClient);
+        footerCache = createFooterCache(instanceProperties);
+    }
+
+    private static ParquetFooterCache createFooterCache(InstanceProperties instanceProperties) {
+        long maxBytes = instanceProperties.getBytes(QUERY_PROCESSOR_PARQUET_FOOTER_CACHE_SIZE);
+        if (maxBytes > 0) {
+            return new ParquetFooterCache(maxBytes);
+        } else {
+            return null;
+        }
     }
 
     public static Builder builder() {
@@ -91,7 +105,8 @@ public class SqsLeafPartitionQueryProcessor {
             TableProperties tableProperties = query.getTableProperties(tablePropertiesProvider);
             queryTrackers.queryInProgress(leafPartitionQuery);
             Configuration conf = getConfiguration(tableProperties);
-            LeafPartitionQueryExecutor leafPartitionQueryExecutor = new LeafPartitionQueryExecutor(executorService, objectFactory, conf, tableProperties);
+            LeafPartitionQueryExecutor leafPartitionQueryExecutor = new LeafPartitionQueryExecutor(objectFactory, tableProperties,
+                    new LeafPartitionRecordRetrieverImpl(executorService, conf, footerCache));
             CloseableIterator<Record> results = leafPartitionQueryExecutor.getRecords(leafPartitionQuery);
             publishResults(results, query, tableProperties, queryTrackers);
         } catch (QueryException e) {
@@ -15,7 +15,6 @@
  */
 package sleeper.query.runner.recordretrieval;
 
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.filter2.compat.FilterCompat;
@@ -26,37 +25,55 @@ import org.slf4j.LoggerFactory;
 
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.iterator.MergingIterator;
+import sleeper.core.iterator.ReadAheadIterator;
 import sleeper.core.iterator.WrappedIterator;
 import sleeper.core.record.Record;
 import sleeper.core.record.RecordComparator;
 import sleeper.core.schema.Schema;
+import sleeper.io.parquet.record.ParquetReaderIterator;
 import sleeper.io.parquet.record.ParquetRecordReader;
+import sleeper.io.parquet.utils.ParquetFooter;
+import sleeper.io.parquet.utils.ParquetFooterCache;
 import sleeper.io.parquet.utils.RangeQueryUtils;
+import sleeper.io.parquet.utils.RowGroupSkipCounter;
 import sleeper.query.model.LeafPartitionQuery;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
 /**
  * Pulls back records for a single leaf partition according to a provided predicate.
  */
 public class LeafPartitionRecordRetrieverImpl implements LeafPartitionRecordRetriever {
     private static final Logger LOGGER = LoggerFactory.getLogger(LeafPartitionRecordRetrieverImpl.class);
+    private static final int READ_AHEAD_BATCH_SIZE = 1000;
+    // Records are not sized, so the number of records buffered for each file is limited instead
+    private static final long READ_AHEAD_MAX_BUFFERED_RECORDS = 2 * READ_AHEAD_BATCH_SIZE;
 
     private final Configuration filesConfig;
     private final ExecutorService executorService;
+    private final ParquetFooterCache footerCache;
 
     public LeafPartitionRecordRetrieverImpl(ExecutorService executorService, Configuration conf) {
+        this(executorService, conf, null);
+    }
+
+    /**
+     * Creates a record retriever which holds the footers of Parquet files in a cache. The cache may be shared between
+     * retrievers, so that a long-lived process does not need to read the footer of a file again each time it is
+     * queried.
+     *
+     * @param executorService the executor service to open and read files in parallel
+     * @param conf            the Hadoop configuration
+     * @param footerCache     the cache of Parquet footers, or null if footers should not be cached
+     */
+    public LeafPartitionRecordRetrieverImpl(ExecutorService executorService, Configuration conf, ParquetFooterCache footerCache) {
         this.executorService = executorService;
         this.filesConfig = conf;
+        this.footerCache = footerCache;
     }
 
     public CloseableIterator<Record> getRecords(List<String> files, Schema dataReadSchema, FilterPredicate filterPredicate) throws RecordRetrievalException {
@@ -64,57 +81,32 @@ public class LeafPartitionRecordRetrieverImpl implements LeafPartitionRecordRetr
             return new WrappedIterator<>(Collections.emptyIterator());
         }
 
-        ArrayList<RetrieveTask> tasks = new ArrayList<>();
-        Map<Integer, CloseableIterator<Record>> indexToReader = new HashMap<>();
+        FilterCompat.Filter filter = FilterCompat.get(filterPredicate);
+        RowGroupSkipCounter rowGroupSkipCounter = new RowGroupSkipCounter();
+        List<CloseableIterator<Record>> iterators = new ArrayList<>();
         for (String file : files) {
-            try {
-                tasks.add(new RetrieveTask(createParquetReader(dataReadSchema, file, filterPredicate)));
-            } catch (IOException e) {
-                throw new RecordRetrievalException("Failed to create a parquet reader", e);
-            }
-            LOGGER.debug("Created reader for file {}", file);
+            // Each file is opened and read ahead on the executor. This means files are opened in parallel, and later
+            // batches of each file are read while earlier records are being merged.
+            iterators.add(ReadAheadIterator.<Record>builder()
+                    .source(() -> openFile(dataReadSchema, file, filter, rowGroupSkipCounter))
+                    .executor(executorService)
+                    .firstBatchSize(1)
+                    .batchSize(READ_AHEAD_BATCH_SIZE)
+                    .maxBufferedElements(READ_AHEAD_MAX_BUFFERED_RECORDS)
+                    .build());
         }
 
-        List<Future<Pair<Record, CloseableIterator<Record>>>> futures;
+        // The merge needs the first record of every file, so this waits for the first record to be read from each
         try {
-            futures = executorService.invokeAll(tasks);
-        } catch (InterruptedException e) {
-            throw new RecordRetrievalException("Interrupted while invoking retrieve tasks", e);
+            CloseableIterator<Record> mergingIterator = new MergingIterator(new RecordComparator(dataReadSchema), iterators);
+            LOGGER.debug("Skipped {} row groups outside the query, read {} row groups, skipped {} files entirely",
+                    rowGroupSkipCounter.getRowGroupsSkipped(), rowGroupSkipCounter.getRowGroupsRead(),
+                    rowGroupSkipCounter.getFilesSkipped());
+            return mergingIterator;
+        } catch (RuntimeException e) {
+            closeAfterFailure(iterators, e);
+            throw new RecordRetrievalException("Failed to retrieve records due to an exception", e);
         }
-
-        // First record from each iterator is returned separately - this forces
-        // the initialisation of the reader and the retrieval of the first
-        // batch to be done in parallel.
-        Map<Integer, Record> currentValues = new HashMap<>();
-        int count = 0;
-        for (Future<Pair<Record, CloseableIterator<Record>>> future : futures) {
-            Pair<Record, CloseableIterator<Record>> pair;
-            try {
-                pair = future.get();
-            } catch (InterruptedException | ExecutionException e) {
-                throw new RecordRetrievalException("Failed to retrieve records due to an exception", e);
-            }
-            if (null != pair) {
-                indexToReader.put(count, pair.getRight());
-                currentValues.put(count, pair.getLeft());
-                count++;
-            }
-        }
-
-        // Sort current values and create iterator
-        RecordComparator recordComparator = new RecordComparator(dataReadSchema);
-        Iterator<Record> currentValuesSorted = currentValues.values()
-                .stream()
-                .sorted(recordComparator)
-                .iterator();
-
-        // Create list of iterators - one for each of the ParquetReaderIterators
-        // and one for the values that have already been read.
-        List<CloseableIterator<Record>> iterators = new ArrayList<>();
-        iterators.add(new WrappedIterator<>(currentValuesSorted));
-        iterators.addAll(indexToReader.values());
-
-        return new MergingIterator(dataReadSchema, iterators);
     }
 
     @Override
@@ -129,12 +121,32 @@ public class LeafPartitionRecordRetrieverImpl implements LeafPartitionRecordRetr
         return getRecords(files, dataReadSchema, filterPredicate);
     }
 
-    private ParquetReader<Record> createParquetReader(Schema readSchema, String fileName, FilterPredicate filterPredicate) throws IOException {
-        // NB Do not create a ParquetReaderIterator here as that forces the
-        // opening of the file which needs to be done in parallel.
-        return new ParquetRecordReader.Builder(new Path(fileName), readSchema)
+    private CloseableIterator<Record> openFile(
+            Schema readSchema, String fileName, FilterCompat.Filter filter, RowGroupSkipCounter rowGroupSkipCounter) throws IOException {
+        Path path = new Path(fileName);
+        // The footer is read once, and used both to check for row groups to skip and to create the reader
+        ParquetFooter footer = null != footerCache
+                ? footerCache.getFooter(path, filesConfig)
+                : ParquetFooter.read(path, filesConfig);
+        if (!rowGroupSkipCounter.checkFooter(footer.getMetadata(), filter)) {
+            LOGGER.debug("Skipping file {} as no row groups are in the query range", fileName);
+            return new WrappedIterator<>(Collections.emptyIterator());
+        }
+        ParquetReader<Record> reader = new ParquetRecordReader.Builder(footer.toInputFile(filesConfig), readSchema)
                 .withConf(filesConfig)
-                .withFilter(FilterCompat.get(filterPredicate))
+                .withFilter(filter)
                 .build();
+        LOGGER.debug("Created reader for file {}", fileName);
+        return new ParquetReaderIterator(reader);
+    }
+
+    private static void closeAfterFailure(List<CloseableIterator<Record>> iterators, RuntimeException failure) {
+        for (CloseableIterator<Record> iterator : iterators) {
+            try {
+                iterator.close();
+            } catch (IOException | RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
     }
 }
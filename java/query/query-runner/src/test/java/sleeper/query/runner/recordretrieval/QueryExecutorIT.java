@@ -46,6 +46,7 @@ import sleeper.core.statestore.FileReference;
 import sleeper.core.statestore.StateStore;
 import sleeper.core.statestore.StateStoreException;
 import sleeper.ingest.IngestFactory;
+import sleeper.io.parquet.utils.ParquetFooterCache;
 import sleeper.query.model.LeafPartitionQuery;
 import sleeper.query.model.Query;
 import sleeper.query.model.QueryException;
@@ -54,6 +55,7 @@ import sleeper.statestore.FixedStateStoreProvider;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -201,6 +203,51 @@ public class QueryExecutorIT {
                         .build());
     }
 
+    @Test
+    public void shouldReuseParquetFootersAcrossQueries() throws Exception {
+        // Given
+        Schema schema = getLongKeySchema();
+        Field field = schema.getRowKeyFields().get(0);
+        InstanceProperties instanceProperties = createInstanceProperties();
+        TableProperties tableProperties = createTestTableProperties(instanceProperties, schema);
+        StateStore stateStore = inMemoryStateStoreWithPartitions(new PartitionsBuilder(schema).rootFirst("root").buildList());
+        ingestData(instanceProperties, stateStore, tableProperties, getRecords().iterator());
+        ParquetFooterCache footerCache = new ParquetFooterCache(1024 * 1024);
+        QueryExecutor queryExecutor = new QueryExecutor(new ObjectFactory(instanceProperties, null, ""),
+                stateStore, tableProperties,
+                new LeafPartitionRecordRetrieverImpl(executorService, new Configuration(), footerCache),
+                Instant.now());
+        queryExecutor.init();
+        RangeFactory rangeFactory = new RangeFactory(schema);
+
+        // When 1
+        Region region = new Region(rangeFactory.createExactRange(field, 1L));
+        try (CloseableIterator<Record> results = queryExecutor.execute(queryWithRegion(region))) {
+
+            // Then 1
+            assertThat(results).toIterable()
+                    .containsExactly(getRecords().get(0));
+        }
+
+        // When 2
+        try (CloseableIterator<Record> results = queryExecutor.execute(queryWithRegion(region))) {
+
+            // Then 2
+            assertThat(results).toIterable()
+                    .containsExactly(getRecords().get(0));
+        }
+        assertThat(footerCache.getMisses()).isOne();
+        assertThat(footerCache.getHits()).isOne();
+
+        // When 3
+        region = new Region(rangeFactory.createRange(field, 10L, true, 100L, true));
+        try (CloseableIterator<Record> results = queryExecutor.execute(queryWithRegion(region))) {
+
+            // Then 3
+            assertThat(results).isExhausted();
+        }
+    }
+
     @Test
     public void shouldReturnCorrectDataWhenMultipleIdenticalRecordsInOneFileInOnePartition() throws Exception {
         // Given
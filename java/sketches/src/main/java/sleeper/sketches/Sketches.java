@@ -18,7 +18,9 @@ package sleeper.sketches;
 import com.facebook.collections.ByteArray;
 import org.apache.datasketches.quantiles.ItemsSketch;
 
+import sleeper.core.record.ArrayRecord;
 import sleeper.core.record.Record;
+import sleeper.core.record.RecordLayout;
 import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
 import sleeper.core.schema.type.ByteArrayType;
@@ -62,4 +64,22 @@ public class Sketches {
             }
         }
     }
+
+    /**
+     * Updates the sketches with the row keys of a record held by position.
+     *
+     * @param record the record
+     */
+    public void update(ArrayRecord record) {
+        RecordLayout layout = record.getLayout();
+        for (int index : layout.getRowKeyIndexes()) {
+            String fieldName = layout.getField(index).getName();
+            if (layout.getType(index) instanceof ByteArrayType) {
+                byte[] value = (byte[]) record.get(index);
+                getQuantilesSketch(fieldName).update(ByteArray.wrap(value));
+            } else {
+                getQuantilesSketch(fieldName).update(record.get(index));
+            }
+        }
+    }
 }
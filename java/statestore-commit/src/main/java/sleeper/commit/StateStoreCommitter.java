@@ -25,6 +25,7 @@ import sleeper.compaction.job.commit.CompactionJobCommitter;
 import sleeper.core.record.process.ProcessRunTime;
 import sleeper.core.statestore.AllReferencesToAFile;
 import sleeper.core.statestore.GetStateStoreByTableId;
+import sleeper.core.statestore.ReplaceFileReferencesRequest;
 import sleeper.core.statestore.StateStore;
 import sleeper.core.statestore.StateStoreException;
 import sleeper.core.statestore.exception.FileAlreadyExistsException;
@@ -39,7 +40,10 @@ import sleeper.ingest.job.status.IngestJobAddedFilesEvent;
 import sleeper.ingest.job.status.IngestJobStatusStore;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 import static sleeper.compaction.job.status.CompactionJobCommittedEvent.compactionJobCommitted;
@@ -81,14 +85,125 @@ public class StateStoreCommitter {
         }
     }
 
+    /**
+     * Applies a batch of state store commit requests. Requests are grouped by Sleeper table, and consecutive requests of
+     * the same type against the same table are combined into a single update to the state store. If a combined update
+     * fails, the requests are applied individually, so that any failure is reported against the request that caused
+     * it. Ingest commits are only combined for a state store which adds files atomically, since this relies on a failed
+     * update having no effect. Other state stores may add some files before failing, e.g. the DynamoDB state store adds
+     * each file in a separate transaction.
+     *
+     * @param requests       the commit requests, in the order they were received
+     * @param failureHandler called for each request that failed and should be retried
+     */
+    public void applyBatch(List<StateStoreCommitRequest> requests, RequestFailedHandler failureHandler) {
+        Map<String, List<StateStoreCommitRequest>> requestsByTableId = new LinkedHashMap<>();
+        for (StateStoreCommitRequest request : requests) {
+            requestsByTableId.computeIfAbsent(getTableId(request), id -> new ArrayList<>()).add(request);
+        }
+        for (List<StateStoreCommitRequest> tableRequests : requestsByTableId.values()) {
+            int start = 0;
+            while (start < tableRequests.size()) {
+                Class<?> requestType = tableRequests.get(start).getRequest().getClass();
+                int end = start + 1;
+                while (end < tableRequests.size() && tableRequests.get(end).getRequest().getClass() == requestType) {
+                    end++;
+                }
+                applyGroup(tableRequests.subList(start, end), failureHandler);
+                start = end;
+            }
+        }
+    }
+
+    private void applyGroup(List<StateStoreCommitRequest> requests, RequestFailedHandler failureHandler) {
+        Object firstRequest = requests.get(0).getRequest();
+        if (requests.size() > 1 && firstRequest instanceof CompactionJobCommitRequest) {
+            applyCompactionGroup(requests, failureHandler);
+        } else if (requests.size() > 1 && firstRequest instanceof IngestAddFilesCommitRequest
+                && addsFilesAtomically(getTableId(requests.get(0)))) {
+            applyIngestGroup(requests, failureHandler);
+        } else {
+            applyEach(requests, failureHandler);
+        }
+    }
+
+    private void applyCompactionGroup(List<StateStoreCommitRequest> requests, RequestFailedHandler failureHandler) {
+        Map<String, StateStoreCommitRequest> requestByJobId = new LinkedHashMap<>();
+        List<ReplaceFileReferencesRequest> replaceRequests = new ArrayList<>();
+        for (StateStoreCommitRequest request : requests) {
+            CompactionJobCommitRequest commitRequest = (CompactionJobCommitRequest) request.getRequest();
+            if (requestByJobId.put(commitRequest.getJob().getId(), request) != null) {
+                // The same job was committed more than once, so only one of these commits can succeed
+                applyEach(requests, failureHandler);
+                return;
+            }
+            replaceRequests.add(CompactionJobCommitter.replaceFileReferencesRequest(
+                    commitRequest.getJob(), commitRequest.getRecordsWritten()));
+        }
+        String tableId = getTableId(requests.get(0));
+        try {
+            stateStoreProvider.getByTableId(tableId).atomicallyReplaceFileReferencesWithNewOnes(replaceRequests);
+            requests.forEach(request -> compactionCommitted((CompactionJobCommitRequest) request.getRequest()));
+            LOGGER.info("Successfully committed {} compaction jobs together to table with ID {}", requests.size(), tableId);
+        } catch (ReplaceRequestsFailedException e) {
+            LOGGER.info("Failed committing {} compaction jobs together to table with ID {}, applying individually",
+                    requests.size(), tableId, e);
+            for (ReplaceFileReferencesRequest succeeded : e.getSuccessfulRequests()) {
+                compactionCommitted((CompactionJobCommitRequest) requestByJobId.remove(succeeded.getJobId()).getRequest());
+            }
+            applyEach(new ArrayList<>(requestByJobId.values()), failureHandler);
+        } catch (RuntimeException e) {
+            LOGGER.info("Failed committing {} compaction jobs together to table with ID {}, applying individually",
+                    requests.size(), tableId, e);
+            applyEach(requests, failureHandler);
+        }
+    }
+
+    private void applyIngestGroup(List<StateStoreCommitRequest> requests, RequestFailedHandler failureHandler) {
+        List<AllReferencesToAFile> allFiles = new ArrayList<>();
+        List<List<AllReferencesToAFile>> filesByRequest = new ArrayList<>();
+        for (StateStoreCommitRequest request : requests) {
+            IngestAddFilesCommitRequest commitRequest = (IngestAddFilesCommitRequest) request.getRequest();
+            List<AllReferencesToAFile> files = AllReferencesToAFile.newFilesWithReferences(commitRequest.getFileReferences());
+            filesByRequest.add(files);
+            allFiles.addAll(files);
+        }
+        String tableId = getTableId(requests.get(0));
+        try {
+            stateStoreProvider.getByTableId(tableId).addFilesWithReferences(allFiles);
+        } catch (StateStoreException | RuntimeException e) {
+            LOGGER.info("Failed committing {} ingest file commits together to table with ID {}, applying individually",
+                    requests.size(), tableId, e);
+            applyEach(requests, failureHandler);
+            return;
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            ingestFilesAdded((IngestAddFilesCommitRequest) requests.get(i).getRequest(), filesByRequest.get(i));
+        }
+        LOGGER.info("Successfully committed {} ingest file commits together to table with ID {}", requests.size(), tableId);
+    }
+
+    private boolean addsFilesAtomically(String tableId) {
+        return stateStoreProvider.getByTableId(tableId).addsFilesAtomically();
+    }
+
+    private void applyEach(List<StateStoreCommitRequest> requests, RequestFailedHandler failureHandler) {
+        for (StateStoreCommitRequest request : requests) {
+            try {
+                apply(request);
+            } catch (StateStoreException | RuntimeException e) {
+                LOGGER.error("Failed commit request", e);
+                failureHandler.requestFailed(request, e);
+            }
+        }
+    }
+
     private void apply(CompactionJobCommitRequest request) throws StateStoreException {
         CompactionJob job = request.getJob();
         try {
             CompactionJobCommitter.updateStateStoreSuccess(job, request.getRecordsWritten(),
                     stateStoreProvider.getByTableId(job.getTableId()));
-            compactionJobStatusStore.jobCommitted(compactionJobCommitted(job, timeSupplier.get())
-                    .taskId(request.getTaskId()).jobRunId(request.getJobRunId()).build());
-            LOGGER.info("Successfully committed compaction job {} to table with ID {}", job.getId(), job.getTableId());
+            compactionCommitted(request);
         } catch (ReplaceRequestsFailedException e) {
             Exception failure = e.getFailures().get(0);
             if (failure instanceof FileNotFoundException
@@ -106,10 +221,21 @@ public class StateStoreCommitter {
         }
     }
 
+    private void compactionCommitted(CompactionJobCommitRequest request) {
+        CompactionJob job = request.getJob();
+        compactionJobStatusStore.jobCommitted(compactionJobCommitted(job, timeSupplier.get())
+                .taskId(request.getTaskId()).jobRunId(request.getJobRunId()).build());
+        LOGGER.info("Successfully committed compaction job {} to table with ID {}", job.getId(), job.getTableId());
+    }
+
     private void apply(IngestAddFilesCommitRequest request) throws StateStoreException {
         StateStore stateStore = stateStoreProvider.getByTableId(request.getTableId());
         List<AllReferencesToAFile> files = AllReferencesToAFile.newFilesWithReferences(request.getFileReferences());
         stateStore.addFilesWithReferences(files);
+        ingestFilesAdded(request, files);
+    }
+
+    private void ingestFilesAdded(IngestAddFilesCommitRequest request, List<AllReferencesToAFile> files) {
         IngestJob job = request.getJob();
         if (job != null) {
             ingestJobStatusStore.jobAddedFiles(IngestJobAddedFilesEvent.ingestJobAddedFiles(job, files, request.getWrittenTime())
@@ -120,4 +246,29 @@ public class StateStoreCommitter {
         }
     }
 
+    static String getTableId(StateStoreCommitRequest request) {
+        Object requestObj = request.getRequest();
+        if (requestObj instanceof CompactionJobCommitRequest) {
+            return ((CompactionJobCommitRequest) requestObj).getJob().getTableId();
+        } else if (requestObj instanceof IngestAddFilesCommitRequest) {
+            return ((IngestAddFilesCommitRequest) requestObj).getTableId();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Receives requests in a batch which failed to be applied, and should be retried.
+     */
+    @FunctionalInterface
+    public interface RequestFailedHandler {
+
+        /**
+         * Reports that a request failed.
+         *
+         * @param request the request
+         * @param failure the failure
+         */
+        void requestFailed(StateStoreCommitRequest request, Exception failure);
+    }
 }
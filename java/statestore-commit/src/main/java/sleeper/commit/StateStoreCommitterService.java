@@ -0,0 +1,258 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.commit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * Commits state store updates from a queue as a long running service. Sleeper tables are split between a number of
+ * worker threads, each with its own state store committer. Each worker can then hold the state of its tables in
+ * memory between commits, so that a commit to a table which was recently updated only needs to read the updates made
+ * since then. Each worker applies its commits in the order they were received, while other workers and the queue
+ * continue independently. A worker may only fall behind by a limited number of batches before receiving from the queue
+ * waits for it.
+ * <p>
+ * An instance of this class should only be run in one thread. It may be stopped from another thread.
+ */
+public class StateStoreCommitterService implements AutoCloseable {
+    public static final Logger LOGGER = LoggerFactory.getLogger(StateStoreCommitterService.class);
+    private static final int MAX_BATCHES_IN_PROGRESS_PER_WORKER = 2;
+
+    private final MessageReceiver messageReceiver;
+    private final List<Worker> workers;
+    private final StateStoreCommitRequestDeserialiser deserialiser = new StateStoreCommitRequestDeserialiser();
+    private volatile boolean stopped = false;
+
+    public StateStoreCommitterService(MessageReceiver messageReceiver, CommitterFactory committerFactory, int numWorkers) {
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("Must have at least one worker, found " + numWorkers);
+        }
+        this.messageReceiver = messageReceiver;
+        this.workers = IntStream.range(0, numWorkers)
+                .mapToObj(i -> new Worker(committerFactory.createCommitter()))
+                .collect(toUnmodifiableList());
+    }
+
+    /**
+     * Receives and applies commit requests until the service is stopped.
+     */
+    public void run() {
+        LOGGER.info("Starting state store committer service with {} workers", workers.size());
+        while (!stopped && !Thread.currentThread().isInterrupted()) {
+            handleNextBatch();
+        }
+        waitForCommits();
+        LOGGER.info("Stopped state store committer service");
+    }
+
+    /**
+     * Stops the service after the current batch of commit requests. May be called from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Receives a batch of commit requests from the queue and starts applying them. The requests are passed to the
+     * workers for their tables. If a worker already has the maximum number of batches in progress, this waits for its
+     * oldest batch to finish. Other workers are not affected.
+     *
+     * @return true if any messages were received
+     */
+    public boolean handleNextBatch() {
+        List<MessageHandle> messages = messageReceiver.receiveMessages();
+        if (messages.isEmpty()) {
+            return false;
+        }
+        Map<Worker, List<ReceivedRequest>> requestsByWorker = new LinkedHashMap<>();
+        for (MessageHandle message : messages) {
+            StateStoreCommitRequest request;
+            try {
+                request = deserialiser.fromJson(message.getBody());
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed reading commit request", e);
+                acknowledge(message, false);
+                continue;
+            }
+            Worker worker = workers.get(Math.floorMod(Objects.hashCode(StateStoreCommitter.getTableId(request)), workers.size()));
+            requestsByWorker.computeIfAbsent(worker, w -> new ArrayList<>())
+                    .add(new ReceivedRequest(request, message));
+        }
+        requestsByWorker.forEach(Worker::submit);
+        return true;
+    }
+
+    /**
+     * Waits for all commit requests that have been received to be applied.
+     */
+    public void waitForCommits() {
+        workers.forEach(Worker::waitForBatches);
+    }
+
+    @Override
+    public void close() {
+        stop();
+        waitForCommits();
+        workers.forEach(worker -> worker.executor.shutdown());
+    }
+
+    /**
+     * A worker thread applying commits for a subset of Sleeper tables. The state store committer is only used from
+     * this thread, so it does not need to be thread safe.
+     */
+    private static class Worker {
+        private final StateStoreCommitter committer;
+        private final ExecutorService executor = Executors.newSingleThreadExecutor();
+        private final Deque<CompletableFuture<Void>> batchesInProgress = new ArrayDeque<>();
+
+        Worker(StateStoreCommitter committer) {
+            this.committer = committer;
+        }
+
+        void submit(List<ReceivedRequest> requests) {
+            batchesInProgress.removeIf(CompletableFuture::isDone);
+            while (batchesInProgress.size() >= MAX_BATCHES_IN_PROGRESS_PER_WORKER) {
+                batchesInProgress.poll().join();
+            }
+            batchesInProgress.add(CompletableFuture.runAsync(() -> apply(requests), executor));
+        }
+
+        void waitForBatches() {
+            batchesInProgress.forEach(CompletableFuture::join);
+            batchesInProgress.clear();
+        }
+
+        void apply(List<ReceivedRequest> requests) {
+            Set<StateStoreCommitRequest> failedRequests = Collections.newSetFromMap(new IdentityHashMap<>());
+            try {
+                committer.applyBatch(
+                        requests.stream().map(received -> received.request).collect(toUnmodifiableList()),
+                        (request, failure) -> failedRequests.add(request));
+            } catch (Throwable e) {
+                // Any failure including an error must be caught, or the batch's messages would not be returned to the
+                // queue, and the service would fail when it waits for the batch
+                LOGGER.error("Failed applying batch of {} commit requests", requests.size(), e);
+                requests.forEach(received -> acknowledge(received.message, false));
+                return;
+            }
+            for (ReceivedRequest received : requests) {
+                acknowledge(received.message, !failedRequests.contains(received.request));
+            }
+        }
+    }
+
+    /**
+     * Reports the outcome of a message to the queue. A failure to do this is logged rather than thrown, so that it does
+     * not stop the service. The message will be received again once its visibility timeout expires.
+     *
+     * @param message   the message
+     * @param completed true if the commit request was applied, false if it should be retried
+     */
+    private static void acknowledge(MessageHandle message, boolean completed) {
+        try {
+            if (completed) {
+                message.completed();
+            } else {
+                message.failed();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed reporting outcome of commit request to queue, completed: {}", completed, e);
+        }
+    }
+
+    /**
+     * A commit request read from a message on the queue.
+     */
+    private static class ReceivedRequest {
+        private final StateStoreCommitRequest request;
+        private final MessageHandle message;
+
+        ReceivedRequest(StateStoreCommitRequest request, MessageHandle message) {
+            this.request = request;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Receives messages from the queue of state store commit requests.
+     */
+    @FunctionalInterface
+    public interface MessageReceiver {
+
+        /**
+         * Receives the next batch of messages. May wait for messages to arrive, and returns an empty list if none were
+         * found.
+         *
+         * @return the messages
+         */
+        List<MessageHandle> receiveMessages();
+    }
+
+    /**
+     * A message received from the queue of state store commit requests.
+     */
+    public interface MessageHandle {
+
+        /**
+         * Retrieves the body of the message.
+         *
+         * @return the body
+         */
+        String getBody();
+
+        /**
+         * Reports that the commit request was applied, and can be removed from the queue.
+         */
+        void completed();
+
+        /**
+         * Reports that the commit request failed, and should be returned to the queue to be retried.
+         */
+        void failed();
+    }
+
+    /**
+     * Creates a state store committer for a worker. This is called once for each worker thread.
+     */
+    @FunctionalInterface
+    public interface CommitterFactory {
+
+        /**
+         * Creates a state store committer.
+         *
+         * @return the committer
+         */
+        StateStoreCommitter createCommitter();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.commit;
+
+import sleeper.commit.StateStoreCommitterService.MessageHandle;
+import sleeper.commit.StateStoreCommitterService.MessageReceiver;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * An in-memory stand-in for the queue of state store commit requests.
+ */
+public class InMemoryStateStoreCommitQueue implements MessageReceiver {
+    private final int batchSize;
+    private final Queue<String> pending = new LinkedList<>();
+    private final List<String> completed = new ArrayList<>();
+    private final List<String> failed = new ArrayList<>();
+
+    public InMemoryStateStoreCommitQueue(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds a message to the queue.
+     *
+     * @param body the message body
+     */
+    public void send(String body) {
+        pending.add(body);
+    }
+
+    @Override
+    public List<MessageHandle> receiveMessages() {
+        List<MessageHandle> messages = new ArrayList<>();
+        while (messages.size() < batchSize && !pending.isEmpty()) {
+            messages.add(new Message(pending.poll()));
+        }
+        return messages;
+    }
+
+    public synchronized List<String> getCompleted() {
+        return new ArrayList<>(completed);
+    }
+
+    public synchronized List<String> getFailed() {
+        return new ArrayList<>(failed);
+    }
+
+    /**
+     * A message received from the in-memory queue.
+     */
+    private class Message implements MessageHandle {
+        private final String body;
+
+        Message(String body) {
+            this.body = body;
+        }
+
+        @Override
+        public String getBody() {
+            return body;
+        }
+
+        @Override
+        public void completed() {
+            synchronized (InMemoryStateStoreCommitQueue.this) {
+                completed.add(body);
+            }
+        }
+
+        @Override
+        public void failed() {
+            synchronized (InMemoryStateStoreCommitQueue.this) {
+                failed.add(body);
+            }
+        }
+    }
+}
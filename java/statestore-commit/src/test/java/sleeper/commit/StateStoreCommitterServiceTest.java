@@ -0,0 +1,323 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.commit;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.commit.StateStoreCommitterService.MessageHandle;
+import sleeper.commit.StateStoreCommitterService.MessageReceiver;
+import sleeper.compaction.testutils.InMemoryCompactionJobStatusStore;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsBuilder;
+import sleeper.core.schema.Schema;
+import sleeper.core.statestore.FileReference;
+import sleeper.core.statestore.FileReferenceFactory;
+import sleeper.core.statestore.GetStateStoreByTableId;
+import sleeper.core.statestore.StateStore;
+import sleeper.ingest.job.commit.IngestAddFilesCommitRequest;
+import sleeper.ingest.job.commit.IngestAddFilesCommitRequestSerDe;
+import sleeper.ingest.job.status.InMemoryIngestJobStatusStore;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.core.schema.SchemaTestHelper.schemaWithKey;
+import static sleeper.core.statestore.inmemory.StateStoreTestHelper.inMemoryStateStoreWithFixedPartitions;
+
+public class StateStoreCommitterServiceTest {
+    private static final Instant DEFAULT_FILE_UPDATE_TIME = Instant.parse("2024-06-14T13:33:00Z");
+    private final Schema schema = schemaWithKey("key");
+    private final PartitionTree partitions = new PartitionsBuilder(schema).singlePartition("root").buildTree();
+    private final FileReferenceFactory fileFactory = FileReferenceFactory.fromUpdatedAt(partitions, DEFAULT_FILE_UPDATE_TIME);
+    private final InMemoryStateStoreCommitQueue queue = new InMemoryStateStoreCommitQueue(10);
+    private final Map<String, StateStore> stateStoreByTableId = Map.of(
+            "table-1", createStateStore(),
+            "table-2", createStateStore(),
+            "table-3", createStateStore());
+    private final AtomicInteger committersCreated = new AtomicInteger();
+    private GetStateStoreByTableId stateStoreProvider = stateStoreByTableId::get;
+
+    @Test
+    void shouldApplyCommitsForTablesSplitBetweenWorkers() throws Exception {
+        // Given
+        FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+        FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+        FileReference file3 = fileFactory.rootFile("file3.parquet", 300L);
+        FileReference file4 = fileFactory.rootFile("file4.parquet", 400L);
+        String message1 = addFilesMessage("table-1", file1);
+        String message2 = addFilesMessage("table-2", file2);
+        String message3 = addFilesMessage("table-3", file3);
+        String message4 = addFilesMessage("table-1", file4);
+        List.of(message1, message2, message3, message4).forEach(queue::send);
+
+        // When
+        try (StateStoreCommitterService service = service(2)) {
+            service.handleNextBatch();
+            service.waitForCommits();
+        }
+
+        // Then
+        assertThat(stateStore("table-1").getFileReferences()).containsExactly(file1, file4);
+        assertThat(stateStore("table-2").getFileReferences()).containsExactly(file2);
+        assertThat(stateStore("table-3").getFileReferences()).containsExactly(file3);
+        assertThat(queue.getCompleted()).containsExactlyInAnyOrder(message1, message2, message3, message4);
+        assertThat(queue.getFailed()).isEmpty();
+        assertThat(committersCreated).hasValue(2);
+    }
+
+    @Test
+    void shouldReturnFailedCommitToQueue() throws Exception {
+        // Given
+        FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+        FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+        stateStore("table-1").addFile(file2);
+        String message1 = addFilesMessage("table-1", file1);
+        String message2 = addFilesMessage("table-1", file2);
+        queue.send(message1);
+        queue.send(message2);
+
+        // When
+        try (StateStoreCommitterService service = service(2)) {
+            service.handleNextBatch();
+            service.waitForCommits();
+        }
+
+        // Then
+        assertThat(stateStore("table-1").getFileReferences()).containsExactly(file1, file2);
+        assertThat(queue.getCompleted()).containsExactly(message1);
+        assertThat(queue.getFailed()).containsExactly(message2);
+    }
+
+    @Test
+    void shouldReturnUnreadableMessageToQueue() {
+        // Given
+        queue.send("not a commit request");
+
+        // When
+        try (StateStoreCommitterService service = service(1)) {
+            service.handleNextBatch();
+            service.waitForCommits();
+        }
+
+        // Then
+        assertThat(queue.getCompleted()).isEmpty();
+        assertThat(queue.getFailed()).containsExactly("not a commit request");
+    }
+
+    @Test
+    void shouldApplyBatchesUntilStopped() throws Exception {
+        // Given
+        InMemoryStateStoreCommitQueue queue = new InMemoryStateStoreCommitQueue(1);
+        FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+        FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+        FileReference file3 = fileFactory.rootFile("file3.parquet", 300L);
+        queue.send(addFilesMessage("table-1", file1));
+        queue.send(addFilesMessage("table-1", file2));
+        queue.send(addFilesMessage("table-2", file3));
+        AtomicReference<StateStoreCommitterService> serviceRef = new AtomicReference<>();
+        MessageReceiver stopWhenEmpty = () -> {
+            List<MessageHandle> messages = queue.receiveMessages();
+            if (messages.isEmpty()) {
+                serviceRef.get().stop();
+            }
+            return messages;
+        };
+
+        // When
+        try (StateStoreCommitterService service = new StateStoreCommitterService(stopWhenEmpty, this::committer, 2)) {
+            serviceRef.set(service);
+            service.run();
+        }
+
+        // Then
+        assertThat(stateStore("table-1").getFileReferences()).containsExactly(file1, file2);
+        assertThat(stateStore("table-2").getFileReferences()).containsExactly(file3);
+        assertThat(queue.getCompleted()).hasSize(3);
+        assertThat(queue.getFailed()).isEmpty();
+    }
+
+    @Test
+    void shouldApplyCommitsForOtherTablesWhileOneTableIsSlow() throws Exception {
+        // Given table-1 and table-2 are applied by different workers, and commits to table-1 are held up
+        InMemoryStateStoreCommitQueue queue = new InMemoryStateStoreCommitQueue(1);
+        CountDownLatch releaseTable1 = new CountDownLatch(1);
+        stateStoreProvider = tableId -> {
+            if ("table-1".equals(tableId)) {
+                awaitUninterruptibly(releaseTable1);
+            }
+            return stateStoreByTableId.get(tableId);
+        };
+        FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+        FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+        String message1 = addFilesMessage("table-1", file1);
+        String message2 = addFilesMessage("table-2", file2);
+        queue.send(message1);
+        queue.send(message2);
+
+        try (StateStoreCommitterService service = new StateStoreCommitterService(queue, this::committer, 2)) {
+            // When
+            service.handleNextBatch();
+            service.handleNextBatch();
+
+            // Then
+            waitUntil(() -> queue.getCompleted().contains(message2));
+            assertThat(stateStore("table-1").getFileReferences()).isEmpty();
+            assertThat(stateStore("table-2").getFileReferences()).containsExactly(file2);
+            releaseTable1.countDown();
+            service.waitForCommits();
+        }
+        assertThat(stateStore("table-1").getFileReferences()).containsExactly(file1);
+        assertThat(queue.getCompleted()).containsExactly(message2, message1);
+    }
+
+    @Test
+    void shouldContinueWhenReportingOutcomeToQueueFails() throws Exception {
+        // Given
+        InMemoryStateStoreCommitQueue queue = new InMemoryStateStoreCommitQueue(1);
+        FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+        FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+        String message1 = addFilesMessage("table-1", file1);
+        String message2 = addFilesMessage("table-1", file2);
+        queue.send(message1);
+        queue.send(message2);
+        MessageReceiver failFirstCompletion = () -> queue.receiveMessages().stream()
+                .map(message -> message.getBody().equals(message1) ? failOnCompleted(message) : message)
+                .collect(Collectors.toList());
+
+        // When
+        try (StateStoreCommitterService service = new StateStoreCommitterService(failFirstCompletion, this::committer, 1)) {
+            service.handleNextBatch();
+            service.handleNextBatch();
+            service.waitForCommits();
+        }
+
+        // Then
+        assertThat(stateStore("table-1").getFileReferences()).containsExactly(file1, file2);
+        assertThat(queue.getCompleted()).containsExactly(message2);
+        assertThat(queue.getFailed()).isEmpty();
+    }
+
+    @Test
+    void shouldReturnBatchToQueueAndContinueWhenApplyingCommitThrowsError() throws Exception {
+        // Given the first commit fails with an error rather than an exception
+        InMemoryStateStoreCommitQueue queue = new InMemoryStateStoreCommitQueue(1);
+        AtomicBoolean failNext = new AtomicBoolean(true);
+        stateStoreProvider = tableId -> {
+            if (failNext.getAndSet(false)) {
+                throw new AssertionError("Unexpected failure");
+            }
+            return stateStoreByTableId.get(tableId);
+        };
+        FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+        FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+        String message1 = addFilesMessage("table-1", file1);
+        String message2 = addFilesMessage("table-1", file2);
+        queue.send(message1);
+        queue.send(message2);
+        AtomicReference<StateStoreCommitterService> serviceRef = new AtomicReference<>();
+        MessageReceiver stopWhenEmpty = () -> {
+            List<MessageHandle> messages = queue.receiveMessages();
+            if (messages.isEmpty()) {
+                serviceRef.get().stop();
+            }
+            return messages;
+        };
+
+        // When
+        try (StateStoreCommitterService service = new StateStoreCommitterService(stopWhenEmpty, this::committer, 1)) {
+            serviceRef.set(service);
+            service.run();
+        }
+
+        // Then
+        assertThat(stateStore("table-1").getFileReferences()).containsExactly(file2);
+        assertThat(queue.getCompleted()).containsExactly(message2);
+        assertThat(queue.getFailed()).containsExactly(message1);
+    }
+
+    private StateStoreCommitterService service(int numWorkers) {
+        return new StateStoreCommitterService(queue, this::committer, numWorkers);
+    }
+
+    private StateStoreCommitter committer() {
+        committersCreated.incrementAndGet();
+        return new StateStoreCommitter(new InMemoryCompactionJobStatusStore(), new InMemoryIngestJobStatusStore(),
+                stateStoreProvider, Instant::now);
+    }
+
+    private StateStore createStateStore() {
+        StateStore stateStore = inMemoryStateStoreWithFixedPartitions(partitions.getAllPartitions());
+        stateStore.fixFileUpdateTime(DEFAULT_FILE_UPDATE_TIME);
+        return stateStore;
+    }
+
+    private StateStore stateStore(String tableId) {
+        return stateStoreByTableId.get(tableId);
+    }
+
+    private String addFilesMessage(String tableId, FileReference file) {
+        return new IngestAddFilesCommitRequestSerDe().toJson(IngestAddFilesCommitRequest.builder()
+                .tableId(tableId)
+                .fileReferences(List.of(file))
+                .build());
+    }
+
+    private static MessageHandle failOnCompleted(MessageHandle message) {
+        return new MessageHandle() {
+            @Override
+            public String getBody() {
+                return message.getBody();
+            }
+
+            @Override
+            public void completed() {
+                throw new IllegalStateException("Failed deleting message");
+            }
+
+            @Override
+            public void failed() {
+                message.failed();
+            }
+        };
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        Instant timeout = Instant.now().plusSeconds(10);
+        while (!condition.getAsBoolean()) {
+            if (Instant.now().isAfter(timeout)) {
+                throw new AssertionError("Timed out waiting for condition");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
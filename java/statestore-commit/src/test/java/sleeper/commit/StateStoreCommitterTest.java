@@ -22,6 +22,7 @@ import org.junit.jupiter.api.Test;
 import sleeper.compaction.job.CompactionJob;
 import sleeper.compaction.job.commit.CompactionJobCommitRequest;
 import sleeper.compaction.job.commit.CompactionJobCommitter;
+import sleeper.compaction.job.status.CompactionJobStatus;
 import sleeper.compaction.testutils.InMemoryCompactionJobStatusStore;
 import sleeper.core.partition.PartitionTree;
 import sleeper.core.partition.PartitionsBuilder;
@@ -29,17 +30,25 @@ import sleeper.core.record.process.ProcessRunTime;
 import sleeper.core.record.process.RecordsProcessedSummary;
 import sleeper.core.record.process.status.ProcessRun;
 import sleeper.core.schema.Schema;
+import sleeper.core.statestore.AllReferencesToAFile;
+import sleeper.core.statestore.DelegatingStateStore;
 import sleeper.core.statestore.FileReference;
 import sleeper.core.statestore.FileReferenceFactory;
 import sleeper.core.statestore.ReplaceFileReferencesRequest;
 import sleeper.core.statestore.StateStore;
+import sleeper.core.statestore.StateStoreException;
 import sleeper.core.statestore.exception.ReplaceRequestsFailedException;
+import sleeper.core.statestore.inmemory.FixedPartitionStore;
+import sleeper.core.statestore.inmemory.InMemoryFileReferenceStore;
+import sleeper.core.statestore.transactionlog.InMemoryTransactionLogStore;
+import sleeper.core.statestore.transactionlog.TransactionLogStateStore;
 import sleeper.ingest.job.IngestJob;
 import sleeper.ingest.job.commit.IngestAddFilesCommitRequest;
 import sleeper.ingest.job.status.InMemoryIngestJobStatusStore;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -51,6 +60,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static sleeper.compaction.job.CompactionJobStatusTestData.compactionCommittedStatus;
 import static sleeper.compaction.job.CompactionJobStatusTestData.compactionFailedStatus;
 import static sleeper.compaction.job.CompactionJobStatusTestData.compactionFinishedStatusUncommitted;
@@ -62,6 +73,7 @@ import static sleeper.core.record.process.RecordsProcessedSummaryTestHelper.summ
 import static sleeper.core.schema.SchemaTestHelper.schemaWithKey;
 import static sleeper.core.statestore.AssignJobIdRequest.assignJobOnPartitionToFiles;
 import static sleeper.core.statestore.inmemory.StateStoreTestHelper.inMemoryStateStoreWithFixedPartitions;
+import static sleeper.core.table.TableStatusTestHelper.uniqueIdAndName;
 import static sleeper.ingest.job.status.IngestJobStartedEvent.ingestJobStarted;
 import static sleeper.ingest.job.status.IngestJobStatusTestHelper.ingestAddedFilesStatus;
 import static sleeper.ingest.job.status.IngestJobStatusTestHelper.ingestStartedStatus;
@@ -245,6 +257,207 @@ public class StateStoreCommitterTest {
         }
     }
 
+    @Nested
+    @DisplayName("Apply a batch of commits")
+    class ApplyBatch {
+        private final List<StateStoreCommitRequest> failedRequests = new ArrayList<>();
+
+        @Test
+        void shouldCombineCompactionCommitsForSameTableInOneUpdate() throws Exception {
+            // Given
+            StateStore stateStore = spy(createTable("test-table"));
+            createTable("test-table", stateStore);
+            Instant createdTime = Instant.parse("2024-06-14T15:34:00Z");
+            Instant startTime = Instant.parse("2024-06-14T15:35:00Z");
+            RecordsProcessedSummary summary = summary(startTime, Duration.ofMinutes(2), 100, 100);
+            Instant commitTime = Instant.parse("2024-06-14T15:40:00Z");
+            CompactionJobCommitRequest request1 = createFinishedCompactionForTable(
+                    "test-table", "input1.parquet", "output1.parquet", createdTime, startTime, summary);
+            CompactionJobCommitRequest request2 = createFinishedCompactionForTable(
+                    "test-table", "input2.parquet", "output2.parquet", createdTime, startTime, summary);
+
+            // When
+            applyBatchWithTimes(List.of(commitTime, commitTime),
+                    StateStoreCommitRequest.forCompactionJob(request1),
+                    StateStoreCommitRequest.forCompactionJob(request2));
+
+            // Then
+            verify(stateStore).atomicallyReplaceFileReferencesWithNewOnes(List.of(
+                    CompactionJobCommitter.replaceFileReferencesRequest(request1.getJob(), 100),
+                    CompactionJobCommitter.replaceFileReferencesRequest(request2.getJob(), 100)));
+            assertThat(stateStore.getFileReferences()).containsExactlyInAnyOrder(
+                    fileFactory.rootFile("output1.parquet", 100L),
+                    fileFactory.rootFile("output2.parquet", 100L));
+            assertThat(compactionJobStatusStore.getAllJobs("test-table")).containsExactlyInAnyOrder(
+                    committedJob(request1, createdTime, startTime, summary, commitTime),
+                    committedJob(request2, createdTime, startTime, summary, commitTime));
+            assertThat(failedRequests).isEmpty();
+        }
+
+        @Test
+        void shouldStoreCompactionFailedForOneJobInCombinedUpdate() throws Exception {
+            // Given
+            StateStore stateStore = createTable("test-table");
+            Instant createdTime = Instant.parse("2024-06-14T15:34:00Z");
+            Instant startTime = Instant.parse("2024-06-14T15:35:00Z");
+            RecordsProcessedSummary summary = summary(startTime, Duration.ofMinutes(2), 100, 100);
+            Instant commitTime = Instant.parse("2024-06-14T15:40:00Z");
+            CompactionJobCommitRequest request1 = createFinishedCompactionForTable(
+                    "test-table", "input1.parquet", "output1.parquet", createdTime, startTime, summary);
+            CompactionJobCommitRequest request2 = createFinishedCompactionForTable(
+                    "test-table", "input2.parquet", "output2.parquet", createdTime, startTime, summary);
+            stateStore.atomicallyReplaceFileReferencesWithNewOnes(List.of(
+                    CompactionJobCommitter.replaceFileReferencesRequest(request2.getJob(), 100)));
+            stateStore.deleteGarbageCollectedFileReferenceCounts(List.of("input2.parquet"));
+
+            // When
+            applyBatchWithTimes(List.of(commitTime, commitTime, commitTime),
+                    StateStoreCommitRequest.forCompactionJob(request1),
+                    StateStoreCommitRequest.forCompactionJob(request2));
+
+            // Then
+            assertThat(stateStore.getFileReferences()).containsExactlyInAnyOrder(
+                    fileFactory.rootFile("output1.parquet", 100L),
+                    fileFactory.rootFile("output2.parquet", 100L));
+            assertThat(compactionJobStatusStore.getAllJobs("test-table")).containsExactlyInAnyOrder(
+                    committedJob(request1, createdTime, startTime, summary, commitTime),
+                    jobCreated(request2.getJob(), createdTime,
+                            ProcessRun.builder().taskId("test-task")
+                                    .startedStatus(compactionStartedStatus(startTime))
+                                    .statusUpdate(compactionFinishedStatusUncommitted(summary))
+                                    .finishedStatus(compactionFailedStatus(
+                                            new ProcessRunTime(summary.getFinishTime(), commitTime),
+                                            List.of("File not found: input2.parquet")))
+                                    .build()));
+            assertThat(failedRequests).isEmpty();
+        }
+
+        @Test
+        void shouldCombineIngestCommitsForSameTableInOneUpdate() throws Exception {
+            // Given
+            StateStore stateStore = spy(createTransactionLogTable("test-table"));
+            createTable("test-table", stateStore);
+            FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+            FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+
+            // When
+            applyBatch(addFilesRequest("test-table", file1), addFilesRequest("test-table", file2));
+
+            // Then
+            verify(stateStore).addFilesWithReferences(
+                    AllReferencesToAFile.newFilesWithReferences(List.of(file1, file2)));
+            assertThat(stateStore.getFileReferences()).containsExactly(file1, file2);
+            assertThat(failedRequests).isEmpty();
+        }
+
+        @Test
+        void shouldCombineIngestCommitsForAnyStateStoreWhichAddsFilesAtomically() throws Exception {
+            // Given
+            StateStore stateStore = spy(createTable("test-table"));
+            createTable("test-table", stateStore);
+            FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+            FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+
+            // When
+            applyBatch(addFilesRequest("test-table", file1), addFilesRequest("test-table", file2));
+
+            // Then
+            verify(stateStore).addFilesWithReferences(
+                    AllReferencesToAFile.newFilesWithReferences(List.of(file1, file2)));
+            assertThat(stateStore.getFileReferences()).containsExactly(file1, file2);
+            assertThat(failedRequests).isEmpty();
+        }
+
+        @Test
+        void shouldReportFailureForOneIngestCommitWhenCombinedUpdateFails() throws Exception {
+            // Given
+            StateStore stateStore = createTransactionLogTable("test-table");
+            FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+            FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+            stateStore.addFile(file2);
+            StateStoreCommitRequest request1 = addFilesRequest("test-table", file1);
+            StateStoreCommitRequest request2 = addFilesRequest("test-table", file2);
+
+            // When
+            applyBatch(request1, request2);
+
+            // Then
+            assertThat(stateStore.getFileReferences()).containsExactlyInAnyOrder(file1, file2);
+            assertThat(failedRequests).containsExactly(request2);
+        }
+
+        @Test
+        void shouldApplyIngestCommitsSeparatelyWhenStateStoreDoesNotAddFilesAtomically() throws Exception {
+            // Given a state store which adds each file separately, so a failed update may add some files
+            StateStore stateStore = spy(new DelegatingStateStore(new AddEachFileReferenceStore(), new FixedPartitionStore(partitions.getAllPartitions())));
+            stateStore.fixFileUpdateTime(DEFAULT_FILE_UPDATE_TIME);
+            createTable("test-table", stateStore);
+            FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+            FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+            FileReference file3 = fileFactory.rootFile("file3.parquet", 300L);
+            stateStore.addFile(file2);
+            StateStoreCommitRequest request1 = addFilesRequest("test-table", file1);
+            StateStoreCommitRequest request2 = addFilesRequest("test-table", file2);
+            StateStoreCommitRequest request3 = addFilesRequest("test-table", file3);
+
+            // When
+            applyBatch(request1, request2, request3);
+
+            // Then
+            verify(stateStore).addFilesWithReferences(AllReferencesToAFile.newFilesWithReferences(List.of(file1)));
+            verify(stateStore).addFilesWithReferences(AllReferencesToAFile.newFilesWithReferences(List.of(file3)));
+            assertThat(stateStore.getFileReferences()).containsExactlyInAnyOrder(file1, file2, file3);
+            assertThat(failedRequests).containsExactly(request2);
+        }
+
+        @Test
+        void shouldApplyCommitsForDifferentTablesSeparately() throws Exception {
+            // Given
+            StateStore stateStore1 = createTable("table-1");
+            StateStore stateStore2 = createTable("table-2");
+            FileReference file1 = fileFactory.rootFile("file1.parquet", 100L);
+            FileReference file2 = fileFactory.rootFile("file2.parquet", 200L);
+            FileReference file3 = fileFactory.rootFile("file3.parquet", 300L);
+
+            // When
+            applyBatch(
+                    addFilesRequest("table-1", file1),
+                    addFilesRequest("table-2", file2),
+                    addFilesRequest("table-1", file3));
+
+            // Then
+            assertThat(stateStore1.getFileReferences()).containsExactly(file1, file3);
+            assertThat(stateStore2.getFileReferences()).containsExactly(file2);
+            assertThat(failedRequests).isEmpty();
+        }
+
+        private void applyBatch(StateStoreCommitRequest... requests) {
+            committer().applyBatch(List.of(requests), (request, failure) -> failedRequests.add(request));
+        }
+
+        private void applyBatchWithTimes(Collection<Instant> times, StateStoreCommitRequest... requests) {
+            committerWithTimes(times).applyBatch(List.of(requests), (request, failure) -> failedRequests.add(request));
+        }
+
+        private StateStoreCommitRequest addFilesRequest(String tableId, FileReference file) {
+            return StateStoreCommitRequest.forIngestAddFiles(IngestAddFilesCommitRequest.builder()
+                    .tableId(tableId)
+                    .fileReferences(List.of(file))
+                    .build());
+        }
+
+        private CompactionJobStatus committedJob(
+                CompactionJobCommitRequest request, Instant createdTime, Instant startTime,
+                RecordsProcessedSummary summary, Instant commitTime) {
+            return jobCreated(request.getJob(), createdTime,
+                    ProcessRun.builder().taskId("test-task")
+                            .startedStatus(compactionStartedStatus(startTime))
+                            .finishedStatus(compactionFinishedStatusUncommitted(summary))
+                            .statusUpdate(compactionCommittedStatus(commitTime))
+                            .build());
+        }
+    }
+
     private StateStoreCommitter committer() {
         return committerWithTimes(Instant::now);
     }
@@ -264,6 +477,18 @@ public class StateStoreCommitterTest {
         return stateStore;
     }
 
+    private StateStore createTransactionLogTable(String tableId) throws Exception {
+        StateStore stateStore = TransactionLogStateStore.builder()
+                .sleeperTable(uniqueIdAndName(tableId, tableId)).schema(schema)
+                .filesLogStore(new InMemoryTransactionLogStore())
+                .partitionsLogStore(new InMemoryTransactionLogStore())
+                .build();
+        stateStore.fixFileUpdateTime(DEFAULT_FILE_UPDATE_TIME);
+        stateStore.initialise(partitions.getAllPartitions());
+        createTable(tableId, stateStore);
+        return stateStore;
+    }
+
     private void createTable(String tableId, StateStore stateStore) {
         stateStoreByTableId.put(tableId, stateStore);
     }
@@ -274,17 +499,23 @@ public class StateStoreCommitterTest {
 
     private CompactionJobCommitRequest createFinishedCompactionForTable(
             String tableId, Instant createTime, Instant startTime, RecordsProcessedSummary summary) throws Exception {
+        return createFinishedCompactionForTable(tableId, "input.parquet", "output.parquet", createTime, startTime, summary);
+    }
+
+    private CompactionJobCommitRequest createFinishedCompactionForTable(
+            String tableId, String inputFile, String outputFile,
+            Instant createTime, Instant startTime, RecordsProcessedSummary summary) throws Exception {
         CompactionJob job = CompactionJob.builder()
                 .tableId(tableId)
                 .jobId(UUID.randomUUID().toString())
-                .inputFiles(List.of("input.parquet"))
-                .outputFile("output.parquet")
+                .inputFiles(List.of(inputFile))
+                .outputFile(outputFile)
                 .partitionId("root")
                 .build();
         StateStore stateStore = stateStore(tableId);
-        stateStore.addFile(fileFactory.rootFile("input.parquet", 123L));
+        stateStore.addFile(fileFactory.rootFile(inputFile, 123L));
         stateStore.assignJobIds(List.of(assignJobOnPartitionToFiles(
-                job.getId(), "root", List.of("input.parquet"))));
+                job.getId(), "root", List.of(inputFile))));
         compactionJobStatusStore.jobCreated(job, createTime);
         compactionJobStatusStore.jobStarted(compactionJobStarted(job, startTime)
                 .taskId("test-task").jobRunId("test-job-run").build());
@@ -293,4 +524,22 @@ public class StateStoreCommitterTest {
                 .taskId("test-task").jobRunId("test-job-run").build());
         return new CompactionJobCommitRequest(job, "test-task", "test-job-run", summary);
     }
+
+    /**
+     * An in-memory file reference store which adds each file separately, so that a failed update may have added some
+     * of the files. This behaves like the DynamoDB state store.
+     */
+    private static class AddEachFileReferenceStore extends InMemoryFileReferenceStore {
+        @Override
+        public void addFilesWithReferences(List<AllReferencesToAFile> files) throws StateStoreException {
+            for (AllReferencesToAFile file : files) {
+                super.addFilesWithReferences(List.of(file));
+            }
+        }
+
+        @Override
+        public boolean addsFilesAtomically() {
+            return false;
+        }
+    }
 }
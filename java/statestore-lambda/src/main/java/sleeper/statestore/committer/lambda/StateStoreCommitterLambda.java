@@ -35,7 +35,6 @@ import sleeper.commit.StateStoreCommitter;
 import sleeper.compaction.status.store.job.CompactionJobStatusStoreFactory;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TablePropertiesProvider;
-import sleeper.core.statestore.StateStoreException;
 import sleeper.core.util.LoggedDuration;
 import sleeper.ingest.status.store.job.IngestJobStatusStoreFactory;
 import sleeper.io.parquet.utils.HadoopConfigurationProvider;
@@ -43,7 +42,9 @@ import sleeper.statestore.StateStoreProvider;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static sleeper.configuration.properties.instance.CdkDefinedInstanceProperty.CONFIG_BUCKET;
 
@@ -69,16 +70,21 @@ public class StateStoreCommitterLambda implements RequestHandler<SQSEvent, SQSBa
         Instant startTime = Instant.now();
         LOGGER.info("Lambda started at {}", startTime);
         List<BatchItemFailure> batchItemFailures = new ArrayList<>();
+        List<StateStoreCommitRequest> requests = new ArrayList<>();
+        Map<StateStoreCommitRequest, String> messageIdByRequest = new IdentityHashMap<>();
         for (SQSMessage message : event.getRecords()) {
             LOGGER.info("Found message: {}", message.getBody());
-            StateStoreCommitRequest request = serDe.fromJson(message.getBody());
             try {
-                committer.apply(request);
-            } catch (RuntimeException | StateStoreException e) {
-                LOGGER.error("Failed commit request", e);
+                StateStoreCommitRequest request = serDe.fromJson(message.getBody());
+                requests.add(request);
+                messageIdByRequest.put(request, message.getMessageId());
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed reading commit request", e);
                 batchItemFailures.add(new BatchItemFailure(message.getMessageId()));
             }
         }
+        committer.applyBatch(requests, (request, failure) -> batchItemFailures.add(
+                new BatchItemFailure(messageIdByRequest.get(request))));
         Instant finishTime = Instant.now();
         LOGGER.info("Lambda finished at {} (ran for {})",
                 finishTime, LoggedDuration.withFullOutput(startTime, finishTime));
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore.committer.service;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.commit.StateStoreCommitterService.MessageHandle;
+import sleeper.commit.StateStoreCommitterService.MessageReceiver;
+import sleeper.configuration.properties.instance.InstanceProperties;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static sleeper.configuration.properties.instance.CdkDefinedInstanceProperty.STATESTORE_COMMITTER_QUEUE_URL;
+import static sleeper.configuration.properties.instance.CommonProperty.STATESTORE_COMMITTER_BATCH_SIZE;
+import static sleeper.configuration.properties.instance.CommonProperty.STATESTORE_COMMITTER_SERVICE_WAIT_TIME_IN_SECONDS;
+
+/**
+ * Receives state store commit requests from the SQS queue, for the state store committer service.
+ */
+public class SqsStateStoreCommitMessageReceiver implements MessageReceiver {
+    public static final Logger LOGGER = LoggerFactory.getLogger(SqsStateStoreCommitMessageReceiver.class);
+
+    private final AmazonSQS sqsClient;
+    private final InstanceProperties instanceProperties;
+
+    public SqsStateStoreCommitMessageReceiver(AmazonSQS sqsClient, InstanceProperties instanceProperties) {
+        this.sqsClient = sqsClient;
+        this.instanceProperties = instanceProperties;
+    }
+
+    @Override
+    public List<MessageHandle> receiveMessages() {
+        String queueUrl = instanceProperties.get(STATESTORE_COMMITTER_QUEUE_URL);
+        int waitTimeSeconds = instanceProperties.getInt(STATESTORE_COMMITTER_SERVICE_WAIT_TIME_IN_SECONDS);
+        List<Message> messages = sqsClient.receiveMessage(new ReceiveMessageRequest(queueUrl)
+                .withMaxNumberOfMessages(instanceProperties.getInt(STATESTORE_COMMITTER_BATCH_SIZE))
+                .withWaitTimeSeconds(waitTimeSeconds))
+                .getMessages();
+        LOGGER.debug("Received {} messages", messages.size());
+        return messages.stream()
+                .map(message -> new SqsMessageHandle(queueUrl, message))
+                .collect(toUnmodifiableList());
+    }
+
+    /**
+     * A commit request message received from SQS.
+     */
+    private class SqsMessageHandle implements MessageHandle {
+        private final String queueUrl;
+        private final Message message;
+
+        SqsMessageHandle(String queueUrl, Message message) {
+            this.queueUrl = queueUrl;
+            this.message = message;
+        }
+
+        @Override
+        public String getBody() {
+            return message.getBody();
+        }
+
+        @Override
+        public void completed() {
+            sqsClient.deleteMessage(queueUrl, message.getReceiptHandle());
+        }
+
+        @Override
+        public void failed() {
+            LOGGER.info("Returning message {} to queue", message.getMessageId());
+            sqsClient.changeMessageVisibility(queueUrl, message.getReceiptHandle(), 0);
+        }
+    }
+}
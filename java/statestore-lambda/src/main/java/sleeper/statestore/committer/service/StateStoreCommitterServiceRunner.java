@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore.committer.service;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.commit.StateStoreCommitter;
+import sleeper.commit.StateStoreCommitterService;
+import sleeper.compaction.job.CompactionJobStatusStore;
+import sleeper.compaction.status.store.job.CompactionJobStatusStoreFactory;
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TablePropertiesProvider;
+import sleeper.core.util.LoggedDuration;
+import sleeper.ingest.job.status.IngestJobStatusStore;
+import sleeper.ingest.status.store.job.IngestJobStatusStoreFactory;
+import sleeper.io.parquet.utils.HadoopConfigurationProvider;
+import sleeper.statestore.StateStoreProvider;
+
+import java.time.Instant;
+
+import static sleeper.configuration.properties.instance.CommonProperty.STATESTORE_COMMITTER_SERVICE_THREADS;
+
+/**
+ * Runs the state store committer as a long running service, polling the commit queue. This is an alternative to the
+ * state store committer lambda, which keeps the state of recently updated Sleeper tables in memory between commits.
+ */
+public class StateStoreCommitterServiceRunner {
+    public static final Logger LOGGER = LoggerFactory.getLogger(StateStoreCommitterServiceRunner.class);
+
+    private StateStoreCommitterServiceRunner() {
+    }
+
+    /**
+     * Runs the state store committer service until the JVM is shut down.
+     *
+     * @param args the command line arguments, which should be the name of the config bucket
+     */
+    public static void main(String[] args) {
+        if (1 != args.length) {
+            System.err.println("Error: must have 1 argument (config bucket), got " + args.length + " arguments (" + StringUtils.join(args, ',') + ")");
+            System.exit(1);
+        }
+        String s3Bucket = args[0];
+
+        Instant startTime = Instant.now();
+        AmazonS3 s3Client = AmazonS3ClientBuilder.defaultClient();
+        AmazonDynamoDB dynamoDBClient = AmazonDynamoDBClientBuilder.defaultClient();
+        AmazonSQS sqsClient = AmazonSQSClientBuilder.defaultClient();
+        try {
+            InstanceProperties instanceProperties = new InstanceProperties();
+            instanceProperties.loadFromS3(s3Client, s3Bucket);
+            Configuration hadoopConf = HadoopConfigurationProvider.getConfigurationForECS(instanceProperties);
+            CompactionJobStatusStore compactionJobStatusStore = CompactionJobStatusStoreFactory.getStatusStore(dynamoDBClient, instanceProperties);
+            IngestJobStatusStore ingestJobStatusStore = IngestJobStatusStoreFactory.getStatusStore(dynamoDBClient, instanceProperties);
+
+            // Table properties and state stores are cached in memory and are not thread safe, so each worker needs
+            // its own
+            StateStoreCommitterService.CommitterFactory committerFactory = () -> {
+                TablePropertiesProvider tablePropertiesProvider = new TablePropertiesProvider(instanceProperties, s3Client, dynamoDBClient);
+                StateStoreProvider stateStoreProvider = new StateStoreProvider(instanceProperties, s3Client, dynamoDBClient, hadoopConf);
+                return new StateStoreCommitter(compactionJobStatusStore, ingestJobStatusStore,
+                        stateStoreProvider.byTableId(tablePropertiesProvider), Instant::now);
+            };
+            try (StateStoreCommitterService service = new StateStoreCommitterService(
+                    new SqsStateStoreCommitMessageReceiver(sqsClient, instanceProperties),
+                    committerFactory, instanceProperties.getInt(STATESTORE_COMMITTER_SERVICE_THREADS))) {
+                Thread serviceThread = Thread.currentThread();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> stopAndWait(service, serviceThread)));
+                service.run();
+            }
+        } finally {
+            sqsClient.shutdown();
+            dynamoDBClient.shutdown();
+            s3Client.shutdown();
+            LOGGER.info("Total run time = {}", LoggedDuration.withFullOutput(startTime, Instant.now()));
+        }
+    }
+
+    private static void stopAndWait(StateStoreCommitterService service, Thread serviceThread) {
+        LOGGER.info("Stopping state store committer service");
+        service.stop();
+        try {
+            serviceThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -22,22 +22,37 @@ import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import sleeper.core.iterator.ParallelMappingIterator;
+import sleeper.core.iterator.WrappedIterator;
 import sleeper.core.partition.Partition;
 import sleeper.core.schema.Schema;
 import sleeper.core.statestore.AllReferencesToAFile;
+import sleeper.core.statestore.FileReference;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
- * Saves and loads the state of a Sleeper table in Arrow files.
+ * Saves and loads the state of a Sleeper table in Arrow files. The state of files may be held in a single Arrow file,
+ * or split into shards by partition in a directory with a manifest.
  */
 public class StateStoreArrowFileStore {
     public static final Logger LOGGER = LoggerFactory.getLogger(StateStoreArrowFileStore.class);
+    private static final int MAX_SHARDS_IN_FLIGHT = 4;
 
     private final Configuration configuration;
 
@@ -80,6 +95,23 @@ public class StateStoreArrowFileStore {
         LOGGER.debug("Wrote {} files to {}", files.size(), path);
     }
 
+    /**
+     * Saves changes to the state of files in a Sleeper table to an Arrow file.
+     *
+     * @param  path        path to write the file to
+     * @param  delta       the changes
+     * @throws IOException if the file could not be written
+     */
+    public void saveFilesDelta(String path, StateStoreFilesDelta delta) throws IOException {
+        LOGGER.debug("Writing {} changed files to {}", delta.size(), path);
+        Path hadoopPath = new Path(path);
+        try (BufferAllocator allocator = new RootAllocator();
+                WritableByteChannel channel = Channels.newChannel(hadoopPath.getFileSystem(configuration).create(hadoopPath))) {
+            StateStoreFilesArrowFormat.writeDelta(delta, allocator, channel);
+        }
+        LOGGER.debug("Wrote {} changed files to {}", delta.size(), path);
+    }
+
     /**
      * Loads the state of partitions in a Sleeper table from an Arrow file.
      *
@@ -107,13 +139,193 @@ public class StateStoreArrowFileStore {
      * @throws IOException if the file could not be read
      */
     public List<AllReferencesToAFile> loadFiles(String path) throws IOException {
+        List<AllReferencesToAFile> files = new ArrayList<>();
+        loadFiles(path, files::add);
+        return files;
+    }
+
+    /**
+     * Loads the state of files in a Sleeper table from an Arrow file, streaming each file to a consumer.
+     *
+     * @param  path        path to the file to read
+     * @param  consumer    the consumer to pass each file to
+     * @throws IOException if the file could not be read
+     */
+    public void loadFiles(String path, Consumer<AllReferencesToAFile> consumer) throws IOException {
         LOGGER.debug("Loading files from {}", path);
         Path hadoopPath = new Path(path);
         try (BufferAllocator allocator = new RootAllocator();
                 ReadableByteChannel channel = Channels.newChannel(hadoopPath.getFileSystem(configuration).open(hadoopPath))) {
-            List<AllReferencesToAFile> files = StateStoreFilesArrowFormat.read(allocator, channel);
-            LOGGER.debug("Loaded {} files from {}", files.size(), path);
-            return files;
+            StateStoreFilesArrowFormat.read(allocator, channel, consumer);
+        }
+        LOGGER.debug("Loaded files from {}", path);
+    }
+
+    /**
+     * Loads the references to files in the given partitions of a Sleeper table, from an Arrow file. References in other
+     * partitions are skipped as the file is read.
+     *
+     * @param  path         path to the file to read
+     * @param  partitionIds the IDs of the partitions to load references for
+     * @return              the file references in any of the given partitions
+     * @throws IOException  if the file could not be read
+     */
+    public List<FileReference> loadFileReferencesInPartitions(String path, Collection<String> partitionIds) throws IOException {
+        LOGGER.debug("Loading file references in {} partitions from {}", partitionIds.size(), path);
+        Path hadoopPath = new Path(path);
+        List<FileReference> references = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator();
+                ReadableByteChannel channel = Channels.newChannel(hadoopPath.getFileSystem(configuration).open(hadoopPath))) {
+            StateStoreFilesArrowFormat.readReferencesInPartitions(allocator, channel, Set.copyOf(partitionIds), references::add);
+        }
+        LOGGER.debug("Loaded {} file references from {}", references.size(), path);
+        return references;
+    }
+
+    /**
+     * Saves the state of files in a Sleeper table split into shards by partition. The shards are written as separate
+     * Arrow files in parallel, in a directory with a manifest. The manifest is written last.
+     *
+     * @param  directory        path to the directory to write the files to
+     * @param  files            the state
+     * @param  maxFilesPerShard the number of files to aim for in each shard
+     * @throws IOException      if the files could not be written
+     */
+    public void saveFilesSharded(String directory, Collection<AllReferencesToAFile> files, int maxFilesPerShard) throws IOException {
+        StateStoreFilesManifest manifest = StateStoreFilesManifest.planShards(files, maxFilesPerShard);
+        List<List<AllReferencesToAFile>> filesByShard = manifest.assignToShards(files);
+        LOGGER.debug("Writing {} files in {} shards to {}", files.size(), manifest.getShards().size(), directory);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < filesByShard.size(); i++) {
+            String shardPath = shardPath(directory, manifest.getShards().get(i));
+            List<AllReferencesToAFile> shardFiles = filesByShard.get(i);
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    saveFiles(shardPath, shardFiles);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, StateStoreBackgroundExecutor.get()));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        }
+        Path manifestPath = new Path(manifestPath(directory));
+        try (BufferAllocator allocator = new RootAllocator();
+                WritableByteChannel channel = Channels.newChannel(manifestPath.getFileSystem(configuration).create(manifestPath))) {
+            StateStoreFilesArrowFormat.writeManifest(manifest, allocator, channel);
+        }
+        LOGGER.debug("Wrote {} files in {} shards to {}", files.size(), manifest.getShards().size(), directory);
+    }
+
+    /**
+     * Loads the state of files in a Sleeper table which was split into shards by partition. Shards are read ahead in
+     * parallel, but passed to the consumer in order. Each file is passed to the consumer once, even if it is held in
+     * more than one shard.
+     *
+     * @param  directory   path to the directory holding the shards
+     * @param  consumer    the consumer to pass each file to
+     * @throws IOException if the files could not be read
+     */
+    public void loadFilesSharded(String directory, Consumer<AllReferencesToAFile> consumer) throws IOException {
+        StateStoreFilesManifest manifest = loadManifest(directory);
+        List<Integer> shardIndexes = IntStream.range(0, manifest.getShards().size())
+                .boxed().collect(Collectors.toList());
+        loadShards(directory, manifest, shardIndexes, index -> true, consumer);
+    }
+
+    /**
+     * Loads the files in a Sleeper table which are referenced in the given partitions, from a state which was split
+     * into shards by partition. Only the shards holding those partitions are read.
+     *
+     * @param  directory    path to the directory holding the shards
+     * @param  partitionIds the IDs of the partitions to load files for
+     * @return              the files with a reference in any of the given partitions
+     * @throws IOException  if the files could not be read
+     */
+    public List<AllReferencesToAFile> loadFilesShardedInPartitions(String directory, Collection<String> partitionIds) throws IOException {
+        StateStoreFilesManifest manifest = loadManifest(directory);
+        Set<String> partitionIdSet = Set.copyOf(partitionIds);
+        List<Integer> shardIndexes = manifest.shardIndexesForPartitions(partitionIdSet);
+        Set<Integer> shardIndexSet = Set.copyOf(shardIndexes);
+        List<AllReferencesToAFile> files = new ArrayList<>();
+        loadShards(directory, manifest, shardIndexes, shardIndexSet::contains, file -> {
+            if (file.getReferences().stream().anyMatch(reference -> partitionIdSet.contains(reference.getPartitionId()))) {
+                files.add(file);
+            }
+        });
+        return files;
+    }
+
+    private void loadShards(
+            String directory, StateStoreFilesManifest manifest, List<Integer> shardIndexes,
+            IntPredicate includeShard, Consumer<AllReferencesToAFile> consumer) throws IOException {
+        LOGGER.debug("Loading {} shards from {}", shardIndexes.size(), directory);
+        Iterator<Integer> indexIterator = shardIndexes.iterator();
+        try (ParallelMappingIterator<Integer, List<AllReferencesToAFile>> shardIterator = new ParallelMappingIterator<>(
+                new WrappedIterator<>(shardIndexes.iterator()),
+                index -> loadFilesUnchecked(shardPath(directory, manifest.getShards().get(index))),
+                StateStoreBackgroundExecutor.get(), MAX_SHARDS_IN_FLIGHT)) {
+            while (shardIterator.hasNext()) {
+                List<AllReferencesToAFile> shardFiles = shardIterator.next();
+                int shardIndex = indexIterator.next();
+                for (AllReferencesToAFile file : shardFiles) {
+                    if (manifest.firstShardIndex(file, includeShard) == shardIndex) {
+                        consumer.accept(file);
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        LOGGER.debug("Loaded {} shards from {}", shardIndexes.size(), directory);
+    }
+
+    private StateStoreFilesManifest loadManifest(String directory) throws IOException {
+        Path hadoopPath = new Path(manifestPath(directory));
+        try (BufferAllocator allocator = new RootAllocator();
+                ReadableByteChannel channel = Channels.newChannel(hadoopPath.getFileSystem(configuration).open(hadoopPath))) {
+            return StateStoreFilesArrowFormat.readManifest(allocator, channel);
+        }
+    }
+
+    private List<AllReferencesToAFile> loadFilesUnchecked(String path) {
+        try {
+            return loadFiles(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String manifestPath(String directory) {
+        return directory + "/manifest.arrow";
+    }
+
+    private static String shardPath(String directory, StateStoreFilesManifest.Shard shard) {
+        return directory + "/" + shard.getFilename();
+    }
+
+    /**
+     * Loads changes to the state of files in a Sleeper table from an Arrow file.
+     *
+     * @param  path        path to the file to read
+     * @return             the changes
+     * @throws IOException if the file could not be read
+     */
+    public StateStoreFilesDelta loadFilesDelta(String path) throws IOException {
+        LOGGER.debug("Loading changed files from {}", path);
+        Path hadoopPath = new Path(path);
+        try (BufferAllocator allocator = new RootAllocator();
+                ReadableByteChannel channel = Channels.newChannel(hadoopPath.getFileSystem(configuration).open(hadoopPath))) {
+            StateStoreFilesDelta delta = StateStoreFilesArrowFormat.readDelta(allocator, channel);
+            LOGGER.debug("Loaded {} changed files from {}", delta.size(), path);
+            return delta;
         }
     }
 
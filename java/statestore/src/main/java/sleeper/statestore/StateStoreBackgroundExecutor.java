@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor shared by all state stores in a process, to read and write state in the background. This is used to read
+ * ahead from the transaction log, and to read and write segments and shards of snapshots in parallel.
+ * <p>
+ * The number of threads is bounded across all state stores, and any further tasks are queued. Each caller also limits
+ * how many tasks it has in flight at once. Tasks submitted here must not wait for other tasks on this executor, as
+ * those may be queued behind them.
+ * <p>
+ * The threads are daemon threads, and time out when they are idle. This means the executor does not need to be shut
+ * down, and holds no threads when no state is being read or written.
+ */
+public class StateStoreBackgroundExecutor {
+    private static final int MAX_THREADS = 16;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+    private static final Executor EXECUTOR = createExecutor();
+
+    private StateStoreBackgroundExecutor() {
+    }
+
+    /**
+     * Retrieves the shared executor.
+     *
+     * @return the executor
+     */
+    public static Executor get() {
+        return EXECUTOR;
+    }
+
+    private static Executor createExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MAX_THREADS, MAX_THREADS, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "state-store-background-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
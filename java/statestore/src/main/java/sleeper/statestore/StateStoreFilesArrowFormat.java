@@ -16,6 +16,7 @@
 package sleeper.statestore;
 
 import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BitVector;
 import org.apache.arrow.vector.TimeStampMilliVector;
 import org.apache.arrow.vector.VarCharVector;
 import org.apache.arrow.vector.VectorSchemaRoot;
@@ -44,8 +45,11 @@ import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static sleeper.statestore.ArrowFormatUtils.writeBit;
 import static sleeper.statestore.ArrowFormatUtils.writeTimeStampMilli;
@@ -73,12 +77,20 @@ public class StateStoreFilesArrowFormat {
     private static final Field REFERENCES = new Field("partitionReferences",
             FieldType.notNullable(Types.MinorType.LIST.getType()), List.of(REFERENCE));
     private static final Schema SCHEMA = new Schema(List.of(FILENAME, UPDATE_TIME, REFERENCES));
+    private static final Field DELETED = Field.notNullable("deleted", Types.MinorType.BIT.getType());
+    private static final Schema DELTA_SCHEMA = new Schema(List.of(FILENAME, UPDATE_TIME, REFERENCES, DELETED));
+    private static final Field SHARD_FILENAME = Field.notNullable("shardFilename", Utf8.INSTANCE);
+    private static final Field SHARD_PARTITION_IDS = new Field("partitionIds",
+            FieldType.notNullable(Types.MinorType.LIST.getType()), List.of(PARTITION_ID));
+    private static final Schema MANIFEST_SCHEMA = new Schema(List.of(SHARD_FILENAME, SHARD_PARTITION_IDS));
+    private static final int MAX_ROWS_PER_BATCH = 10000;
 
     private StateStoreFilesArrowFormat() {
     }
 
     /**
-     * Writes the state of files in Arrow format.
+     * Writes the state of files in Arrow format. The files are written in record batches of a limited size, so that
+     * only one batch is held in Arrow buffers at once.
      *
      * @param  files       the files in the state store
      * @param  allocator   the buffer allocator
@@ -86,19 +98,222 @@ public class StateStoreFilesArrowFormat {
      * @throws IOException if writing to the channel fails
      */
     public static void write(Collection<AllReferencesToAFile> files, BufferAllocator allocator, WritableByteChannel channel) throws IOException {
+        write(files.iterator(), allocator, channel, MAX_ROWS_PER_BATCH);
+    }
+
+    /**
+     * Writes the state of files in Arrow format, with a given maximum number of files in each record batch.
+     *
+     * @param  files           the files in the state store
+     * @param  allocator       the buffer allocator
+     * @param  channel         the channel to write to
+     * @param  maxRowsPerBatch the maximum number of files to write in each record batch
+     * @throws IOException     if writing to the channel fails
+     */
+    static void write(Iterator<AllReferencesToAFile> files, BufferAllocator allocator, WritableByteChannel channel, int maxRowsPerBatch) throws IOException {
         try (VectorSchemaRoot vectorSchemaRoot = VectorSchemaRoot.create(SCHEMA, allocator);
                 ArrowStreamWriter writer = new ArrowStreamWriter(vectorSchemaRoot, null, channel)) {
-            vectorSchemaRoot.getFieldVectors().forEach(fieldVector -> fieldVector.setInitialCapacity(files.size()));
+            writer.start();
+            VarCharVector filenameVector = (VarCharVector) vectorSchemaRoot.getVector(FILENAME);
+            TimeStampMilliVector updateTimeVector = (TimeStampMilliVector) vectorSchemaRoot.getVector(UPDATE_TIME);
+            ListVector referencesVector = (ListVector) vectorSchemaRoot.getVector(REFERENCES);
+            do {
+                vectorSchemaRoot.allocateNew();
+                int rowNumber = 0;
+                while (rowNumber < maxRowsPerBatch && files.hasNext()) {
+                    AllReferencesToAFile file = files.next();
+                    filenameVector.setSafe(rowNumber, file.getFilename().getBytes(StandardCharsets.UTF_8));
+                    updateTimeVector.setSafe(rowNumber, file.getLastStateStoreUpdateTime().toEpochMilli());
+                    writeReferences(file, rowNumber, allocator, referencesVector.getWriter());
+                    rowNumber++;
+                }
+                vectorSchemaRoot.setRowCount(rowNumber);
+                writer.writeBatch();
+            } while (files.hasNext());
+            writer.end();
+        }
+    }
+
+    /**
+     * Reads the state of files from Arrow format.
+     *
+     * @param  channel the channel to read from
+     * @return         the files in the state store
+     */
+    public static List<AllReferencesToAFile> read(BufferAllocator allocator, ReadableByteChannel channel) throws IOException {
+        List<AllReferencesToAFile> files = new ArrayList<>();
+        read(allocator, channel, files::add);
+        return files;
+    }
+
+    /**
+     * Reads the state of files from Arrow format, streaming each file to a consumer. Only one record batch is held in
+     * Arrow buffers at once.
+     *
+     * @param  allocator   the buffer allocator
+     * @param  channel     the channel to read from
+     * @param  consumer    the consumer to pass each file to
+     * @throws IOException if reading from the channel fails
+     */
+    public static void read(BufferAllocator allocator, ReadableByteChannel channel, Consumer<AllReferencesToAFile> consumer) throws IOException {
+        try (ArrowStreamReader reader = new ArrowStreamReader(channel, allocator)) {
+            VectorSchemaRoot vectorSchemaRoot = reader.getVectorSchemaRoot();
+            VarCharVector filenameVector = (VarCharVector) vectorSchemaRoot.getVector(FILENAME);
+            TimeStampMilliVector updateTimeVector = (TimeStampMilliVector) vectorSchemaRoot.getVector(UPDATE_TIME);
+            ListVector referencesVector = (ListVector) vectorSchemaRoot.getVector(REFERENCES);
+            while (reader.loadNextBatch()) {
+                for (int rowNumber = 0; rowNumber < vectorSchemaRoot.getRowCount(); rowNumber++) {
+                    String filename = filenameVector.getObject(rowNumber).toString();
+                    List<FileReference> references = readReferences(filename, referencesVector, rowNumber);
+                    consumer.accept(AllReferencesToAFile.builder()
+                            .filename(filename)
+                            .lastStateStoreUpdateTime(Instant.ofEpochMilli(updateTimeVector.get(rowNumber)))
+                            .references(references)
+                            .build());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the references to files in the given partitions from Arrow format, streaming each reference to a consumer.
+     * References in other partitions are skipped without being built, and only one record batch is held in Arrow
+     * buffers at once.
+     *
+     * @param  allocator    the buffer allocator
+     * @param  channel      the channel to read from
+     * @param  partitionIds the IDs of the partitions to read references for
+     * @param  consumer     the consumer to pass each reference to
+     * @throws IOException  if reading from the channel fails
+     */
+    public static void readReferencesInPartitions(
+            BufferAllocator allocator, ReadableByteChannel channel,
+            Set<String> partitionIds, Consumer<FileReference> consumer) throws IOException {
+        try (ArrowStreamReader reader = new ArrowStreamReader(channel, allocator)) {
+            VectorSchemaRoot vectorSchemaRoot = reader.getVectorSchemaRoot();
+            VarCharVector filenameVector = (VarCharVector) vectorSchemaRoot.getVector(FILENAME);
+            ListVector referencesVector = (ListVector) vectorSchemaRoot.getVector(REFERENCES);
+            while (reader.loadNextBatch()) {
+                for (int rowNumber = 0; rowNumber < vectorSchemaRoot.getRowCount(); rowNumber++) {
+                    UnionListReader listReader = referencesVector.getReader();
+                    listReader.setPosition(rowNumber);
+                    FieldReader referenceReader = listReader.reader();
+                    String filename = null;
+                    while (listReader.next()) {
+                        String partitionId = referenceReader.reader(PARTITION_ID.getName()).readText().toString();
+                        if (!partitionIds.contains(partitionId)) {
+                            continue;
+                        }
+                        if (filename == null) {
+                            filename = filenameVector.getObject(rowNumber).toString();
+                        }
+                        consumer.accept(readReference(filename, partitionId, referenceReader));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a manifest of a snapshot of files split into shards.
+     *
+     * @param  manifest    the manifest
+     * @param  allocator   the buffer allocator
+     * @param  channel     the channel to write to
+     * @throws IOException if writing to the channel fails
+     */
+    public static void writeManifest(StateStoreFilesManifest manifest, BufferAllocator allocator, WritableByteChannel channel) throws IOException {
+        try (VectorSchemaRoot vectorSchemaRoot = VectorSchemaRoot.create(MANIFEST_SCHEMA, allocator);
+                ArrowStreamWriter writer = new ArrowStreamWriter(vectorSchemaRoot, null, channel)) {
+            vectorSchemaRoot.allocateNew();
+            writer.start();
+            VarCharVector shardFilenameVector = (VarCharVector) vectorSchemaRoot.getVector(SHARD_FILENAME);
+            ListVector shardPartitionIdsVector = (ListVector) vectorSchemaRoot.getVector(SHARD_PARTITION_IDS);
+            int rowNumber = 0;
+            for (StateStoreFilesManifest.Shard shard : manifest.getShards()) {
+                shardFilenameVector.setSafe(rowNumber, shard.getFilename().getBytes(StandardCharsets.UTF_8));
+                UnionListWriter partitionIdsWriter = shardPartitionIdsVector.getWriter();
+                partitionIdsWriter.setPosition(rowNumber);
+                partitionIdsWriter.startList();
+                for (String partitionId : shard.getPartitionIds()) {
+                    writeVarChar(partitionIdsWriter.varChar(), allocator, partitionId);
+                }
+                partitionIdsWriter.endList();
+                rowNumber++;
+            }
+            vectorSchemaRoot.setRowCount(rowNumber);
+            writer.writeBatch();
+            writer.end();
+        }
+    }
+
+    /**
+     * Reads a manifest of a snapshot of files split into shards.
+     *
+     * @param  allocator   the buffer allocator
+     * @param  channel     the channel to read from
+     * @return             the manifest
+     * @throws IOException if reading from the channel fails
+     */
+    public static StateStoreFilesManifest readManifest(BufferAllocator allocator, ReadableByteChannel channel) throws IOException {
+        List<StateStoreFilesManifest.Shard> shards = new ArrayList<>();
+        try (ArrowStreamReader reader = new ArrowStreamReader(channel, allocator)) {
+            VectorSchemaRoot vectorSchemaRoot = reader.getVectorSchemaRoot();
+            VarCharVector shardFilenameVector = (VarCharVector) vectorSchemaRoot.getVector(SHARD_FILENAME);
+            ListVector shardPartitionIdsVector = (ListVector) vectorSchemaRoot.getVector(SHARD_PARTITION_IDS);
+            while (reader.loadNextBatch()) {
+                for (int rowNumber = 0; rowNumber < vectorSchemaRoot.getRowCount(); rowNumber++) {
+                    List<String> partitionIds = new ArrayList<>();
+                    UnionListReader listReader = shardPartitionIdsVector.getReader();
+                    listReader.setPosition(rowNumber);
+                    FieldReader partitionIdReader = listReader.reader();
+                    while (listReader.next()) {
+                        partitionIds.add(partitionIdReader.readText().toString());
+                    }
+                    shards.add(new StateStoreFilesManifest.Shard(
+                            shardFilenameVector.getObject(rowNumber).toString(), partitionIds));
+                }
+            }
+        }
+        return new StateStoreFilesManifest(shards);
+    }
+
+    /**
+     * Writes changes to the state of files in Arrow format. Deleted files are written as rows with no references, and
+     * are marked as deleted.
+     *
+     * @param  delta       the changes to files in the state store
+     * @param  allocator   the buffer allocator
+     * @param  channel     the channel to write to
+     * @throws IOException if writing to the channel fails
+     */
+    public static void writeDelta(StateStoreFilesDelta delta, BufferAllocator allocator, WritableByteChannel channel) throws IOException {
+        try (VectorSchemaRoot vectorSchemaRoot = VectorSchemaRoot.create(DELTA_SCHEMA, allocator);
+                ArrowStreamWriter writer = new ArrowStreamWriter(vectorSchemaRoot, null, channel)) {
+            vectorSchemaRoot.getFieldVectors().forEach(fieldVector -> fieldVector.setInitialCapacity(delta.size()));
             vectorSchemaRoot.allocateNew();
             writer.start();
             int rowNumber = 0;
             VarCharVector filenameVector = (VarCharVector) vectorSchemaRoot.getVector(FILENAME);
             TimeStampMilliVector updateTimeVector = (TimeStampMilliVector) vectorSchemaRoot.getVector(UPDATE_TIME);
             ListVector referencesVector = (ListVector) vectorSchemaRoot.getVector(REFERENCES);
-            for (AllReferencesToAFile file : files) {
+            BitVector deletedVector = (BitVector) vectorSchemaRoot.getVector(DELETED);
+            for (AllReferencesToAFile file : delta.getUpdatedFiles()) {
                 filenameVector.setSafe(rowNumber, file.getFilename().getBytes(StandardCharsets.UTF_8));
                 updateTimeVector.setSafe(rowNumber, file.getLastStateStoreUpdateTime().toEpochMilli());
                 writeReferences(file, rowNumber, allocator, referencesVector.getWriter());
+                deletedVector.setSafe(rowNumber, 0);
+                rowNumber++;
+                vectorSchemaRoot.setRowCount(rowNumber);
+            }
+            for (String filename : delta.getDeletedFilenames()) {
+                filenameVector.setSafe(rowNumber, filename.getBytes(StandardCharsets.UTF_8));
+                updateTimeVector.setSafe(rowNumber, 0);
+                UnionListWriter referencesWriter = referencesVector.getWriter();
+                referencesWriter.setPosition(rowNumber);
+                referencesWriter.startList();
+                referencesWriter.endList();
+                deletedVector.setSafe(rowNumber, 1);
                 rowNumber++;
                 vectorSchemaRoot.setRowCount(rowNumber);
             }
@@ -108,30 +323,37 @@ public class StateStoreFilesArrowFormat {
     }
 
     /**
-     * Reads the state of files from Arrow format.
+     * Reads changes to the state of files from Arrow format.
      *
-     * @param  channel the channel to read from
-     * @return         the files in the state store
+     * @param  allocator   the buffer allocator
+     * @param  channel     the channel to read from
+     * @return             the changes to files in the state store
+     * @throws IOException if reading from the channel fails
      */
-    public static List<AllReferencesToAFile> read(BufferAllocator allocator, ReadableByteChannel channel) throws IOException {
-        List<AllReferencesToAFile> files = new ArrayList<>();
+    public static StateStoreFilesDelta readDelta(BufferAllocator allocator, ReadableByteChannel channel) throws IOException {
+        List<AllReferencesToAFile> updatedFiles = new ArrayList<>();
+        List<String> deletedFilenames = new ArrayList<>();
         try (ArrowStreamReader reader = new ArrowStreamReader(channel, allocator)) {
             reader.loadNextBatch();
             VectorSchemaRoot vectorSchemaRoot = reader.getVectorSchemaRoot();
             VarCharVector filenameVector = (VarCharVector) vectorSchemaRoot.getVector(FILENAME);
             TimeStampMilliVector updateTimeVector = (TimeStampMilliVector) vectorSchemaRoot.getVector(UPDATE_TIME);
             ListVector referencesVector = (ListVector) vectorSchemaRoot.getVector(REFERENCES);
+            BitVector deletedVector = (BitVector) vectorSchemaRoot.getVector(DELETED);
             for (int rowNumber = 0; rowNumber < vectorSchemaRoot.getRowCount(); rowNumber++) {
                 String filename = filenameVector.getObject(rowNumber).toString();
-                List<FileReference> references = readReferences(filename, referencesVector, rowNumber);
-                files.add(AllReferencesToAFile.builder()
-                        .filename(filename)
-                        .lastStateStoreUpdateTime(Instant.ofEpochMilli(updateTimeVector.get(rowNumber)))
-                        .references(references)
-                        .build());
+                if (deletedVector.get(rowNumber) == 1) {
+                    deletedFilenames.add(filename);
+                } else {
+                    updatedFiles.add(AllReferencesToAFile.builder()
+                            .filename(filename)
+                            .lastStateStoreUpdateTime(Instant.ofEpochMilli(updateTimeVector.get(rowNumber)))
+                            .references(readReferences(filename, referencesVector, rowNumber))
+                            .build());
+                }
             }
         }
-        return files;
+        return new StateStoreFilesDelta(updatedFiles, deletedFilenames);
     }
 
     private static void writeReferences(AllReferencesToAFile file, int fileNumber, BufferAllocator allocator, UnionListWriter writer) {
@@ -157,16 +379,21 @@ public class StateStoreFilesArrowFormat {
         listReader.setPosition(rowNumber);
         FieldReader reader = listReader.reader();
         while (listReader.next()) {
-            references.add(FileReference.builder()
-                    .filename(filename)
-                    .partitionId(reader.reader(PARTITION_ID.getName()).readText().toString())
-                    .lastStateStoreUpdateTime(reader.reader(REFERENCE_UPDATE_TIME.getName()).readLocalDateTime().toInstant(ZoneOffset.UTC))
-                    .jobId(Optional.ofNullable(reader.reader(JOB_ID.getName()).readText()).map(Text::toString).orElse(null))
-                    .numberOfRecords(reader.reader(NUMBER_OF_RECORDS.getName()).readLong())
-                    .countApproximate(reader.reader(COUNT_APPROXIMATE.getName()).readBoolean())
-                    .onlyContainsDataForThisPartition(reader.reader(ONLY_CONTAINS_DATA_FOR_THIS_PARTITION.getName()).readBoolean())
-                    .build());
+            String partitionId = reader.reader(PARTITION_ID.getName()).readText().toString();
+            references.add(readReference(filename, partitionId, reader));
         }
         return references;
     }
+
+    private static FileReference readReference(String filename, String partitionId, FieldReader reader) {
+        return FileReference.builder()
+                .filename(filename)
+                .partitionId(partitionId)
+                .lastStateStoreUpdateTime(reader.reader(REFERENCE_UPDATE_TIME.getName()).readLocalDateTime().toInstant(ZoneOffset.UTC))
+                .jobId(Optional.ofNullable(reader.reader(JOB_ID.getName()).readText()).map(Text::toString).orElse(null))
+                .numberOfRecords(reader.reader(NUMBER_OF_RECORDS.getName()).readLong())
+                .countApproximate(reader.reader(COUNT_APPROXIMATE.getName()).readBoolean())
+                .onlyContainsDataForThisPartition(reader.reader(ONLY_CONTAINS_DATA_FOR_THIS_PARTITION.getName()).readBoolean())
+                .build();
+    }
 }
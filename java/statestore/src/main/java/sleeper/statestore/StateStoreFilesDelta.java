@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore;
+
+import sleeper.core.statestore.AllReferencesToAFile;
+import sleeper.core.statestore.transactionlog.StateStoreFiles;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Changes to the files in a state store between two points in a transaction log. Each changed file is held once with
+ * its latest state, however many transactions updated it. This can be saved as a segment of a snapshot, to be applied
+ * on top of an earlier snapshot.
+ */
+public class StateStoreFilesDelta {
+    private final List<AllReferencesToAFile> updatedFiles;
+    private final List<String> deletedFilenames;
+
+    public StateStoreFilesDelta(List<AllReferencesToAFile> updatedFiles, List<String> deletedFilenames) {
+        this.updatedFiles = updatedFiles;
+        this.deletedFilenames = deletedFilenames;
+    }
+
+    /**
+     * Finds the changes to the files in a state store since an earlier point. The files at the earlier point must be
+     * in the same order as they are held in the state, i.e. as returned by
+     * {@link StateStoreFiles#referencedAndUnreferenced()}. Files are immutable, so a file is detected as changed if its
+     * object in the state has been replaced.
+     *
+     * @param  before the files at the earlier point, ordered by filename
+     * @param  after  the current state
+     * @return        the changes
+     */
+    public static StateStoreFilesDelta between(List<AllReferencesToAFile> before, StateStoreFiles after) {
+        List<AllReferencesToAFile> updatedFiles = new ArrayList<>();
+        List<String> deletedFilenames = new ArrayList<>();
+        Iterator<AllReferencesToAFile> beforeIt = before.iterator();
+        Iterator<AllReferencesToAFile> afterIt = after.referencedAndUnreferenced().iterator();
+        AllReferencesToAFile beforeFile = next(beforeIt);
+        AllReferencesToAFile afterFile = next(afterIt);
+        while (beforeFile != null || afterFile != null) {
+            int comparison = compareFilenames(beforeFile, afterFile);
+            if (comparison < 0) {
+                deletedFilenames.add(beforeFile.getFilename());
+                beforeFile = next(beforeIt);
+            } else if (comparison > 0) {
+                updatedFiles.add(afterFile);
+                afterFile = next(afterIt);
+            } else {
+                if (beforeFile != afterFile) {
+                    updatedFiles.add(afterFile);
+                }
+                beforeFile = next(beforeIt);
+                afterFile = next(afterIt);
+            }
+        }
+        return new StateStoreFilesDelta(updatedFiles, deletedFilenames);
+    }
+
+    /**
+     * Applies the changes to the files in a state store.
+     *
+     * @param files the state to update
+     */
+    public void applyTo(StateStoreFiles files) {
+        deletedFilenames.forEach(files::remove);
+        updatedFiles.forEach(files::add);
+    }
+
+    public List<AllReferencesToAFile> getUpdatedFiles() {
+        return updatedFiles;
+    }
+
+    public List<String> getDeletedFilenames() {
+        return deletedFilenames;
+    }
+
+    /**
+     * Retrieves the number of files changed, including deleted files.
+     *
+     * @return the number of files
+     */
+    public int size() {
+        return updatedFiles.size() + deletedFilenames.size();
+    }
+
+    private static AllReferencesToAFile next(Iterator<AllReferencesToAFile> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static int compareFilenames(AllReferencesToAFile before, AllReferencesToAFile after) {
+        if (before == null) {
+            return 1;
+        } else if (after == null) {
+            return -1;
+        } else {
+            return before.getFilename().compareTo(after.getFilename());
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(updatedFiles, deletedFilenames);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof StateStoreFilesDelta)) {
+            return false;
+        }
+        StateStoreFilesDelta other = (StateStoreFilesDelta) obj;
+        return Objects.equals(updatedFiles, other.updatedFiles) && Objects.equals(deletedFilenames, other.deletedFilenames);
+    }
+
+    @Override
+    public String toString() {
+        return "StateStoreFilesDelta{updatedFiles=" + updatedFiles + ", deletedFilenames=" + deletedFilenames + "}";
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore;
+
+import sleeper.core.statestore.AllReferencesToAFile;
+import sleeper.core.statestore.FileReference;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * A manifest of a snapshot of files in a Sleeper table which is split into shards by partition. Each shard holds the
+ * files referenced in a set of partitions. A file with references in partitions held in different shards will be
+ * written to each of those shards. Files with no references are held in a separate shard with no partitions.
+ * <p>
+ * This allows the shards to be loaded in parallel, or for only the shards for certain partitions to be loaded.
+ */
+public class StateStoreFilesManifest {
+    private final List<Shard> shards;
+    private final Map<String, Integer> shardIndexByPartitionId = new HashMap<>();
+    private final int unreferencedShardIndex;
+
+    public StateStoreFilesManifest(List<Shard> shards) {
+        this.shards = shards;
+        int unreferencedIndex = -1;
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get(i);
+            if (shard.getPartitionIds().isEmpty()) {
+                unreferencedIndex = i;
+            }
+            for (String partitionId : shard.getPartitionIds()) {
+                shardIndexByPartitionId.put(partitionId, i);
+            }
+        }
+        this.unreferencedShardIndex = unreferencedIndex;
+    }
+
+    /**
+     * Plans how to split files into shards. Partitions are grouped into shards in order of their IDs, with each shard
+     * holding roughly the given number of files. A shard will always hold all the files referenced in a partition, so
+     * a shard for a single partition with many files may be larger than this.
+     *
+     * @param  files            the files
+     * @param  maxFilesPerShard the number of files to aim for in each shard
+     * @return                  the manifest
+     */
+    public static StateStoreFilesManifest planShards(Collection<AllReferencesToAFile> files, int maxFilesPerShard) {
+        Map<String, Integer> numFilesByPartitionId = new TreeMap<>();
+        boolean anyUnreferenced = false;
+        for (AllReferencesToAFile file : files) {
+            if (file.getReferences().isEmpty()) {
+                anyUnreferenced = true;
+            }
+            for (FileReference reference : file.getReferences()) {
+                numFilesByPartitionId.merge(reference.getPartitionId(), 1, Integer::sum);
+            }
+        }
+        List<List<String>> partitionIdsByShard = new ArrayList<>();
+        List<String> shardPartitionIds = new ArrayList<>();
+        int shardFiles = 0;
+        for (Map.Entry<String, Integer> entry : numFilesByPartitionId.entrySet()) {
+            if (!shardPartitionIds.isEmpty() && shardFiles + entry.getValue() > maxFilesPerShard) {
+                partitionIdsByShard.add(shardPartitionIds);
+                shardPartitionIds = new ArrayList<>();
+                shardFiles = 0;
+            }
+            shardPartitionIds.add(entry.getKey());
+            shardFiles += entry.getValue();
+        }
+        if (!shardPartitionIds.isEmpty()) {
+            partitionIdsByShard.add(shardPartitionIds);
+        }
+        if (anyUnreferenced) {
+            partitionIdsByShard.add(List.of());
+        }
+        return new StateStoreFilesManifest(IntStream.range(0, partitionIdsByShard.size())
+                .mapToObj(i -> new Shard("shard-" + i + ".arrow", partitionIdsByShard.get(i)))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Splits files into the shards in this manifest. The files in each shard will be in the same order as they are
+     * given.
+     *
+     * @param  files the files
+     * @return       the files in each shard, in the same order as the shards in the manifest
+     */
+    public List<List<AllReferencesToAFile>> assignToShards(Collection<AllReferencesToAFile> files) {
+        List<List<AllReferencesToAFile>> filesByShard = shards.stream()
+                .map(shard -> new ArrayList<AllReferencesToAFile>())
+                .collect(Collectors.toList());
+        for (AllReferencesToAFile file : files) {
+            shardIndexes(file).forEach(index -> filesByShard.get(index).add(file));
+        }
+        return filesByShard;
+    }
+
+    /**
+     * Finds the indexes of the shards which hold files referenced in any of the given partitions.
+     *
+     * @param  partitionIds the partition IDs
+     * @return              the indexes of the shards, in order
+     */
+    public List<Integer> shardIndexesForPartitions(Set<String> partitionIds) {
+        return partitionIds.stream()
+                .map(shardIndexByPartitionId::get)
+                .filter(Objects::nonNull)
+                .distinct().sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the first shard holding a file, out of the shards that match a given condition. This can be used to only
+     * read each file once when reading from multiple shards.
+     *
+     * @param  file         the file
+     * @param  includeShard a condition to decide whether each shard index should be considered
+     * @return              the index of the first matching shard holding the file, or -1 if there is none
+     */
+    public int firstShardIndex(AllReferencesToAFile file, IntPredicate includeShard) {
+        return shardIndexes(file).filter(includeShard).min().orElse(-1);
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    private IntStream shardIndexes(AllReferencesToAFile file) {
+        if (file.getReferences().isEmpty()) {
+            return IntStream.of(unreferencedShardIndex);
+        }
+        return file.getReferences().stream()
+                .mapToInt(reference -> shardIndexByPartitionId.get(reference.getPartitionId()))
+                .distinct();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(shards);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof StateStoreFilesManifest)) {
+            return false;
+        }
+        StateStoreFilesManifest other = (StateStoreFilesManifest) obj;
+        return Objects.equals(shards, other.shards);
+    }
+
+    @Override
+    public String toString() {
+        return "StateStoreFilesManifest{shards=" + shards + "}";
+    }
+
+    /**
+     * A shard of a snapshot of files, held in its own Arrow file.
+     */
+    public static class Shard {
+        private final String filename;
+        private final List<String> partitionIds;
+
+        public Shard(String filename, List<String> partitionIds) {
+            this.filename = filename;
+            this.partitionIds = partitionIds;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public List<String> getPartitionIds() {
+            return partitionIds;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filename, partitionIds);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Shard)) {
+                return false;
+            }
+            Shard other = (Shard) obj;
+            return Objects.equals(filename, other.filename) && Objects.equals(partitionIds, other.partitionIds);
+        }
+
+        @Override
+        public String toString() {
+            return "Shard{filename=" + filename + ", partitionIds=" + partitionIds + "}";
+        }
+    }
+}
@@ -49,9 +49,11 @@ import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toMap;
@@ -83,6 +85,8 @@ public class StateStorePartitionsArrowFormat {
     private static final Schema SCHEMA = new Schema(List.of(
             ID, PARENT_ID, CHILD_IDS, IS_LEAF, DIMENSION, REGION));
 
+    private static final int MAX_ROWS_PER_BATCH = 10000;
+
     private static final Map<String, Type> FIELD_TYPE_BY_STRING = Stream.of(
             new StringType(), new LongType(), new IntType(), new ByteArrayType())
             .collect(toMap(type -> type.getClass().getSimpleName(), type -> type));
@@ -91,7 +95,8 @@ public class StateStorePartitionsArrowFormat {
     }
 
     /**
-     * Writes the state of partitions in Arrow format.
+     * Writes the state of partitions in Arrow format. The partitions are written in record batches of a limited size,
+     * so that only one batch is held in Arrow buffers at once.
      *
      * @param  partitions  the partitions in the state store
      * @param  allocator   the buffer allocator
@@ -99,39 +104,52 @@ public class StateStorePartitionsArrowFormat {
      * @throws IOException if writing to the channel fails
      */
     public static void write(Collection<Partition> partitions, BufferAllocator allocator, WritableByteChannel channel) throws IOException {
+        write(partitions.iterator(), allocator, channel, MAX_ROWS_PER_BATCH);
+    }
+
+    /**
+     * Writes the state of partitions in Arrow format, with a given maximum number of partitions in each record batch.
+     *
+     * @param  partitions      the partitions in the state store
+     * @param  allocator       the buffer allocator
+     * @param  channel         the channel to write to
+     * @param  maxRowsPerBatch the maximum number of partitions to write in each record batch
+     * @throws IOException     if writing to the channel fails
+     */
+    static void write(Iterator<Partition> partitions, BufferAllocator allocator, WritableByteChannel channel, int maxRowsPerBatch) throws IOException {
         try (VectorSchemaRoot vectorSchemaRoot = VectorSchemaRoot.create(SCHEMA, allocator);
                 ArrowStreamWriter writer = new ArrowStreamWriter(vectorSchemaRoot, null, channel)) {
-            vectorSchemaRoot.getFieldVectors().forEach(fieldVector -> fieldVector.setInitialCapacity(partitions.size()));
-            vectorSchemaRoot.allocateNew();
             writer.start();
-            int rowNumber = 0;
             VarCharVector idVector = (VarCharVector) vectorSchemaRoot.getVector(ID);
             VarCharVector parentIdVector = (VarCharVector) vectorSchemaRoot.getVector(PARENT_ID);
             ListVector childIdsVector = (ListVector) vectorSchemaRoot.getVector(CHILD_IDS);
             BitVector isLeafVector = (BitVector) vectorSchemaRoot.getVector(IS_LEAF);
             UInt4Vector dimensionVector = (UInt4Vector) vectorSchemaRoot.getVector(DIMENSION);
             ListVector regionVector = (ListVector) vectorSchemaRoot.getVector(REGION);
-            for (Partition partition : partitions) {
-                idVector.setSafe(rowNumber, partition.getId().getBytes(StandardCharsets.UTF_8));
-                if (partition.getParentPartitionId() != null) {
-                    parentIdVector.setSafe(rowNumber, partition.getParentPartitionId().getBytes(StandardCharsets.UTF_8));
-                } else {
-                    parentIdVector.setNull(rowNumber);
-                }
-                isLeafVector.setSafe(rowNumber, partition.isLeafPartition() ? 1 : 0);
-                if (partition.getDimension() >= 0) {
-                    dimensionVector.setSafe(rowNumber, partition.getDimension());
-                } else {
-                    dimensionVector.setNull(rowNumber);
+            do {
+                vectorSchemaRoot.allocateNew();
+                int rowNumber = 0;
+                while (rowNumber < maxRowsPerBatch && partitions.hasNext()) {
+                    Partition partition = partitions.next();
+                    idVector.setSafe(rowNumber, partition.getId().getBytes(StandardCharsets.UTF_8));
+                    if (partition.getParentPartitionId() != null) {
+                        parentIdVector.setSafe(rowNumber, partition.getParentPartitionId().getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        parentIdVector.setNull(rowNumber);
+                    }
+                    isLeafVector.setSafe(rowNumber, partition.isLeafPartition() ? 1 : 0);
+                    if (partition.getDimension() >= 0) {
+                        dimensionVector.setSafe(rowNumber, partition.getDimension());
+                    } else {
+                        dimensionVector.setNull(rowNumber);
+                    }
+                    writeChildIds(partition, rowNumber, allocator, childIdsVector.getWriter());
+                    writeRegion(partition.getRegion(), rowNumber, allocator, regionVector.getWriter());
+                    rowNumber++;
                 }
-                writeChildIds(partition, rowNumber, allocator, childIdsVector.getWriter());
-                writeRegion(partition.getRegion(), rowNumber, allocator, regionVector.getWriter());
-
-                rowNumber++;
                 vectorSchemaRoot.setRowCount(rowNumber);
-            }
-
-            writer.writeBatch();
+                writer.writeBatch();
+            } while (partitions.hasNext());
             writer.end();
         }
     }
@@ -144,8 +162,21 @@ public class StateStorePartitionsArrowFormat {
      */
     public static List<Partition> read(BufferAllocator allocator, ReadableByteChannel channel) throws IOException {
         List<Partition> partitions = new ArrayList<>();
+        read(allocator, channel, partitions::add);
+        return partitions;
+    }
+
+    /**
+     * Reads the state of partitions from Arrow format, streaming each partition to a consumer. Only one record batch
+     * is held in Arrow buffers at once.
+     *
+     * @param  allocator   the buffer allocator
+     * @param  channel     the channel to read from
+     * @param  consumer    the consumer to pass each partition to
+     * @throws IOException if reading from the channel fails
+     */
+    public static void read(BufferAllocator allocator, ReadableByteChannel channel, Consumer<Partition> consumer) throws IOException {
         try (ArrowStreamReader reader = new ArrowStreamReader(channel, allocator)) {
-            reader.loadNextBatch();
             VectorSchemaRoot vectorSchemaRoot = reader.getVectorSchemaRoot();
             VarCharVector idVector = (VarCharVector) vectorSchemaRoot.getVector(ID);
             VarCharVector parentIdVector = (VarCharVector) vectorSchemaRoot.getVector(PARENT_ID);
@@ -153,18 +184,19 @@ public class StateStorePartitionsArrowFormat {
             BitVector isLeafVector = (BitVector) vectorSchemaRoot.getVector(IS_LEAF);
             UInt4Vector dimensionVector = (UInt4Vector) vectorSchemaRoot.getVector(DIMENSION);
             ListVector regionVector = (ListVector) vectorSchemaRoot.getVector(REGION);
-            for (int rowNumber = 0; rowNumber < vectorSchemaRoot.getRowCount(); rowNumber++) {
-                partitions.add(Partition.builder()
-                        .id(idVector.getObject(rowNumber).toString())
-                        .parentPartitionId(Optional.ofNullable(parentIdVector.getObject(rowNumber)).map(Text::toString).orElse(null))
-                        .leafPartition(isLeafVector.getObject(rowNumber))
-                        .childPartitionIds(readChildIds(childIdsVector, rowNumber))
-                        .dimension(Optional.ofNullable(dimensionVector.getObject(rowNumber)).orElse(-1))
-                        .region(readRegion(regionVector, rowNumber))
-                        .build());
+            while (reader.loadNextBatch()) {
+                for (int rowNumber = 0; rowNumber < vectorSchemaRoot.getRowCount(); rowNumber++) {
+                    consumer.accept(Partition.builder()
+                            .id(idVector.getObject(rowNumber).toString())
+                            .parentPartitionId(Optional.ofNullable(parentIdVector.getObject(rowNumber)).map(Text::toString).orElse(null))
+                            .leafPartition(isLeafVector.getObject(rowNumber))
+                            .childPartitionIds(readChildIds(childIdsVector, rowNumber))
+                            .dimension(Optional.ofNullable(dimensionVector.getObject(rowNumber)).orElse(-1))
+                            .region(readRegion(regionVector, rowNumber))
+                            .build());
+                }
             }
         }
-        return partitions;
     }
 
     private static void writeChildIds(Partition partition, int rowNumber, BufferAllocator allocator, UnionListWriter writer) {
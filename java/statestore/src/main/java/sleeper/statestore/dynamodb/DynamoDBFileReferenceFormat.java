@@ -96,6 +96,16 @@ class DynamoDBFileReferenceFormat {
         return itemValues;
     }
 
+    /**
+     * Creates the prefix of the sort key for all file references in a partition.
+     *
+     * @param  partitionId the partition ID
+     * @return             the prefix of the sort key
+     */
+    String getActiveFileKeyPrefix(String partitionId) {
+        return partitionId + DELIMITER;
+    }
+
     Map<String, AttributeValue> createReferenceCountKey(String filename) {
         Map<String, AttributeValue> itemValues = new HashMap<>();
         itemValues.put(TABLE_ID, createStringAttribute(sleeperTableId));
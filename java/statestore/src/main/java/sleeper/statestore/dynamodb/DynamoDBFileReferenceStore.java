@@ -59,6 +59,8 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -463,6 +465,36 @@ class DynamoDBFileReferenceStore implements FileReferenceStore {
         }
     }
 
+    @Override
+    public List<FileReference> getFileReferencesInPartitions(Collection<String> partitionIds) throws StateStoreException {
+        try {
+            AtomicReference<Double> totalCapacity = new AtomicReference<>(0.0D);
+            List<FileReference> fileReferenceResults = new ArrayList<>();
+            for (String partitionId : new LinkedHashSet<>(partitionIds)) {
+                QueryRequest queryRequest = new QueryRequest()
+                        .withTableName(activeTableName)
+                        .withConsistentRead(stronglyConsistentReads)
+                        .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                        .withKeyConditionExpression("#TableId = :table_id AND begins_with(#PartitionAndFile, :partition_prefix)")
+                        .withExpressionAttributeNames(Map.of(
+                                "#TableId", TABLE_ID,
+                                "#PartitionAndFile", PARTITION_ID_AND_FILENAME))
+                        .withExpressionAttributeValues(new DynamoDBRecordBuilder()
+                                .string(":table_id", sleeperTableId)
+                                .string(":partition_prefix", fileReferenceFormat.getActiveFileKeyPrefix(partitionId))
+                                .build());
+                for (Map<String, AttributeValue> map : queryTrackingCapacity(queryRequest, totalCapacity)) {
+                    fileReferenceResults.add(fileReferenceFormat.getFileReferenceFromAttributeValues(map));
+                }
+            }
+            LOGGER.debug("Queried for active files in {} partitions, capacity consumed = {}",
+                    partitionIds.size(), totalCapacity.get());
+            return fileReferenceResults;
+        } catch (AmazonDynamoDBException e) {
+            throw new StateStoreException("Failed to load active files in partitions", e);
+        }
+    }
+
     @Override
     public Stream<String> getReadyForGCFilenamesBefore(Instant maxUpdateTime) {
         QueryRequest queryRequest = new QueryRequest()
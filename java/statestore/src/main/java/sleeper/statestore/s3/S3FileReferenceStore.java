@@ -44,6 +44,7 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -118,6 +119,11 @@ class S3FileReferenceStore implements FileReferenceStore {
         updateS3Files(update, condition);
     }
 
+    @Override
+    public boolean addsFilesAtomically() {
+        return true;
+    }
+
     @Override
     public void splitFileReferences(List<SplitFileReferenceRequest> splitRequests) throws SplitRequestsFailedException {
         try {
@@ -341,6 +347,20 @@ class S3FileReferenceStore implements FileReferenceStore {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<FileReference> getFileReferencesInPartitions(Collection<String> partitionIds) throws StateStoreException {
+        S3RevisionId revisionId = getCurrentFilesRevisionId();
+        if (null == revisionId) {
+            return Collections.emptyList();
+        }
+        String path = getFilesPath(revisionId);
+        try {
+            return dataStore.loadFileReferencesInPartitions(path, partitionIds);
+        } catch (IOException e) {
+            throw new StateStoreException("Failed to load file references in partitions", e);
+        }
+    }
+
     @Override
     public Stream<String> getReadyForGCFilenamesBefore(Instant maxUpdateTime) throws StateStoreException {
         List<AllReferencesToAFile> files = readFiles(getFilesPath(getCurrentFilesRevisionId()));
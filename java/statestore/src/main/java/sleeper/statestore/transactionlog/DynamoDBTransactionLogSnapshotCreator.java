@@ -23,28 +23,37 @@ import org.slf4j.LoggerFactory;
 
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.statestore.AllReferencesToAFile;
 import sleeper.core.statestore.StateStoreException;
 import sleeper.core.statestore.transactionlog.FileReferenceTransaction;
 import sleeper.core.statestore.transactionlog.PartitionTransaction;
+import sleeper.core.statestore.transactionlog.StateStoreFiles;
 import sleeper.core.statestore.transactionlog.TransactionLogSnapshot;
 import sleeper.core.statestore.transactionlog.TransactionLogSnapshotCreator;
 import sleeper.core.statestore.transactionlog.TransactionLogStore;
 import sleeper.core.table.TableStatus;
+import sleeper.statestore.StateStoreFilesDelta;
 import sleeper.statestore.transactionlog.DynamoDBTransactionLogSnapshotStore.LatestSnapshotsMetadataLoader;
 import sleeper.statestore.transactionlog.DynamoDBTransactionLogSnapshotStore.SnapshotMetadataSaver;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static sleeper.configuration.properties.instance.CdkDefinedInstanceProperty.TRANSACTION_LOG_FILES_TABLENAME;
 import static sleeper.configuration.properties.instance.CdkDefinedInstanceProperty.TRANSACTION_LOG_PARTITIONS_TABLENAME;
+import static sleeper.configuration.properties.table.TableProperty.TRANSACTION_LOG_SNAPSHOT_MAX_DELTA_SEGMENTS;
 
 /**
- * Creates a snapshot of the current state of a state store if it has changed since the previous snapshot.
+ * Creates a snapshot of the current state of a state store if it has changed since the previous snapshot. A snapshot
+ * of files will be written as a delta on top of the previous snapshot when the changes are small compared to the whole
+ * state, up to a maximum number of deltas set in the table properties.
  */
 public class DynamoDBTransactionLogSnapshotCreator {
     public static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBTransactionLogSnapshotCreator.class);
     private final TableStatus tableStatus;
+    private final int maxDeltaSegments;
     private final TransactionLogStore filesLogStore;
     private final TransactionLogStore partitionsLogStore;
     private final LatestSnapshotsMetadataLoader latestMetadataLoader;
@@ -81,6 +90,7 @@ public class DynamoDBTransactionLogSnapshotCreator {
             TransactionLogStore filesLogStore, TransactionLogStore partitionsLogStore,
             Configuration configuration, LatestSnapshotsMetadataLoader latestMetadataLoader, SnapshotMetadataSaver snapshotSaver) {
         this.tableStatus = tableProperties.getStatus();
+        this.maxDeltaSegments = tableProperties.getInt(TRANSACTION_LOG_SNAPSHOT_MAX_DELTA_SEGMENTS);
         this.filesLogStore = filesLogStore;
         this.partitionsLogStore = partitionsLogStore;
         this.latestMetadataLoader = latestMetadataLoader;
@@ -101,12 +111,17 @@ public class DynamoDBTransactionLogSnapshotCreator {
 
     private void updateFilesSnapshot(LatestSnapshots latestSnapshots) {
         TransactionLogSnapshot oldSnapshot = snapshotStore.loadFilesSnapshot(latestSnapshots);
+        Optional<TransactionLogSnapshotMetadata> deltaBase = latestSnapshots.getFilesSnapshot()
+                .filter(metadata -> metadata.getBaseSegmentPaths().size() < maxDeltaSegments);
+        // The state is updated in place, so we take a copy of the files before it to find the delta
+        List<AllReferencesToAFile> filesBefore = deltaBase.isPresent()
+                ? new ArrayList<>(oldSnapshot.<StateStoreFiles>getState().referencedAndUnreferenced())
+                : List.of();
         try {
             Optional<TransactionLogSnapshot> newSnapshot = TransactionLogSnapshotCreator.createSnapshotIfChanged(
                     oldSnapshot, filesLogStore, FileReferenceTransaction.class, tableStatus);
             if (newSnapshot.isPresent()) {
-                snapshotStore.saveFilesSnapshot(newSnapshot.get());
-                LOGGER.info("Saved new files snapshot");
+                saveFilesSnapshot(deltaBase, filesBefore, newSnapshot.get());
             }
         } catch (DuplicateSnapshotException | StateStoreException | IOException e) {
             LOGGER.error("Failed to create files snapshot for table {}", tableStatus);
@@ -114,6 +129,22 @@ public class DynamoDBTransactionLogSnapshotCreator {
         }
     }
 
+    private void saveFilesSnapshot(
+            Optional<TransactionLogSnapshotMetadata> deltaBase, List<AllReferencesToAFile> filesBefore,
+            TransactionLogSnapshot newSnapshot) throws IOException, DuplicateSnapshotException {
+        if (deltaBase.isPresent()) {
+            StateStoreFiles state = newSnapshot.getState();
+            StateStoreFilesDelta delta = StateStoreFilesDelta.between(filesBefore, state);
+            if (delta.size() * 2L < state.referencedAndUnreferenced().size()) {
+                snapshotStore.saveFilesDeltaSnapshot(deltaBase.get(), newSnapshot.getTransactionNumber(), delta);
+                LOGGER.info("Saved new files snapshot as delta with {} changed files", delta.size());
+                return;
+            }
+        }
+        snapshotStore.saveFilesSnapshot(newSnapshot);
+        LOGGER.info("Saved new files snapshot");
+    }
+
     private void updatePartitionsSnapshot(LatestSnapshots latestSnapshots) {
         TransactionLogSnapshot oldSnapshot = snapshotStore.loadPartitionsSnapshot(latestSnapshots);
         try {
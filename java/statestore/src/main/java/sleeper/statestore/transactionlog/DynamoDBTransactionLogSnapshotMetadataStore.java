@@ -29,12 +29,14 @@ import com.amazonaws.services.dynamodbv2.model.Update;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TableProperty;
+import sleeper.dynamodb.tools.DynamoDBAttributes;
 import sleeper.dynamodb.tools.DynamoDBRecordBuilder;
 
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -42,10 +44,12 @@ import java.util.stream.Stream;
 
 import static sleeper.configuration.properties.instance.CdkDefinedInstanceProperty.TRANSACTION_LOG_ALL_SNAPSHOTS_TABLENAME;
 import static sleeper.configuration.properties.instance.CdkDefinedInstanceProperty.TRANSACTION_LOG_LATEST_SNAPSHOTS_TABLENAME;
+import static sleeper.dynamodb.tools.DynamoDBAttributes.createListAttribute;
 import static sleeper.dynamodb.tools.DynamoDBAttributes.createNumberAttribute;
 import static sleeper.dynamodb.tools.DynamoDBAttributes.createStringAttribute;
 import static sleeper.dynamodb.tools.DynamoDBAttributes.getLongAttribute;
 import static sleeper.dynamodb.tools.DynamoDBAttributes.getStringAttribute;
+import static sleeper.dynamodb.tools.DynamoDBAttributes.getStringListAttribute;
 import static sleeper.dynamodb.tools.DynamoDBUtils.hasConditionalCheckFailure;
 import static sleeper.dynamodb.tools.DynamoDBUtils.streamPagedItems;
 
@@ -60,10 +64,12 @@ public class DynamoDBTransactionLogSnapshotMetadataStore {
     public static final String TRANSACTION_NUMBER = "TRANSACTION_NUMBER";
     private static final String UPDATE_TIME = "UPDATE_TIME";
     private static final String SNAPSHOT_TYPE = "SNAPSHOT_TYPE";
+    private static final String BASE_SEGMENT_PATHS = "BASE_SEGMENT_PATHS";
     private static final String FILES_TRANSACTION_NUMBER = "FILES_TRANSACTION_NUMBER";
     private static final String PARTITIONS_TRANSACTION_NUMBER = "PARTITIONS_TRANSACTION_NUMBER";
     private static final String FILES_SNAPSHOT_PATH = "FILES_SNAPSHOT_PATH";
     private static final String PARTITIONS_SNAPSHOT_PATH = "PARTITIONS_SNAPSHOT_PATH";
+    private static final String FILES_BASE_SEGMENT_PATHS = "FILES_BASE_SEGMENT_PATHS";
     private final String allSnapshotsTable;
     private final String latestSnapshotsTable;
     private final String sleeperTableId;
@@ -117,35 +123,49 @@ public class DynamoDBTransactionLogSnapshotMetadataStore {
                         .number(TRANSACTION_NUMBER, snapshot.getTransactionNumber())
                         .number(UPDATE_TIME, updateTime.toEpochMilli())
                         .string(SNAPSHOT_TYPE, snapshot.getType().name())
+                        .list(BASE_SEGMENT_PATHS, createStringListAttribute(snapshot.getBaseSegmentPaths()))
                         .build());
     }
 
     private Update updateLatestSnapshot(TransactionLogSnapshotMetadata snapshot, Instant updateTime) {
-        String pathKey;
-        String transactionNumberKey;
         if (snapshot.getType() == SnapshotType.FILES) {
-            pathKey = FILES_SNAPSHOT_PATH;
-            transactionNumberKey = FILES_TRANSACTION_NUMBER;
+            return new Update()
+                    .withTableName(latestSnapshotsTable)
+                    .withKey(Map.of(TABLE_ID, createStringAttribute(sleeperTableId)))
+                    .withUpdateExpression("SET " +
+                            "#Path = :path, " +
+                            "#TransactionNumber = :transaction_number, " +
+                            "#BaseSegmentPaths = :base_segment_paths, " +
+                            "#UpdateTime = :update_time")
+                    .withConditionExpression("#TransactionNumber <> :transaction_number")
+                    .withExpressionAttributeNames(Map.of(
+                            "#Path", FILES_SNAPSHOT_PATH,
+                            "#TransactionNumber", FILES_TRANSACTION_NUMBER,
+                            "#BaseSegmentPaths", FILES_BASE_SEGMENT_PATHS,
+                            "#UpdateTime", UPDATE_TIME))
+                    .withExpressionAttributeValues(Map.of(
+                            ":path", createStringAttribute(snapshot.getPath()),
+                            ":transaction_number", createNumberAttribute(snapshot.getTransactionNumber()),
+                            ":base_segment_paths", createListAttribute(createStringListAttribute(snapshot.getBaseSegmentPaths())),
+                            ":update_time", createNumberAttribute(updateTime.toEpochMilli())));
         } else {
-            pathKey = PARTITIONS_SNAPSHOT_PATH;
-            transactionNumberKey = PARTITIONS_TRANSACTION_NUMBER;
+            return new Update()
+                    .withTableName(latestSnapshotsTable)
+                    .withKey(Map.of(TABLE_ID, createStringAttribute(sleeperTableId)))
+                    .withUpdateExpression("SET " +
+                            "#Path = :path, " +
+                            "#TransactionNumber = :transaction_number, " +
+                            "#UpdateTime = :update_time")
+                    .withConditionExpression("#TransactionNumber <> :transaction_number")
+                    .withExpressionAttributeNames(Map.of(
+                            "#Path", PARTITIONS_SNAPSHOT_PATH,
+                            "#TransactionNumber", PARTITIONS_TRANSACTION_NUMBER,
+                            "#UpdateTime", UPDATE_TIME))
+                    .withExpressionAttributeValues(Map.of(
+                            ":path", createStringAttribute(snapshot.getPath()),
+                            ":transaction_number", createNumberAttribute(snapshot.getTransactionNumber()),
+                            ":update_time", createNumberAttribute(updateTime.toEpochMilli())));
         }
-        return new Update()
-                .withTableName(latestSnapshotsTable)
-                .withKey(Map.of(TABLE_ID, createStringAttribute(sleeperTableId)))
-                .withUpdateExpression("SET " +
-                        "#Path = :path, " +
-                        "#TransactionNumber = :transaction_number, " +
-                        "#UpdateTime = :update_time")
-                .withConditionExpression("#TransactionNumber <> :transaction_number")
-                .withExpressionAttributeNames(Map.of(
-                        "#Path", pathKey,
-                        "#TransactionNumber", transactionNumberKey,
-                        "#UpdateTime", UPDATE_TIME))
-                .withExpressionAttributeValues(Map.of(
-                        ":path", createStringAttribute(snapshot.getPath()),
-                        ":transaction_number", createNumberAttribute(snapshot.getTransactionNumber()),
-                        ":update_time", createNumberAttribute(updateTime.toEpochMilli())));
     }
 
     public List<TransactionLogSnapshotMetadata> getFilesSnapshots() {
@@ -196,7 +216,8 @@ public class DynamoDBTransactionLogSnapshotMetadataStore {
         String filesSnapshotPath = getStringAttribute(item, FILES_SNAPSHOT_PATH);
         if (filesSnapshotPath != null) {
             filesSnapshot = new TransactionLogSnapshotMetadata(filesSnapshotPath, SnapshotType.FILES,
-                    getLongAttribute(item, FILES_TRANSACTION_NUMBER, 0));
+                    getLongAttribute(item, FILES_TRANSACTION_NUMBER, 0), null,
+                    getBaseSegmentPaths(item, FILES_BASE_SEGMENT_PATHS));
         }
         TransactionLogSnapshotMetadata partitionsSnapshot = null;
         String partitionsSnapshotPath = getStringAttribute(item, PARTITIONS_SNAPSHOT_PATH);
@@ -213,7 +234,18 @@ public class DynamoDBTransactionLogSnapshotMetadataStore {
 
     private static TransactionLogSnapshotMetadata getSnapshotFromItem(Map<String, AttributeValue> item) {
         SnapshotType type = SnapshotType.valueOf(item.get(SNAPSHOT_TYPE).getS());
-        return new TransactionLogSnapshotMetadata(getStringAttribute(item, PATH), type, getLongAttribute(item, TRANSACTION_NUMBER, 0));
+        return new TransactionLogSnapshotMetadata(getStringAttribute(item, PATH), type, getLongAttribute(item, TRANSACTION_NUMBER, 0),
+                null, getBaseSegmentPaths(item, BASE_SEGMENT_PATHS));
+    }
+
+    private static List<AttributeValue> createStringListAttribute(List<String> values) {
+        return values.stream()
+                .map(DynamoDBAttributes::createStringAttribute)
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> getBaseSegmentPaths(Map<String, AttributeValue> item, String name) {
+        return Optional.ofNullable(getStringListAttribute(item, name)).orElseGet(List::of);
     }
 
     /**
@@ -229,7 +261,8 @@ public class DynamoDBTransactionLogSnapshotMetadataStore {
     }
 
     /**
-     * Retrieves metadata of snapshots older than an expiry date, excluding the latest snapshots.
+     * Retrieves metadata of snapshots older than an expiry date, excluding the latest snapshots. If the latest snapshot
+     * of files is a delta, the earlier segments it is built on are also excluded.
      *
      * @param  expiryDate the time used to decide which snapshots to retrieve
      * @return            a stream of snapshots that were last updated before the provided time
@@ -242,8 +275,12 @@ public class DynamoDBTransactionLogSnapshotMetadataStore {
         long latestPartitionsTransactionNumber = latestSnapshots.getPartitionsSnapshot()
                 .map(TransactionLogSnapshotMetadata::getTransactionNumber)
                 .orElse(0L);
+        Set<String> latestFilesSegmentPaths = latestSnapshots.getFilesSnapshot()
+                .map(snapshot -> Set.copyOf(snapshot.getBaseSegmentPaths()))
+                .orElseGet(Set::of);
         return Stream.concat(
-                getExpiredSnapshotsExcludingLatest(latestFilesTransactionNumber, SnapshotType.FILES, expiryDate),
+                getExpiredSnapshotsExcludingLatest(latestFilesTransactionNumber, SnapshotType.FILES, expiryDate)
+                        .filter(snapshot -> !latestFilesSegmentPaths.contains(snapshot.getPath())),
                 getExpiredSnapshotsExcludingLatest(latestPartitionsTransactionNumber, SnapshotType.PARTITIONS, expiryDate));
     }
 
@@ -25,7 +25,9 @@ import org.slf4j.LoggerFactory;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TableProperty;
+import sleeper.core.statestore.transactionlog.StateStoreFiles;
 import sleeper.core.statestore.transactionlog.TransactionLogSnapshot;
+import sleeper.statestore.StateStoreFilesDelta;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -33,6 +35,7 @@ import java.util.Optional;
 
 import static sleeper.configuration.properties.instance.CdkDefinedInstanceProperty.DATA_BUCKET;
 import static sleeper.configuration.properties.instance.CommonProperty.FILE_SYSTEM;
+import static sleeper.configuration.properties.table.TableProperty.TRANSACTION_LOG_SNAPSHOT_FILES_PER_SHARD;
 
 /**
  * Stores snapshots derived from a transaction log. Holds an index of snapshots in DynamoDB, and stores snapshot data in
@@ -46,6 +49,7 @@ public class DynamoDBTransactionLogSnapshotStore {
     private final TransactionLogSnapshotSerDe snapshotSerDe;
     private final Configuration configuration;
     private final String basePath;
+    private final int maxFilesPerShard;
 
     public DynamoDBTransactionLogSnapshotStore(
             InstanceProperties instanceProperties, TableProperties tableProperties, AmazonDynamoDB dynamo, Configuration configuration) {
@@ -67,6 +71,7 @@ public class DynamoDBTransactionLogSnapshotStore {
         this.snapshotSerDe = new TransactionLogSnapshotSerDe(tableProperties.getSchema(), configuration);
         this.configuration = configuration;
         this.basePath = getBasePath(instanceProperties, tableProperties);
+        this.maxFilesPerShard = tableProperties.getInt(TRANSACTION_LOG_SNAPSHOT_FILES_PER_SHARD);
     }
 
     /**
@@ -136,26 +141,43 @@ public class DynamoDBTransactionLogSnapshotStore {
     }
 
     /**
-     * Saves a snapshot of files to S3 and to the index. Deletes the file if the metadata fails to save in the index.
+     * Saves a snapshot of files to S3 and to the index. Deletes the file if the metadata fails to save in the index. If
+     * there are more files than the maximum size of a shard, the snapshot will be split into shards by partition.
      *
      * @param  snapshot                   the snapshot
      * @throws IOException                if the snapshot fails to save to S3
      * @throws DuplicateSnapshotException if there is already a snapshot for the given transaction number
      */
     public void saveFilesSnapshot(TransactionLogSnapshot snapshot) throws IOException, DuplicateSnapshotException {
-        TransactionLogSnapshotMetadata snapshotMetadata = TransactionLogSnapshotMetadata.forFiles(
-                basePath, snapshot.getTransactionNumber());
-
-        snapshotSerDe.saveFiles(snapshotMetadata, snapshot.getState());
-        try {
-            metadataSaver.save(snapshotMetadata);
-        } catch (DuplicateSnapshotException | RuntimeException e) {
-            LOGGER.info("Failed to save snapshot to Dynamo DB. Deleting snapshot file.");
-            Path path = new Path(snapshotMetadata.getPath());
-            FileSystem fs = path.getFileSystem(configuration);
-            fs.delete(path, false);
-            throw e;
+        StateStoreFiles state = snapshot.getState();
+        TransactionLogSnapshotMetadata snapshotMetadata;
+        if (state.referencedAndUnreferenced().size() > maxFilesPerShard) {
+            snapshotMetadata = TransactionLogSnapshotMetadata.forFilesSharded(basePath, snapshot.getTransactionNumber());
+            snapshotSerDe.saveFilesSharded(snapshotMetadata, state, maxFilesPerShard);
+        } else {
+            snapshotMetadata = TransactionLogSnapshotMetadata.forFiles(basePath, snapshot.getTransactionNumber());
+            snapshotSerDe.saveFiles(snapshotMetadata, state);
         }
+        saveMetadataOrDeleteFile(snapshotMetadata);
+    }
+
+    /**
+     * Saves a snapshot of files to S3 and to the index, as a delta on top of a previous snapshot. Only the changes since
+     * the previous snapshot are written to S3. Deletes the file if the metadata fails to save in the index.
+     *
+     * @param  previousSnapshot           the metadata of the previous snapshot
+     * @param  transactionNumber          the transaction number the new snapshot was made against
+     * @param  delta                      the changes to the files since the previous snapshot
+     * @throws IOException                if the snapshot fails to save to S3
+     * @throws DuplicateSnapshotException if there is already a snapshot for the given transaction number
+     */
+    public void saveFilesDeltaSnapshot(
+            TransactionLogSnapshotMetadata previousSnapshot, long transactionNumber, StateStoreFilesDelta delta) throws IOException, DuplicateSnapshotException {
+        TransactionLogSnapshotMetadata snapshotMetadata = TransactionLogSnapshotMetadata.forFilesDelta(
+                basePath, transactionNumber, previousSnapshot);
+
+        snapshotSerDe.saveFilesDelta(snapshotMetadata, delta);
+        saveMetadataOrDeleteFile(snapshotMetadata);
     }
 
     /**
@@ -170,13 +192,17 @@ public class DynamoDBTransactionLogSnapshotStore {
         TransactionLogSnapshotMetadata snapshotMetadata = TransactionLogSnapshotMetadata.forPartitions(
                 basePath, snapshot.getTransactionNumber());
         snapshotSerDe.savePartitions(snapshotMetadata, snapshot.getState());
+        saveMetadataOrDeleteFile(snapshotMetadata);
+    }
+
+    private void saveMetadataOrDeleteFile(TransactionLogSnapshotMetadata snapshotMetadata) throws IOException, DuplicateSnapshotException {
         try {
             metadataSaver.save(snapshotMetadata);
         } catch (DuplicateSnapshotException | RuntimeException e) {
             LOGGER.info("Failed to save snapshot to Dynamo DB. Deleting snapshot file.");
             Path path = new Path(snapshotMetadata.getPath());
             FileSystem fs = path.getFileSystem(configuration);
-            fs.delete(path, false);
+            fs.delete(path, true);
             throw e;
         }
     }
@@ -23,25 +23,39 @@ import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.iterator.ParallelMappingIterator;
+import sleeper.core.iterator.ReadAheadIterator;
+import sleeper.core.iterator.WrappedIterator;
 import sleeper.core.statestore.transactionlog.DuplicateTransactionNumberException;
 import sleeper.core.statestore.transactionlog.StateStoreTransaction;
 import sleeper.core.statestore.transactionlog.TransactionLogEntry;
 import sleeper.core.statestore.transactionlog.TransactionLogStore;
+import sleeper.core.statestore.transactionlog.transactions.TransactionBinarySerDe;
 import sleeper.core.statestore.transactionlog.transactions.TransactionSerDe;
 import sleeper.core.statestore.transactionlog.transactions.TransactionType;
 import sleeper.core.table.TableStatus;
 import sleeper.dynamodb.tools.DynamoDBRecordBuilder;
+import sleeper.statestore.StateStoreBackgroundExecutor;
 
-import java.nio.charset.StandardCharsets;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static sleeper.configuration.properties.instance.CdkDefinedInstanceProperty.DATA_BUCKET;
 import static sleeper.dynamodb.tools.DynamoDBAttributes.getInstantAttribute;
@@ -53,6 +67,9 @@ import static sleeper.dynamodb.tools.DynamoDBUtils.streamPagedItems;
 /**
  * Stores a transaction log in DynamoDB and S3. If a transaction is too big to fit in a DynamoDB item, the body of the
  * transaction is stored in S3.
+ * <p>
+ * Transactions are written in a compact binary format with {@link TransactionBinarySerDe}. Transactions written in
+ * the older JSON format can still be read.
  */
 public class DynamoDBTransactionLogStore implements TransactionLogStore {
     public static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBTransactionLogStore.class);
@@ -62,7 +79,12 @@ public class DynamoDBTransactionLogStore implements TransactionLogStore {
     private static final String UPDATE_TIME = "UPDATE_TIME";
     private static final String TYPE = "TYPE";
     private static final String BODY = "BODY";
+    private static final String BODY_BINARY = "BODY_BINARY";
     private static final String BODY_S3_KEY = "BODY_S3_KEY";
+    private static final String BINARY_S3_SUFFIX = ".bin";
+    private static final int READ_AHEAD_BATCH_SIZE = 100;
+    private static final int MAX_READ_AHEAD_ITEMS = 1000;
+    private static final int MAX_TRANSACTIONS_READING = 16;
 
     private final String logTableName;
     private final String dataBucket;
@@ -70,7 +92,8 @@ public class DynamoDBTransactionLogStore implements TransactionLogStore {
     private final TableStatus sleeperTable;
     private final AmazonDynamoDB dynamo;
     private final AmazonS3 s3;
-    private final TransactionSerDe serDe;
+    private final TransactionSerDe jsonSerDe;
+    private final TransactionBinarySerDe serDe;
 
     public DynamoDBTransactionLogStore(
             String logTableName, InstanceProperties instanceProperties, TableProperties tableProperties,
@@ -81,7 +104,8 @@ public class DynamoDBTransactionLogStore implements TransactionLogStore {
         this.transactionsPrefix = sleeperTable.getTableUniqueId() + "/statestore/transactions/";
         this.dynamo = dynamo;
         this.s3 = s3;
-        this.serDe = new TransactionSerDe(tableProperties.getSchema());
+        this.jsonSerDe = new TransactionSerDe(tableProperties.getSchema());
+        this.serDe = new TransactionBinarySerDe(tableProperties.getSchema());
     }
 
     @Override
@@ -96,7 +120,7 @@ public class DynamoDBTransactionLogStore implements TransactionLogStore {
                             .number(TRANSACTION_NUMBER, transactionNumber)
                             .number(UPDATE_TIME, entry.getUpdateTime().toEpochMilli())
                             .string(TYPE, TransactionType.getType(transaction).name())
-                            .apply(builder -> setBodyDirectlyOrInS3IfTooBig(builder, entry, serDe.toJson(transaction)))
+                            .apply(builder -> setBodyDirectlyOrInS3IfTooBig(builder, entry, serDe.toBytes(transaction)))
                             .build())
                     .withConditionExpression("attribute_not_exists(#Number)")
                     .withExpressionAttributeNames(Map.of("#Number", TRANSACTION_NUMBER)));
@@ -105,9 +129,17 @@ public class DynamoDBTransactionLogStore implements TransactionLogStore {
         }
     }
 
+    /**
+     * Streams through transactions to the end of the log, starting after a given transaction. Pages of the log are
+     * queried from DynamoDB ahead of consumption in the background. Transaction bodies are fetched from S3 and
+     * deserialised concurrently on a thread pool, and returned in order.
+     *
+     * @param  lastTransactionNumber the last transaction number that should not be read
+     * @return                       all transactions in order, starting at the one after the specified number
+     */
     @Override
     public Stream<TransactionLogEntry> readTransactionsAfter(long lastTransactionNumber) {
-        return streamPagedItems(dynamo, new QueryRequest()
+        QueryRequest request = new QueryRequest()
                 .withTableName(logTableName)
                 .withConsistentRead(true)
                 .withKeyConditionExpression("#TableId = :table_id AND #Number > :number")
@@ -116,8 +148,23 @@ public class DynamoDBTransactionLogStore implements TransactionLogStore {
                         .string(":table_id", sleeperTable.getTableUniqueId())
                         .number(":number", lastTransactionNumber)
                         .build())
-                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL))
-                .map(this::readTransaction);
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        ReadAheadIterator<Map<String, AttributeValue>> items = ReadAheadIterator.<Map<String, AttributeValue>>builder()
+                .source(() -> new WrappedIterator<>(streamPagedItems(dynamo, request).iterator()))
+                .executor(StateStoreBackgroundExecutor.get())
+                .batchSize(READ_AHEAD_BATCH_SIZE)
+                .maxBufferedElements(MAX_READ_AHEAD_ITEMS)
+                .build();
+        ParallelMappingIterator<Map<String, AttributeValue>, TransactionLogEntry> entries = new ParallelMappingIterator<>(
+                items, this::readTransaction, StateStoreBackgroundExecutor.get(), MAX_TRANSACTIONS_READING);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entries, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        entries.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
     }
 
     @Override
@@ -146,18 +193,18 @@ public class DynamoDBTransactionLogStore implements TransactionLogStore {
         deletedLogger.finish();
     }
 
-    private void setBodyDirectlyOrInS3IfTooBig(DynamoDBRecordBuilder builder, TransactionLogEntry entry, String body) {
+    private void setBodyDirectlyOrInS3IfTooBig(DynamoDBRecordBuilder builder, TransactionLogEntry entry, byte[] body) {
         // Max DynamoDB item size is 400KB. Leave some space for the rest of the item.
-        // DynamoDB uses UTF-8 encoding for strings.
-        long lengthInBytes = body.getBytes(StandardCharsets.UTF_8).length;
-        if (lengthInBytes < 1024 * 350) {
-            builder.string(BODY, body);
+        if (body.length < 1024 * 350) {
+            builder.bytes(BODY_BINARY, body);
         } else {
             // Use a random UUID to avoid conflicting when another process is adding a transaction with the same number
-            String key = transactionsPrefix + entry.getTransactionNumber() + "-" + UUID.randomUUID().toString() + ".json";
+            String key = transactionsPrefix + entry.getTransactionNumber() + "-" + UUID.randomUUID().toString() + BINARY_S3_SUFFIX;
             LOGGER.info("Found large transaction, saving to data bucket instead of DynamoDB at {}", key);
             builder.string(BODY_S3_KEY, key);
-            s3.putObject(dataBucket, key, body);
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(body.length);
+            s3.putObject(dataBucket, key, new ByteArrayInputStream(body), metadata);
         }
     }
 
@@ -165,16 +212,35 @@ public class DynamoDBTransactionLogStore implements TransactionLogStore {
         long number = getLongAttribute(item, TRANSACTION_NUMBER, -1);
         Instant updateTime = getInstantAttribute(item, UPDATE_TIME);
         TransactionType type = readType(item);
-        String body;
+        StateStoreTransaction<?> transaction = readBody(item, type);
+        return new TransactionLogEntry(number, updateTime, transaction);
+    }
+
+    private StateStoreTransaction<?> readBody(Map<String, AttributeValue> item, TransactionType type) {
         String bodyS3Key = getStringAttribute(item, BODY_S3_KEY);
         if (bodyS3Key != null) {
             LOGGER.debug("Reading large transaction from data bucket at {}", bodyS3Key);
-            body = s3.getObjectAsString(dataBucket, bodyS3Key);
+            if (bodyS3Key.endsWith(BINARY_S3_SUFFIX)) {
+                return serDe.toTransaction(type, readS3Bytes(bodyS3Key));
+            } else {
+                return jsonSerDe.toTransaction(type, s3.getObjectAsString(dataBucket, bodyS3Key));
+            }
+        } else if (item.get(BODY_BINARY) != null) {
+            ByteBuffer buffer = item.get(BODY_BINARY).getB();
+            byte[] body = new byte[buffer.remaining()];
+            buffer.duplicate().get(body);
+            return serDe.toTransaction(type, body);
         } else {
-            body = getStringAttribute(item, BODY);
+            return jsonSerDe.toTransaction(type, getStringAttribute(item, BODY));
+        }
+    }
+
+    private byte[] readS3Bytes(String key) {
+        try (S3Object object = s3.getObject(dataBucket, key)) {
+            return IOUtils.toByteArray(object.getObjectContent());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        StateStoreTransaction<?> transaction = serDe.toTransaction(type, body);
-        return new TransactionLogEntry(number, updateTime, transaction);
     }
 
     private TransactionType readType(Map<String, AttributeValue> item) {
@@ -83,7 +83,7 @@ public class TransactionLogSnapshotDeleter {
             if (!fs.exists(path)) {
                 LOGGER.warn("Snapshot file has already been deleted: {}", file);
             } else {
-                fs.delete(path, false);
+                fs.delete(path, true);
             }
         };
     }
@@ -16,16 +16,23 @@
 package sleeper.statestore.transactionlog;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
- * Metadata about a snapshot derived from a transaction log, to be held in an index.
+ * Metadata about a snapshot derived from a transaction log, to be held in an index. A snapshot of files may be split
+ * into segments, where a full base snapshot is followed by deltas holding the files that changed since the previous
+ * segment. In that case, this snapshot's own file holds the last delta, and the metadata also tracks the paths of the
+ * earlier segments. A full snapshot of files may also be split into shards by partition, held in a directory.
  */
 public class TransactionLogSnapshotMetadata {
+    private static final String SHARDED_SUFFIX = "-sharded";
     private final String path;
     private final SnapshotType type;
     private final long transactionNumber;
     private final Instant createdTime;
+    private final List<String> baseSegmentPaths;
 
     /**
      * Creates metadata about a snapshot of files. Generates a path to the Arrow file in which the snapshot will be
@@ -52,6 +59,18 @@ public class TransactionLogSnapshotMetadata {
         return new TransactionLogSnapshotMetadata(getFilesPath(basePath, transactionNumber), SnapshotType.FILES, transactionNumber, createdTime);
     }
 
+    /**
+     * Creates metadata about a snapshot of files which will be split into shards by partition. Generates a path to the
+     * directory in which the shards will be stored.
+     *
+     * @param  basePath          the base path under which data is held for the given Sleeper table
+     * @param  transactionNumber the transaction number the snapshot was made against
+     * @return                   the metadata
+     */
+    public static TransactionLogSnapshotMetadata forFilesSharded(String basePath, long transactionNumber) {
+        return new TransactionLogSnapshotMetadata(getFilesPath(basePath, transactionNumber) + SHARDED_SUFFIX, SnapshotType.FILES, transactionNumber);
+    }
+
     /**
      * Creates metadata about a snapshot of partitions. Generates a path to the Arrow file in which the snapshot will be
      * stored.
@@ -77,15 +96,35 @@ public class TransactionLogSnapshotMetadata {
         return new TransactionLogSnapshotMetadata(getPartitionsPath(basePath, transactionNumber), SnapshotType.PARTITIONS, transactionNumber, createdTime);
     }
 
+    /**
+     * Creates metadata about a snapshot of files which will be stored as a delta on top of a previous snapshot. Generates
+     * a path to the Arrow file in which the delta will be stored.
+     *
+     * @param  basePath          the base path under which data is held for the given Sleeper table
+     * @param  transactionNumber the transaction number the snapshot was made against
+     * @param  previous          the metadata of the previous snapshot, which the delta will be applied on top of
+     * @return                   the metadata
+     */
+    public static TransactionLogSnapshotMetadata forFilesDelta(String basePath, long transactionNumber, TransactionLogSnapshotMetadata previous) {
+        List<String> baseSegmentPaths = new ArrayList<>(previous.getBaseSegmentPaths());
+        baseSegmentPaths.add(previous.getPath());
+        return new TransactionLogSnapshotMetadata(getFilesDeltaPath(basePath, transactionNumber), SnapshotType.FILES, transactionNumber, null, baseSegmentPaths);
+    }
+
     public TransactionLogSnapshotMetadata(String path, SnapshotType type, long transactionNumber) {
         this(path, type, transactionNumber, null);
     }
 
     public TransactionLogSnapshotMetadata(String path, SnapshotType type, long transactionNumber, Instant createdTime) {
+        this(path, type, transactionNumber, createdTime, List.of());
+    }
+
+    public TransactionLogSnapshotMetadata(String path, SnapshotType type, long transactionNumber, Instant createdTime, List<String> baseSegmentPaths) {
         this.path = path;
         this.type = type;
         this.transactionNumber = transactionNumber;
         this.createdTime = createdTime;
+        this.baseSegmentPaths = List.copyOf(baseSegmentPaths);
     }
 
     public String getPath() {
@@ -104,17 +143,50 @@ public class TransactionLogSnapshotMetadata {
         return createdTime;
     }
 
+    /**
+     * Retrieves the paths of the earlier segments this snapshot is built on, in the order they must be applied. The
+     * first is a full base snapshot, and the rest are deltas. This is empty if this snapshot is not a delta.
+     *
+     * @return the paths
+     */
+    public List<String> getBaseSegmentPaths() {
+        return baseSegmentPaths;
+    }
+
+    /**
+     * Checks whether a path to a snapshot of files refers to a directory of shards, rather than a single Arrow file.
+     *
+     * @param  path the path to the snapshot, or to a segment it is built on
+     * @return      true if the path refers to a directory of shards
+     */
+    public static boolean isShardedFilesPath(String path) {
+        return path.endsWith(SHARDED_SUFFIX);
+    }
+
+    /**
+     * Checks whether this snapshot is stored as a delta on top of earlier segments.
+     *
+     * @return true if this snapshot is a delta
+     */
+    public boolean isDelta() {
+        return !baseSegmentPaths.isEmpty();
+    }
+
     private static String getFilesPath(String basePath, long transactionNumber) {
         return basePath + "/statestore/snapshots/" + transactionNumber + "-files.arrow";
     }
 
+    private static String getFilesDeltaPath(String basePath, long transactionNumber) {
+        return basePath + "/statestore/snapshots/" + transactionNumber + "-files-delta.arrow";
+    }
+
     private static String getPartitionsPath(String basePath, long transactionNumber) {
         return basePath + "/statestore/snapshots/" + transactionNumber + "-partitions.arrow";
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(path, type, transactionNumber, createdTime);
+        return Objects.hash(path, type, transactionNumber, createdTime, baseSegmentPaths);
     }
 
     @Override
@@ -126,11 +198,12 @@ public class TransactionLogSnapshotMetadata {
             return false;
         }
         TransactionLogSnapshotMetadata other = (TransactionLogSnapshotMetadata) obj;
-        return Objects.equals(path, other.path) && type == other.type && transactionNumber == other.transactionNumber && Objects.equals(createdTime, other.createdTime);
+        return Objects.equals(path, other.path) && type == other.type && transactionNumber == other.transactionNumber && Objects.equals(createdTime, other.createdTime)
+                && Objects.equals(baseSegmentPaths, other.baseSegmentPaths);
     }
 
     @Override
     public String toString() {
-        return "TransactionLogSnapshot{path=" + path + ", type=" + type + ", transactionNumber=" + transactionNumber + ", createdTime=" + createdTime + "}";
+        return "TransactionLogSnapshot{path=" + path + ", type=" + type + ", transactionNumber=" + transactionNumber + ", createdTime=" + createdTime + ", baseSegmentPaths=" + baseSegmentPaths + "}";
     }
 }
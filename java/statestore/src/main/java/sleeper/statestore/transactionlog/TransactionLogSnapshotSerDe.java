@@ -21,11 +21,20 @@ import sleeper.core.schema.Schema;
 import sleeper.core.statestore.transactionlog.StateStoreFiles;
 import sleeper.core.statestore.transactionlog.StateStorePartitions;
 import sleeper.statestore.StateStoreArrowFileStore;
+import sleeper.statestore.StateStoreBackgroundExecutor;
+import sleeper.statestore.StateStoreFilesDelta;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
- * Reads and writes snapshots derived from a transaction log to/from Parquet files.
+ * Reads and writes snapshots derived from a transaction log to/from Arrow files. A snapshot of files may be split into
+ * a base snapshot and a number of deltas. When loading such a snapshot, all its segments are read in parallel. The base
+ * snapshot may also be split into shards by partition, which are read ahead in parallel and streamed into the state.
  */
 class TransactionLogSnapshotSerDe {
     private final Schema sleeperSchema;
@@ -50,9 +59,55 @@ class TransactionLogSnapshotSerDe {
         dataStore.saveFiles(snapshot.getPath(), state.referencedAndUnreferenced());
     }
 
+    void saveFilesSharded(TransactionLogSnapshotMetadata snapshot, StateStoreFiles state, int maxFilesPerShard) throws IOException {
+        dataStore.saveFilesSharded(snapshot.getPath(), state.referencedAndUnreferenced(), maxFilesPerShard);
+    }
+
+    void saveFilesDelta(TransactionLogSnapshotMetadata snapshot, StateStoreFilesDelta delta) throws IOException {
+        dataStore.saveFilesDelta(snapshot.getPath(), delta);
+    }
+
     StateStoreFiles loadFiles(TransactionLogSnapshotMetadata snapshot) throws IOException {
+        if (!snapshot.isDelta()) {
+            return loadFilesBase(snapshot.getPath());
+        }
+        List<String> segmentPaths = snapshot.getBaseSegmentPaths();
+        List<CompletableFuture<StateStoreFilesDelta>> deltaFutures = segmentPaths.subList(1, segmentPaths.size()).stream()
+                .map(path -> CompletableFuture.supplyAsync(() -> loadFilesDeltaUnchecked(path), StateStoreBackgroundExecutor.get()))
+                .collect(Collectors.toList());
+        deltaFutures.add(CompletableFuture.supplyAsync(() -> loadFilesDeltaUnchecked(snapshot.getPath()), StateStoreBackgroundExecutor.get()));
+        try {
+            // The base is loaded on this thread, as a sharded base waits for its shards to load on the shared executor
+            StateStoreFiles files = loadFilesBase(segmentPaths.get(0));
+            for (CompletableFuture<StateStoreFilesDelta> deltaFuture : deltaFutures) {
+                deltaFuture.join().applyTo(files);
+            }
+            return files;
+        } catch (IOException | RuntimeException e) {
+            deltaFutures.forEach(future -> future.cancel(false));
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        }
+    }
+
+    private StateStoreFiles loadFilesBase(String path) throws IOException {
         StateStoreFiles files = new StateStoreFiles();
-        dataStore.loadFiles(snapshot.getPath()).forEach(files::add);
+        if (TransactionLogSnapshotMetadata.isShardedFilesPath(path)) {
+            dataStore.loadFilesSharded(path, files::add);
+        } else {
+            dataStore.loadFiles(path, files::add);
+        }
         return files;
     }
+
+    private StateStoreFilesDelta loadFilesDeltaUnchecked(String path) {
+        try {
+            return dataStore.loadFilesDelta(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
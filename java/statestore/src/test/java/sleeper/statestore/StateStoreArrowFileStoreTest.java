@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.core.statestore.AllReferencesToAFile;
+import sleeper.core.statestore.FileReference;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.core.statestore.AllReferencesToAFileTestHelper.fileWithNoReferences;
+import static sleeper.core.statestore.AllReferencesToAFileTestHelper.fileWithReferences;
+
+public class StateStoreArrowFileStoreTest {
+
+    @TempDir
+    private Path tempDir;
+    private final StateStoreArrowFileStore store = new StateStoreArrowFileStore(new Configuration());
+    private final Instant updateTime = Instant.parse("2024-06-20T10:15:01Z");
+
+    @Test
+    void shouldSaveAndLoadFilesInShards() throws Exception {
+        // Given
+        List<AllReferencesToAFile> files = List.of(
+                fileInPartitions("file1.parquet", "A", "C"),
+                fileInPartitions("file2.parquet", "B"),
+                fileInPartitions("file3.parquet", "C"),
+                fileWithNoReferences("file4.parquet", updateTime));
+        String directory = tempDir.resolve("snapshot").toString();
+
+        // When
+        store.saveFilesSharded(directory, files, 1);
+        List<AllReferencesToAFile> loaded = new ArrayList<>();
+        store.loadFilesSharded(directory, loaded::add);
+
+        // Then
+        assertThat(loaded).containsExactlyInAnyOrderElementsOf(files);
+        assertThat(filesInDirectory(directory)).containsExactlyInAnyOrder(
+                "manifest.arrow", "shard-0.arrow", "shard-1.arrow", "shard-2.arrow", "shard-3.arrow");
+    }
+
+    @Test
+    void shouldLoadOnlyShardsForGivenPartitions() throws Exception {
+        // Given
+        AllReferencesToAFile file1 = fileInPartitions("file1.parquet", "A", "C");
+        AllReferencesToAFile file2 = fileInPartitions("file2.parquet", "B");
+        AllReferencesToAFile file3 = fileInPartitions("file3.parquet", "C");
+        String directory = tempDir.resolve("snapshot").toString();
+        store.saveFilesSharded(directory, List.of(file1, file2, file3), 1);
+
+        // When / Then
+        assertThat(store.loadFilesShardedInPartitions(directory, List.of("C")))
+                .containsExactly(file1, file3);
+        assertThat(store.loadFilesShardedInPartitions(directory, List.of("A", "C")))
+                .containsExactly(file1, file3);
+        assertThat(store.loadFilesShardedInPartitions(directory, List.of("B")))
+                .containsExactly(file2);
+    }
+
+    @Test
+    void shouldSaveAndLoadNoFilesInShards() throws Exception {
+        // Given
+        String directory = tempDir.resolve("snapshot").toString();
+
+        // When
+        store.saveFilesSharded(directory, List.of(), 10);
+        List<AllReferencesToAFile> loaded = new ArrayList<>();
+        store.loadFilesSharded(directory, loaded::add);
+
+        // Then
+        assertThat(loaded).isEmpty();
+    }
+
+    private List<String> filesInDirectory(String directory) throws Exception {
+        try (Stream<Path> stream = Files.list(Path.of(directory))) {
+            return stream.map(path -> path.getFileName().toString())
+                    .filter(name -> !name.endsWith(".crc"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private AllReferencesToAFile fileInPartitions(String filename, String... partitionIds) {
+        return fileWithReferences(Stream.of(partitionIds)
+                .map(partitionId -> FileReference.builder()
+                        .filename(filename)
+                        .partitionId(partitionId)
+                        .numberOfRecords(100L)
+                        .countApproximate(false)
+                        .onlyContainsDataForThisPartition(true)
+                        .build())
+                .collect(Collectors.toList()))
+                .withCreatedUpdateTime(updateTime);
+    }
+}
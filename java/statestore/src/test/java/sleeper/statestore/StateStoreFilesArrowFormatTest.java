@@ -26,7 +26,9 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.nio.channels.Channels;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static sleeper.core.statestore.AllReferencesToAFileTestHelper.fileWithNoReferences;
@@ -151,6 +153,133 @@ public class StateStoreFilesArrowFormatTest {
         assertThat(read(bytes)).isEmpty();
     }
 
+    @Test
+    void shouldWriteFilesOverMultipleBatches() throws Exception {
+        // Given
+        Instant updateTime = Instant.parse("2024-05-28T13:25:01.123Z");
+        List<AllReferencesToAFile> files = List.of(
+                fileWithNoReferences("file1.parquet", updateTime),
+                AllReferencesToAFile.fileWithOneReference(rootReference("file2.parquet"), updateTime),
+                fileWithNoReferences("file3.parquet", updateTime),
+                AllReferencesToAFile.fileWithOneReference(rootReference("file4.parquet"), updateTime),
+                AllReferencesToAFile.fileWithOneReference(rootReference("file5.parquet"), updateTime));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        StateStoreFilesArrowFormat.write(files.iterator(), allocator, Channels.newChannel(bytes), 2);
+
+        // Then
+        assertThat(read(bytes)).isEqualTo(files);
+    }
+
+    @Test
+    void shouldWriteManifest() throws Exception {
+        // Given
+        StateStoreFilesManifest manifest = new StateStoreFilesManifest(List.of(
+                new StateStoreFilesManifest.Shard("shard-0.arrow", List.of("A", "B")),
+                new StateStoreFilesManifest.Shard("shard-1.arrow", List.of("C")),
+                new StateStoreFilesManifest.Shard("shard-2.arrow", List.of())));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        StateStoreFilesArrowFormat.writeManifest(manifest, allocator, Channels.newChannel(bytes));
+
+        // Then
+        assertThat(StateStoreFilesArrowFormat.readManifest(allocator,
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))))
+                .isEqualTo(manifest);
+    }
+
+    @Test
+    void shouldWriteDeltaWithUpdatedAndDeletedFiles() throws Exception {
+        // Given
+        FileReference reference = FileReference.builder()
+                .filename("updated.parquet")
+                .partitionId("root")
+                .numberOfRecords(123L)
+                .jobId("test-job")
+                .countApproximate(false)
+                .onlyContainsDataForThisPartition(true)
+                .build();
+        AllReferencesToAFile updatedFile = AllReferencesToAFile.fileWithOneReference(
+                reference, Instant.parse("2024-05-28T13:25:01.123Z"));
+        AllReferencesToAFile unreferencedFile = fileWithNoReferences(
+                "unreferenced.parquet", Instant.parse("2024-05-28T13:26:01.123Z"));
+        StateStoreFilesDelta delta = new StateStoreFilesDelta(
+                List.of(updatedFile, unreferencedFile), List.of("deleted1.parquet", "deleted2.parquet"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        writeDelta(delta, bytes);
+
+        // Then
+        assertThat(readDelta(bytes)).isEqualTo(delta);
+    }
+
+    @Test
+    void shouldWriteEmptyDelta() throws Exception {
+        // Given
+        StateStoreFilesDelta delta = new StateStoreFilesDelta(List.of(), List.of());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        writeDelta(delta, bytes);
+
+        // Then
+        assertThat(readDelta(bytes)).isEqualTo(delta);
+    }
+
+    private static FileReference rootReference(String filename) {
+        return FileReference.builder()
+                .filename(filename)
+                .partitionId("root")
+                .numberOfRecords(123L)
+                .jobId("test-job")
+                .countApproximate(false)
+                .onlyContainsDataForThisPartition(true)
+                .build();
+    }
+
+    @Test
+    void shouldReadOnlyReferencesInGivenPartitions() throws Exception {
+        // Given
+        FileReference referenceA = FileReference.builder()
+                .filename("file1.parquet")
+                .partitionId("A")
+                .numberOfRecords(123L)
+                .jobId("test-job")
+                .countApproximate(false)
+                .onlyContainsDataForThisPartition(false)
+                .build();
+        FileReference referenceB = FileReference.builder()
+                .filename("file1.parquet")
+                .partitionId("B")
+                .numberOfRecords(456L)
+                .countApproximate(true)
+                .onlyContainsDataForThisPartition(false)
+                .build();
+        FileReference referenceC = FileReference.builder()
+                .filename("file2.parquet")
+                .partitionId("C")
+                .numberOfRecords(789L)
+                .countApproximate(false)
+                .onlyContainsDataForThisPartition(true)
+                .build();
+        Instant updateTime = Instant.parse("2024-05-28T13:25:01.123Z");
+        AllReferencesToAFile file1 = fileWithReferences(referenceA, referenceB).withCreatedUpdateTime(updateTime);
+        AllReferencesToAFile file2 = AllReferencesToAFile.fileWithOneReference(referenceC, updateTime);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        write(List.of(file1, file2), bytes);
+
+        // Then
+        assertThat(readReferencesInPartitions(bytes, Set.of("B", "C")))
+                .containsExactly(
+                        referenceB.toBuilder().lastStateStoreUpdateTime(updateTime).build(),
+                        referenceC.toBuilder().lastStateStoreUpdateTime(updateTime).build());
+    }
+
     private void write(List<AllReferencesToAFile> files, ByteArrayOutputStream stream) throws Exception {
         StateStoreFilesArrowFormat.write(files, allocator, Channels.newChannel(stream));
     }
@@ -159,4 +288,21 @@ public class StateStoreFilesArrowFormatTest {
         return StateStoreFilesArrowFormat.read(allocator,
                 Channels.newChannel(new ByteArrayInputStream(stream.toByteArray())));
     }
+
+    private List<FileReference> readReferencesInPartitions(ByteArrayOutputStream stream, Set<String> partitionIds) throws Exception {
+        List<FileReference> references = new ArrayList<>();
+        StateStoreFilesArrowFormat.readReferencesInPartitions(allocator,
+                Channels.newChannel(new ByteArrayInputStream(stream.toByteArray())),
+                partitionIds, references::add);
+        return references;
+    }
+
+    private void writeDelta(StateStoreFilesDelta delta, ByteArrayOutputStream stream) throws Exception {
+        StateStoreFilesArrowFormat.writeDelta(delta, allocator, Channels.newChannel(stream));
+    }
+
+    private StateStoreFilesDelta readDelta(ByteArrayOutputStream stream) throws Exception {
+        return StateStoreFilesArrowFormat.readDelta(allocator,
+                Channels.newChannel(new ByteArrayInputStream(stream.toByteArray())));
+    }
 }
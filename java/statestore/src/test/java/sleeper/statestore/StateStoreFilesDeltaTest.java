@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.statestore.AllReferencesToAFile;
+import sleeper.core.statestore.FileReference;
+import sleeper.core.statestore.transactionlog.StateStoreFiles;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.core.statestore.AllReferencesToAFileTestHelper.fileWithNoReferences;
+
+public class StateStoreFilesDeltaTest {
+
+    private final Instant updateTime = Instant.parse("2024-06-20T10:15:01Z");
+    private final StateStoreFiles state = new StateStoreFiles();
+
+    @Test
+    void shouldFindAddedFiles() {
+        // Given
+        AllReferencesToAFile file1 = fileWithNoReferences("file1.parquet", updateTime);
+        AllReferencesToAFile file2 = fileWithNoReferences("file2.parquet", updateTime);
+        state.add(file1);
+        List<AllReferencesToAFile> before = filesInState();
+
+        // When
+        state.add(file2);
+
+        // Then
+        assertThat(StateStoreFilesDelta.between(before, state))
+                .isEqualTo(new StateStoreFilesDelta(List.of(file2), List.of()));
+    }
+
+    @Test
+    void shouldFindUpdatedFiles() {
+        // Given
+        AllReferencesToAFile file = AllReferencesToAFile.fileWithOneReference(rootReference("file.parquet"), updateTime);
+        state.add(file);
+        List<AllReferencesToAFile> before = filesInState();
+
+        // When
+        state.updateFile("file.parquet", existing -> existing.withJobIdForPartition(
+                "test-job", "root", Instant.parse("2024-06-20T10:16:01Z")));
+
+        // Then
+        assertThat(StateStoreFilesDelta.between(before, state))
+                .isEqualTo(new StateStoreFilesDelta(List.of(state.file("file.parquet").orElseThrow()), List.of()));
+    }
+
+    @Test
+    void shouldFindDeletedFiles() {
+        // Given
+        state.add(fileWithNoReferences("file1.parquet", updateTime));
+        state.add(fileWithNoReferences("file2.parquet", updateTime));
+        List<AllReferencesToAFile> before = filesInState();
+
+        // When
+        state.remove("file1.parquet");
+
+        // Then
+        assertThat(StateStoreFilesDelta.between(before, state))
+                .isEqualTo(new StateStoreFilesDelta(List.of(), List.of("file1.parquet")));
+    }
+
+    @Test
+    void shouldFindNoChanges() {
+        // Given
+        state.add(fileWithNoReferences("file1.parquet", updateTime));
+        state.add(fileWithNoReferences("file2.parquet", updateTime));
+
+        // When / Then
+        assertThat(StateStoreFilesDelta.between(filesInState(), state))
+                .isEqualTo(new StateStoreFilesDelta(List.of(), List.of()));
+    }
+
+    @Test
+    void shouldApplyChangesToEarlierState() {
+        // Given
+        state.add(fileWithNoReferences("file1.parquet", updateTime));
+        state.add(AllReferencesToAFile.fileWithOneReference(rootReference("file2.parquet"), updateTime));
+        state.add(fileWithNoReferences("file3.parquet", updateTime));
+        List<AllReferencesToAFile> before = filesInState();
+        state.remove("file1.parquet");
+        state.updateFile("file2.parquet", existing -> existing.withJobIdForPartition(
+                "test-job", "root", Instant.parse("2024-06-20T10:16:01Z")));
+        state.add(fileWithNoReferences("file4.parquet", updateTime));
+        StateStoreFilesDelta delta = StateStoreFilesDelta.between(before, state);
+        StateStoreFiles earlierState = new StateStoreFiles();
+        before.forEach(earlierState::add);
+
+        // When
+        delta.applyTo(earlierState);
+
+        // Then
+        assertThat(earlierState).isEqualTo(state);
+    }
+
+    private List<AllReferencesToAFile> filesInState() {
+        return new ArrayList<>(state.referencedAndUnreferenced());
+    }
+
+    private static FileReference rootReference(String filename) {
+        return FileReference.builder()
+                .filename(filename)
+                .partitionId("root")
+                .numberOfRecords(100L)
+                .countApproximate(false)
+                .onlyContainsDataForThisPartition(true)
+                .build();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022-2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.statestore.AllReferencesToAFile;
+import sleeper.core.statestore.FileReference;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.core.statestore.AllReferencesToAFileTestHelper.fileWithNoReferences;
+import static sleeper.core.statestore.AllReferencesToAFileTestHelper.fileWithReferences;
+
+public class StateStoreFilesManifestTest {
+
+    private final Instant updateTime = Instant.parse("2024-06-20T10:15:01Z");
+
+    @Test
+    void shouldGroupPartitionsIntoShardsUpToMaxFiles() {
+        // Given
+        AllReferencesToAFile file1 = fileInPartitions("file1.parquet", "A");
+        AllReferencesToAFile file2 = fileInPartitions("file2.parquet", "B");
+        AllReferencesToAFile file3 = fileInPartitions("file3.parquet", "C");
+        List<AllReferencesToAFile> files = List.of(file1, file2, file3);
+
+        // When
+        StateStoreFilesManifest manifest = StateStoreFilesManifest.planShards(files, 2);
+
+        // Then
+        assertThat(manifest.getShards()).containsExactly(
+                new StateStoreFilesManifest.Shard("shard-0.arrow", List.of("A", "B")),
+                new StateStoreFilesManifest.Shard("shard-1.arrow", List.of("C")));
+        assertThat(manifest.assignToShards(files)).containsExactly(
+                List.of(file1, file2),
+                List.of(file3));
+    }
+
+    @Test
+    void shouldKeepAllFilesInAPartitionInOneShard() {
+        // Given
+        AllReferencesToAFile file1 = fileInPartitions("file1.parquet", "A");
+        AllReferencesToAFile file2 = fileInPartitions("file2.parquet", "A");
+        AllReferencesToAFile file3 = fileInPartitions("file3.parquet", "A");
+        AllReferencesToAFile file4 = fileInPartitions("file4.parquet", "B");
+        List<AllReferencesToAFile> files = List.of(file1, file2, file3, file4);
+
+        // When
+        StateStoreFilesManifest manifest = StateStoreFilesManifest.planShards(files, 2);
+
+        // Then
+        assertThat(manifest.getShards()).containsExactly(
+                new StateStoreFilesManifest.Shard("shard-0.arrow", List.of("A")),
+                new StateStoreFilesManifest.Shard("shard-1.arrow", List.of("B")));
+        assertThat(manifest.assignToShards(files)).containsExactly(
+                List.of(file1, file2, file3),
+                List.of(file4));
+    }
+
+    @Test
+    void shouldHoldFileInEachShardItIsReferencedIn() {
+        // Given
+        AllReferencesToAFile file1 = fileInPartitions("file1.parquet", "A", "B");
+        AllReferencesToAFile file2 = fileInPartitions("file2.parquet", "A");
+        AllReferencesToAFile file3 = fileInPartitions("file3.parquet", "B");
+        List<AllReferencesToAFile> files = List.of(file1, file2, file3);
+
+        // When
+        StateStoreFilesManifest manifest = StateStoreFilesManifest.planShards(files, 2);
+
+        // Then
+        assertThat(manifest.assignToShards(files)).containsExactly(
+                List.of(file1, file2),
+                List.of(file1, file3));
+        assertThat(manifest.firstShardIndex(file1, index -> true)).isZero();
+        assertThat(manifest.firstShardIndex(file1, index -> index == 1)).isOne();
+    }
+
+    @Test
+    void shouldHoldUnreferencedFilesInSeparateShard() {
+        // Given
+        AllReferencesToAFile file1 = fileInPartitions("file1.parquet", "A");
+        AllReferencesToAFile file2 = fileWithNoReferences("file2.parquet", updateTime);
+        List<AllReferencesToAFile> files = List.of(file1, file2);
+
+        // When
+        StateStoreFilesManifest manifest = StateStoreFilesManifest.planShards(files, 10);
+
+        // Then
+        assertThat(manifest.getShards()).containsExactly(
+                new StateStoreFilesManifest.Shard("shard-0.arrow", List.of("A")),
+                new StateStoreFilesManifest.Shard("shard-1.arrow", List.of()));
+        assertThat(manifest.assignToShards(files)).containsExactly(
+                List.of(file1),
+                List.of(file2));
+    }
+
+    @Test
+    void shouldFindShardsForPartitions() {
+        // Given
+        StateStoreFilesManifest manifest = new StateStoreFilesManifest(List.of(
+                new StateStoreFilesManifest.Shard("shard-0.arrow", List.of("A", "B")),
+                new StateStoreFilesManifest.Shard("shard-1.arrow", List.of("C")),
+                new StateStoreFilesManifest.Shard("shard-2.arrow", List.of("D"))));
+
+        // When / Then
+        assertThat(manifest.shardIndexesForPartitions(Set.of("B", "D", "E")))
+                .containsExactly(0, 2);
+    }
+
+    private AllReferencesToAFile fileInPartitions(String filename, String... partitionIds) {
+        return fileWithReferences(Stream.of(partitionIds)
+                .map(partitionId -> FileReference.builder()
+                        .filename(filename)
+                        .partitionId(partitionId)
+                        .numberOfRecords(100L)
+                        .countApproximate(false)
+                        .onlyContainsDataForThisPartition(true)
+                        .build())
+                .collect(Collectors.toList()))
+                .withCreatedUpdateTime(updateTime);
+    }
+}
@@ -199,6 +199,24 @@ public class StateStorePartitionsArrowFormatTest {
         assertThat(read(bytes)).isEmpty();
     }
 
+    @Test
+    void shouldWritePartitionsOverMultipleBatches() throws Exception {
+        // Given
+        Schema schema = schemaWithKey("key", new StringType());
+        PartitionTree tree = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", "mmm")
+                .splitToNewChildren("L", "LL", "LR", "ggg")
+                .buildTree();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // When
+        StateStorePartitionsArrowFormat.write(tree.getAllPartitions().iterator(), allocator, Channels.newChannel(bytes), 2);
+
+        // Then
+        assertThat(read(bytes)).isEqualTo(tree.getAllPartitions());
+    }
+
     private void write(List<Partition> partitions, ByteArrayOutputStream stream) throws Exception {
         StateStorePartitionsArrowFormat.write(partitions, allocator, Channels.newChannel(stream));
     }
@@ -21,6 +21,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import sleeper.core.partition.PartitionTree;
 import sleeper.core.schema.type.LongType;
 import sleeper.core.statestore.AllReferencesToAFile;
 import sleeper.core.statestore.AllReferencesToAllFiles;
@@ -1158,6 +1159,41 @@ public class S3FileReferenceStoreIT extends S3StateStoreOneTableTestBase {
             assertThat(store.getPartitionToReferencedFilesMap())
                     .isEqualTo(Map.of("L", List.of("file")));
         }
+
+        @Test
+        public void shouldReturnFilesInGivenPartitions() throws Exception {
+            // Given
+            splitPartition("root", "L", "R", 5);
+            FileReference rootFile = factory.rootFile("rootFile", 10);
+            FileReference leftFile1 = factory.partitionFile("L", "leftFile1", 10);
+            FileReference leftFile2 = factory.partitionFile("L", "leftFile2", 10);
+            FileReference rightFile = factory.partitionFile("R", "rightFile", 10);
+            store.addFiles(List.of(rootFile, leftFile1, leftFile2, rightFile));
+
+            // When / Then
+            assertThat(store.getFileReferencesInPartitions(List.of("L")))
+                    .containsExactlyInAnyOrder(leftFile1, leftFile2);
+            assertThat(store.getFileReferencesInPartitions(List.of("root", "R")))
+                    .containsExactlyInAnyOrder(rootFile, rightFile);
+        }
+
+        @Test
+        public void shouldReturnFilesInGivenPartitionsAndAncestors() throws Exception {
+            // Given
+            splitPartition("root", "L", "R", 5);
+            splitPartition("L", "LL", "LR", 2);
+            FileReference rootFile = factory.rootFile("rootFile", 10);
+            FileReference leftFile = factory.partitionFile("L", "leftFile", 10);
+            FileReference leftLeftFile = factory.partitionFile("LL", "leftLeftFile", 10);
+            FileReference leftRightFile = factory.partitionFile("LR", "leftRightFile", 10);
+            FileReference rightFile = factory.partitionFile("R", "rightFile", 10);
+            store.addFiles(List.of(rootFile, leftFile, leftLeftFile, leftRightFile, rightFile));
+            PartitionTree tree = new PartitionTree(store.getAllPartitions());
+
+            // When / Then
+            assertThat(store.getFileReferencesInPartitionsAndAncestors(tree, List.of("LL")))
+                    .containsExactlyInAnyOrder(leftLeftFile, leftFile, rootFile);
+        }
     }
 
     @Nested
@@ -37,6 +37,7 @@ import sleeper.core.statestore.transactionlog.TransactionLogStore;
 import sleeper.core.statestore.transactionlog.transactions.ClearFilesTransaction;
 import sleeper.core.statestore.transactionlog.transactions.DeleteFilesTransaction;
 import sleeper.core.statestore.transactionlog.transactions.InitialisePartitionsTransaction;
+import sleeper.core.statestore.transactionlog.transactions.TransactionSerDe;
 import sleeper.core.statestore.transactionlog.transactions.TransactionType;
 import sleeper.dynamodb.tools.DynamoDBRecordBuilder;
 
@@ -130,6 +131,25 @@ public class DynamoDBTransactionLogStoreIT extends TransactionLogStateStoreTestB
                 .isInstanceOf(JsonSyntaxException.class);
     }
 
+    @Test
+    void shouldReadTransactionInJsonFormat() throws Exception {
+        // Given
+        DeleteFilesTransaction transaction = new DeleteFilesTransaction(List.of("file1.parquet", "file2.parquet"));
+        dynamoDBClient.putItem(new PutItemRequest()
+                .withTableName(instanceProperties.get(TRANSACTION_LOG_FILES_TABLENAME))
+                .withItem(new DynamoDBRecordBuilder()
+                        .string(TABLE_ID, tableProperties.get(TableProperty.TABLE_ID))
+                        .number(TRANSACTION_NUMBER, 1)
+                        .number("UPDATE_TIME", DEFAULT_UPDATE_TIME.toEpochMilli())
+                        .string("TYPE", TransactionType.DELETE_FILES.name())
+                        .string("BODY", new TransactionSerDe(schema).toJson(transaction))
+                        .build()));
+
+        // When / Then
+        assertThat(fileLogStore.readTransactionsAfter(0))
+                .containsExactly(new TransactionLogEntry(1, DEFAULT_UPDATE_TIME, transaction));
+    }
+
     @Test
     void shouldStoreFileUpdateTimeInLogEntry() throws Exception {
         // Given
@@ -26,9 +26,14 @@ import sleeper.core.statestore.StateStore;
 import sleeper.statestore.transactionlog.DynamoDBTransactionLogSnapshotStore.LatestSnapshotsMetadataLoader;
 import sleeper.statestore.transactionlog.DynamoDBTransactionLogSnapshotStore.SnapshotMetadataSaver;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static sleeper.configuration.properties.table.TableProperty.TRANSACTION_LOG_SNAPSHOT_FILES_PER_SHARD;
+import static sleeper.configuration.properties.table.TableProperty.TRANSACTION_LOG_SNAPSHOT_MAX_DELTA_SEGMENTS;
 import static sleeper.core.statestore.FileReferenceTestData.DEFAULT_UPDATE_TIME;
+import static sleeper.statestore.transactionlog.DynamoDBTransactionLogSnapshotStore.getBasePath;
 
 public class TransactionLogSnapshotCreatorIT extends TransactionLogSnapshotTestBase {
 
@@ -170,6 +175,120 @@ public class TransactionLogSnapshotCreatorIT extends TransactionLogSnapshotTestB
                         partitionsSnapshotPath(table, 1));
     }
 
+    @Test
+    void shouldCreateDeltaSnapshotWhenFewFilesChanged() throws Exception {
+        // Given
+        TableProperties table = createTable("test-table-id-1", "test-table-1");
+        StateStore stateStore = createStateStoreWithInMemoryTransactionLog(table);
+        stateStore.initialise();
+        FileReferenceFactory factory = FileReferenceFactory.fromUpdatedAt(stateStore, DEFAULT_UPDATE_TIME);
+        FileReference file1 = factory.rootFile("file1.parquet", 100L);
+        FileReference file2 = factory.rootFile("file2.parquet", 200L);
+        FileReference file3 = factory.rootFile("file3.parquet", 300L);
+        FileReference file4 = factory.rootFile("file4.parquet", 400L);
+        stateStore.addFiles(List.of(file1, file2, file3));
+        createSnapshots(table);
+
+        // When
+        stateStore.addFile(file4);
+        createSnapshots(table);
+
+        // Then
+        TransactionLogSnapshotMetadata deltaSnapshot = TransactionLogSnapshotMetadata.forFilesDelta(
+                getBasePath(instanceProperties, table), 2, filesSnapshot(table, 1));
+        assertThat(snapshotStore(table).getLatestSnapshots())
+                .isEqualTo(new LatestSnapshots(deltaSnapshot, partitionsSnapshot(table, 1)));
+        assertThat(snapshotStore(table).getFilesSnapshots())
+                .containsExactly(filesSnapshot(table, 1), deltaSnapshot);
+        assertThat(tableFiles(table))
+                .containsExactlyInAnyOrder(
+                        filesSnapshotPath(table, 1),
+                        deltaSnapshot.getPath(),
+                        partitionsSnapshotPath(table, 1));
+        assertThat(createStateStore(table).getFileReferences())
+                .containsExactly(file1, file2, file3, file4);
+    }
+
+    @Test
+    void shouldCreateFullSnapshotWhenMaxDeltaSegmentsReached() throws Exception {
+        // Given
+        TableProperties table = createTable("test-table-id-1", "test-table-1");
+        table.setNumber(TRANSACTION_LOG_SNAPSHOT_MAX_DELTA_SEGMENTS, 1);
+        StateStore stateStore = createStateStoreWithInMemoryTransactionLog(table);
+        stateStore.initialise();
+        FileReferenceFactory factory = FileReferenceFactory.fromUpdatedAt(stateStore, DEFAULT_UPDATE_TIME);
+        FileReference file1 = factory.rootFile("file1.parquet", 100L);
+        FileReference file2 = factory.rootFile("file2.parquet", 200L);
+        FileReference file3 = factory.rootFile("file3.parquet", 300L);
+        FileReference file4 = factory.rootFile("file4.parquet", 400L);
+        FileReference file5 = factory.rootFile("file5.parquet", 500L);
+        stateStore.addFiles(List.of(file1, file2, file3));
+        createSnapshots(table);
+        stateStore.addFile(file4);
+        createSnapshots(table);
+
+        // When
+        stateStore.addFile(file5);
+        createSnapshots(table);
+
+        // Then
+        assertThat(snapshotStore(table).getLatestSnapshots())
+                .isEqualTo(new LatestSnapshots(filesSnapshot(table, 3), partitionsSnapshot(table, 1)));
+        assertThat(createStateStore(table).getFileReferences())
+                .containsExactly(file1, file2, file3, file4, file5);
+    }
+
+    @Test
+    void shouldCreateFullSnapshotWhenDeltaSnapshotsDisabled() throws Exception {
+        // Given
+        TableProperties table = createTable("test-table-id-1", "test-table-1");
+        table.setNumber(TRANSACTION_LOG_SNAPSHOT_MAX_DELTA_SEGMENTS, 0);
+        StateStore stateStore = createStateStoreWithInMemoryTransactionLog(table);
+        stateStore.initialise();
+        FileReferenceFactory factory = FileReferenceFactory.fromUpdatedAt(stateStore, DEFAULT_UPDATE_TIME);
+        stateStore.addFiles(List.of(
+                factory.rootFile("file1.parquet", 100L),
+                factory.rootFile("file2.parquet", 200L),
+                factory.rootFile("file3.parquet", 300L)));
+        createSnapshots(table);
+
+        // When
+        stateStore.addFile(factory.rootFile("file4.parquet", 400L));
+        createSnapshots(table);
+
+        // Then
+        assertThat(snapshotStore(table).getFilesSnapshots())
+                .containsExactly(filesSnapshot(table, 1), filesSnapshot(table, 2));
+    }
+
+    @Test
+    void shouldCreateShardedSnapshotWhenFilesExceedShardSize() throws Exception {
+        // Given
+        TableProperties table = createTable("test-table-id-1", "test-table-1");
+        table.setNumber(TRANSACTION_LOG_SNAPSHOT_FILES_PER_SHARD, 1);
+        PartitionTree partitions = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", 123L)
+                .buildTree();
+        StateStore stateStore = createStateStoreWithInMemoryTransactionLog(table);
+        stateStore.initialise(partitions.getAllPartitions());
+        FileReferenceFactory factory = FileReferenceFactory.fromUpdatedAt(partitions, DEFAULT_UPDATE_TIME);
+        FileReference file1 = factory.partitionFile("L", "file1.parquet", 100L);
+        FileReference file2 = factory.partitionFile("R", "file2.parquet", 200L);
+        stateStore.addFiles(List.of(file1, file2));
+
+        // When
+        createSnapshots(table);
+
+        // Then
+        TransactionLogSnapshotMetadata shardedSnapshot = TransactionLogSnapshotMetadata.forFilesSharded(
+                getBasePath(instanceProperties, table), 1);
+        assertThat(snapshotStore(table).getLatestSnapshots())
+                .isEqualTo(new LatestSnapshots(shardedSnapshot, partitionsSnapshot(table, 1)));
+        assertThat(createStateStore(table).getFileReferences())
+                .containsExactly(file1, file2);
+    }
+
     @Test
     void shouldSkipCreatingSnapshotsIfStateHasNotUpdatedSinceLastSnapshot() throws Exception {
         // Given